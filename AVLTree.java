@@ -3,7 +3,44 @@ package com.tree2;
 /**
  * 二叉平衡树实现
  */
-public class AVLTree extends AbstractSelfBalancingBinarySearchTree {
+public class AVLTree extends AbstractJoinableBinarySearchTree {
+	
+    /**
+     * Constructor.
+     */
+    public AVLTree() {
+        super();
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param orderStatistic If true nodes keep subtree sizes, see {@link #select(int)} and {@link #rank(int)}.
+     */
+    public AVLTree(boolean orderStatistic) {
+        this.orderStatistic = orderStatistic;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param orderStatistic If true nodes keep subtree sizes, see {@link #select(int)} and {@link #rank(int)}.
+     * @param multiset If true equal keys share one node with occurrence count, see {@link #count(int)}.
+     */
+    public AVLTree(boolean orderStatistic, boolean multiset) {
+        this(orderStatistic);
+        this.multiset = multiset;
+    }
+
+    /**
+     * @param sortedKeys Keys in non-decreasing order.
+     * @return Tree built with {@link #bulkLoad(int[])}.
+     */
+    public static AVLTree fromSorted(int[] sortedKeys) {
+        AVLTree tree = new AVLTree();
+        tree.bulkLoad(sortedKeys);
+        return tree;
+    }
 	
 	public static void main(String[] args) {
 		AVLTree avl = new AVLTree();
@@ -46,10 +83,13 @@ public class AVLTree extends AbstractSelfBalancingBinarySearchTree {
      * 平衡二叉树的插入及平衡实现
      */
     @Override
-    public Node insert(int element) {
+    protected Node insert(int element, Node start, boolean ifAbsent) {
     	//这里引用平常平衡二叉树的插入操作
-        Node newNode = super.insert(element);
-        System.out.println("插入节点："+newNode.value);
+        Node newNode = super.insert(element, start, ifAbsent);
+        if (!lastInsertCreated) {
+            // existing node was found (or counted in multiset tree), structure did not change
+            return newNode;
+        }
         //对二叉树做平衡处理
         rebalance((AVLNode)newNode);
         return newNode;
@@ -59,8 +99,7 @@ public class AVLTree extends AbstractSelfBalancingBinarySearchTree {
      * 删除节点
      */
     @Override
-    public Node delete(int element) {
-        Node deleteNode = super.search(element);
+    protected Node delete(Node deleteNode) {
         if (deleteNode != null) {
             Node successorNode = super.delete(deleteNode);
             if (successorNode != null) {
@@ -85,13 +124,101 @@ public class AVLTree extends AbstractSelfBalancingBinarySearchTree {
         return new AVLNode(value, parent, left, right);
     }
 
+    /**
+     * Height is computed from children, tree built from the middle elements is always balanced.
+     */
+    @Override
+    protected void bulkLoadedNode(Node node, int depth, int maxDepth) {
+        super.bulkLoadedNode(node, depth, maxDepth);
+        updateHeight((AVLNode) node);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AVLTree split(int key) {
+        return (AVLTree) super.split(key);
+    }
+
+    /**
+     * AVL join: if heights differ by more than one, middle node goes down the right (left) spine of the higher tree
+     * to the first subtree at most one level higher than the other tree, then rotations on the way back fix balance.
+     */
+    @Override
+    protected Node join(Node left, int leftRank, Node middle, Node right, int rightRank) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            return joinRight(left, middle, right);
+        }
+        if (rightHeight > leftHeight + 1) {
+            return joinLeft(left, middle, right);
+        }
+        return link(middle, left, right);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected AbstractJoinableBinarySearchTree createTree() {
+        return new AVLTree(orderStatistic, multiset);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void updateJoinedNode(Node node) {
+        super.updateJoinedNode(node);
+        updateHeight((AVLNode) node);
+    }
+
+    private Node joinRight(Node left, Node middle, Node right) {
+        Node leftChild = left.left;
+        Node rightChild = left.right;
+        if (height(rightChild) <= height(right) + 1) {
+            Node joined = link(middle, rightChild, right);
+            if (height(joined) <= height(leftChild) + 1) {
+                return link(left, leftChild, joined);
+            }
+            return rotateSubtreeLeft(link(left, leftChild, rotateSubtreeRight(joined)));
+        }
+        Node joined = joinRight(rightChild, middle, right);
+        link(left, leftChild, joined);
+        if (height(joined) <= height(leftChild) + 1) {
+            return left;
+        }
+        return rotateSubtreeLeft(left);
+    }
+
+    private Node joinLeft(Node left, Node middle, Node right) {
+        Node leftChild = right.left;
+        Node rightChild = right.right;
+        if (height(leftChild) <= height(left) + 1) {
+            Node joined = link(middle, left, leftChild);
+            if (height(joined) <= height(rightChild) + 1) {
+                return link(right, joined, rightChild);
+            }
+            return rotateSubtreeRight(link(right, rotateSubtreeLeft(joined), rightChild));
+        }
+        Node joined = joinLeft(left, middle, leftChild);
+        link(right, joined, rightChild);
+        if (height(joined) <= height(rightChild) + 1) {
+            return right;
+        }
+        return rotateSubtreeRight(right);
+    }
+
     /**
      * 平衡二叉树平衡操作
      * @param 新插入的节点.
      */
     private void rebalance(AVLNode node) {
-    	//
+        int steps = 0;
         while (node != null) {
+            steps++;
             Node parent = node.parent;
             //插入节点的左边节点高度
             int leftHeight = (node.left == null) ? -1 : ((AVLNode) node.left).height;
@@ -101,31 +228,31 @@ public class AVLTree extends AbstractSelfBalancingBinarySearchTree {
             int nodeBalance = rightHeight - leftHeight;
             // 右边比左边高，进行左旋操作
             if (nodeBalance == 2) {
-            	//当前节点的
-                if (node.right.right != null) {
+            	//右子节点向左倾斜时需要先右旋右子节点（比较高度，删除后子节点可能两边一样高）
+                if (height(node.right.right) >= height(node.right.left)) {
                     node = (AVLNode)avlRotateLeft(node);
-                    break;
                 } else {
                     node = (AVLNode)doubleRotateRightLeft(node);
-                    break;
                 }
             } else if (nodeBalance == -2) {
-                if (node.left.left != null) {
+                if (height(node.left.left) >= height(node.left.right)) {
                     node = (AVLNode)avlRotateRight(node);
-                    break;
                 } else {
                     node = (AVLNode)doubleRotateLeftRight(node);
-                    break;
                 }
             } else {
                 updateHeight(node);
             }
+            //旋转后不能停止：删除时旋转会让子树变矮，上层节点也可能失衡
             //将父节点赋值给node？因为需要时刻的检测树的高度，所以需要不停的向上递归。查看插入后，父节点的左右两个子节点是否高度差超过1。
             //如果本级高度差正常，需要看父级的高度差。这里比如插入9的时候，父节点为10，父父节点为8，这两个节点都无法判断高度差，继续向上到父父父节点3。
             //这时候3左边的高度为1，3右边的高度为3，所以这个时候需要将3进行左旋，变成8的左子节点，8作为根节点。
             //同时，在创建完子节点后，还需要回头设置父节点的高度
             node = (AVLNode)parent;
         }
+        if (listener != null) {
+            listener.onRebalance(steps);
+        }
     }
 
     /**
@@ -192,6 +319,10 @@ public class AVLTree extends AbstractSelfBalancingBinarySearchTree {
         return -1;
     }
 
+    private static int height(Node node) {
+        return node == null ? -1 : ((AVLNode) node).height;
+    }
+
     /**
      * 更新二叉平衡树节点的高度
      */
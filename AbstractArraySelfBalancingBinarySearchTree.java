@@ -0,0 +1,389 @@
+package com.tree2;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Self balancing binary search tree which keeps its nodes in parallel int arrays (struct of arrays) instead of
+ * separate node objects. Node is just an index into {@link #value}, {@link #left}, {@link #right}, {@link #parent} and
+ * {@link #info} arrays, so there are no object headers and no references for GC to trace, and neighbouring nodes share
+ * cache lines.
+ * <br>
+ * Index {@link #NIL} (0) is reserved for sentinel node, same as nil node in {@link RedBlackTree}, so links never
+ * contain null and algorithms do not need null checks. Deleted slots are kept in a free list (linked through
+ * {@link #right}) and reused by next inserts.
+ * <br>
+ * Subclasses use {@link #info} for additional per node information (height for AVL, color for red-black tree).
+ */
+public abstract class AbstractArraySelfBalancingBinarySearchTree {
+
+    /** Index of sentinel node. */
+    protected static final int NIL = 0;
+
+    /** Initial number of node slots when capacity is not given. */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** Node values. */
+    protected int[] value;
+
+    /** Left child indexes. */
+    protected int[] left;
+
+    /** Right child indexes (next free slot for deleted nodes). */
+    protected int[] right;
+
+    /** Parent indexes. */
+    protected int[] parent;
+
+    /** Additional node info, meaning depends on tree type. */
+    protected int[] info;
+
+    /** Root node index. */
+    protected int root = NIL;
+
+    /** Tree size. */
+    protected int size;
+
+    /** Head of free slots list. */
+    private int freeNode = NIL;
+
+    /** First slot which was never used. */
+    private int nextNode = NIL + 1;
+
+    /**
+     * Constructor.
+     *
+     * @param initialCapacity Number of nodes tree can hold before arrays are grown.
+     * @param nilInfo Info value of sentinel node.
+     */
+    protected AbstractArraySelfBalancingBinarySearchTree(int initialCapacity, int nilInfo) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+        int slots = initialCapacity + 1;
+        value = new int[slots];
+        left = new int[slots];
+        right = new int[slots];
+        parent = new int[slots];
+        info = new int[slots];
+        info[NIL] = nilInfo;
+    }
+
+    /**
+     * Constructor with default capacity.
+     *
+     * @param nilInfo Info value of sentinel node.
+     */
+    protected AbstractArraySelfBalancingBinarySearchTree(int nilInfo) {
+        this(DEFAULT_CAPACITY, nilInfo);
+    }
+
+    /**
+     * Inserts element, duplicates are allowed (same as {@link AbstractBinarySearchTree#insert(int)}).
+     *
+     * @param element Element to insert.
+     */
+    public abstract void insert(int element);
+
+    /**
+     * Removes element if it exists.
+     *
+     * @param element Element to remove.
+     * @return true if element was found and removed.
+     */
+    public abstract boolean delete(int element);
+
+    /**
+     * Replaces content of the tree with given keys. Balanced shape is built directly from the middle elements in O(n).
+     * Nodes get slots in key order, so in-order walk goes through arrays sequentially.
+     *
+     * @param sortedKeys Keys in non-decreasing order.
+     */
+    public void bulkLoad(int[] sortedKeys) {
+        int n = sortedKeys.length;
+        for (int i = 1; i < n; i++) {
+            if (sortedKeys[i - 1] > sortedKeys[i]) {
+                throw new IllegalArgumentException("Keys are not sorted at index " + i);
+            }
+        }
+        if (value.length < n + 1) {
+            int nilInfo = info[NIL];
+            value = new int[n + 1];
+            left = new int[n + 1];
+            right = new int[n + 1];
+            parent = new int[n + 1];
+            info = new int[n + 1];
+            info[NIL] = nilInfo;
+        }
+        freeNode = NIL;
+        nextNode = n + 1;
+        size = n;
+        parent[NIL] = NIL;
+        root = n == 0 ? NIL : buildSubtree(sortedKeys, 0, n - 1, NIL, 0, 31 - Integer.numberOfLeadingZeros(n));
+    }
+
+    /**
+     * @param element Element to look for.
+     * @return true if tree contains element.
+     */
+    public boolean contains(int element) {
+        return searchNode(element) != NIL;
+    }
+
+    /**
+     * @return Minimum element in tree.
+     */
+    public int getMinimum() {
+        checkNotEmpty();
+        return value[minimumNode(root)];
+    }
+
+    /**
+     * @return Maximum element in tree.
+     */
+    public int getMaximum() {
+        checkNotEmpty();
+        return value[maximumNode(root)];
+    }
+
+    /**
+     * Get next element who is bigger than provided element.
+     *
+     * @param element Element (must be in the tree) for whom successor is searched.
+     * @return Successor value.
+     */
+    public int getSuccessor(int element) {
+        int node = searchNode(element);
+        if (node == NIL) {
+            throw new NoSuchElementException("Element " + element + " is not in the tree");
+        }
+        int successor = successorNode(node);
+        if (successor == NIL) {
+            throw new NoSuchElementException("Element " + element + " has no successor");
+        }
+        return value[successor];
+    }
+
+    /**
+     * @return Number of elements in the tree.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return Number of nodes tree can hold before arrays are grown.
+     */
+    public int getCapacity() {
+        return value.length - 1;
+    }
+
+    /*-------------------PROTECTED HELPER METHODS-------------------*/
+
+    /**
+     * @return Index of node with given element or {@link #NIL}.
+     */
+    protected int searchNode(int element) {
+        int node = root;
+        while (node != NIL && value[node] != element) {
+            if (element < value[node]) {
+                node = left[node];
+            } else {
+                node = right[node];
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Plain binary search tree insert, subclasses rebalance afterwards.
+     *
+     * @param element Element to insert.
+     * @return Index of new node. Its info is not initialized.
+     */
+    protected int insertNode(int element) {
+        int insertParentNode = NIL;
+        int node = root;
+        while (node != NIL) {
+            insertParentNode = node;
+            if (element < value[node]) {
+                node = left[node];
+            } else {
+                node = right[node];
+            }
+        }
+        int newNode = allocateNode(element, insertParentNode);
+        if (insertParentNode == NIL) {
+            root = newNode;
+        } else if (element < value[insertParentNode]) {
+            left[insertParentNode] = newNode;
+        } else {
+            right[insertParentNode] = newNode;
+        }
+        size++;
+        return newNode;
+    }
+
+    /**
+     * Put one node (newNode) to the place of another (nodeToReplace). Parent of {@link #NIL} can be written here,
+     * algorithms which delete nodes rely on that (same as in {@link RedBlackTree}).
+     */
+    protected void transplant(int nodeToReplace, int newNode) {
+        int nodeParent = parent[nodeToReplace];
+        if (nodeParent == NIL) {
+            root = newNode;
+        } else if (nodeToReplace == left[nodeParent]) {
+            left[nodeParent] = newNode;
+        } else {
+            right[nodeParent] = newNode;
+        }
+        parent[newNode] = nodeParent;
+    }
+
+    /**
+     * Rotates node to the left, its right child takes its place.
+     *
+     * @return Node which took place of rotated node.
+     */
+    protected int rotateLeft(int node) {
+        int temp = right[node];
+        right[node] = left[temp];
+        if (left[temp] != NIL) {
+            parent[left[temp]] = node;
+        }
+        replaceChild(parent[node], node, temp);
+        left[temp] = node;
+        parent[node] = temp;
+        return temp;
+    }
+
+    /**
+     * Rotates node to the right, its left child takes its place.
+     *
+     * @return Node which took place of rotated node.
+     */
+    protected int rotateRight(int node) {
+        int temp = left[node];
+        left[node] = right[temp];
+        if (right[temp] != NIL) {
+            parent[right[temp]] = node;
+        }
+        replaceChild(parent[node], node, temp);
+        right[temp] = node;
+        parent[node] = temp;
+        return temp;
+    }
+
+    protected int minimumNode(int node) {
+        while (left[node] != NIL) {
+            node = left[node];
+        }
+        return node;
+    }
+
+    protected int maximumNode(int node) {
+        while (right[node] != NIL) {
+            node = right[node];
+        }
+        return node;
+    }
+
+    protected int successorNode(int node) {
+        if (right[node] != NIL) {
+            return minimumNode(right[node]);
+        }
+        int parentNode = parent[node];
+        while (parentNode != NIL && node == right[parentNode]) {
+            node = parentNode;
+            parentNode = parent[parentNode];
+        }
+        return parentNode;
+    }
+
+    /**
+     * Called by {@link #bulkLoad(int[])} for every node after its children are built, sets its {@link #info}.
+     *
+     * @param node Built node.
+     * @param depth Depth of node (root is 0).
+     * @param maxDepth Depth of the deepest level, all levels above it are full.
+     */
+    protected abstract void bulkLoadedNode(int node, int depth, int maxDepth);
+
+    /**
+     * Returns node slot to the free list.
+     */
+    protected void releaseNode(int node) {
+        left[node] = NIL;
+        parent[node] = NIL;
+        right[node] = freeNode;
+        freeNode = node;
+    }
+
+    /*-------------------PRIVATE HELPER METHODS-------------------*/
+
+    private void replaceChild(int parentNode, int oldChild, int newChild) {
+        parent[newChild] = parentNode;
+        if (parentNode == NIL) {
+            root = newChild;
+        } else if (oldChild == left[parentNode]) {
+            left[parentNode] = newChild;
+        } else {
+            right[parentNode] = newChild;
+        }
+    }
+
+    private int buildSubtree(int[] keys, int start, int end, int parentNode, int depth, int maxDepth) {
+        if (start > end) {
+            return NIL;
+        }
+        int middle = (start + end + 1) >>> 1;
+        int node = middle + 1;
+        value[node] = keys[middle];
+        parent[node] = parentNode;
+        left[node] = buildSubtree(keys, start, middle - 1, node, depth + 1, maxDepth);
+        right[node] = buildSubtree(keys, middle + 1, end, node, depth + 1, maxDepth);
+        bulkLoadedNode(node, depth, maxDepth);
+        return node;
+    }
+
+    private int allocateNode(int element, int parentNode) {
+        int node;
+        if (freeNode != NIL) {
+            node = freeNode;
+            freeNode = right[node];
+        } else {
+            if (nextNode == value.length) {
+                grow();
+            }
+            node = nextNode++;
+        }
+        value[node] = element;
+        left[node] = NIL;
+        right[node] = NIL;
+        parent[node] = parentNode;
+        return node;
+    }
+
+    private void grow() {
+        int oldLength = value.length;
+        int newLength = oldLength + (oldLength >> 1) + 1;
+        if (newLength < 0) {
+            if (oldLength == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Tree is full");
+            }
+            newLength = Integer.MAX_VALUE;
+        }
+        value = Arrays.copyOf(value, newLength);
+        left = Arrays.copyOf(left, newLength);
+        right = Arrays.copyOf(right, newLength);
+        parent = Arrays.copyOf(parent, newLength);
+        info = Arrays.copyOf(info, newLength);
+    }
+
+    private void checkNotEmpty() {
+        if (root == NIL) {
+            throw new NoSuchElementException("Tree is empty");
+        }
+    }
+
+}
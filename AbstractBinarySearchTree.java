@@ -1,5 +1,11 @@
 package com.tree2;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
 /**
  * Abstract binary search tree implementation. Its basically fully implemented
  * binary search tree, just template method is provided for creating Node (other
@@ -19,6 +25,63 @@ public abstract class AbstractBinarySearchTree {
     /** Tree size. */
     public int size;
 
+    /**
+     * Sentinel node which is used instead of null children/parent by some trees (red-black tree nil node). Sentinel
+     * has no value, so descents stop when they reach it. It is null for trees which use plain null links.
+     */
+    protected Node nil;
+
+    /**
+     * If true every node keeps size of its subtree ({@link Node#getSubtreeSize()}), which makes {@link #select(int)},
+     * {@link #rank(int)} and {@link #countInRange(int, int)} O(log n). Sizes are updated on insert, delete and
+     * rotations. Must be set before first insert (trees set it from constructor).
+     */
+    protected boolean orderStatistic;
+
+    /**
+     * Order of node values, null (default) means natural int order. Key wrappers ({@link LongKeyTree},
+     * {@link DoubleKeyTree}, {@link ComparatorKeyTree}) set it and keep handles of their keys in nodes, so every tree
+     * type serves every key type without its own copy.
+     */
+    protected KeyComparator keyComparator;
+
+    /**
+     * If true tree is multiset: equal keys share one node which counts them ({@link Node#getCount()}), insert of
+     * existing key and delete of key with more occurrences only change the count. Size, rank, select, iterators and
+     * sorted exports count every occurrence. Must be set before first insert (trees set it from constructor).
+     */
+    protected boolean multiset;
+
+    /**
+     * If true tree keeps every key once (maps, whose nodes hold one value per key): {@link #insert(int)} and
+     * {@link #insertAll(int[])} of existing key return the existing node, {@link #bulkLoad(int[])} drops repeated keys.
+     * Must be set before first insert (trees set it from constructor).
+     */
+    protected boolean uniqueKeys;
+
+    /** Observer of tree internals, null (default) means no tracing. */
+    protected TreeListener listener;
+
+    /**
+     * Depth (start of the descent is 0, root for single inserts) of the node returned by the last
+     * {@link #insert(int, Node, boolean)} of this class, counted during the descent, so subclasses do not have to walk
+     * back to the root.
+     */
+    protected int lastInsertDepth;
+
+    /**
+     * true if the last {@link #insert(int, Node, boolean)} of this class linked new node, false if it returned existing
+     * node (element found by insert if absent, or occurrence counted in multiset tree). Structure did not change then,
+     * so subclasses skip rebalancing.
+     */
+    protected boolean lastInsertCreated;
+
+    /**
+     * Batch which has at least 1/BATCH_REBUILD_FACTOR of tree size is merged with tree content and tree is rebuilt
+     * once, smaller batches are merged into the tree node by node.
+     */
+    private static final int BATCH_REBUILD_FACTOR = 8;
+
     /**
      * Because this is abstract class and various trees have different additional information on 
      * different nodes subclasses uses this abstract method to create nodes (maybe of class {@link Node}
@@ -37,47 +100,108 @@ public abstract class AbstractBinarySearchTree {
      */
     public Node search(int element) {
         Node node = root;
-        while (node != null && node.value != null && node.value != element) {
-            if (element < node.value) {
+        int pathLength = 1;
+        int cmp;
+        while (node != null && node != nil && (cmp = compare(element, node.value)) != 0) {
+            if (cmp < 0) {
                 node = node.left;
             } else {
                 node = node.right;
             }
+            pathLength++;
         }
-        return node;
+        if (listener != null) {
+            listener.onSearch(pathLength);
+        }
+        // sentinel holds no value, reaching it means element is not in the tree
+        return node == nil ? null : node;
     }
 
     /**
      * 二叉树的插入
      */
     public Node insert(int element) {
+        return insert(element, uniqueKeys);
+    }
+
+    /**
+     * Inserts element only if it is not in the tree yet. Lookup and insert are the same descent.
+     * 
+     * @param element
+     *            Element to insert.
+     * @return New node, or existing node with value equal to element (tree is not changed then).
+     */
+    public Node insertIfAbsent(int element) {
+        return insert(element, true);
+    }
+
+    /**
+     * Insert which descends from the root.
+     * 
+     * @see #insert(int, Node, boolean)
+     */
+    protected final Node insert(int element, boolean ifAbsent) {
+        return insert(element, root, ifAbsent);
+    }
+
+    /**
+     * Insert which balancing trees override. Descent stops at node equal to element if ifAbsent is set (existing node
+     * is returned) or tree is multiset (occurrence is counted), {@link #lastInsertCreated} tells if new node was
+     * linked.
+     * 
+     * @param element
+     *            Element to insert.
+     * @param start
+     *            Node where descent starts: root, or its descendant whose subtree holds the place of element (see
+     *            {@link #fingerStart(Node, int)}). {@link #lastInsertDepth} is counted from it.
+     * @param ifAbsent
+     *            If true equal element is not inserted again.
+     * @return New or existing node.
+     */
+    protected Node insert(int element, Node start, boolean ifAbsent) {
     	//如果是根节点，直接创建
-        if (root == null) {
+        if (root == null || root == nil) {
             root = createNode(element, null, null, null);
             size++;
+            lastInsertDepth = 0;
+            lastInsertCreated = true;
             return root;
         }
 
         Node insertParentNode = null;
-        Node searchTempNode = root;
+        Node searchTempNode = start;
+        int depth = 0;
         //每次插入都需要从根节点进行数据的比较
-        while (searchTempNode != null && searchTempNode.value != null) {
+        while (searchTempNode != null && searchTempNode != nil) {
             insertParentNode = searchTempNode;
-            //
-            if (element < searchTempNode.value) {
+            int cmp = compare(element, searchTempNode.value);
+            if ((ifAbsent || multiset) && cmp == 0) {
+                lastInsertDepth = depth;
+                lastInsertCreated = false;
+                return ifAbsent ? searchTempNode : addOccurrence(searchTempNode);
+            }
+            if (cmp < 0) {
                 searchTempNode = searchTempNode.left;
             } else {
                 searchTempNode = searchTempNode.right;
             }
+            depth++;
         }
+        lastInsertDepth = depth;
+        lastInsertCreated = true;
         
         //创建节点，并创建父节点和子节点的关联
         Node newNode = createNode(element, insertParentNode, null, null);
-        if (insertParentNode.value > newNode.value) {
+        if (compare(element, insertParentNode.value) < 0) {
             insertParentNode.left = newNode;
         } else {
             insertParentNode.right = newNode;
         }
+        if (orderStatistic) {
+            for (Node node = insertParentNode; node != null && node != nil; node = node.parent) {
+                node.setSubtreeSize(node.getSubtreeSize() + 1);
+            }
+        }
 
         size++;
         return newNode;
@@ -95,18 +219,62 @@ public abstract class AbstractBinarySearchTree {
     public Node delete(int element) {
         Node deleteNode = search(element);
         if (deleteNode != null) {
-            return delete(deleteNode);
+            return deleteOccurrence(deleteNode);
         } else {
             return null;
         }
     }
 
+    /**
+     * Removes one occurrence of element held by node: decrements count of multiset node, otherwise removes the node.
+     * 
+     * @return Node itself if only its count changed, otherwise node that is in place of deleted node.
+     */
+    protected Node deleteOccurrence(Node node) {
+        return removeOccurrence(node) ? node : delete(node);
+    }
+
+    /**
+     * Increments count of existing node in multiset tree.
+     * 
+     * @return The node.
+     */
+    protected Node addOccurrence(Node node) {
+        node.setCount(node.getCount() + 1);
+        size++;
+        if (orderStatistic) {
+            for (Node ancestor = node; !isNil(ancestor); ancestor = ancestor.parent) {
+                ancestor.setSubtreeSize(ancestor.getSubtreeSize() + 1);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Decrements count of node in multiset tree if it has more than one occurrence.
+     * 
+     * @return true if count was decremented, false if node has to be removed from the tree.
+     */
+    protected boolean removeOccurrence(Node node) {
+        if (!multiset || node.getCount() == 1) {
+            return false;
+        }
+        node.setCount(node.getCount() - 1);
+        size--;
+        if (orderStatistic) {
+            updateSubtreeSizes(node);
+        }
+        return true;
+    }
+
     /**
      * 二叉树删除逻辑
      */
     protected Node delete(Node deleteNode) {
         if (deleteNode != null) {
             Node nodeToReturn = null;
+            // lowest node whose subtree lost a node
+            Node changedNode = deleteNode.parent;
             if (deleteNode != null) {
             	//TODO 添加该逻辑，当删除的节点是叶子节点，直接将父节点的左右节点置空即可
             	if(deleteNode.left == null && deleteNode.right == null){
@@ -132,7 +300,9 @@ public abstract class AbstractBinarySearchTree {
                 } else {
                 	//获取删除节点右子树的最小节点
                     Node successorNode = getMinimum(deleteNode.right);
+                    changedNode = successorNode;
                     if (successorNode.parent != deleteNode) {
+                        changedNode = successorNode.parent;
                         transplant(successorNode, successorNode.right);
                         successorNode.right = deleteNode.right;
                         successorNode.right.parent = successorNode;
@@ -142,6 +312,9 @@ public abstract class AbstractBinarySearchTree {
                     successorNode.left.parent = successorNode;
                     nodeToReturn = successorNode;
                 }
+                if (orderStatistic) {
+                    updateSubtreeSizes(changedNode);
+                }
                 size--;
             }
     
@@ -183,6 +356,49 @@ public abstract class AbstractBinarySearchTree {
         return search(element) != null;
     }
 
+    /**
+     * @param element
+     *            Element to look for.
+     * @return Number of occurrences of element.
+     */
+    public int count(int element) {
+        if (multiset) {
+            Node node = search(element);
+            return node == null ? 0 : node.getCount();
+        }
+        int count = 0;
+        Node node = ceilingNode(element, true);
+        while (!isNil(node) && compare(node.value, element) == 0) {
+            count++;
+            node = getSuccessor(node);
+        }
+        return count;
+    }
+
+    /**
+     * Sets observer of rotations, rebalancing and searches, see {@link TreeMetrics}.
+     * 
+     * @param listener
+     *            Listener, null turns tracing off.
+     */
+    public void setListener(TreeListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return Current listener or null.
+     */
+    public TreeListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @return true if tree counts equal keys in one node.
+     */
+    public boolean isMultiset() {
+        return multiset;
+    }
+
     /**
      * @return Minimum element in tree.
      */
@@ -204,9 +420,367 @@ public abstract class AbstractBinarySearchTree {
      *            Element for whom descendand element is searched
      * @return Successor value.
      */
-    // TODO Predecessor
     public int getSuccessor(int element) {
-        return getSuccessor(search(element)).value;
+        Node node = search(element);
+        if (node == null) {
+            throw new NoSuchElementException("Element " + element + " is not in the tree");
+        }
+        Node successor = getSuccessor(node);
+        if (isNil(successor)) {
+            throw new NoSuchElementException("Element " + element + " has no successor");
+        }
+        return successor.value;
+    }
+
+    /**
+     * @param element
+     *            Element (does not have to be in the tree).
+     * @return Greatest element less than or equal to element.
+     * @throws NoSuchElementException
+     *             if there is no such element.
+     */
+    public int floor(int element) {
+        return valueOf(floorNode(element, true), element);
+    }
+
+    /**
+     * @param element
+     *            Element (does not have to be in the tree).
+     * @return Smallest element greater than or equal to element.
+     * @throws NoSuchElementException
+     *             if there is no such element.
+     */
+    public int ceiling(int element) {
+        return valueOf(ceilingNode(element, true), element);
+    }
+
+    /**
+     * @param element
+     *            Element (does not have to be in the tree).
+     * @return Greatest element strictly less than element.
+     * @throws NoSuchElementException
+     *             if there is no such element.
+     */
+    public int lower(int element) {
+        return valueOf(floorNode(element, false), element);
+    }
+
+    /**
+     * @param element
+     *            Element (does not have to be in the tree).
+     * @return Smallest element strictly greater than element.
+     * @throws NoSuchElementException
+     *             if there is no such element.
+     */
+    public int higher(int element) {
+        return valueOf(ceilingNode(element, false), element);
+    }
+
+    /**
+     * Ascending iterator over elements in range [lo, hi]. Start is found with one descent, then iterator walks over
+     * parent pointers, so whole scan is O(log n + k) and nothing is allocated per element. Tree must not be modified
+     * while iterator is used. Lookups made by iterator do not restructure the tree (e.g. {@link SplayTree}).
+     * 
+     * @param lo
+     *            Lower bound (inclusive).
+     * @param hi
+     *            Upper bound (inclusive).
+     * @return Iterator over elements in range.
+     */
+    public PrimitiveIterator.OfInt rangeIterator(int lo, int hi) {
+        return new TreeIterator(compare(lo, hi) > 0 ? null : ceilingNode(lo, true), hi, false);
+    }
+
+    /**
+     * Same as {@link #rangeIterator(int, int)}, but over all elements from maximum to minimum.
+     * 
+     * @return Descending iterator.
+     */
+    public PrimitiveIterator.OfInt descendingIterator() {
+        return new TreeIterator(isNil(root) ? null : getMaximumNode(root), Integer.MIN_VALUE, true);
+    }
+
+    /**
+     * Passes elements in range [lo, hi] to action in ascending order, without allocating iterator.
+     * 
+     * @param lo
+     *            Lower bound (inclusive).
+     * @param hi
+     *            Upper bound (inclusive).
+     * @param action
+     *            Action for each element.
+     */
+    public void forEachInRange(int lo, int hi, IntConsumer action) {
+        if (compare(lo, hi) > 0) {
+            return;
+        }
+        for (Node node = ceilingNode(lo, true); !isNil(node) && compare(node.value, hi) <= 0;
+                node = getSuccessor(node)) {
+            for (int i = 0, count = node.getCount(); i < count; i++) {
+                action.accept(node.value);
+            }
+        }
+    }
+
+    /**
+     * Visits all nodes in given order. In, pre and post order walk follows parent pointers, so it uses O(1) extra memory
+     * and no recursion whatever the height of the tree is (degenerated or splayed trees included). Level order keeps
+     * queue of one level, memory is bounded by width of the tree, not by its height. Tree must not be modified during
+     * traversal.
+     *
+     * @param order
+     *            Traversal order.
+     * @param visitor
+     *            Called for every node.
+     */
+    public void traverse(TraversalOrder order, NodeVisitor visitor) {
+        traverse(root, order, visitor);
+    }
+
+    /**
+     * Same as {@link #traverse(TraversalOrder, NodeVisitor)}, but passes element values to action. In multiset tree
+     * value is passed once for every occurrence.
+     *
+     * @param order
+     *            Traversal order.
+     * @param action
+     *            Action for each element.
+     */
+    public void forEach(TraversalOrder order, final IntConsumer action) {
+        traverse(root, order, new NodeVisitor() {
+            @Override
+            public void visit(Node node, int depth) {
+                for (int i = 0, count = node.getCount(); i < count; i++) {
+                    action.accept(node.value);
+                }
+            }
+        });
+    }
+
+    /**
+     * Visits nodes of subtree in given order, see {@link #traverse(TraversalOrder, NodeVisitor)}.
+     *
+     * @param subtree
+     *            Subtree root node.
+     * @param order
+     *            Traversal order.
+     * @param visitor
+     *            Called for every node, depth is relative to subtree root.
+     */
+    protected void traverse(Node subtree, TraversalOrder order, NodeVisitor visitor) {
+        if (isNil(subtree)) {
+            return;
+        }
+        if (order == TraversalOrder.LEVEL_ORDER) {
+            traverseLevels(subtree, visitor);
+        } else {
+            walk(subtree, order, false, visitor);
+        }
+    }
+
+    /**
+     * Replaces content of the tree with given keys. Balanced shape is built directly from the middle elements, so it
+     * takes O(n) instead of n inserts (each of them O(log n) with rebalancing). Natural int order only.
+     * 
+     * @param sortedKeys
+     *            Keys in non-decreasing order.
+     */
+    public void bulkLoad(int[] sortedKeys) {
+        checkNaturalOrder();
+        for (int i = 1; i < sortedKeys.length; i++) {
+            if (sortedKeys[i - 1] > sortedKeys[i]) {
+                throw new IllegalArgumentException("Keys are not sorted at index " + i);
+            }
+        }
+        int[] keys = sortedKeys;
+        int[] counts = null;
+        if (multiset || uniqueKeys) {
+            // equal keys become one node, multiset counts them
+            keys = new int[sortedKeys.length];
+            counts = multiset ? new int[sortedKeys.length] : null;
+            int distinct = 0;
+            for (int i = 0; i < sortedKeys.length; i++) {
+                if (distinct > 0 && keys[distinct - 1] == sortedKeys[i]) {
+                    if (multiset) {
+                        counts[distinct - 1]++;
+                    }
+                } else {
+                    keys[distinct] = sortedKeys[i];
+                    if (multiset) {
+                        counts[distinct] = 1;
+                    }
+                    distinct++;
+                }
+            }
+            keys = Arrays.copyOf(keys, distinct);
+        }
+        root = keys.length == 0 ? null : buildTree(keys, counts);
+        size = uniqueKeys ? keys.length : sortedKeys.length;
+    }
+
+    /**
+     * Flattens the tree into read only {@link EytzingerIndex} (4 bytes per key, no pointers), for indexes which are
+     * built once and then only read. Index does not change when tree changes.
+     * 
+     * @return Static index with all elements of the tree.
+     */
+    public EytzingerIndex exportStatic() {
+        checkNaturalOrder();
+        return new EytzingerIndex(rangeIterator(Integer.MIN_VALUE, Integer.MAX_VALUE), size);
+    }
+
+    /**
+     * Inserts all elements. Batch is sorted and merged into the tree in key order: every insert starts from the node of
+     * the previous element and climbs only as high as needed ({@link #fingerStart(Node, int)}), so k keys cost
+     * O(k log(n / k + 1)) steps instead of k descents from the root. Batch which has at least 1/BATCH_REBUILD_FACTOR
+     * of tree size is merged with tree content and tree is rebuilt once with {@link #bulkLoad(int[])} instead, O(n +
+     * k) without any rebalancing (only if {@link #canRebuildFromKeys()}). Natural int order only.
+     * 
+     * @param elements
+     *            Elements to insert, any order. Array is not modified.
+     * @return Counts of inserted and duplicate keys.
+     */
+    public BatchResult insertAll(int[] elements) {
+        checkNaturalOrder();
+        int[] batch = elements.clone();
+        Arrays.sort(batch);
+        int duplicates = 0;
+        if (canRebuildFromKeys() && (long) batch.length * BATCH_REBUILD_FACTOR >= size) {
+            int[] current = toSortedArray();
+            int[] merged = new int[current.length + batch.length];
+            int i = 0;
+            int out = 0;
+            for (int element : batch) {
+                while (i < current.length && current[i] <= element) {
+                    merged[out++] = current[i++];
+                }
+                if (out > 0 && merged[out - 1] == element) {
+                    duplicates++;
+                }
+                merged[out++] = element;
+            }
+            System.arraycopy(current, i, merged, out, current.length - i);
+            bulkLoad(merged);
+        } else {
+            Node previous = null;
+            for (int element : batch) {
+                Node node = insert(element, fingerStart(previous, element), uniqueKeys);
+                previous = node;
+                if (multiset || uniqueKeys) {
+                    // existing node counts the occurrence or keeps the key once
+                    if (!lastInsertCreated) {
+                        duplicates++;
+                    }
+                    continue;
+                }
+                Node predecessor = getPredecessor(node);
+                Node successor = getSuccessor(node);
+                if ((predecessor != null && predecessor.value == element)
+                        || (successor != null && successor.value == element)) {
+                    duplicates++;
+                }
+            }
+        }
+        return new BatchResult(batch.length, duplicates, 0, 0);
+    }
+
+    /**
+     * Deletes all elements, every element of the batch removes one occurrence from the tree. Batch is sorted, every
+     * lookup starts from the predecessor of the previously deleted node, and large batch is applied by rebuilding the
+     * tree once, same as in {@link #insertAll(int[])}.
+     * 
+     * @param elements
+     *            Elements to delete, any order. Array is not modified.
+     * @return Counts of deleted and missing keys.
+     */
+    public BatchResult deleteAll(int[] elements) {
+        checkNaturalOrder();
+        int[] batch = elements.clone();
+        Arrays.sort(batch);
+        int deleted = 0;
+        if (canRebuildFromKeys() && (long) batch.length * BATCH_REBUILD_FACTOR >= size) {
+            int[] current = toSortedArray();
+            int i = 0;
+            int out = 0;
+            for (int element : batch) {
+                while (i < current.length && current[i] < element) {
+                    current[out++] = current[i++];
+                }
+                if (i < current.length && current[i] == element) {
+                    i++;
+                    deleted++;
+                }
+            }
+            System.arraycopy(current, i, current, out, current.length - i);
+            bulkLoad(Arrays.copyOf(current, out + current.length - i));
+        } else {
+            // node not greater than all remaining elements of the batch, deletes and rebalancing keep it in the tree
+            Node finger = null;
+            for (int element : batch) {
+                Node node = fingerSearch(finger, element);
+                if (node == null) {
+                    continue;
+                }
+                deleted++;
+                if (multiset && node.getCount() > 1) {
+                    finger = node;
+                } else {
+                    finger = getPredecessor(node);
+                }
+                deleteOccurrence(node);
+            }
+        }
+        return new BatchResult(0, 0, deleted, batch.length - deleted);
+    }
+
+    /**
+     * Finger for ascending batches: climbs from finger to the lowest ancestor whose subtree holds every place of
+     * element. Every node of finger's subtree and of subtrees of its ancestors is at least as big as some node which
+     * is not greater than finger value, so only upper bounds (left child links) have to be checked. Climb of a whole
+     * sorted batch walks every level about once.
+     * 
+     * @param finger
+     *            Node in the tree whose value is not greater than element, or null.
+     * @param element
+     *            Element to find place of.
+     * @return Node where descent for element can start, root if finger is null.
+     */
+    protected Node fingerStart(Node finger, int element) {
+        if (finger == null) {
+            return root;
+        }
+        Node node = finger;
+        while (node != root) {
+            Node parent = node.parent;
+            if (node == parent.left && compare(element, parent.value) < 0) {
+                break;
+            }
+            node = parent;
+        }
+        return node;
+    }
+
+    /**
+     * Plain descent (nothing is restructured or reported to listener) which starts from
+     * {@link #fingerStart(Node, int)}.
+     * 
+     * @param finger
+     *            Node in the tree whose value is not greater than element, or null.
+     * @param element
+     *            Element to find.
+     * @return Node with value equal to element, or null.
+     */
+    private Node fingerSearch(Node finger, int element) {
+        if (finger != null && compare(finger.value, element) == 0) {
+            // equal nodes may be on both sides of the finger, it is one of them
+            return finger;
+        }
+        Node node = fingerStart(finger, element);
+        int cmp;
+        while (!isNil(node) && (cmp = compare(element, node.value)) != 0) {
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return isNil(node) ? null : node;
     }
 
     /**
@@ -216,66 +790,282 @@ public abstract class AbstractBinarySearchTree {
         return size;
     }
 
+    /**
+     * Order statistic select. Requires tree which keeps subtree sizes.
+     * 
+     * @param k
+     *            Index (0 based) of element in sorted order.
+     * @return K-th smallest element.
+     */
+    public int select(int k) {
+        checkOrderStatistic();
+        if (k < 0 || k >= size) {
+            throw new IndexOutOfBoundsException("Index: " + k + ", size: " + size);
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = subtreeSize(node.left);
+            if (k < leftSize) {
+                node = node.left;
+            } else if (k < leftSize + node.getCount()) {
+                return node.value;
+            } else {
+                k -= leftSize + node.getCount();
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Requires tree which keeps subtree sizes.
+     * 
+     * @param element
+     *            Element (does not have to be in the tree).
+     * @return Number of elements smaller than element.
+     */
+    public int rank(int element) {
+        checkOrderStatistic();
+        return countSmaller(element, false);
+    }
+
+    /**
+     * Requires tree which keeps subtree sizes.
+     * 
+     * @param lo
+     *            Lower bound (inclusive).
+     * @param hi
+     *            Upper bound (inclusive).
+     * @return Number of elements in range [lo, hi].
+     */
+    public int countInRange(int lo, int hi) {
+        checkOrderStatistic();
+        if (compare(lo, hi) > 0) {
+            return 0;
+        }
+        return countSmaller(hi, true) - countSmaller(lo, false);
+    }
+
     /**
      * 中序遍历
      */
     public void printTreeInOrder() {
-        printTreeInOrder(root);
+        forEach(TraversalOrder.IN_ORDER, PRINT_VALUE);
     }
 
     /**
      * 前序遍历
      */
     public void printTreePreOrder() {
-        printTreePreOrder(root);
+        forEach(TraversalOrder.PRE_ORDER, PRINT_VALUE);
     }
 
     /**
      * 后序遍历
      */
     public void printTreePostOrder() {
-        printTreePostOrder(root);
+        forEach(TraversalOrder.POST_ORDER, PRINT_VALUE);
     }
 
     /*-------------------PRIVATE HELPER METHODS-------------------*/
 
-    private void printTreeInOrder(Node entry) {
-        if (entry != null) {
-            printTreeInOrder(entry.left);
-            if (entry.value != null) {
-                System.out.print(entry.value+" ");
+    /**
+     * @return true if nodes hold nothing but keys, so batch operations may replace them by rebuilding the tree with
+     *         {@link #bulkLoad(int[])}. Trees whose nodes carry more (map values) return false.
+     */
+    protected boolean canRebuildFromKeys() {
+        return true;
+    }
+
+    /**
+     * Builds tree of {@link #bulkLoad(int[])}, by default balanced shape from the middle elements. Trees whose shape is
+     * not chosen by balancing (treap) build it their own way.
+     * 
+     * @param keys
+     *            Sorted keys, at least one (distinct in multiset tree and tree with unique keys).
+     * @param counts
+     *            Occurrences of keys in multiset tree, null otherwise.
+     * @return Root of built tree.
+     */
+    protected Node buildTree(int[] keys, int[] counts) {
+        int maxDepth = 31 - Integer.numberOfLeadingZeros(keys.length);
+        return buildSubtree(keys, counts, 0, keys.length - 1, nil, 0, maxDepth);
+    }
+
+    /**
+     * Called by default {@link #buildTree(int[], int[])} for every node after its children are built. Subclasses set
+     * their balancing info here.
+     * 
+     * @param node
+     *            Built node.
+     * @param depth
+     *            Depth of node (root is 0).
+     * @param maxDepth
+     *            Depth of the deepest level. Subtree sizes differ by at most one, so all levels above it are full.
+     */
+    protected void bulkLoadedNode(Node node, int depth, int maxDepth) {
+        if (orderStatistic) {
+            updateSubtreeSize(node);
+        }
+    }
+
+    /**
+     * @return All elements in ascending order.
+     */
+    protected int[] toSortedArray() {
+        int[] values = new int[size];
+        int i = 0;
+        for (Node node = isNil(root) ? null : getMinimumNode(root); node != null; node = getSuccessor(node)) {
+            for (int j = 0, count = node.getCount(); j < count; j++) {
+                values[i++] = node.value;
             }
-            printTreeInOrder(entry.right);
         }
+        return values;
+    }
+
+    /**
+     * @return true if node is null or sentinel.
+     */
+    protected boolean isNil(Node node) {
+        return node == null || node == nil;
     }
 
-    private void printTreePreOrder(Node entry) {
-        if (entry != null) {
-            if (entry.value != null) {
-                System.out.print(entry.value+" ");
+    /**
+     * @return Node with greatest value less than (or equal to if inclusive) element, or null.
+     */
+    protected Node floorNode(int element, boolean inclusive) {
+        Node result = null;
+        Node node = root;
+        while (!isNil(node)) {
+            int cmp = compare(node.value, element);
+            if (cmp < 0 || (inclusive && cmp == 0)) {
+                result = node;
+                node = node.right;
+            } else {
+                node = node.left;
             }
-            //改成这种方式
-            printTreePreOrder(entry.left);
-            printTreePreOrder(entry.right);
-            //这里遍历有问题
-            //printTreeInOrder(entry.left);
-            //printTreeInOrder(entry.right);
         }
+        return result;
     }
 
- 
-    private void printTreePostOrder(Node entry) {
-        if (entry != null) {
-        	//改成这种方式
-        	printTreePostOrder(entry.left);
-        	printTreePostOrder(entry.right);
-        	//这里遍历有问题
-        	//printTreeInOrder(entry.left);
-        	//printTreeInOrder(entry.right);
-            if (entry.value != null) {
-                System.out.print(entry.value+" ");
+    /**
+     * @return Node with smallest value greater than (or equal to if inclusive) element, or null. With duplicates
+     *         leftmost of them is returned, so walking successors from it visits all of them.
+     */
+    protected Node ceilingNode(int element, boolean inclusive) {
+        Node result = null;
+        Node node = root;
+        while (!isNil(node)) {
+            int cmp = compare(node.value, element);
+            if (cmp > 0 || (inclusive && cmp == 0)) {
+                result = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Size of subtree, 0 for null and sentinel.
+     */
+    protected int subtreeSize(Node node) {
+        return node == null || node == nil ? 0 : node.getSubtreeSize();
+    }
+
+    /**
+     * @return Number of elements in subtree, counted by walking it (O(size), for trees without subtree sizes).
+     */
+    protected int countElements(Node subtree) {
+        int count = 0;
+        ArrayDeque<Node> stack = new ArrayDeque<Node>();
+        if (!isNil(subtree)) {
+            stack.push(subtree);
+        }
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            count += node.getCount();
+            if (!isNil(node.left)) {
+                stack.push(node.left);
+            }
+            if (!isNil(node.right)) {
+                stack.push(node.right);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Recomputes subtree size of the node from its children sizes.
+     */
+    protected void updateSubtreeSize(Node node) {
+        node.setSubtreeSize(node.getCount() + subtreeSize(node.left) + subtreeSize(node.right));
+    }
+
+    /**
+     * Recomputes subtree sizes from node up to the root.
+     */
+    protected void updateSubtreeSizes(Node node) {
+        while (node != null && node != nil) {
+            updateSubtreeSize(node);
+            node = node.parent;
+        }
+    }
+
+    /**
+     * @return Number of elements smaller than (or equal to if inclusive) element.
+     */
+    protected int countSmaller(int element, boolean inclusive) {
+        int count = 0;
+        Node node = root;
+        while (node != null && node != nil) {
+            int cmp = compare(node.value, element);
+            if (cmp < 0 || (inclusive && cmp == 0)) {
+                count += subtreeSize(node.left) + node.getCount();
+                node = node.right;
+            } else {
+                node = node.left;
             }
         }
+        return count;
+    }
+
+    protected void checkOrderStatistic() {
+        if (!orderStatistic) {
+            throw new UnsupportedOperationException("Tree does not keep subtree sizes");
+        }
+    }
+
+    /**
+     * Sets order of node values. Tree must be empty, only key wrappers use it (see {@link #keyComparator}).
+     * 
+     * @param keyComparator
+     *            Order of node values, null for natural int order.
+     */
+    protected void setKeyComparator(KeyComparator keyComparator) {
+        if (!isNil(root)) {
+            throw new IllegalStateException("Tree is not empty");
+        }
+        this.keyComparator = keyComparator;
+    }
+
+    /**
+     * Compares node values, every search and update goes through it.
+     * 
+     * @return Negative, zero or positive as left is less than, equal to or greater than right.
+     */
+    protected final int compare(int left, int right) {
+        return keyComparator == null ? Integer.compare(left, right) : keyComparator.compare(left, right);
+    }
+
+    /**
+     * Operations on int arrays sorted in int order (batches, bulk load, export) are not available when values are
+     * ordered by {@link #keyComparator}.
+     */
+    protected void checkNaturalOrder() {
+        if (keyComparator != null) {
+            throw new UnsupportedOperationException("Not supported with key comparator");
+        }
     }
 
     protected Node getMinimum(Node node) {
@@ -292,73 +1082,274 @@ public abstract class AbstractBinarySearchTree {
         return node;
     }
 
-    private Node getSuccessor(Node node) {
+    /**
+     * @return Next node in ascending order, or null.
+     */
+    protected Node getSuccessor(Node node) {
         // if there is right branch, then successor is leftmost node of that
         // subtree
-        if (node.right != null) {
-            return getMinimum(node.right);
+        if (!isNil(node.right)) {
+            return getMinimumNode(node.right);
         } else { // otherwise it is a lowest ancestor whose left child is also
             // ancestor of node
             Node currentNode = node;
             Node parentNode = node.parent;
-            while (parentNode != null && currentNode == parentNode.right) {
+            while (!isNil(parentNode) && currentNode == parentNode.right) {
                 // go up until we find parent that currentNode is not in right
                 // subtree.
                 currentNode = parentNode;
                 parentNode = parentNode.parent;
             }
-            return parentNode;
+            return isNil(parentNode) ? null : parentNode;
+        }
+    }
+
+    private Node getPredecessor(Node node) {
+        if (!isNil(node.left)) {
+            return getMaximumNode(node.left);
+        } else {
+            Node currentNode = node;
+            Node parentNode = node.parent;
+            while (!isNil(parentNode) && currentNode == parentNode.left) {
+                currentNode = parentNode;
+                parentNode = parentNode.parent;
+            }
+            return isNil(parentNode) ? null : parentNode;
+        }
+    }
+
+    /**
+     * Same as {@link #getMinimum(Node)} but stops on sentinel too, so it works for every tree.
+     */
+    protected Node getMinimumNode(Node node) {
+        while (!isNil(node.left)) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    protected Node getMaximumNode(Node node) {
+        while (!isNil(node.right)) {
+            node = node.right;
+        }
+        return node;
+    }
+
+    /**
+     * @param counts
+     *            Occurrences of keys in multiset tree, null otherwise.
+     */
+    private Node buildSubtree(int[] keys, int[] counts, int start, int end, Node parent, int depth, int maxDepth) {
+        if (start > end) {
+            return nil;
+        }
+        int middle = (start + end + 1) >>> 1;
+        Node node = createNode(keys[middle], parent, null, null);
+        if (counts != null) {
+            node.setCount(counts[middle]);
+        }
+        node.left = buildSubtree(keys, counts, start, middle - 1, node, depth + 1, maxDepth);
+        node.right = buildSubtree(keys, counts, middle + 1, end, node, depth + 1, maxDepth);
+        bulkLoadedNode(node, depth, maxDepth);
+        return node;
+    }
+
+    private static int valueOf(Node node, int element) {
+        if (node == null) {
+            throw new NoSuchElementException("No matching element for " + element);
+        }
+        return node.value;
+    }
+
+    /**
+     * In-order cursor which moves over parent pointers. Only allocation is the iterator itself.
+     */
+    private class TreeIterator implements PrimitiveIterator.OfInt {
+
+        private Node next;
+
+        /** Occurrences of next value which were not returned yet. */
+        private int remaining;
+
+        /** Last value to return (upper bound for ascending, lower for descending). */
+        private final int bound;
+
+        private final boolean descending;
+
+        TreeIterator(Node first, int bound, boolean descending) {
+            this.bound = bound;
+            this.descending = descending;
+            this.next = inBounds(first) ? first : null;
+            this.remaining = next == null ? 0 : next.getCount();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public int nextInt() {
+            Node node = next;
+            if (node == null) {
+                throw new NoSuchElementException();
+            }
+            if (--remaining > 0) {
+                return node.value;
+            }
+            Node following = descending ? getPredecessor(node) : getSuccessor(node);
+            next = inBounds(following) ? following : null;
+            remaining = next == null ? 0 : next.getCount();
+            return node.value;
+        }
+
+        private boolean inBounds(Node node) {
+            return !isNil(node) && (descending ? compare(node.value, bound) >= 0 : compare(node.value, bound) <= 0);
         }
     }
     
     //-------------------------------- TREE PRINTING ------------------------------------
 
     /**
-     * 以图形的形式将二叉树打印到控制台
+     * 以图形的形式将二叉树打印到控制台. Right subtree is printed above node and left subtree below it, nodes are
+     * visited by parent pointers without recursion.
      */
     public void printTree() {
         printSubtree(root);
     }
     
     public void printSubtree(Node node) {
-        if (node.right != null) {
-            printTree(node.right, true, "");
-        }
-        printNodeValue(node);
-        if (node.left != null) {
-            printTree(node.left, false, "");
+        if (isNil(node)) {
+            return;
         }
+        walk(node, TraversalOrder.IN_ORDER, true, new NodeVisitor() {
+            @Override
+            public void visit(Node node, int depth) {
+                printNodeLine(node, depth);
+            }
+        });
     }
     
-    private void printNodeValue(Node node) {
-        if (node.value == null) {
-            System.out.print("<null>");
-        } else {
-            System.out.print(node.value.toString());
+    /**
+     * Prints one line of {@link #printTree()}. Indent is restored from parent pointers: column of every ancestor
+     * below subtree root gets vertical line if path turns at it.
+     */
+    private void printNodeLine(Node node, int depth) {
+        if (depth == 0) {
+            System.out.println(node.value);
+            return;
         }
-        System.out.println();
+        char[] indent = new char[(depth - 1) * 8];
+        Arrays.fill(indent, ' ');
+        Node child = node;
+        for (int level = depth - 1; level > 0; level--) {
+            Node ancestor = child.parent;
+            if (isRightChild(ancestor) != isRightChild(child)) {
+                indent[(level - 1) * 8 + 1] = '|';
+            }
+            child = ancestor;
+        }
+        System.out.println(new String(indent) + (isRightChild(node) ? " /" : " \\") + "----- " + node.value);
     }
     
-    private void printTree(Node node, boolean isRight, String indent) {
-        if (node.right != null) {
-            printTree(node.right, true, indent + (isRight ? "        " : " |      "));
-        }
-        System.out.print(indent);
-        if (isRight) {
-            System.out.print(" /");
-        } else {
-            System.out.print(" \\");
+    private boolean isRightChild(Node node) {
+        return node.parent.right == node;
+    }
+    
+    /**
+     * Walks subtree in in, pre or post order following parent pointers: node is entered from its parent, then returned
+     * to from left and from right child, so previous node tells which step is next. Uses O(1) memory.
+     * 
+     * @param reversed
+     *            If true right child is visited before left child.
+     */
+    private void walk(Node subtree, TraversalOrder order, boolean reversed, NodeVisitor visitor) {
+        Node end = subtree.parent;
+        Node previous = end;
+        Node node = subtree;
+        int depth = 0;
+        while (node != end) {
+            Node first = reversed ? node.right : node.left;
+            Node second = reversed ? node.left : node.right;
+            if (previous == node.parent) {
+                if (order == TraversalOrder.PRE_ORDER) {
+                    visitor.visit(node, depth);
+                }
+                if (!isNil(first)) {
+                    previous = node;
+                    node = first;
+                    depth++;
+                    continue;
+                }
+                // empty first subtree is done
+                previous = first;
+            }
+            if (previous == first) {
+                if (order == TraversalOrder.IN_ORDER) {
+                    visitor.visit(node, depth);
+                }
+                if (!isNil(second)) {
+                    previous = node;
+                    node = second;
+                    depth++;
+                    continue;
+                }
+            }
+            if (order == TraversalOrder.POST_ORDER) {
+                visitor.visit(node, depth);
+            }
+            previous = node;
+            node = node.parent;
+            depth--;
         }
-        System.out.print("----- ");
-        printNodeValue(node);
-        if (node.left != null) {
-            printTree(node.left, false, indent + (isRight ? " |      " : "        "));
+    }
+    
+    /**
+     * Breadth first walk, queue holds at most two levels of the tree.
+     */
+    private void traverseLevels(Node subtree, NodeVisitor visitor) {
+        ArrayDeque<Node> queue = new ArrayDeque<Node>();
+        queue.add(subtree);
+        int depth = 0;
+        while (!queue.isEmpty()) {
+            for (int levelSize = queue.size(); levelSize > 0; levelSize--) {
+                Node node = queue.poll();
+                visitor.visit(node, depth);
+                if (!isNil(node.left)) {
+                    queue.add(node.left);
+                }
+                if (!isNil(node.right)) {
+                    queue.add(node.right);
+                }
+            }
+            depth++;
         }
     }
 
+    /** Prints values separated by space, used by print traversals. */
+    private static final IntConsumer PRINT_VALUE = new IntConsumer() {
+        @Override
+        public void accept(int value) {
+            System.out.print(value + " ");
+        }
+    };
+
+    /**
+     * Callback of {@link AbstractBinarySearchTree#traverse(TraversalOrder, NodeVisitor)}.
+     */
+    public interface NodeVisitor {
+
+        /**
+         * @param node
+         *            Visited node (never nil).
+         * @param depth
+         *            Depth of node, traversal start node has depth 0.
+         */
+        void visit(Node node, int depth);
+    }
 
     public static class Node {
-        public Node(Integer value, Node parent, Node left, Node right) {
+        public Node(int value, Node parent, Node left, Node right) {
             super();
             this.value = value;
             this.parent = parent;
@@ -366,11 +1357,48 @@ public abstract class AbstractBinarySearchTree {
             this.right = right;
         }
 
-        public Integer value;
+        /** Primitive value, so comparisons on descent do not unbox and node does not hold extra Integer object. */
+        public int value;
         public Node parent;
         public Node left;
         public Node right;
-        
+
+        /**
+         * Augmentation shared by all node types, kept up to date only by trees with order statistic (subtree size) or
+         * multiset trees (count). Other trees leave both at 1.
+         */
+        private int subtreeSize = 1;
+        private int count = 1;
+
+        /**
+         * @return Occurrences of value, more than one only in multiset trees.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Sets occurrences of value, see {@link #getCount()}.
+         */
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        /**
+         * @return Number of elements (occurrences in multiset trees) in subtree of this node, valid only in trees with
+         *         order statistic.
+         */
+        public int getSubtreeSize() {
+            return subtreeSize;
+        }
+
+        /**
+         * Sets number of elements in subtree, see {@link #getSubtreeSize()}.
+         */
+        public void setSubtreeSize(int subtreeSize) {
+            this.subtreeSize = subtreeSize;
+        }
+
         public boolean isLeaf() {
             return left == null && right == null;
         }
@@ -379,7 +1407,7 @@ public abstract class AbstractBinarySearchTree {
         public int hashCode() {
             final int prime = 31;
             int result = 1;
-            result = prime * result + ((value == null) ? 0 : value.hashCode());
+            result = prime * result + value;
             return result;
         }
 
@@ -392,12 +1420,7 @@ public abstract class AbstractBinarySearchTree {
             if (getClass() != obj.getClass())
                 return false;
             Node other = (Node) obj;
-            if (value == null) {
-                if (other.value != null)
-                    return false;
-            } else if (!value.equals(other.value))
-                return false;
-            return true;
+            return value == other.value;
         }
 
     }
@@ -0,0 +1,580 @@
+package com.tree2;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Self balancing binary search tree with join based set operations (G. E. Blelloch, D. Ferizovic, Y. Sun, "Just Join
+ * for Parallel Ordered Sets"). Only {@link #join(Node, int, Node, Node, int)} depends on balancing scheme, split,
+ * union, intersection and difference are built on it and take O(m log(n / m + 1)) work for trees of sizes m &lt;= n.
+ * Ranks of subtrees (black height of red black tree) are passed down and up through these algorithms, so join never
+ * walks subtree to find its rank.
+ * <br>
+ * Both recursive calls of union, intersection and difference work on disjoint subtrees, so top levels of recursion run
+ * in parallel on {@link ForkJoinPool}.
+ * <br>
+ * Operations move nodes, other tree is left empty. Trees are treated as sets: if key is in both trees, union keeps
+ * copies from this tree, intersection keeps one copy and difference removes all copies. Multiset trees support only
+ * split and join (counts move with nodes). Natural int order only, trees under key wrappers do not support them.
+ */
+public abstract class AbstractJoinableBinarySearchTree extends AbstractSelfBalancingBinarySearchTree {
+
+    /** Recursion levels which are forked, enough tasks for all cores with some slack for uneven splits. */
+    private static final int FORK_DEPTH = 32 - Integer.numberOfLeadingZeros(Runtime.getRuntime().availableProcessors()) + 3;
+
+    private static final int UNION = 0;
+    private static final int INTERSECTION = 1;
+    private static final int DIFFERENCE = 2;
+
+    /**
+     * Adds all elements of other tree to this tree (other tree becomes empty).
+     *
+     * @param other
+     *            Tree of the same type.
+     */
+    public void union(AbstractJoinableBinarySearchTree other) {
+        union(other, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Same as {@link #union(AbstractJoinableBinarySearchTree)}, runs in given pool.
+     */
+    public void union(AbstractJoinableBinarySearchTree other, ForkJoinPool pool) {
+        int otherSize = other.size;
+        LongAdder removed = new LongAdder();
+        Node result = runSetOperation(UNION, other, pool, removed);
+        setJoinedRoot(result, size + otherSize - removed.intValue());
+    }
+
+    /**
+     * Keeps only elements which are in other tree too (other tree becomes empty).
+     *
+     * @param other
+     *            Tree of the same type.
+     */
+    public void intersection(AbstractJoinableBinarySearchTree other) {
+        intersection(other, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Same as {@link #intersection(AbstractJoinableBinarySearchTree)}, runs in given pool.
+     */
+    public void intersection(AbstractJoinableBinarySearchTree other, ForkJoinPool pool) {
+        LongAdder kept = new LongAdder();
+        Node result = runSetOperation(INTERSECTION, other, pool, kept);
+        setJoinedRoot(result, kept.intValue());
+    }
+
+    /**
+     * Removes all elements which are in other tree (other tree becomes empty).
+     *
+     * @param other
+     *            Tree of the same type.
+     */
+    public void difference(AbstractJoinableBinarySearchTree other) {
+        difference(other, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Same as {@link #difference(AbstractJoinableBinarySearchTree)}, runs in given pool.
+     */
+    public void difference(AbstractJoinableBinarySearchTree other, ForkJoinPool pool) {
+        LongAdder removed = new LongAdder();
+        Node result = runSetOperation(DIFFERENCE, other, pool, removed);
+        setJoinedRoot(result, size - removed.intValue());
+    }
+
+    /**
+     * Appends other tree whose elements are all greater than or equal to elements of this tree, O(log n). Other tree
+     * becomes empty.
+     *
+     * @param other
+     *            Tree of the same type.
+     */
+    public void join(AbstractJoinableBinarySearchTree other) {
+        checkCompatible(other);
+        Node otherRoot = other.isNil(other.root) ? nil : other.root;
+        if (!isNil(root) && !isNil(otherRoot)
+                && (getMaximum() > other.getMinimum() || (multiset && getMaximum() == other.getMinimum()))) {
+            throw new IllegalArgumentException("Elements of other tree must not be smaller than elements of this tree"
+                    + (multiset ? " (nor equal in multiset)" : ""));
+        }
+        adoptNodes(otherRoot, other.nil);
+        Node thisRoot = isNil(root) ? nil : root;
+        Node result = join2(thisRoot, detachedRank(thisRoot), otherRoot, detachedRank(otherRoot)).left;
+        int newSize = size + other.size;
+        other.clear();
+        setJoinedRoot(result, newSize);
+    }
+
+    /**
+     * Moves all elements greater than or equal to key to a new tree, O(log n). Size of the new tree is known in
+     * O(1) when tree keeps subtree sizes, otherwise the smaller part is counted by walking it, so split of k elements
+     * takes O(log n + min(k, n - k)).
+     *
+     * @param key
+     *            Split key.
+     * @return New tree of the same type with elements &gt;= key, this tree keeps elements &lt; key.
+     */
+    public AbstractJoinableBinarySearchTree split(int key) {
+        checkNaturalOrder();
+        Split split = split2(root, detachedRank(root), key);
+        AbstractJoinableBinarySearchTree right = createTree();
+        int rightSize = orderStatistic ? subtreeSize(split.right) : countRightPart(split.left, split.right);
+        Node rightRoot = isNil(split.right) ? right.nil : split.right;
+        right.adoptNodes(rightRoot, nil);
+        right.setJoinedRoot(rightRoot, rightSize);
+        setJoinedRoot(split.left, size - rightSize);
+        return right;
+    }
+
+    /*-------------------JOIN HOOKS-------------------*/
+
+    /**
+     * Joins two detached subtrees with middle node between them. All elements of left are &lt;= middle &lt;= all
+     * elements of right.
+     *
+     * @param leftRank
+     *            Rank of left, see {@link #detachedRank(Node)}.
+     * @param rightRank
+     *            Rank of right.
+     * @return Root of joined subtree (its parent link is set by caller).
+     */
+    protected abstract Node join(Node left, int leftRank, Node middle, Node right, int rightRank);
+
+    /**
+     * Detaches subtree from its tree and returns its rank. Rank is what join needs to know about height of subtree
+     * and is not stored in nodes (black height of red black tree), rank of empty subtree is 0. Trees whose join reads
+     * balance info of nodes (AVL heights) or needs none (treap) keep default 0.
+     */
+    protected int detachedRank(Node subtree) {
+        return 0;
+    }
+
+    /**
+     * Detaches child of detached subtree, O(1).
+     *
+     * @param parentRank
+     *            Rank of parent subtree.
+     * @return Rank of child subtree.
+     */
+    protected int detachedChildRank(Node parent, int parentRank, Node child) {
+        return detachedRank(child);
+    }
+
+    /**
+     * @param joined
+     *            Result of {@link #join(Node, int, Node, Node, int)} for left and right.
+     * @return Rank of joined subtree, O(1).
+     */
+    protected int joinedRank(Node joined, Node left, int leftRank, Node right, int rightRank) {
+        return detachedRank(joined);
+    }
+
+    /**
+     * @return New empty tree of the same type and options.
+     */
+    protected abstract AbstractJoinableBinarySearchTree createTree();
+
+    /**
+     * Called after node children were set by join algorithms. Subclasses update their balancing info.
+     */
+    protected void updateJoinedNode(Node node) {
+        if (orderStatistic) {
+            updateSubtreeSize(node);
+        }
+    }
+
+    /**
+     * Nodes of subtree are moved from a tree whose sentinel is foreignNil, subclasses with sentinel node relink them.
+     */
+    protected void adoptNodes(Node subtree, Node foreignNil) {
+    }
+
+    /**
+     * Sets children of node (parent links of non nil children too) and updates node info.
+     *
+     * @return The node.
+     */
+    protected Node link(Node node, Node left, Node right) {
+        node.left = left;
+        node.right = right;
+        if (!isNil(left)) {
+            left.parent = node;
+        }
+        if (!isNil(right)) {
+            right.parent = node;
+        }
+        updateJoinedNode(node);
+        return node;
+    }
+
+    /**
+     * Left rotation of detached subtree, unlike {@link #rotateLeft(Node)} it does not touch parent of node or root.
+     *
+     * @return New subtree root.
+     */
+    protected Node rotateSubtreeLeft(Node node) {
+        Node temp = node.right;
+        link(node, node.left, temp.left);
+        if (listener != null) {
+            listener.onRotation();
+        }
+        return link(temp, node, temp.right);
+    }
+
+    /**
+     * Right rotation of detached subtree, see {@link #rotateSubtreeLeft(Node)}.
+     *
+     * @return New subtree root.
+     */
+    protected Node rotateSubtreeRight(Node node) {
+        Node temp = node.left;
+        link(node, temp.right, node.right);
+        if (listener != null) {
+            listener.onRotation();
+        }
+        return link(temp, temp.left, node);
+    }
+
+    /**
+     * Makes subtree the whole tree.
+     */
+    protected void setJoinedRoot(Node subtree, int newSize) {
+        if (isNil(subtree)) {
+            root = null;
+        } else {
+            root = subtree;
+            root.parent = nil;
+        }
+        size = newSize;
+    }
+
+    /*-------------------PRIVATE HELPER METHODS-------------------*/
+
+    private Node runSetOperation(int operation, AbstractJoinableBinarySearchTree other, ForkJoinPool pool,
+            LongAdder counter) {
+        checkCompatible(other);
+        if (multiset) {
+            throw new UnsupportedOperationException("Set operations are not supported by multiset tree");
+        }
+        Node otherRoot = other.isNil(other.root) ? nil : other.root;
+        adoptNodes(otherRoot, other.nil);
+        Node thisRoot = isNil(root) ? nil : root;
+        other.clear();
+        return pool.invoke(new SetOperation(operation, thisRoot, detachedRank(thisRoot), otherRoot,
+                detachedRank(otherRoot), 0, counter));
+    }
+
+    /**
+     * Join without middle node, last node of left tree is used as middle.
+     *
+     * @return Split whose left part is the joined tree.
+     */
+    private Split join2(Node left, int leftRank, Node right, int rightRank) {
+        if (isNil(left)) {
+            return new Split(right, rightRank, null, nil, 0);
+        }
+        if (isNil(right)) {
+            return new Split(left, leftRank, null, nil, 0);
+        }
+        Split split = splitLast(left, leftRank);
+        joinLeftPart(split, split.left, split.leftRank, split.middle, right, rightRank);
+        return split;
+    }
+
+    private Split splitLast(Node node, int rank) {
+        Node left = node.left;
+        Node right = node.right;
+        int leftRank = detachedChildRank(node, rank, left);
+        if (isNil(right)) {
+            return new Split(left, leftRank, node, nil, 0);
+        }
+        Split split = splitLast(right, detachedChildRank(node, rank, right));
+        joinLeftPart(split, left, leftRank, node, split.left, split.leftRank);
+        return split;
+    }
+
+    /**
+     * Left part of split becomes join of left, middle and right.
+     */
+    private void joinLeftPart(Split split, Node left, int leftRank, Node middle, Node right, int rightRank) {
+        Node joined = join(left, leftRank, middle, right, rightRank);
+        split.leftRank = joinedRank(joined, left, leftRank, right, rightRank);
+        split.left = joined;
+    }
+
+    /**
+     * Right part of split becomes join of left, middle and right.
+     */
+    private void joinRightPart(Split split, Node left, int leftRank, Node middle, Node right, int rightRank) {
+        Node joined = join(left, leftRank, middle, right, rightRank);
+        split.rightRank = joinedRank(joined, left, leftRank, right, rightRank);
+        split.right = joined;
+    }
+
+    /**
+     * Splits subtree to elements smaller than key and greater than key. One node equal to key is returned as middle,
+     * all equal nodes are counted in removed.
+     */
+    private Split split3(Node node, int rank, int key, LongAdder removed) {
+        if (isNil(node)) {
+            return new Split(nil, rank, null, nil, rank);
+        }
+        Node left = node.left;
+        Node right = node.right;
+        int leftRank = detachedChildRank(node, rank, left);
+        int rightRank = detachedChildRank(node, rank, right);
+        if (key < node.value) {
+            Split split = split3(left, leftRank, key, removed);
+            joinRightPart(split, split.right, split.rightRank, node, right, rightRank);
+            return split;
+        } else if (key > node.value) {
+            Split split = split3(right, rightRank, key, removed);
+            joinLeftPart(split, left, leftRank, node, split.left, split.leftRank);
+            return split;
+        } else {
+            // duplicates of key can be on both sides
+            removed.increment();
+            Split smaller = split3(left, leftRank, key, removed);
+            Split greater = split3(right, rightRank, key, removed);
+            return new Split(smaller.left, smaller.leftRank, node, greater.right, greater.rightRank);
+        }
+    }
+
+    /**
+     * Splits subtree to elements smaller than key (left) and others (right).
+     */
+    private Split split2(Node node, int rank, int key) {
+        if (isNil(node)) {
+            return new Split(nil, rank, null, nil, rank);
+        }
+        Node left = node.left;
+        Node right = node.right;
+        int leftRank = detachedChildRank(node, rank, left);
+        int rightRank = detachedChildRank(node, rank, right);
+        if (node.value < key) {
+            Split split = split2(right, rightRank, key);
+            joinLeftPart(split, left, leftRank, node, split.left, split.leftRank);
+            return split;
+        } else {
+            Split split = split2(left, leftRank, key);
+            joinRightPart(split, split.right, split.rightRank, node, right, rightRank);
+            return split;
+        }
+    }
+
+    /**
+     * Walks both parts of split in turns until one of them is counted, O(min(k, n - k)).
+     *
+     * @return Number of elements in right part.
+     */
+    private int countRightPart(Node left, Node right) {
+        ArrayDeque<Node> leftStack = newWalk(left);
+        ArrayDeque<Node> rightStack = newWalk(right);
+        int leftCount = 0;
+        int rightCount = 0;
+        while (!leftStack.isEmpty() && !rightStack.isEmpty()) {
+            leftCount += walkStep(leftStack);
+            rightCount += walkStep(rightStack);
+        }
+        return rightStack.isEmpty() ? rightCount : size - leftCount;
+    }
+
+    private ArrayDeque<Node> newWalk(Node subtree) {
+        ArrayDeque<Node> stack = new ArrayDeque<Node>();
+        if (!isNil(subtree)) {
+            stack.push(subtree);
+        }
+        return stack;
+    }
+
+    /**
+     * Visits one node of walk, pushes its children.
+     *
+     * @return Count of visited node.
+     */
+    private int walkStep(ArrayDeque<Node> stack) {
+        Node node = stack.pop();
+        if (!isNil(node.left)) {
+            stack.push(node.left);
+        }
+        if (!isNil(node.right)) {
+            stack.push(node.right);
+        }
+        return node.getCount();
+    }
+
+    private void checkCompatible(AbstractJoinableBinarySearchTree other) {
+        checkNaturalOrder();
+        if (other == this) {
+            throw new IllegalArgumentException("Tree can not be combined with itself");
+        }
+        if (other.getClass() != getClass() || other.orderStatistic != orderStatistic || other.multiset != multiset) {
+            throw new IllegalArgumentException("Trees must be of the same type and options");
+        }
+    }
+
+    private void clear() {
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Result of split with ranks of both parts. Middle is null if split key was not found.
+     */
+    private static final class Split {
+        Node left;
+        int leftRank;
+        Node middle;
+        Node right;
+        int rightRank;
+
+        Split(Node left, int leftRank, Node middle, Node right, int rightRank) {
+            this.left = left;
+            this.leftRank = leftRank;
+            this.middle = middle;
+            this.right = right;
+            this.rightRank = rightRank;
+        }
+    }
+
+    /**
+     * One step of union, intersection or difference of subtrees a and b. Counter collects removed (union,
+     * difference) or kept (intersection) nodes. Result and its rank are kept in the task.
+     */
+    private final class SetOperation extends RecursiveTask<Node> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int operation;
+        private final Node a;
+        private final int aRank;
+        private final Node b;
+        private final int bRank;
+        private final int depth;
+        private final LongAdder counter;
+
+        private Node result;
+        private int rank;
+
+        SetOperation(int operation, Node a, int aRank, Node b, int bRank, int depth, LongAdder counter) {
+            this.operation = operation;
+            this.a = a;
+            this.aRank = aRank;
+            this.b = b;
+            this.bRank = bRank;
+            this.depth = depth;
+            this.counter = counter;
+        }
+
+        @Override
+        protected Node compute() {
+            switch (operation) {
+            case UNION:
+                result = union();
+                break;
+            case INTERSECTION:
+                result = intersection();
+                break;
+            default:
+                result = difference();
+            }
+            return result;
+        }
+
+        private Node union() {
+            if (isNil(a)) {
+                rank = bRank;
+                return b;
+            }
+            if (isNil(b)) {
+                rank = aRank;
+                return a;
+            }
+            Node left = a.left;
+            Node right = a.right;
+            int leftRank = detachedChildRank(a, aRank, left);
+            int rightRank = detachedChildRank(a, aRank, right);
+            Split split = split3(b, bRank, a.value, counter);
+            SetOperation[] results = both(left, leftRank, split.left, split.leftRank, right, rightRank, split.right,
+                    split.rightRank);
+            return join(results[0], a, results[1]);
+        }
+
+        private Node intersection() {
+            if (isNil(a) || isNil(b)) {
+                rank = 0;
+                return nil;
+            }
+            Node left = a.left;
+            Node right = a.right;
+            int leftRank = detachedChildRank(a, aRank, left);
+            int rightRank = detachedChildRank(a, aRank, right);
+            Split split = split3(b, bRank, a.value, new LongAdder());
+            SetOperation[] results = both(left, leftRank, split.left, split.leftRank, right, rightRank, split.right,
+                    split.rightRank);
+            if (split.middle != null) {
+                counter.increment();
+                return join(results[0], a, results[1]);
+            }
+            return join2(results[0], results[1]);
+        }
+
+        private Node difference() {
+            if (isNil(a)) {
+                rank = 0;
+                return nil;
+            }
+            if (isNil(b)) {
+                rank = aRank;
+                return a;
+            }
+            Node left = b.left;
+            Node right = b.right;
+            int leftRank = detachedChildRank(b, bRank, left);
+            int rightRank = detachedChildRank(b, bRank, right);
+            Split split = split3(a, aRank, b.value, counter);
+            SetOperation[] results = both(split.left, split.leftRank, left, leftRank, split.right, split.rightRank,
+                    right, rightRank);
+            return join2(results[0], results[1]);
+        }
+
+        private Node join(SetOperation left, Node middle, SetOperation right) {
+            Node joined = AbstractJoinableBinarySearchTree.this.join(left.result, left.rank, middle, right.result,
+                    right.rank);
+            rank = joinedRank(joined, left.result, left.rank, right.result, right.rank);
+            return joined;
+        }
+
+        private Node join2(SetOperation left, SetOperation right) {
+            Split joined = AbstractJoinableBinarySearchTree.this.join2(left.result, left.rank, right.result,
+                    right.rank);
+            rank = joined.leftRank;
+            return joined.left;
+        }
+
+        /**
+         * Runs operation on (a1, b1) and (a2, b2), in parallel on top levels.
+         *
+         * @return Finished tasks.
+         */
+        private SetOperation[] both(Node a1, int a1Rank, Node b1, int b1Rank, Node a2, int a2Rank, Node b2,
+                int b2Rank) {
+            SetOperation first = new SetOperation(operation, a1, a1Rank, b1, b1Rank, depth + 1, counter);
+            SetOperation second = new SetOperation(operation, a2, a2Rank, b2, b2Rank, depth + 1, counter);
+            if (depth < FORK_DEPTH) {
+                first.fork();
+                second.compute();
+                first.join();
+            } else {
+                first.compute();
+                second.compute();
+            }
+            return new SetOperation[] { first, second };
+        }
+    }
+
+}
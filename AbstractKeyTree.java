@@ -0,0 +1,276 @@
+package com.tree2;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.tree2.AbstractBinarySearchTree.Node;
+
+/**
+ * Base of trees whose keys are not int (long, double, objects). Keys are kept in array of subclass and nodes of wrapped
+ * int tree hold their handles (indexes), tree orders handles by keys with {@link KeyComparator}. So every tree type
+ * ({@link AVLTree}, {@link RedBlackTree}, {@link Treap}, {@link SplayTree}, {@link ScapegoatTree}...) serves every key
+ * type and balancing code exists only once. Searched key is put to handle {@link #PROBE}, which is never stored in the
+ * tree, so lookups do not box or allocate.
+ * <br>
+ * Wrapped tree belongs to the wrapper and must not be used directly. Duplicates are kept as wrapped tree keeps them
+ * (multiset tree counts them in one node). Batch operations, bulk load, split, join and set operations of wrapped tree
+ * work on ints in int order and are not available.
+ */
+public abstract class AbstractKeyTree {
+
+    /** Handle of searched key. */
+    protected static final int PROBE = 0;
+
+    /** Wrapped tree, its nodes hold handles. */
+    protected final AbstractBinarySearchTree tree;
+
+    /** Handles of deleted keys, reused by inserts. */
+    private int[] freeHandles = new int[16];
+
+    private int freeCount;
+
+    /** Smallest handle which was never used. */
+    private int nextHandle = PROBE + 1;
+
+    /**
+     * Constructor.
+     *
+     * @param tree Empty tree which will keep handles of keys.
+     */
+    protected AbstractKeyTree(AbstractBinarySearchTree tree) {
+        if (tree.getSize() != 0) {
+            throw new IllegalArgumentException("Tree is not empty");
+        }
+        tree.setKeyComparator(new KeyComparator() {
+            @Override
+            public int compare(int left, int right) {
+                return compareKeys(left, right);
+            }
+        });
+        this.tree = tree;
+    }
+
+    /**
+     * @return Negative, zero or positive as key of left handle is less than, equal to or greater than key of right.
+     */
+    protected abstract int compareKeys(int left, int right);
+
+    /**
+     * Makes key array big enough for handles smaller than capacity.
+     */
+    protected abstract void ensureCapacity(int capacity);
+
+    /**
+     * Called when handle is freed, subclass drops reference to key object.
+     */
+    protected void releaseKey(int handle) {
+    }
+
+    /**
+     * @return Number of elements in the tree.
+     */
+    public int getSize() {
+        return tree.getSize();
+    }
+
+    /**
+     * @return Handle for new key, subclass stores key there before {@link #insertHandle(int, boolean)}.
+     */
+    protected int newHandle() {
+        if (freeCount > 0) {
+            return freeHandles[--freeCount];
+        }
+        ensureCapacity(nextHandle + 1);
+        return nextHandle++;
+    }
+
+    /**
+     * Inserts key of handle, handle is freed if no new node was linked (key was found or counted in multiset node).
+     *
+     * @return true if new node was linked.
+     */
+    protected boolean insertHandle(int handle, boolean ifAbsent) {
+        if (ifAbsent) {
+            tree.insertIfAbsent(handle);
+        } else {
+            tree.insert(handle);
+        }
+        if (!tree.lastInsertCreated) {
+            freeHandle(handle);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes one occurrence of probe key, handle is freed when its node is removed.
+     *
+     * @return true if key was found.
+     */
+    protected boolean deleteProbe() {
+        Node node = tree.search(PROBE);
+        if (node == null) {
+            return false;
+        }
+        int handle = node.value;
+        boolean lastOccurrence = node.getCount() == 1;
+        tree.deleteOccurrence(node);
+        if (lastOccurrence) {
+            freeHandle(handle);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if tree contains probe key.
+     */
+    protected boolean containsProbe() {
+        return tree.search(PROBE) != null;
+    }
+
+    /**
+     * @return Number of occurrences of probe key.
+     */
+    protected int countProbe() {
+        return tree.count(PROBE);
+    }
+
+    /**
+     * @return Handle of minimum key.
+     * @throws NoSuchElementException if tree is empty.
+     */
+    protected int minimumHandle() {
+        return handleOf(tree.isNil(tree.root) ? null : tree.getMinimumNode(tree.root));
+    }
+
+    /**
+     * @return Handle of maximum key.
+     * @throws NoSuchElementException if tree is empty.
+     */
+    protected int maximumHandle() {
+        return handleOf(tree.isNil(tree.root) ? null : tree.getMaximumNode(tree.root));
+    }
+
+    /**
+     * @return Handle of greatest key less than (or equal to if inclusive) probe key.
+     * @throws NoSuchElementException if there is no such key.
+     */
+    protected int floorHandle(boolean inclusive) {
+        return handleOf(tree.floorNode(PROBE, inclusive));
+    }
+
+    /**
+     * @return Handle of smallest key greater than (or equal to if inclusive) probe key.
+     * @throws NoSuchElementException if there is no such key.
+     */
+    protected int ceilingHandle(boolean inclusive) {
+        return handleOf(tree.ceilingNode(PROBE, inclusive));
+    }
+
+    /**
+     * @return Number of keys smaller than probe key (wrapped tree has to keep subtree sizes).
+     */
+    protected int rankOfProbe() {
+        return tree.rank(PROBE);
+    }
+
+    /**
+     * @return Number of keys not greater than probe key (wrapped tree has to keep subtree sizes).
+     */
+    protected int countNotGreaterThanProbe() {
+        tree.checkOrderStatistic();
+        return tree.countSmaller(PROBE, true);
+    }
+
+    /**
+     * @return Handle of k-th smallest key (wrapped tree has to keep subtree sizes).
+     */
+    protected int selectHandle(int k) {
+        return tree.select(k);
+    }
+
+    /**
+     * @return Node of smallest key not less than probe key, or null.
+     */
+    protected Node ceilingOfProbe() {
+        return tree.ceilingNode(PROBE, true);
+    }
+
+    /**
+     * @return Node of minimum key, or null.
+     */
+    protected Node firstNode() {
+        return tree.isNil(tree.root) ? null : tree.getMinimumNode(tree.root);
+    }
+
+    /**
+     * @return In order successor of node, or null.
+     */
+    protected Node successor(Node node) {
+        Node successor = tree.getSuccessor(node);
+        return tree.isNil(successor) ? null : successor;
+    }
+
+    private int handleOf(Node node) {
+        if (node == null) {
+            throw new NoSuchElementException("No such element");
+        }
+        return node.value;
+    }
+
+    private void freeHandle(int handle) {
+        releaseKey(handle);
+        if (freeCount == freeHandles.length) {
+            freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+        }
+        freeHandles[freeCount++] = handle;
+    }
+
+    /**
+     * Ascending iterator over handles of keys starting at given node, every occurrence of multiset key is returned.
+     * Subclass checks upper bound and maps handles to keys.
+     */
+    protected abstract class HandleIterator {
+
+        private Node next;
+
+        /** Occurrences of next key which were not returned yet. */
+        private int remaining;
+
+        /**
+         * @param first First node, or null.
+         */
+        protected HandleIterator(Node first) {
+            this.next = first;
+            this.remaining = first == null ? 0 : first.getCount();
+        }
+
+        /**
+         * @return true if key of handle is not beyond upper bound of iteration.
+         */
+        protected abstract boolean inBounds(int handle);
+
+        public boolean hasNext() {
+            if (next != null && !inBounds(next.value)) {
+                next = null;
+            }
+            return next != null;
+        }
+
+        /**
+         * @return Handle of next key.
+         */
+        protected int nextHandle() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node node = next;
+            if (--remaining == 0) {
+                next = successor(node);
+                remaining = next == null ? 0 : next.getCount();
+            }
+            return node.value;
+        }
+    }
+
+}
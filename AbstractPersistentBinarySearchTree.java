@@ -0,0 +1,250 @@
+package com.tree2;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Persistent (path copying) binary search tree. Nodes are immutable and have no parent pointers, insert and delete
+ * copy only nodes on the path from root to the changed node (plus nodes touched by rebalancing) and share all other
+ * nodes with previous version.
+ * <br>
+ * Every version is a {@link Snapshot} (root and size). {@link #snapshot()} returns current version in O(1) and it
+ * stays readable without locks no matter what writer does afterwards, so readers get consistent point in time view
+ * without copying the tree. Writes are serialized on the tree object, reads never block.
+ * <br>
+ * Tree is a set, inserting existing element does nothing.
+ */
+public abstract class AbstractPersistentBinarySearchTree {
+
+    /** Bound of tree height for iterator stack (AVL and red-black trees with int size are lower). */
+    private static final int MAX_HEIGHT = 64;
+
+    /** Current version, replaced by every successful update. */
+    private volatile Snapshot current = new Snapshot(null, 0);
+
+    /**
+     * Inserts element.
+     *
+     * @param element Element to insert.
+     * @return true if element was not in the tree.
+     */
+    public synchronized boolean insert(int element) {
+        Snapshot version = current;
+        if (version.contains(element)) {
+            return false;
+        }
+        current = new Snapshot(insert(version.root, element), version.size + 1);
+        return true;
+    }
+
+    /**
+     * Removes element if it exists.
+     *
+     * @param element Element to remove.
+     * @return true if element was found and removed.
+     */
+    public synchronized boolean delete(int element) {
+        Snapshot version = current;
+        if (!version.contains(element)) {
+            return false;
+        }
+        current = new Snapshot(delete(version.root, element), version.size - 1);
+        return true;
+    }
+
+    /**
+     * @return Current version of the tree, O(1). It never changes.
+     */
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    /**
+     * @param element Element to look for.
+     * @return true if current version contains element.
+     */
+    public boolean contains(int element) {
+        return current.contains(element);
+    }
+
+    /**
+     * @return Number of elements in current version.
+     */
+    public int getSize() {
+        return current.size;
+    }
+
+    /**
+     * Path copying insert, element is not in the tree.
+     *
+     * @return Root of new version.
+     */
+    protected abstract PersistentNode insert(PersistentNode root, int element);
+
+    /**
+     * Path copying delete, element is in the tree.
+     *
+     * @return Root of new version.
+     */
+    protected abstract PersistentNode delete(PersistentNode root, int element);
+
+    /**
+     * Immutable node. Info meaning depends on tree type (height for AVL, color for red-black tree).
+     */
+    public static final class PersistentNode {
+        public final int value;
+        public final PersistentNode left;
+        public final PersistentNode right;
+        public final int info;
+
+        public PersistentNode(int value, PersistentNode left, PersistentNode right, int info) {
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.info = info;
+        }
+    }
+
+    /**
+     * One immutable version of the tree. Can be read from any number of threads without synchronization.
+     */
+    public static final class Snapshot {
+
+        private final PersistentNode root;
+
+        private final int size;
+
+        Snapshot(PersistentNode root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        /**
+         * @param element Element to look for.
+         * @return true if this version contains element.
+         */
+        public boolean contains(int element) {
+            PersistentNode node = root;
+            while (node != null) {
+                if (element < node.value) {
+                    node = node.left;
+                } else if (element > node.value) {
+                    node = node.right;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return Minimum element.
+         */
+        public int getMinimum() {
+            PersistentNode node = checkNotEmpty();
+            while (node.left != null) {
+                node = node.left;
+            }
+            return node.value;
+        }
+
+        /**
+         * @return Maximum element.
+         */
+        public int getMaximum() {
+            PersistentNode node = checkNotEmpty();
+            while (node.right != null) {
+                node = node.right;
+            }
+            return node.value;
+        }
+
+        /**
+         * @return Number of elements in this version.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * @return Root of this version (null if empty).
+         */
+        public PersistentNode getRoot() {
+            return root;
+        }
+
+        /**
+         * Ascending iterator over elements in range [lo, hi]. Nodes have no parent pointers, so iterator keeps path
+         * in a fixed size stack, nothing is allocated per element.
+         *
+         * @param lo Lower bound (inclusive).
+         * @param hi Upper bound (inclusive).
+         * @return Iterator over elements in range.
+         */
+        public PrimitiveIterator.OfInt rangeIterator(int lo, int hi) {
+            return new SnapshotIterator(root, lo, hi);
+        }
+
+        /**
+         * Passes elements in range [lo, hi] to action in ascending order.
+         *
+         * @param lo Lower bound (inclusive).
+         * @param hi Upper bound (inclusive).
+         * @param action Action for each element.
+         */
+        public void forEachInRange(int lo, int hi, IntConsumer action) {
+            rangeIterator(lo, hi).forEachRemaining(action);
+        }
+
+        private PersistentNode checkNotEmpty() {
+            if (root == null) {
+                throw new NoSuchElementException("Tree is empty");
+            }
+            return root;
+        }
+    }
+
+    /**
+     * In-order iterator with explicit stack of nodes whose left part was already visited.
+     */
+    private static final class SnapshotIterator implements PrimitiveIterator.OfInt {
+
+        private final PersistentNode[] stack = new PersistentNode[MAX_HEIGHT];
+
+        private int depth;
+
+        private final int hi;
+
+        SnapshotIterator(PersistentNode root, int lo, int hi) {
+            this.hi = hi;
+            PersistentNode node = root;
+            while (node != null) {
+                if (node.value >= lo) {
+                    stack[depth++] = node;
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0 && stack[depth - 1].value <= hi;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            PersistentNode node = stack[--depth];
+            for (PersistentNode child = node.right; child != null; child = child.left) {
+                stack[depth++] = child;
+            }
+            return node.value;
+        }
+    }
+
+}
@@ -48,6 +48,13 @@ public abstract class AbstractSelfBalancingBinarySearchTree extends AbstractBina
         } else {
             root = temp;
         }
+        if (orderStatistic) {
+            updateSubtreeSize(node);
+            updateSubtreeSize(temp);
+        }
+        if (listener != null) {
+            listener.onRotation();
+        }
         
         return temp;
     }
@@ -77,6 +84,13 @@ public abstract class AbstractSelfBalancingBinarySearchTree extends AbstractBina
         } else {
             root = temp;
         }
+        if (orderStatistic) {
+            updateSubtreeSize(node);
+            updateSubtreeSize(temp);
+        }
+        if (listener != null) {
+            listener.onRotation();
+        }
         
         return temp;
     }
@@ -0,0 +1,148 @@
+package com.tree2;
+
+/**
+ * AVL tree which keeps nodes in parallel int arrays (see {@link AbstractArraySelfBalancingBinarySearchTree}). Same
+ * balancing as {@link AVLTree}, {@link #info} holds node height (-1 for sentinel).
+ */
+public class ArrayAVLTree extends AbstractArraySelfBalancingBinarySearchTree {
+
+    /**
+     * Constructor.
+     */
+    public ArrayAVLTree() {
+        super(-1);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param initialCapacity Number of nodes tree can hold before arrays are grown.
+     */
+    public ArrayAVLTree(int initialCapacity) {
+        super(initialCapacity, -1);
+    }
+
+    /**
+     * @param sortedKeys Keys in non-decreasing order.
+     * @return Tree built with {@link #bulkLoad(int[])}.
+     */
+    public static ArrayAVLTree fromSorted(int[] sortedKeys) {
+        ArrayAVLTree tree = new ArrayAVLTree(sortedKeys.length);
+        tree.bulkLoad(sortedKeys);
+        return tree;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insert(int element) {
+        int newNode = insertNode(element);
+        info[newNode] = 0;
+        rebalance(parent[newNode]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean delete(int element) {
+        int deleteNode = searchNode(element);
+        if (deleteNode == NIL) {
+            return false;
+        }
+        // lowest node whose subtree changed
+        int rebalanceNode;
+        if (left[deleteNode] == NIL) {
+            rebalanceNode = parent[deleteNode];
+            transplant(deleteNode, right[deleteNode]);
+        } else if (right[deleteNode] == NIL) {
+            rebalanceNode = parent[deleteNode];
+            transplant(deleteNode, left[deleteNode]);
+        } else {
+            int successorNode = minimumNode(right[deleteNode]);
+            if (parent[successorNode] == deleteNode) {
+                rebalanceNode = successorNode;
+            } else {
+                rebalanceNode = parent[successorNode];
+                transplant(successorNode, right[successorNode]);
+                right[successorNode] = right[deleteNode];
+                parent[right[successorNode]] = successorNode;
+            }
+            transplant(deleteNode, successorNode);
+            left[successorNode] = left[deleteNode];
+            parent[left[successorNode]] = successorNode;
+            // successor takes deleted node height, so rebalance can tell whether ancestors changed
+            info[successorNode] = info[deleteNode];
+        }
+        releaseNode(deleteNode);
+        size--;
+        rebalance(rebalanceNode);
+        return true;
+    }
+
+    /**
+     * Goes up from node to the root updating heights and rotating unbalanced nodes. Stops as soon as subtree height
+     * does not change, ancestors are not affected then.
+     */
+    private void rebalance(int node) {
+        while (node != NIL) {
+            int nodeParent = parent[node];
+            int oldHeight = info[node];
+            int subtreeRoot = balance(node);
+            if (info[subtreeRoot] == oldHeight) {
+                break;
+            }
+            node = nodeParent;
+        }
+    }
+
+    /**
+     * Updates node height and rotates it if it is unbalanced.
+     *
+     * @return Node which is root of the subtree after balancing.
+     */
+    private int balance(int node) {
+        updateHeight(node);
+        int nodeBalance = info[right[node]] - info[left[node]];
+        if (nodeBalance > 1) {
+            if (info[left[right[node]]] > info[right[right[node]]]) {
+                avlRotateRight(right[node]);
+            }
+            return avlRotateLeft(node);
+        } else if (nodeBalance < -1) {
+            if (info[right[left[node]]] > info[left[left[node]]]) {
+                avlRotateLeft(left[node]);
+            }
+            return avlRotateRight(node);
+        }
+        return node;
+    }
+
+    private int avlRotateLeft(int node) {
+        int temp = rotateLeft(node);
+        updateHeight(node);
+        updateHeight(temp);
+        return temp;
+    }
+
+    private int avlRotateRight(int node) {
+        int temp = rotateRight(node);
+        updateHeight(node);
+        updateHeight(temp);
+        return temp;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void bulkLoadedNode(int node, int depth, int maxDepth) {
+        updateHeight(node);
+    }
+
+    private void updateHeight(int node) {
+        info[node] = 1 + MathUtils.getMax(info[left[node]], info[right[node]]);
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.tree2;
+
+/**
+ * Red-black tree which keeps nodes in parallel int arrays (see {@link AbstractArraySelfBalancingBinarySearchTree}).
+ * Fixups are the ones of {@link RedBlackTree} written over indexes in {@link RedBlackIndexFixup}, {@link #info} holds
+ * node color.
+ */
+public class ArrayRedBlackTree extends AbstractArraySelfBalancingBinarySearchTree {
+
+    protected static final int RED = RedBlackIndexFixup.RED;
+
+    protected static final int BLACK = RedBlackIndexFixup.BLACK;
+
+    /**
+     * Constructor.
+     */
+    public ArrayRedBlackTree() {
+        super(BLACK);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param initialCapacity Number of nodes tree can hold before arrays are grown.
+     */
+    public ArrayRedBlackTree(int initialCapacity) {
+        super(initialCapacity, BLACK);
+    }
+
+    /**
+     * @param sortedKeys Keys in non-decreasing order.
+     * @return Tree built with {@link #bulkLoad(int[])}.
+     */
+    public static ArrayRedBlackTree fromSorted(int[] sortedKeys) {
+        ArrayRedBlackTree tree = new ArrayRedBlackTree(sortedKeys.length);
+        tree.bulkLoad(sortedKeys);
+        return tree;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insert(int element) {
+        int newNode = insertNode(element);
+        info[newNode] = RED;
+        fixup.insertFixup(newNode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean delete(int element) {
+        int deleteNode = searchNode(element);
+        if (deleteNode == NIL) {
+            return false;
+        }
+        int replaceNode; // track node that replaces removedOrMovedNode
+        int removedOrMovedNodeColor = info[deleteNode];
+        if (left[deleteNode] == NIL) {
+            replaceNode = right[deleteNode];
+            transplant(deleteNode, right[deleteNode]);
+        } else if (right[deleteNode] == NIL) {
+            replaceNode = left[deleteNode];
+            transplant(deleteNode, left[deleteNode]);
+        } else {
+            int removedOrMovedNode = minimumNode(right[deleteNode]);
+            removedOrMovedNodeColor = info[removedOrMovedNode];
+            replaceNode = right[removedOrMovedNode];
+            if (parent[removedOrMovedNode] == deleteNode) {
+                parent[replaceNode] = removedOrMovedNode;
+            } else {
+                transplant(removedOrMovedNode, right[removedOrMovedNode]);
+                right[removedOrMovedNode] = right[deleteNode];
+                parent[right[removedOrMovedNode]] = removedOrMovedNode;
+            }
+            transplant(deleteNode, removedOrMovedNode);
+            left[removedOrMovedNode] = left[deleteNode];
+            parent[left[removedOrMovedNode]] = removedOrMovedNode;
+            info[removedOrMovedNode] = info[deleteNode];
+        }
+        releaseNode(deleteNode);
+        size--;
+        if (removedOrMovedNodeColor == BLACK) {
+            fixup.deleteFixup(replaceNode);
+        }
+        return true;
+    }
+
+    /**
+     * Levels above the deepest one are full and black, deepest level is red, see {@link RedBlackTree}.
+     */
+    @Override
+    protected void bulkLoadedNode(int node, int depth, int maxDepth) {
+        info[node] = depth == maxDepth && depth > 0 ? RED : BLACK;
+    }
+
+    /**
+     * Fixups shared with {@link OffHeapRedBlackTree}, {@link #info} holds node color.
+     */
+    private final RedBlackIndexFixup fixup = new RedBlackIndexFixup() {
+        @Override
+        protected int root() {
+            return root;
+        }
+
+        @Override
+        protected int left(int node) {
+            return left[node];
+        }
+
+        @Override
+        protected int right(int node) {
+            return right[node];
+        }
+
+        @Override
+        protected int parent(int node) {
+            return parent[node];
+        }
+
+        @Override
+        protected int color(int node) {
+            return info[node];
+        }
+
+        @Override
+        protected void setColor(int node, int color) {
+            info[node] = color;
+        }
+
+        @Override
+        protected void rotateLeft(int node) {
+            ArrayRedBlackTree.this.rotateLeft(node);
+        }
+
+        @Override
+        protected void rotateRight(int node) {
+            ArrayRedBlackTree.this.rotateRight(node);
+        }
+    };
+
+}
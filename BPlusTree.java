@@ -0,0 +1,475 @@
+package com.tree2;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * B+tree of int keys. Every node keeps up to {@link #getMaxKeys()} sorted keys in one int array, so lookup touches
+ * about log_B(n) nodes (5 levels for 10M random keys with default fan-out) instead of log_2(n) separately allocated binary
+ * tree nodes. Keys are stored only in leaves, internal nodes keep separators (child i holds keys in
+ * [keys[i - 1], keys[i])). Leaves are linked, so range scans walk arrays sequentially.
+ * <br>
+ * Search inside a node is branch free binary search (only the loop counter branches, comparison result selects next
+ * position with conditional move), so there are no mispredictions on random keys.
+ * <br>
+ * Tree is a set, inserting existing element does nothing. Nodes are kept at least half full on delete (borrowing from
+ * or merging with sibling).
+ */
+public class BPlusTree {
+
+    /** Default number of keys per node, 64 ints are 4 cache lines. */
+    public static final int DEFAULT_MAX_KEYS = 64;
+
+    private final int maxKeys;
+
+    private final int minKeys;
+
+    private Node root;
+
+    /** Leftmost leaf. */
+    private Node head;
+
+    private int size;
+
+    /** Separator produced by last split in {@link #insert(Node, int)}. */
+    private int splitKey;
+
+    /** Set by {@link #insert(Node, int)} when key was already present. */
+    private boolean duplicate;
+
+    /**
+     * Constructor with default fan-out.
+     */
+    public BPlusTree() {
+        this(DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxKeys Maximum number of keys in one node (at least 3), pick multiple of 16 to fill whole cache lines.
+     */
+    public BPlusTree(int maxKeys) {
+        if (maxKeys < 3) {
+            throw new IllegalArgumentException("Illegal max keys: " + maxKeys);
+        }
+        this.maxKeys = maxKeys;
+        this.minKeys = maxKeys / 2;
+        this.root = new Node(maxKeys, true);
+        this.head = root;
+    }
+
+    /**
+     * Inserts element.
+     *
+     * @param element Element to insert.
+     * @return true if element was not in the tree.
+     */
+    public boolean insert(int element) {
+        duplicate = false;
+        Node sibling = insert(root, element);
+        if (duplicate) {
+            return false;
+        }
+        if (sibling != null) {
+            Node newRoot = new Node(maxKeys, false);
+            newRoot.keys[0] = splitKey;
+            newRoot.children[0] = root;
+            newRoot.children[1] = sibling;
+            newRoot.count = 1;
+            root = newRoot;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes element if it exists.
+     *
+     * @param element Element to remove.
+     * @return true if element was found and removed.
+     */
+    public boolean delete(int element) {
+        if (!delete(root, element)) {
+            return false;
+        }
+        if (!root.leaf && root.count == 0) {
+            root = root.children[0];
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * @param element Element to look for.
+     * @return true if tree contains element.
+     */
+    public boolean contains(int element) {
+        Node leaf = findLeaf(element);
+        int position = lowerBound(leaf.keys, leaf.count, element);
+        return position < leaf.count && leaf.keys[position] == element;
+    }
+
+    /**
+     * @return Minimum element in tree.
+     */
+    public int getMinimum() {
+        checkNotEmpty();
+        return head.keys[0];
+    }
+
+    /**
+     * @return Maximum element in tree.
+     */
+    public int getMaximum() {
+        checkNotEmpty();
+        Node node = root;
+        while (!node.leaf) {
+            node = node.children[node.count];
+        }
+        return node.keys[node.count - 1];
+    }
+
+    /**
+     * Get next element who is bigger than provided element.
+     *
+     * @param element Element (must be in the tree) for whom successor is searched.
+     * @return Successor value.
+     */
+    public int getSuccessor(int element) {
+        Node leaf = findLeaf(element);
+        int position = lowerBound(leaf.keys, leaf.count, element);
+        if (position == leaf.count || leaf.keys[position] != element) {
+            throw new NoSuchElementException("Element " + element + " is not in the tree");
+        }
+        if (position + 1 < leaf.count) {
+            return leaf.keys[position + 1];
+        }
+        if (leaf.next == null) {
+            throw new NoSuchElementException("Element " + element + " has no successor");
+        }
+        return leaf.next.keys[0];
+    }
+
+    /**
+     * @return Number of elements in the tree.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return Maximum number of keys in one node.
+     */
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+
+    /**
+     * @return Number of levels (1 for tree with only root leaf).
+     */
+    public int getHeight() {
+        int height = 1;
+        for (Node node = root; !node.leaf; node = node.children[0]) {
+            height++;
+        }
+        return height;
+    }
+
+    /**
+     * Ascending iterator over elements in range [lo, hi], walks linked leaves. Tree must not be modified while
+     * iterator is used.
+     *
+     * @param lo Lower bound (inclusive).
+     * @param hi Upper bound (inclusive).
+     * @return Iterator over elements in range.
+     */
+    public PrimitiveIterator.OfInt rangeIterator(int lo, int hi) {
+        Node leaf = findLeaf(lo);
+        return new LeafIterator(leaf, lowerBound(leaf.keys, leaf.count, lo), hi);
+    }
+
+    /**
+     * Passes elements in range [lo, hi] to action in ascending order.
+     *
+     * @param lo Lower bound (inclusive).
+     * @param hi Upper bound (inclusive).
+     * @param action Action for each element.
+     */
+    public void forEachInRange(int lo, int hi, IntConsumer action) {
+        Node leaf = findLeaf(lo);
+        int position = lowerBound(leaf.keys, leaf.count, lo);
+        while (leaf != null) {
+            int[] keys = leaf.keys;
+            for (int i = position; i < leaf.count; i++) {
+                if (keys[i] > hi) {
+                    return;
+                }
+                action.accept(keys[i]);
+            }
+            leaf = leaf.next;
+            position = 0;
+        }
+    }
+
+    /*-------------------PRIVATE HELPER METHODS-------------------*/
+
+    private Node findLeaf(int element) {
+        Node node = root;
+        while (!node.leaf) {
+            node = node.children[upperBound(node.keys, node.count, element)];
+        }
+        return node;
+    }
+
+    /**
+     * Inserts into subtree.
+     *
+     * @return New right sibling if node was split (its separator is in {@link #splitKey}), otherwise null.
+     */
+    private Node insert(Node node, int element) {
+        if (node.leaf) {
+            int position = lowerBound(node.keys, node.count, element);
+            if (position < node.count && node.keys[position] == element) {
+                duplicate = true;
+                return null;
+            }
+            insertKey(node, position, element);
+            return node.count > maxKeys ? splitLeaf(node) : null;
+        }
+        int childIndex = upperBound(node.keys, node.count, element);
+        Node sibling = insert(node.children[childIndex], element);
+        if (sibling == null) {
+            return null;
+        }
+        insertKey(node, childIndex, splitKey);
+        System.arraycopy(node.children, childIndex + 1, node.children, childIndex + 2, node.count - childIndex - 1);
+        node.children[childIndex + 1] = sibling;
+        return node.count > maxKeys ? splitInner(node) : null;
+    }
+
+    private Node splitLeaf(Node leaf) {
+        int middle = leaf.count >>> 1;
+        Node right = new Node(maxKeys, true);
+        right.count = leaf.count - middle;
+        System.arraycopy(leaf.keys, middle, right.keys, 0, right.count);
+        leaf.count = middle;
+        right.next = leaf.next;
+        leaf.next = right;
+        splitKey = right.keys[0];
+        return right;
+    }
+
+    private Node splitInner(Node node) {
+        int middle = node.count >>> 1;
+        Node right = new Node(maxKeys, false);
+        right.count = node.count - middle - 1;
+        System.arraycopy(node.keys, middle + 1, right.keys, 0, right.count);
+        System.arraycopy(node.children, middle + 1, right.children, 0, right.count + 1);
+        Arrays.fill(node.children, middle + 1, node.count + 1, null);
+        splitKey = node.keys[middle];
+        node.count = middle;
+        return right;
+    }
+
+    /**
+     * Deletes from subtree, fixes underflow of its children.
+     *
+     * @return true if element was found.
+     */
+    private boolean delete(Node node, int element) {
+        if (node.leaf) {
+            int position = lowerBound(node.keys, node.count, element);
+            if (position == node.count || node.keys[position] != element) {
+                return false;
+            }
+            removeKey(node, position);
+            return true;
+        }
+        int childIndex = upperBound(node.keys, node.count, element);
+        Node child = node.children[childIndex];
+        if (!delete(child, element)) {
+            return false;
+        }
+        if (child.count < minKeys) {
+            fixUnderflow(node, childIndex);
+        }
+        return true;
+    }
+
+    /**
+     * Child has fewer than minimum keys: borrow one key from sibling that has spare keys, or merge with sibling.
+     */
+    private void fixUnderflow(Node parent, int childIndex) {
+        Node child = parent.children[childIndex];
+        Node left = childIndex > 0 ? parent.children[childIndex - 1] : null;
+        Node right = childIndex < parent.count ? parent.children[childIndex + 1] : null;
+        if (left != null && left.count > minKeys) {
+            if (child.leaf) {
+                insertKey(child, 0, left.keys[left.count - 1]);
+                left.count--;
+                parent.keys[childIndex - 1] = child.keys[0];
+            } else {
+                System.arraycopy(child.children, 0, child.children, 1, child.count + 1);
+                insertKey(child, 0, parent.keys[childIndex - 1]);
+                child.children[0] = left.children[left.count];
+                left.children[left.count] = null;
+                parent.keys[childIndex - 1] = left.keys[left.count - 1];
+                left.count--;
+            }
+        } else if (right != null && right.count > minKeys) {
+            if (child.leaf) {
+                child.keys[child.count++] = right.keys[0];
+                removeKey(right, 0);
+                parent.keys[childIndex] = right.keys[0];
+            } else {
+                child.keys[child.count] = parent.keys[childIndex];
+                child.children[child.count + 1] = right.children[0];
+                child.count++;
+                parent.keys[childIndex] = right.keys[0];
+                System.arraycopy(right.children, 1, right.children, 0, right.count);
+                right.children[right.count] = null;
+                removeKey(right, 0);
+            }
+        } else if (left != null) {
+            merge(parent, childIndex - 1);
+        } else {
+            merge(parent, childIndex);
+        }
+    }
+
+    /**
+     * Moves everything from child index + 1 to child index and removes separator between them.
+     */
+    private void merge(Node parent, int index) {
+        Node left = parent.children[index];
+        Node right = parent.children[index + 1];
+        if (left.leaf) {
+            System.arraycopy(right.keys, 0, left.keys, left.count, right.count);
+            left.count += right.count;
+            left.next = right.next;
+        } else {
+            left.keys[left.count] = parent.keys[index];
+            System.arraycopy(right.keys, 0, left.keys, left.count + 1, right.count);
+            System.arraycopy(right.children, 0, left.children, left.count + 1, right.count + 1);
+            left.count += right.count + 1;
+        }
+        removeKey(parent, index);
+        System.arraycopy(parent.children, index + 2, parent.children, index + 1, parent.count - index);
+        parent.children[parent.count + 1] = null;
+    }
+
+    private static void insertKey(Node node, int position, int key) {
+        System.arraycopy(node.keys, position, node.keys, position + 1, node.count - position);
+        node.keys[position] = key;
+        node.count++;
+    }
+
+    private static void removeKey(Node node, int position) {
+        System.arraycopy(node.keys, position + 1, node.keys, position, node.count - position - 1);
+        node.count--;
+    }
+
+    /**
+     * Branch free binary search.
+     *
+     * @return Index of first key which is not smaller than key (count if there is no such key).
+     */
+    static int lowerBound(int[] keys, int count, int key) {
+        if (count == 0) {
+            return 0;
+        }
+        int base = 0;
+        int n = count;
+        while (n > 1) {
+            int half = n >>> 1;
+            base = keys[base + half] < key ? base + half : base;
+            n -= half;
+        }
+        return base + (keys[base] < key ? 1 : 0);
+    }
+
+    /**
+     * Branch free binary search.
+     *
+     * @return Index of first key which is bigger than key (count if there is no such key).
+     */
+    static int upperBound(int[] keys, int count, int key) {
+        if (count == 0) {
+            return 0;
+        }
+        int base = 0;
+        int n = count;
+        while (n > 1) {
+            int half = n >>> 1;
+            base = keys[base + half] <= key ? base + half : base;
+            n -= half;
+        }
+        return base + (keys[base] <= key ? 1 : 0);
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0) {
+            throw new NoSuchElementException("Tree is empty");
+        }
+    }
+
+    /**
+     * Leaf or internal node. Arrays have one spare slot, node is split after it overflows.
+     */
+    private static final class Node {
+        final boolean leaf;
+        final int[] keys;
+        final Node[] children;
+        int count;
+        /** Next leaf. */
+        Node next;
+
+        Node(int maxKeys, boolean leaf) {
+            this.leaf = leaf;
+            this.keys = new int[maxKeys + 1];
+            this.children = leaf ? null : new Node[maxKeys + 2];
+        }
+    }
+
+    private static final class LeafIterator implements PrimitiveIterator.OfInt {
+
+        private Node leaf;
+
+        private int position;
+
+        private final int hi;
+
+        LeafIterator(Node leaf, int position, int hi) {
+            this.leaf = leaf;
+            this.position = position;
+            this.hi = hi;
+            skipExhaustedLeaf();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null && leaf.keys[position] <= hi;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int key = leaf.keys[position++];
+            skipExhaustedLeaf();
+            return key;
+        }
+
+        private void skipExhaustedLeaf() {
+            while (leaf != null && position >= leaf.count) {
+                leaf = leaf.next;
+                position = 0;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.tree2;
+
+/**
+ * Result of batch update ({@link AbstractBinarySearchTree#insertAll(int[])},
+ * {@link AbstractBinarySearchTree#deleteAll(int[])}), counts instead of node per key.
+ */
+public final class BatchResult {
+
+    private final int inserted;
+
+    private final int duplicates;
+
+    private final int deleted;
+
+    private final int missing;
+
+    /**
+     * Constructor.
+     *
+     * @param inserted Number of inserted keys (duplicates included, trees keep them).
+     * @param duplicates Number of inserted keys which were already in the tree or earlier in the batch.
+     * @param deleted Number of deleted keys.
+     * @param missing Number of keys which were not found for delete.
+     */
+    public BatchResult(int inserted, int duplicates, int deleted, int missing) {
+        this.inserted = inserted;
+        this.duplicates = duplicates;
+        this.deleted = deleted;
+        this.missing = missing;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    public int getMissing() {
+        return missing;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult [inserted=" + inserted + ", duplicates=" + duplicates + ", deleted=" + deleted
+                + ", missing=" + missing + "]";
+    }
+
+}
@@ -5,6 +5,16 @@ package com.tree2;
  */
 public class BinarySearchTree extends AbstractBinarySearchTree {
 
+    /**
+     * @param sortedKeys Keys in non-decreasing order.
+     * @return Tree built with {@link #bulkLoad(int[])}.
+     */
+    public static BinarySearchTree fromSorted(int[] sortedKeys) {
+        BinarySearchTree tree = new BinarySearchTree();
+        tree.bulkLoad(sortedKeys);
+        return tree;
+    }
+
     @Override
     protected Node createNode(int value, Node parent, Node left, Node right) {
         return new Node(value, parent, left, right);
@@ -0,0 +1,277 @@
+package com.tree2;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+import com.tree2.AbstractBinarySearchTree.Node;
+
+/**
+ * Tree of object keys ordered by {@link Comparator} (natural order of {@link Comparable} keys by default) on top of
+ * any int tree, e.g. {@code new ComparatorKeyTree<String>(new AVLTree())}, see {@link AbstractKeyTree}. Keys which
+ * compare as equal are equal keys.
+ *
+ * @param <K> Key type.
+ */
+public class ComparatorKeyTree<K> extends AbstractKeyTree implements Iterable<K> {
+
+    private final Comparator<? super K> comparator;
+
+    private Object[] keys = new Object[16];
+
+    /**
+     * Constructor for {@link Comparable} keys.
+     *
+     * @param tree Empty tree which will keep handles of keys.
+     */
+    @SuppressWarnings("unchecked")
+    public ComparatorKeyTree(AbstractBinarySearchTree tree) {
+        this(tree, (Comparator<? super K>) Comparator.naturalOrder());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param tree Empty tree which will keep handles of keys, rank, select and count in range need subtree sizes.
+     * @param comparator Order of keys.
+     */
+    public ComparatorKeyTree(AbstractBinarySearchTree tree, Comparator<? super K> comparator) {
+        super(tree);
+        if (comparator == null) {
+            throw new NullPointerException("Comparator is null");
+        }
+        this.comparator = comparator;
+    }
+
+    /**
+     * @param element Element to insert (duplicates are kept as wrapped tree keeps them).
+     */
+    public void insert(K element) {
+        int handle = newHandle();
+        keys[handle] = element;
+        insertHandle(handle, false);
+    }
+
+    /**
+     * @param element Element to insert if it is not in the tree yet.
+     * @return true if element was inserted.
+     */
+    public boolean insertIfAbsent(K element) {
+        int handle = newHandle();
+        keys[handle] = element;
+        return insertHandle(handle, true);
+    }
+
+    /**
+     * @param element Element to remove (one occurrence).
+     * @return true if element was found and removed.
+     */
+    public boolean delete(K element) {
+        setProbe(element);
+        return deleteProbe();
+    }
+
+    /**
+     * @param element Element to look for.
+     * @return true if tree contains element.
+     */
+    public boolean contains(K element) {
+        setProbe(element);
+        return containsProbe();
+    }
+
+    /**
+     * @param element Element to look for.
+     * @return Number of occurrences of element.
+     */
+    public int count(K element) {
+        setProbe(element);
+        return countProbe();
+    }
+
+    /**
+     * @return Minimum element in tree.
+     */
+    public K getMinimum() {
+        return key(minimumHandle());
+    }
+
+    /**
+     * @return Maximum element in tree.
+     */
+    public K getMaximum() {
+        return key(maximumHandle());
+    }
+
+    /**
+     * @param element Element (does not have to be in the tree).
+     * @return Greatest element less than or equal to element.
+     * @throws java.util.NoSuchElementException if there is no such element.
+     */
+    public K floor(K element) {
+        setProbe(element);
+        return key(floorHandle(true));
+    }
+
+    /**
+     * @param element Element (does not have to be in the tree).
+     * @return Smallest element greater than or equal to element.
+     * @throws java.util.NoSuchElementException if there is no such element.
+     */
+    public K ceiling(K element) {
+        setProbe(element);
+        return key(ceilingHandle(true));
+    }
+
+    /**
+     * @param element Element (does not have to be in the tree).
+     * @return Greatest element strictly less than element.
+     * @throws java.util.NoSuchElementException if there is no such element.
+     */
+    public K lower(K element) {
+        setProbe(element);
+        return key(floorHandle(false));
+    }
+
+    /**
+     * @param element Element (does not have to be in the tree).
+     * @return Smallest element strictly greater than element.
+     * @throws java.util.NoSuchElementException if there is no such element.
+     */
+    public K higher(K element) {
+        setProbe(element);
+        return key(ceilingHandle(false));
+    }
+
+    /**
+     * @param element Element (does not have to be in the tree).
+     * @return Number of elements smaller than element.
+     */
+    public int rank(K element) {
+        setProbe(element);
+        return rankOfProbe();
+    }
+
+    /**
+     * @param k Index (0 based) of element in sorted order.
+     * @return K-th smallest element.
+     */
+    public K select(int k) {
+        return key(selectHandle(k));
+    }
+
+    /**
+     * @param lo Lower bound (inclusive).
+     * @param hi Upper bound (inclusive).
+     * @return Number of elements in range [lo, hi].
+     */
+    public int countInRange(K lo, K hi) {
+        if (comparator.compare(lo, hi) > 0) {
+            return 0;
+        }
+        setProbe(hi);
+        int notGreater = countNotGreaterThanProbe();
+        setProbe(lo);
+        return notGreater - rankOfProbe();
+    }
+
+    /**
+     * @param lo Lower bound (inclusive).
+     * @param hi Upper bound (inclusive).
+     * @return Ascending iterator over elements in range.
+     */
+    public Iterator<K> rangeIterator(K lo, K hi) {
+        setProbe(lo);
+        return new KeyIterator(comparator.compare(lo, hi) > 0 ? null : ceilingOfProbe(), hi, true);
+    }
+
+    /**
+     * @return Ascending iterator over all elements.
+     */
+    @Override
+    public Iterator<K> iterator() {
+        return new KeyIterator(firstNode(), null, false);
+    }
+
+    /**
+     * @param lo Lower bound (inclusive).
+     * @param hi Upper bound (inclusive).
+     * @param action Action for each element in range, ascending order.
+     */
+    public void forEachInRange(K lo, K hi, Consumer<? super K> action) {
+        setProbe(lo);
+        for (Node node = ceilingOfProbe(); node != null && comparator.compare(key(node.value), hi) <= 0;
+                node = successor(node)) {
+            for (int i = 0, count = node.getCount(); i < count; i++) {
+                action.accept(key(node.value));
+            }
+        }
+    }
+
+    /**
+     * @return Order of keys.
+     */
+    public Comparator<? super K> getComparator() {
+        return comparator;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int compareKeys(int left, int right) {
+        return comparator.compare(key(left), key(right));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(capacity, keys.length * 2));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void releaseKey(int handle) {
+        keys[handle] = null;
+    }
+
+    private void setProbe(K element) {
+        keys[PROBE] = element;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K key(int handle) {
+        return (K) keys[handle];
+    }
+
+    private final class KeyIterator extends HandleIterator implements Iterator<K> {
+
+        private final K hi;
+
+        private final boolean bounded;
+
+        KeyIterator(Node first, K hi, boolean bounded) {
+            super(first);
+            this.hi = hi;
+            this.bounded = bounded;
+        }
+
+        @Override
+        protected boolean inBounds(int handle) {
+            return !bounded || comparator.compare(key(handle), hi) <= 0;
+        }
+
+        @Override
+        public K next() {
+            return key(nextHandle());
+        }
+    }
+
+}
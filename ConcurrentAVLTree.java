@@ -0,0 +1,918 @@
+package com.tree2;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent AVL tree (set of int keys) with fine grained locking, based on "A Practical Concurrent Binary Search
+ * Tree" (Bronson, Casper, Chafi, Olukotun). Unlike {@link ConcurrentBinarySearchTree} there is no tree wide lock:
+ * <ul>
+ * <li>lookups take no locks at all, they validate each step of the descent with per node version numbers and retry
+ * the step if a rotation moved the node meanwhile;</li>
+ * <li>updates lock only the node (and its parent when node is unlinked) they change;</li>
+ * <li>balance is relaxed - heights are repaired and rotations are done after the update, locking only the nodes
+ * which are rotated.</li>
+ * </ul>
+ * Deleting a node with two children only marks it as not present (routing node), it is unlinked later when it has at
+ * most one child.
+ * <br>
+ * Unlike {@link AbstractBinarySearchTree} this is a set, duplicates are not inserted. {@link #contains(int)},
+ * {@link #insert(int)} and {@link #delete(int)} are linearizable. {@link #getMinimum()}, {@link #getMaximum()} and
+ * {@link #getSuccessor(int)} are weakly consistent (same as iterators of java.util.concurrent collections): they
+ * return key which was present during the call, but may miss concurrent updates.
+ */
+public class ConcurrentAVLTree {
+
+    private static final int LEFT = -1;
+    private static final int RIGHT = 1;
+
+    /** Navigation operations. */
+    private static final int MINIMUM = 0;
+    private static final int MAXIMUM = 1;
+    private static final int HIGHER = 2;
+
+    /** Results of navigation, keys are returned as long so these do not collide with them. */
+    private static final long RETRY = Long.MIN_VALUE;
+    private static final long NOT_FOUND = Long.MAX_VALUE;
+
+    /** Results of lookup and update attempts. */
+    private static final int FALSE = 0;
+    private static final int TRUE = 1;
+    private static final int RETRY_ATTEMPT = 2;
+
+    /*
+     * Node version: unlinked flag, grow and shrink lock bits and counters of finished grows and shrinks. Readers
+     * only care about shrinks (node's subtree losing keys by rotation) and unlinking.
+     */
+    private static final long UNLINKED = 1L;
+    private static final long GROW_LOCK = 2L;
+    private static final long SHRINK_LOCK = 4L;
+    private static final int GROW_COUNT_SHIFT = 3;
+    private static final int GROW_COUNT_BITS = 20;
+    private static final long GROW_COUNT_MASK = ((1L << GROW_COUNT_BITS) - 1) << GROW_COUNT_SHIFT;
+    private static final int SHRINK_COUNT_SHIFT = GROW_COUNT_SHIFT + GROW_COUNT_BITS;
+
+    /** How long reader spins waiting for a rotation before blocking on node lock. */
+    private static final int SPIN_COUNT = 100;
+    private static final int YIELD_COUNT = 0;
+
+    /** Node conditions, non negative condition is new height node needs. */
+    private static final int UNLINK_REQUIRED = -1;
+    private static final int REBALANCE_REQUIRED = -2;
+    private static final int NOTHING_REQUIRED = -3;
+
+    /** Holder of the root, root is its right child. Holder is never rotated so its version never changes. */
+    private final ConcurrentNode rootHolder = new ConcurrentNode(0, 1, false, null);
+
+    /** Tree size. */
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Inserts element if it is not in the tree yet.
+     *
+     * @param element Element to insert.
+     * @return true if element was inserted.
+     */
+    public boolean insert(int element) {
+        boolean inserted = update(element, true);
+        if (inserted) {
+            size.increment();
+        }
+        return inserted;
+    }
+
+    /**
+     * Removes element if it exists.
+     *
+     * @param element Element to remove.
+     * @return true if element was found and removed.
+     */
+    public boolean delete(int element) {
+        boolean deleted = update(element, false);
+        if (deleted) {
+            size.decrement();
+        }
+        return deleted;
+    }
+
+    /**
+     * @param element Element to look for.
+     * @return true if tree contains element.
+     */
+    public boolean contains(int element) {
+        while (true) {
+            ConcurrentNode right = rootHolder.right;
+            if (right == null) {
+                return false;
+            }
+            if (element == right.key) {
+                return right.present;
+            }
+            long ovl = right.version;
+            if (isShrinkingOrUnlinked(ovl)) {
+                right.waitUntilShrinkCompleted(ovl);
+            } else if (right == rootHolder.right) {
+                int result = attemptGet(element, right, element < right.key ? LEFT : RIGHT, ovl);
+                if (result != RETRY_ATTEMPT) {
+                    return result == TRUE;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Minimum element in tree.
+     */
+    public int getMinimum() {
+        long result = navigate(MINIMUM, 0);
+        if (result == NOT_FOUND) {
+            throw new NoSuchElementException("Tree is empty");
+        }
+        return (int) result;
+    }
+
+    /**
+     * @return Maximum element in tree.
+     */
+    public int getMaximum() {
+        long result = navigate(MAXIMUM, 0);
+        if (result == NOT_FOUND) {
+            throw new NoSuchElementException("Tree is empty");
+        }
+        return (int) result;
+    }
+
+    /**
+     * Get next element who is bigger than provided element. Element itself does not have to be in the tree.
+     *
+     * @param element Element for whom successor is searched.
+     * @return Successor value.
+     */
+    public int getSuccessor(int element) {
+        long result = navigate(HIGHER, element);
+        if (result == NOT_FOUND) {
+            throw new NoSuchElementException("Element " + element + " has no successor");
+        }
+        return (int) result;
+    }
+
+    /**
+     * @return Number of elements in the tree.
+     */
+    public int getSize() {
+        return (int) size.sum();
+    }
+
+    /*-------------------LOOKUP-------------------*/
+
+    private int attemptGet(int element, ConcurrentNode node, int dirToChild, long nodeOVL) {
+        while (true) {
+            ConcurrentNode child = node.child(dirToChild);
+            if (child == null) {
+                if (hasShrunkOrUnlinked(nodeOVL, node.version)) {
+                    return RETRY_ATTEMPT;
+                }
+                return FALSE;
+            }
+            if (element == child.key) {
+                return child.present ? TRUE : FALSE;
+            }
+            long childOVL = child.version;
+            if (isShrinkingOrUnlinked(childOVL)) {
+                child.waitUntilShrinkCompleted(childOVL);
+                if (hasShrunkOrUnlinked(nodeOVL, node.version)) {
+                    return RETRY_ATTEMPT;
+                }
+            } else if (child != node.child(dirToChild)) {
+                if (hasShrunkOrUnlinked(nodeOVL, node.version)) {
+                    return RETRY_ATTEMPT;
+                }
+            } else {
+                if (hasShrunkOrUnlinked(nodeOVL, node.version)) {
+                    return RETRY_ATTEMPT;
+                }
+                int result = attemptGet(element, child, element < child.key ? LEFT : RIGHT, childOVL);
+                if (result != RETRY_ATTEMPT) {
+                    return result;
+                }
+                if (hasShrunkOrUnlinked(nodeOVL, node.version)) {
+                    return RETRY_ATTEMPT;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs navigation operation from the root until it is not interrupted by rotation.
+     */
+    private long navigate(int operation, int element) {
+        while (true) {
+            long result = navigateChild(rootHolder, rootHolder.version, RIGHT, operation, element);
+            if (result != RETRY) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Runs navigation operation in node's subtree.
+     */
+    private long navigateSubtree(ConcurrentNode node, long nodeOVL, int operation, int element) {
+        if (operation == HIGHER) {
+            if (element >= node.key) {
+                return navigateChild(node, nodeOVL, RIGHT, HIGHER, element);
+            }
+            long result = navigateChild(node, nodeOVL, LEFT, HIGHER, element);
+            if (result != NOT_FOUND) {
+                return result;
+            }
+            if (node.present) {
+                return node.key;
+            }
+            return navigateChild(node, nodeOVL, RIGHT, MINIMUM, element);
+        }
+        int dir = operation == MINIMUM ? LEFT : RIGHT;
+        long result = navigateChild(node, nodeOVL, dir, operation, element);
+        if (result != NOT_FOUND) {
+            return result;
+        }
+        if (node.present) {
+            return node.key;
+        }
+        // routing node, extreme is on the other side
+        return navigateChild(node, nodeOVL, -dir, operation, element);
+    }
+
+    /**
+     * Runs navigation operation in subtree of node's child, validating that the step to the child is not broken by
+     * rotation (same way as {@link #attemptGet(int, ConcurrentNode, int, long)}).
+     *
+     * @return Found key, {@link #NOT_FOUND} or {@link #RETRY} if node itself was moved.
+     */
+    private long navigateChild(ConcurrentNode node, long nodeOVL, int dirToChild, int operation, int element) {
+        while (true) {
+            ConcurrentNode child = node.child(dirToChild);
+            if (child == null) {
+                return hasShrunkOrUnlinked(nodeOVL, node.version) ? RETRY : NOT_FOUND;
+            }
+            long childOVL = child.version;
+            if (isShrinkingOrUnlinked(childOVL)) {
+                child.waitUntilShrinkCompleted(childOVL);
+            } else if (child == node.child(dirToChild)) {
+                if (hasShrunkOrUnlinked(nodeOVL, node.version)) {
+                    return RETRY;
+                }
+                long result = navigateSubtree(child, childOVL, operation, element);
+                if (result != RETRY) {
+                    return result;
+                }
+            }
+            if (hasShrunkOrUnlinked(nodeOVL, node.version)) {
+                return RETRY;
+            }
+        }
+    }
+
+    /*-------------------UPDATE-------------------*/
+
+    private boolean update(int element, boolean insert) {
+        while (true) {
+            ConcurrentNode right = rootHolder.right;
+            if (right == null) {
+                if (!insert) {
+                    return false;
+                }
+                if (attemptInsertIntoEmpty(element)) {
+                    return true;
+                }
+            } else {
+                long ovl = right.version;
+                if (isShrinkingOrUnlinked(ovl)) {
+                    right.waitUntilShrinkCompleted(ovl);
+                } else if (right == rootHolder.right) {
+                    int result = attemptUpdate(element, insert, rootHolder, right, ovl);
+                    if (result != RETRY_ATTEMPT) {
+                        return result == TRUE;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean attemptInsertIntoEmpty(int element) {
+        synchronized (rootHolder) {
+            if (rootHolder.right == null) {
+                rootHolder.right = new ConcurrentNode(element, 1, true, rootHolder);
+                rootHolder.height = 2;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Descends from node to the place of element and updates it. Each step is validated against node version, search
+     * is retried from the lowest node which was not moved by rotations.
+     */
+    private int attemptUpdate(int element, boolean insert, ConcurrentNode parent, ConcurrentNode node, long nodeOVL) {
+        if (element == node.key) {
+            return attemptNodeUpdate(insert, parent, node);
+        }
+        int dirToChild = element < node.key ? LEFT : RIGHT;
+        while (true) {
+            ConcurrentNode child = node.child(dirToChild);
+            if (hasShrunkOrUnlinked(nodeOVL, node.version)) {
+                return RETRY_ATTEMPT;
+            }
+            if (child == null) {
+                if (!insert) {
+                    return FALSE;
+                }
+                boolean success;
+                ConcurrentNode damaged;
+                synchronized (node) {
+                    // validate that we were not affected by rotations, we hold the lock so no new rotations can start
+                    if (hasShrunkOrUnlinked(nodeOVL, node.version)) {
+                        return RETRY_ATTEMPT;
+                    }
+                    if (node.child(dirToChild) != null) {
+                        // lost the race with concurrent insert, retry from this node
+                        success = false;
+                        damaged = null;
+                    } else {
+                        node.setChild(dirToChild, new ConcurrentNode(element, 1, true, node));
+                        success = true;
+                        damaged = fixHeight(node);
+                    }
+                }
+                if (success) {
+                    fixHeightAndRebalance(damaged);
+                    return TRUE;
+                }
+            } else {
+                long childOVL = child.version;
+                if (isShrinkingOrUnlinked(childOVL)) {
+                    child.waitUntilShrinkCompleted(childOVL);
+                } else if (child == node.child(dirToChild)) {
+                    // this second read is protected by childOVL
+                    if (hasShrunkOrUnlinked(nodeOVL, node.version)) {
+                        return RETRY_ATTEMPT;
+                    }
+                    int result = attemptUpdate(element, insert, node, child, childOVL);
+                    if (result != RETRY_ATTEMPT) {
+                        return result;
+                    }
+                }
+            }
+        }
+    }
+
+    private int attemptNodeUpdate(boolean insert, ConcurrentNode parent, ConcurrentNode node) {
+        if (!insert) {
+            if (!node.present) {
+                return FALSE;
+            }
+            if (node.left == null || node.right == null) {
+                // node can be unlinked, parent has to be locked
+                ConcurrentNode damaged;
+                synchronized (parent) {
+                    if (isUnlinked(parent.version) || node.parent != parent) {
+                        return RETRY_ATTEMPT;
+                    }
+                    synchronized (node) {
+                        if (!node.present) {
+                            return FALSE;
+                        }
+                        if (!attemptUnlink(parent, node)) {
+                            return RETRY_ATTEMPT;
+                        }
+                    }
+                    damaged = fixHeight(parent);
+                }
+                fixHeightAndRebalance(damaged);
+                return TRUE;
+            }
+        }
+        synchronized (node) {
+            if (isUnlinked(node.version)) {
+                return RETRY_ATTEMPT;
+            }
+            if (node.present == insert) {
+                return FALSE;
+            }
+            if (!insert && (node.left == null || node.right == null)) {
+                // node can be unlinked now, go the other way
+                return RETRY_ATTEMPT;
+            }
+            node.present = insert;
+            return TRUE;
+        }
+    }
+
+    /**
+     * Removes node with at most one child. Parent and node must be locked.
+     *
+     * @return false if node can not be unlinked (it is not parent's child anymore or it has two children).
+     */
+    private boolean attemptUnlink(ConcurrentNode parent, ConcurrentNode node) {
+        ConcurrentNode parentLeft = parent.left;
+        ConcurrentNode parentRight = parent.right;
+        if (parentLeft != node && parentRight != node) {
+            return false;
+        }
+        ConcurrentNode left = node.left;
+        ConcurrentNode right = node.right;
+        if (left != null && right != null) {
+            return false;
+        }
+        ConcurrentNode splice = left != null ? left : right;
+        if (parentLeft == node) {
+            parent.left = splice;
+        } else {
+            parent.right = splice;
+        }
+        if (splice != null) {
+            splice.parent = parent;
+        }
+        node.version = UNLINKED;
+        node.present = false;
+        return true;
+    }
+
+    /*-------------------REBALANCING-------------------*/
+
+    private static int height(ConcurrentNode node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * @return What node needs: unlink, rotation, new height (non negative value) or nothing.
+     */
+    private int nodeCondition(ConcurrentNode node) {
+        ConcurrentNode nodeLeft = node.left;
+        ConcurrentNode nodeRight = node.right;
+        if ((nodeLeft == null || nodeRight == null) && !node.present) {
+            return UNLINK_REQUIRED;
+        }
+        int nodeHeight = node.height;
+        int leftHeight = height(nodeLeft);
+        int rightHeight = height(nodeRight);
+        // any thread which changes node also repairs it, so if read was not consistent someone else is responsible
+        int newHeight = 1 + MathUtils.getMax(leftHeight, rightHeight);
+        int balance = leftHeight - rightHeight;
+        if (balance < -1 || balance > 1) {
+            return REBALANCE_REQUIRED;
+        }
+        return nodeHeight != newHeight ? newHeight : NOTHING_REQUIRED;
+    }
+
+    /**
+     * Goes up from damaged node repairing heights, unlinking routing nodes and rotating, until nothing is left to
+     * repair.
+     */
+    private void fixHeightAndRebalance(ConcurrentNode node) {
+        while (node != null && node.parent != null) {
+            int condition = nodeCondition(node);
+            if (condition == NOTHING_REQUIRED || isUnlinked(node.version)) {
+                return;
+            }
+            if (condition != UNLINK_REQUIRED && condition != REBALANCE_REQUIRED) {
+                synchronized (node) {
+                    node = fixHeight(node);
+                }
+            } else {
+                ConcurrentNode nodeParent = node.parent;
+                synchronized (nodeParent) {
+                    if (!isUnlinked(nodeParent.version) && node.parent == nodeParent) {
+                        synchronized (node) {
+                            node = rebalance(nodeParent, node);
+                        }
+                    }
+                    // otherwise retry with the same node
+                }
+            }
+        }
+    }
+
+    /**
+     * Fixes height of locked node.
+     *
+     * @return Lowest damaged node this thread is responsible for, or null if nothing is left to repair.
+     */
+    private ConcurrentNode fixHeight(ConcurrentNode node) {
+        int condition = nodeCondition(node);
+        switch (condition) {
+        case REBALANCE_REQUIRED:
+        case UNLINK_REQUIRED:
+            return node;
+        case NOTHING_REQUIRED:
+            return null;
+        default:
+            node.height = condition;
+            return node.parent;
+        }
+    }
+
+    /**
+     * Node and its parent must be locked.
+     *
+     * @return Damaged node or null.
+     */
+    private ConcurrentNode rebalance(ConcurrentNode nodeParent, ConcurrentNode node) {
+        ConcurrentNode nodeLeft = node.left;
+        ConcurrentNode nodeRight = node.right;
+        if ((nodeLeft == null || nodeRight == null) && !node.present) {
+            if (attemptUnlink(nodeParent, node)) {
+                return fixHeight(nodeParent);
+            }
+            return node;
+        }
+        int nodeHeight = node.height;
+        int leftHeight = height(nodeLeft);
+        int rightHeight = height(nodeRight);
+        int newHeight = 1 + MathUtils.getMax(leftHeight, rightHeight);
+        int balance = leftHeight - rightHeight;
+        if (balance > 1) {
+            return rebalanceToRight(nodeParent, node, nodeLeft, rightHeight);
+        } else if (balance < -1) {
+            return rebalanceToLeft(nodeParent, node, nodeRight, leftHeight);
+        } else if (newHeight != nodeHeight) {
+            node.height = newHeight;
+            return fixHeight(nodeParent);
+        }
+        return null;
+    }
+
+    /**
+     * Left subtree is too high, rotates node right (double rotation if left child's right subtree is higher).
+     */
+    private ConcurrentNode rebalanceToRight(ConcurrentNode nodeParent, ConcurrentNode node, ConcurrentNode nodeLeft,
+            int rightHeight) {
+        synchronized (nodeLeft) {
+            int leftHeight = nodeLeft.height;
+            if (leftHeight - rightHeight <= 1) {
+                return node;
+            }
+            ConcurrentNode nodeLeftRight = nodeLeft.right;
+            int leftLeftHeight = height(nodeLeft.left);
+            int leftRightHeight = height(nodeLeftRight);
+            if (leftLeftHeight >= leftRightHeight) {
+                return rotateRight(nodeParent, node, nodeLeft, rightHeight, leftLeftHeight, nodeLeftRight,
+                        leftRightHeight);
+            }
+            synchronized (nodeLeftRight) {
+                // height read before the lock was only a hint
+                leftRightHeight = nodeLeftRight.height;
+                if (leftLeftHeight >= leftRightHeight) {
+                    return rotateRight(nodeParent, node, nodeLeft, rightHeight, leftLeftHeight, nodeLeftRight,
+                            leftRightHeight);
+                }
+                int leftRightLeftHeight = height(nodeLeftRight.left);
+                int leftBalance = leftLeftHeight - leftRightLeftHeight;
+                if (leftBalance >= -1 && leftBalance <= 1
+                        && !((leftLeftHeight == 0 || leftRightLeftHeight == 0) && !nodeLeft.present)) {
+                    return rotateRightOverLeft(nodeParent, node, nodeLeft, rightHeight, leftLeftHeight, nodeLeftRight,
+                            leftRightLeftHeight);
+                }
+            }
+            // fix left child first, node is rebalanced later if still needed
+            return rebalanceToLeft(node, nodeLeft, nodeLeftRight, leftLeftHeight);
+        }
+    }
+
+    /**
+     * Right subtree is too high, rotates node left (double rotation if right child's left subtree is higher).
+     */
+    private ConcurrentNode rebalanceToLeft(ConcurrentNode nodeParent, ConcurrentNode node, ConcurrentNode nodeRight,
+            int leftHeight) {
+        synchronized (nodeRight) {
+            int rightHeight = nodeRight.height;
+            if (leftHeight - rightHeight >= -1) {
+                return node;
+            }
+            ConcurrentNode nodeRightLeft = nodeRight.left;
+            int rightLeftHeight = height(nodeRightLeft);
+            int rightRightHeight = height(nodeRight.right);
+            if (rightRightHeight >= rightLeftHeight) {
+                return rotateLeft(nodeParent, node, leftHeight, nodeRight, nodeRightLeft, rightLeftHeight,
+                        rightRightHeight);
+            }
+            synchronized (nodeRightLeft) {
+                rightLeftHeight = nodeRightLeft.height;
+                if (rightRightHeight >= rightLeftHeight) {
+                    return rotateLeft(nodeParent, node, leftHeight, nodeRight, nodeRightLeft, rightLeftHeight,
+                            rightRightHeight);
+                }
+                int rightLeftRightHeight = height(nodeRightLeft.right);
+                int rightBalance = rightRightHeight - rightLeftRightHeight;
+                if (rightBalance >= -1 && rightBalance <= 1
+                        && !((rightRightHeight == 0 || rightLeftRightHeight == 0) && !nodeRight.present)) {
+                    return rotateLeftOverRight(nodeParent, node, leftHeight, nodeRight, nodeRightLeft,
+                            rightRightHeight, rightLeftRightHeight);
+                }
+            }
+            return rebalanceToRight(node, nodeRight, nodeRightLeft, rightRightHeight);
+        }
+    }
+
+    private ConcurrentNode rotateRight(ConcurrentNode nodeParent, ConcurrentNode node, ConcurrentNode nodeLeft,
+            int rightHeight, int leftLeftHeight, ConcurrentNode nodeLeftRight, int leftRightHeight) {
+        long nodeOVL = node.version;
+        long leftOVL = nodeLeft.version;
+        ConcurrentNode parentLeft = nodeParent.left;
+
+        node.version = beginShrink(nodeOVL);
+        nodeLeft.version = beginGrow(leftOVL);
+
+        node.left = nodeLeftRight;
+        nodeLeft.right = node;
+        if (parentLeft == node) {
+            nodeParent.left = nodeLeft;
+        } else {
+            nodeParent.right = nodeLeft;
+        }
+        nodeLeft.parent = nodeParent;
+        node.parent = nodeLeft;
+        if (nodeLeftRight != null) {
+            nodeLeftRight.parent = node;
+        }
+
+        int nodeHeight = 1 + MathUtils.getMax(leftRightHeight, rightHeight);
+        node.height = nodeHeight;
+        nodeLeft.height = 1 + MathUtils.getMax(leftLeftHeight, nodeHeight);
+
+        nodeLeft.version = endGrow(leftOVL);
+        node.version = endShrink(nodeOVL);
+
+        // node is the deepest damaged node, fix as much as possible with locks we hold
+        int nodeBalance = leftRightHeight - rightHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) {
+            return node;
+        }
+        if ((nodeLeftRight == null || rightHeight == 0) && !node.present) {
+            return node;
+        }
+        int leftBalance = leftLeftHeight - nodeHeight;
+        if (leftBalance < -1 || leftBalance > 1) {
+            return nodeLeft;
+        }
+        if (leftLeftHeight == 0 && !nodeLeft.present) {
+            return nodeLeft;
+        }
+        return fixHeight(nodeParent);
+    }
+
+    private ConcurrentNode rotateLeft(ConcurrentNode nodeParent, ConcurrentNode node, int leftHeight,
+            ConcurrentNode nodeRight, ConcurrentNode nodeRightLeft, int rightLeftHeight, int rightRightHeight) {
+        long nodeOVL = node.version;
+        long rightOVL = nodeRight.version;
+        ConcurrentNode parentLeft = nodeParent.left;
+
+        node.version = beginShrink(nodeOVL);
+        nodeRight.version = beginGrow(rightOVL);
+
+        node.right = nodeRightLeft;
+        nodeRight.left = node;
+        if (parentLeft == node) {
+            nodeParent.left = nodeRight;
+        } else {
+            nodeParent.right = nodeRight;
+        }
+        nodeRight.parent = nodeParent;
+        node.parent = nodeRight;
+        if (nodeRightLeft != null) {
+            nodeRightLeft.parent = node;
+        }
+
+        int nodeHeight = 1 + MathUtils.getMax(leftHeight, rightLeftHeight);
+        node.height = nodeHeight;
+        nodeRight.height = 1 + MathUtils.getMax(nodeHeight, rightRightHeight);
+
+        nodeRight.version = endGrow(rightOVL);
+        node.version = endShrink(nodeOVL);
+
+        int nodeBalance = rightLeftHeight - leftHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) {
+            return node;
+        }
+        if ((nodeRightLeft == null || leftHeight == 0) && !node.present) {
+            return node;
+        }
+        int rightBalance = rightRightHeight - nodeHeight;
+        if (rightBalance < -1 || rightBalance > 1) {
+            return nodeRight;
+        }
+        if (rightRightHeight == 0 && !nodeRight.present) {
+            return nodeRight;
+        }
+        return fixHeight(nodeParent);
+    }
+
+    private ConcurrentNode rotateRightOverLeft(ConcurrentNode nodeParent, ConcurrentNode node, ConcurrentNode nodeLeft,
+            int rightHeight, int leftLeftHeight, ConcurrentNode nodeLeftRight, int leftRightLeftHeight) {
+        long nodeOVL = node.version;
+        long leftOVL = nodeLeft.version;
+        long leftRightOVL = nodeLeftRight.version;
+        ConcurrentNode parentLeft = nodeParent.left;
+        ConcurrentNode nodeLeftRightLeft = nodeLeftRight.left;
+        ConcurrentNode nodeLeftRightRight = nodeLeftRight.right;
+        int leftRightRightHeight = height(nodeLeftRightRight);
+
+        node.version = beginShrink(nodeOVL);
+        nodeLeft.version = beginShrink(leftOVL);
+        nodeLeftRight.version = beginGrow(leftRightOVL);
+
+        node.left = nodeLeftRightRight;
+        nodeLeft.right = nodeLeftRightLeft;
+        nodeLeftRight.left = nodeLeft;
+        nodeLeftRight.right = node;
+        if (parentLeft == node) {
+            nodeParent.left = nodeLeftRight;
+        } else {
+            nodeParent.right = nodeLeftRight;
+        }
+        nodeLeftRight.parent = nodeParent;
+        nodeLeft.parent = nodeLeftRight;
+        node.parent = nodeLeftRight;
+        if (nodeLeftRightRight != null) {
+            nodeLeftRightRight.parent = node;
+        }
+        if (nodeLeftRightLeft != null) {
+            nodeLeftRightLeft.parent = nodeLeft;
+        }
+
+        int nodeHeight = 1 + MathUtils.getMax(leftRightRightHeight, rightHeight);
+        node.height = nodeHeight;
+        int leftHeight = 1 + MathUtils.getMax(leftLeftHeight, leftRightLeftHeight);
+        nodeLeft.height = leftHeight;
+        nodeLeftRight.height = 1 + MathUtils.getMax(leftHeight, nodeHeight);
+
+        nodeLeftRight.version = endGrow(leftRightOVL);
+        nodeLeft.version = endShrink(leftOVL);
+        node.version = endShrink(nodeOVL);
+
+        // caller checked that nodeLeft is not damaged, node is the deepest damaged node
+        int nodeBalance = leftRightRightHeight - rightHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) {
+            return node;
+        }
+        if ((nodeLeftRightRight == null || rightHeight == 0) && !node.present) {
+            return node;
+        }
+        int leftRightBalance = leftHeight - nodeHeight;
+        if (leftRightBalance < -1 || leftRightBalance > 1) {
+            return nodeLeftRight;
+        }
+        return fixHeight(nodeParent);
+    }
+
+    private ConcurrentNode rotateLeftOverRight(ConcurrentNode nodeParent, ConcurrentNode node, int leftHeight,
+            ConcurrentNode nodeRight, ConcurrentNode nodeRightLeft, int rightRightHeight, int rightLeftRightHeight) {
+        long nodeOVL = node.version;
+        long rightOVL = nodeRight.version;
+        long rightLeftOVL = nodeRightLeft.version;
+        ConcurrentNode parentLeft = nodeParent.left;
+        ConcurrentNode nodeRightLeftLeft = nodeRightLeft.left;
+        ConcurrentNode nodeRightLeftRight = nodeRightLeft.right;
+        int rightLeftLeftHeight = height(nodeRightLeftLeft);
+
+        node.version = beginShrink(nodeOVL);
+        nodeRight.version = beginShrink(rightOVL);
+        nodeRightLeft.version = beginGrow(rightLeftOVL);
+
+        node.right = nodeRightLeftLeft;
+        nodeRight.left = nodeRightLeftRight;
+        nodeRightLeft.right = nodeRight;
+        nodeRightLeft.left = node;
+        if (parentLeft == node) {
+            nodeParent.left = nodeRightLeft;
+        } else {
+            nodeParent.right = nodeRightLeft;
+        }
+        nodeRightLeft.parent = nodeParent;
+        nodeRight.parent = nodeRightLeft;
+        node.parent = nodeRightLeft;
+        if (nodeRightLeftLeft != null) {
+            nodeRightLeftLeft.parent = node;
+        }
+        if (nodeRightLeftRight != null) {
+            nodeRightLeftRight.parent = nodeRight;
+        }
+
+        int nodeHeight = 1 + MathUtils.getMax(leftHeight, rightLeftLeftHeight);
+        node.height = nodeHeight;
+        int rightHeight = 1 + MathUtils.getMax(rightLeftRightHeight, rightRightHeight);
+        nodeRight.height = rightHeight;
+        nodeRightLeft.height = 1 + MathUtils.getMax(nodeHeight, rightHeight);
+
+        nodeRightLeft.version = endGrow(rightLeftOVL);
+        nodeRight.version = endShrink(rightOVL);
+        node.version = endShrink(nodeOVL);
+
+        int nodeBalance = rightLeftLeftHeight - leftHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) {
+            return node;
+        }
+        if ((nodeRightLeftLeft == null || leftHeight == 0) && !node.present) {
+            return node;
+        }
+        int rightLeftBalance = rightHeight - nodeHeight;
+        if (rightLeftBalance < -1 || rightLeftBalance > 1) {
+            return nodeRightLeft;
+        }
+        return fixHeight(nodeParent);
+    }
+
+    /*-------------------NODE VERSIONS-------------------*/
+
+    private static boolean isShrinking(long ovl) {
+        return (ovl & SHRINK_LOCK) != 0;
+    }
+
+    private static boolean isUnlinked(long ovl) {
+        return ovl == UNLINKED;
+    }
+
+    private static boolean isShrinkingOrUnlinked(long ovl) {
+        return (ovl & (SHRINK_LOCK | UNLINKED)) != 0;
+    }
+
+    private static boolean hasShrunkOrUnlinked(long original, long current) {
+        return ((original ^ current) & ~(GROW_LOCK | GROW_COUNT_MASK)) != 0;
+    }
+
+    private static long beginGrow(long ovl) {
+        return ovl | GROW_LOCK;
+    }
+
+    private static long endGrow(long ovl) {
+        // grow count overflow carries into shrink count, which just makes readers retry
+        return ovl + (1L << GROW_COUNT_SHIFT);
+    }
+
+    private static long beginShrink(long ovl) {
+        return ovl | SHRINK_LOCK;
+    }
+
+    private static long endShrink(long ovl) {
+        return ovl + (1L << SHRINK_COUNT_SHIFT);
+    }
+
+    /**
+     * Node of concurrent tree. Key never changes, everything else is read without locks so it is volatile.
+     */
+    private static final class ConcurrentNode {
+        final int key;
+        volatile int height;
+        /** False for routing nodes (deleted, but still in the tree). */
+        volatile boolean present;
+        volatile long version;
+        volatile ConcurrentNode parent;
+        volatile ConcurrentNode left;
+        volatile ConcurrentNode right;
+
+        ConcurrentNode(int key, int height, boolean present, ConcurrentNode parent) {
+            this.key = key;
+            this.height = height;
+            this.present = present;
+            this.parent = parent;
+        }
+
+        ConcurrentNode child(int dir) {
+            return dir == LEFT ? left : right;
+        }
+
+        void setChild(int dir, ConcurrentNode child) {
+            if (dir == LEFT) {
+                left = child;
+            } else {
+                right = child;
+            }
+        }
+
+        /**
+         * Waits until rotation which shrinks this node finishes.
+         */
+        void waitUntilShrinkCompleted(long ovl) {
+            if (!isShrinking(ovl)) {
+                return;
+            }
+            for (int tries = 0; tries < SPIN_COUNT; ++tries) {
+                if (version != ovl) {
+                    return;
+                }
+            }
+            for (int tries = 0; tries < YIELD_COUNT; ++tries) {
+                Thread.yield();
+                if (version != ovl) {
+                    return;
+                }
+            }
+            // rotations are done holding node lock, so it can not be acquired until shrink is over
+            synchronized (this) {
+                assert version != ovl;
+            }
+        }
+    }
+
+}
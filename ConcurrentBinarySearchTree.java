@@ -0,0 +1,232 @@
+package com.tree2;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+
+import com.tree2.AbstractBinarySearchTree.Node;
+
+/**
+ * Thread safe wrapper for any {@link AbstractBinarySearchTree}. Updates take exclusive write lock. Lookups
+ * ({@link #contains(int)}, {@link #getMinimum()}, {@link #getMaximum()}, {@link #getSuccessor(int)}) first run
+ * without any lock in {@link StampedLock} optimistic read mode and only take shared read lock if some update happened
+ * at the same time, so readers do not write to shared memory and scale with number of cores.
+ * <br>
+ * Lookups walk the tree themselves (they do not call {@link AbstractBinarySearchTree#search(int)}), so they never
+ * restructure it, e.g. {@link SplayTree} is not splayed by reads made through this wrapper. They compare values
+ * with the tree's own order, so trees with {@link KeyComparator} can be wrapped too.
+ * <br>
+ * Wrapped tree must not be used directly after it is wrapped.
+ */
+public class ConcurrentBinarySearchTree {
+
+    private static final int SEARCH = 0;
+    private static final int MINIMUM = 1;
+    private static final int MAXIMUM = 2;
+    private static final int SUCCESSOR = 3;
+
+    private final AbstractBinarySearchTree tree;
+
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Constructor.
+     *
+     * @param tree Tree to wrap.
+     */
+    public ConcurrentBinarySearchTree(AbstractBinarySearchTree tree) {
+        if (tree == null) {
+            throw new NullPointerException("tree");
+        }
+        this.tree = tree;
+    }
+
+    /**
+     * Inserts element.
+     *
+     * @param element Element to insert.
+     */
+    public void insert(int element) {
+        long stamp = lock.writeLock();
+        try {
+            tree.insert(element);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Inserts element only if it is not in the tree yet. Lookup and insert run under one write lock, so two threads
+     * can not both insert the same element.
+     *
+     * @param element Element to insert.
+     * @return true if element was inserted.
+     */
+    public boolean insertIfAbsent(int element) {
+        long stamp = lock.writeLock();
+        try {
+            tree.insertIfAbsent(element);
+            return tree.lastInsertCreated;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes element if it exists.
+     *
+     * @param element Element to remove.
+     * @return true if element was found and removed.
+     */
+    public boolean delete(int element) {
+        long stamp = lock.writeLock();
+        try {
+            int sizeBefore = tree.size;
+            tree.delete(element);
+            return tree.size < sizeBefore;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @param element Element to look for.
+     * @return true if tree contains element.
+     */
+    public boolean contains(int element) {
+        return read(SEARCH, element) != null;
+    }
+
+    /**
+     * @return Minimum element in tree.
+     */
+    public int getMinimum() {
+        Node node = read(MINIMUM, 0);
+        if (node == null) {
+            throw new NoSuchElementException("Tree is empty");
+        }
+        return node.value;
+    }
+
+    /**
+     * @return Maximum element in tree.
+     */
+    public int getMaximum() {
+        Node node = read(MAXIMUM, 0);
+        if (node == null) {
+            throw new NoSuchElementException("Tree is empty");
+        }
+        return node.value;
+    }
+
+    /**
+     * Get next element who is bigger than provided element.
+     *
+     * @param element Element (must be in the tree) for whom successor is searched.
+     * @return Successor value.
+     */
+    public int getSuccessor(int element) {
+        Node node = read(SUCCESSOR, element);
+        if (node == null) {
+            throw new NoSuchElementException("Element " + element + " is not in the tree or has no successor");
+        }
+        return node.value;
+    }
+
+    /**
+     * @return Number of elements in the tree.
+     */
+    public int getSize() {
+        long stamp = lock.tryOptimisticRead();
+        int size = tree.size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                size = tree.size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /*-------------------PRIVATE HELPER METHODS-------------------*/
+
+    /**
+     * Runs lookup optimistically, falls back to read lock if tree was modified meanwhile. Optimistic run can see tree
+     * in the middle of update (it can even throw or not finish), its result is used only if stamp is still valid.
+     */
+    private Node read(int operation, int element) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                Node node = locate(operation, element);
+                if (lock.validate(stamp)) {
+                    return node;
+                }
+            } catch (RuntimeException e) {
+                // inconsistent tree seen during concurrent update, retry under read lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return locate(operation, element);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Walks the tree without modifying it. Number of steps is limited by tree size, so walk over tree which is
+     * changed at the same time always ends (consistent tree is never deeper than its size).
+     *
+     * @return Found node or null.
+     */
+    private Node locate(int operation, int element) {
+        Node nil = tree.nil;
+        int steps = tree.size + 1;
+        Node node = tree.root;
+        if (node == null || node == nil) {
+            return null;
+        }
+        switch (operation) {
+        case SEARCH:
+        case SUCCESSOR:
+            int cmp;
+            while ((cmp = tree.compare(element, node.value)) != 0) {
+                node = cmp < 0 ? node.left : node.right;
+                if (node == null || node == nil || --steps < 0) {
+                    return null;
+                }
+            }
+            if (operation == SEARCH) {
+                return node;
+            }
+            if (node.right != null && node.right != nil) {
+                node = node.right;
+                while (node.left != null && node.left != nil && --steps >= 0) {
+                    node = node.left;
+                }
+                return node;
+            }
+            Node parent = node.parent;
+            while (parent != null && parent != nil && node == parent.right && --steps >= 0) {
+                node = parent;
+                parent = parent.parent;
+            }
+            return parent == nil ? null : parent;
+        case MINIMUM:
+            while (node.left != null && node.left != nil && --steps >= 0) {
+                node = node.left;
+            }
+            return node;
+        case MAXIMUM:
+            while (node.right != null && node.right != nil && --steps >= 0) {
+                node = node.right;
+            }
+            return node;
+        default:
+            throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+}
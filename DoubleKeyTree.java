@@ -0,0 +1,222 @@
+package com.tree2;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.function.DoubleConsumer;
+
+import com.tree2.AbstractBinarySearchTree.Node;
+
+/**
+ * Tree of primitive double keys on top of any int tree, e.g. {@code new DoubleKeyTree(new RedBlackTree())}. Keys are
+ * kept in double array and compared without boxing, see {@link AbstractKeyTree}. Order is the order of
+ * {@link Double#compare(double, double)}: -0.0 is less than 0.0 and NaN is greater than every other value.
+ */
+public class DoubleKeyTree extends AbstractKeyTree {
+
+    private double[] keys = new double[16];
+
+    /**
+     * Constructor.
+     *
+     * @param tree Empty tree which will keep handles of keys, rank, select and count in range need subtree sizes.
+     */
+    public DoubleKeyTree(AbstractBinarySearchTree tree) {
+        super(tree);
+    }
+
+    /**
+     * @param element Element to insert (duplicates are kept as wrapped tree keeps them).
+     */
+    public void insert(double element) {
+        int handle = newHandle();
+        keys[handle] = element;
+        insertHandle(handle, false);
+    }
+
+    /**
+     * @param element Element to insert if it is not in the tree yet.
+     * @return true if element was inserted.
+     */
+    public boolean insertIfAbsent(double element) {
+        int handle = newHandle();
+        keys[handle] = element;
+        return insertHandle(handle, true);
+    }
+
+    /**
+     * @param element Element to remove (one occurrence).
+     * @return true if element was found and removed.
+     */
+    public boolean delete(double element) {
+        keys[PROBE] = element;
+        return deleteProbe();
+    }
+
+    /**
+     * @param element Element to look for.
+     * @return true if tree contains element.
+     */
+    public boolean contains(double element) {
+        keys[PROBE] = element;
+        return containsProbe();
+    }
+
+    /**
+     * @param element Element to look for.
+     * @return Number of occurrences of element.
+     */
+    public int count(double element) {
+        keys[PROBE] = element;
+        return countProbe();
+    }
+
+    /**
+     * @return Minimum element in tree.
+     */
+    public double getMinimum() {
+        return keys[minimumHandle()];
+    }
+
+    /**
+     * @return Maximum element in tree.
+     */
+    public double getMaximum() {
+        return keys[maximumHandle()];
+    }
+
+    /**
+     * @param element Element (does not have to be in the tree).
+     * @return Greatest element less than or equal to element.
+     * @throws java.util.NoSuchElementException if there is no such element.
+     */
+    public double floor(double element) {
+        keys[PROBE] = element;
+        return keys[floorHandle(true)];
+    }
+
+    /**
+     * @param element Element (does not have to be in the tree).
+     * @return Smallest element greater than or equal to element.
+     * @throws java.util.NoSuchElementException if there is no such element.
+     */
+    public double ceiling(double element) {
+        keys[PROBE] = element;
+        return keys[ceilingHandle(true)];
+    }
+
+    /**
+     * @param element Element (does not have to be in the tree).
+     * @return Greatest element strictly less than element.
+     * @throws java.util.NoSuchElementException if there is no such element.
+     */
+    public double lower(double element) {
+        keys[PROBE] = element;
+        return keys[floorHandle(false)];
+    }
+
+    /**
+     * @param element Element (does not have to be in the tree).
+     * @return Smallest element strictly greater than element.
+     * @throws java.util.NoSuchElementException if there is no such element.
+     */
+    public double higher(double element) {
+        keys[PROBE] = element;
+        return keys[ceilingHandle(false)];
+    }
+
+    /**
+     * @param element Element (does not have to be in the tree).
+     * @return Number of elements smaller than element.
+     */
+    public int rank(double element) {
+        keys[PROBE] = element;
+        return rankOfProbe();
+    }
+
+    /**
+     * @param k Index (0 based) of element in sorted order.
+     * @return K-th smallest element.
+     */
+    public double select(int k) {
+        return keys[selectHandle(k)];
+    }
+
+    /**
+     * @param lo Lower bound (inclusive).
+     * @param hi Upper bound (inclusive).
+     * @return Number of elements in range [lo, hi].
+     */
+    public int countInRange(double lo, double hi) {
+        if (Double.compare(lo, hi) > 0) {
+            return 0;
+        }
+        keys[PROBE] = hi;
+        int notGreater = countNotGreaterThanProbe();
+        keys[PROBE] = lo;
+        return notGreater - rankOfProbe();
+    }
+
+    /**
+     * @param lo Lower bound (inclusive).
+     * @param hi Upper bound (inclusive).
+     * @return Ascending iterator over elements in range.
+     */
+    public PrimitiveIterator.OfDouble rangeIterator(double lo, double hi) {
+        keys[PROBE] = lo;
+        return new DoubleIterator(Double.compare(lo, hi) > 0 ? null : ceilingOfProbe(), hi);
+    }
+
+    /**
+     * @param lo Lower bound (inclusive).
+     * @param hi Upper bound (inclusive).
+     * @param action Action for each element in range, ascending order.
+     */
+    public void forEachInRange(double lo, double hi, DoubleConsumer action) {
+        keys[PROBE] = lo;
+        for (Node node = ceilingOfProbe(); node != null && Double.compare(keys[node.value], hi) <= 0;
+                node = successor(node)) {
+            for (int i = 0, count = node.getCount(); i < count; i++) {
+                action.accept(keys[node.value]);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int compareKeys(int left, int right) {
+        return Double.compare(keys[left], keys[right]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(capacity, keys.length * 2));
+        }
+    }
+
+    private final class DoubleIterator extends HandleIterator implements PrimitiveIterator.OfDouble {
+
+        private final double hi;
+
+        DoubleIterator(Node first, double hi) {
+            super(first);
+            this.hi = hi;
+        }
+
+        @Override
+        protected boolean inBounds(int handle) {
+            return Double.compare(keys[handle], hi) <= 0;
+        }
+
+        @Override
+        public double nextDouble() {
+            return keys[nextHandle()];
+        }
+    }
+
+}
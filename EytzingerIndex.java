@@ -0,0 +1,211 @@
+package com.tree2;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Read only sorted index in Eytzinger (BFS) layout: element at position k (1 based) has children at 2k and 2k + 1,
+ * so it is complete binary search tree without pointers, 4 bytes per key. First levels of every search share few
+ * cache lines and next position is computed (not loaded), so search loop has no data dependent branch (comparison
+ * result is added to index).
+ * <br>
+ * Prefetch: Java has no prefetch instruction, so it is emulated by plain loads. At position k every search step also
+ * reads keys[16k], the first of 16 descendants 4 levels below (they are 16 adjacent ints, one or two cache lines).
+ * Address does not depend on the comparison, so the load is issued at once and its cache miss overlaps with the next
+ * 4 steps, which will touch that line. Loaded values are xor-ed together and combined into the result through
+ * {@code prefetchMask}, a final field which is always 0: result stays the same, but JIT can not prove the loads are
+ * dead and remove them. Positions past the end load keys[0]. It costs one extra load per level and pays off only
+ * when index is larger than CPU caches.
+ * <br>
+ * Search walks down to the bottom, positions of last right (or left) turn are recovered from bits of final index:
+ * trailing one bits are right turns, trailing zero bits are left turns.
+ * <br>
+ * Built by {@link AbstractBinarySearchTree#exportStatic()} or {@link #fromSorted(int[])}. Duplicates are kept.
+ */
+public final class EytzingerIndex {
+
+    /** Keys in BFS order, index 0 is unused. */
+    private final int[] keys;
+
+    private final int size;
+
+    /** Number of levels of complete tree. */
+    private final int height;
+
+    /** Number of nodes on the last level. */
+    private final int lastLevelSize;
+
+    /** Always 0, keeps prefetch loads alive (see class description). */
+    private final int prefetchMask;
+
+    /**
+     * @param sortedKeys
+     *            Iterator over keys in non-decreasing order.
+     * @param size
+     *            Number of keys iterator returns.
+     */
+    EytzingerIndex(PrimitiveIterator.OfInt sortedKeys, int size) {
+        this.size = size;
+        this.keys = new int[size + 1];
+        this.height = 32 - Integer.numberOfLeadingZeros(size);
+        this.lastLevelSize = size == 0 ? 0 : size - (1 << (height - 1)) + 1;
+        this.prefetchMask = 0;
+        // in-order walk over implicit tree, positions are filled in sorted order
+        int k = leftmost(1);
+        for (int i = 0; i < size; i++) {
+            keys[k] = sortedKeys.nextInt();
+            if (2 * k + 1 <= size) {
+                k = leftmost(2 * k + 1);
+            } else {
+                k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+            }
+        }
+    }
+
+    /**
+     * Builds index directly from sorted keys.
+     *
+     * @param sortedKeys
+     *            Keys in non-decreasing order.
+     * @return Index with given keys.
+     */
+    public static EytzingerIndex fromSorted(final int[] sortedKeys) {
+        for (int i = 1; i < sortedKeys.length; i++) {
+            if (sortedKeys[i - 1] > sortedKeys[i]) {
+                throw new IllegalArgumentException("Keys are not sorted at index " + i);
+            }
+        }
+        return new EytzingerIndex(new PrimitiveIterator.OfInt() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < sortedKeys.length;
+            }
+
+            @Override
+            public int nextInt() {
+                return sortedKeys[i++];
+            }
+        }, sortedKeys.length);
+    }
+
+    /**
+     * @param element
+     *            Element to look for.
+     * @return true if index contains element.
+     */
+    public boolean contains(int element) {
+        int k = lowerBound(element);
+        return k != 0 && keys[k] == element;
+    }
+
+    /**
+     * @param element
+     *            Element (does not have to be in the index).
+     * @return Greatest element less than or equal to element.
+     * @throws NoSuchElementException
+     *             if there is no such element.
+     */
+    public int floor(int element) {
+        return valueOf(lastLessOrEqual(element), element);
+    }
+
+    /**
+     * @param element
+     *            Element (does not have to be in the index).
+     * @return Smallest element greater than or equal to element.
+     * @throws NoSuchElementException
+     *             if there is no such element.
+     */
+    public int ceiling(int element) {
+        return valueOf(lowerBound(element), element);
+    }
+
+    /**
+     * @param element
+     *            Element (does not have to be in the index).
+     * @return Number of elements less than element.
+     */
+    public int rank(int element) {
+        int k = lowerBound(element);
+        return k == 0 ? size : inOrderIndex(k);
+    }
+
+    /**
+     * @return Number of elements.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return Keys in BFS order (copy, index 0 is unused).
+     */
+    public int[] toArray() {
+        return keys.clone();
+    }
+
+    /**
+     * @return Position of first element greater than or equal to element, 0 if there is none.
+     */
+    private int lowerBound(int element) {
+        int[] keys = this.keys;
+        int n = size;
+        int k = 1;
+        int prefetched = 0;
+        while (k <= n) {
+            int ahead = k << 4;
+            prefetched ^= keys[ahead > 0 && ahead <= n ? ahead : 0];
+            k = 2 * k + (keys[k] < element ? 1 : 0);
+        }
+        // drop trailing right turns and the last left turn
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        return k | (prefetched & prefetchMask);
+    }
+
+    /**
+     * @return Position of last element less than or equal to element, 0 if there is none.
+     */
+    private int lastLessOrEqual(int element) {
+        int[] keys = this.keys;
+        int n = size;
+        int k = 1;
+        int prefetched = 0;
+        while (k <= n) {
+            int ahead = k << 4;
+            prefetched ^= keys[ahead > 0 && ahead <= n ? ahead : 0];
+            k = 2 * k + (keys[k] <= element ? 1 : 0);
+        }
+        // drop trailing left turns and the last right turn
+        k >>>= Integer.numberOfTrailingZeros(k) + 1;
+        return k | (prefetched & prefetchMask);
+    }
+
+    /**
+     * In-order index of position k. It is index in perfect tree of the same height minus missing nodes of last
+     * level which would be before k.
+     */
+    private int inOrderIndex(int k) {
+        int depth = 31 - Integer.numberOfLeadingZeros(k);
+        int offset = k - (1 << depth);
+        int perfectIndex = ((2 * offset + 1) << (height - 1 - depth)) - 1;
+        int missing = (perfectIndex + 1) / 2 - lastLevelSize;
+        return missing > 0 ? perfectIndex - missing : perfectIndex;
+    }
+
+    private int leftmost(int k) {
+        while (2 * k <= size) {
+            k *= 2;
+        }
+        return k;
+    }
+
+    private int valueOf(int k, int element) {
+        if (k == 0) {
+            throw new NoSuchElementException("No matching element for " + element);
+        }
+        return keys[k];
+    }
+
+}
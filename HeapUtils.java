@@ -10,6 +10,11 @@ package com.tree2;
  *             /\  /
  *           45  1 15
  * Heap is used in heap sort and priority queues implementations.
+ * <br>
+ * Heaps are stored 0-based: children of index i are 2i+1 and 2i+2, parent is (i-1)/2. Min heap methods take arity
+ * (power of two) of d-ary layout: children of i are d*i+1 ... d*i+d, so with 4 or 8 children siblings share cache line
+ * and heap is half or third as high. All sifts are iterative and move the sifted element into final hole instead of
+ * swapping at every level. {@link IntHeap} and {@link IndexedIntHeap} are built on them.
  */
 public class HeapUtils {
     
@@ -40,28 +45,149 @@ public class HeapUtils {
      * @param heapSize
      */
     public static void maxHeapify(int[] data, int index, int heapSize) {
-        int leftLeaf = getLeftLeaf(index);
-        int rightLeaf = getRightLeaf(index);
-        int largest = index;
-        if (leftLeaf < heapSize && data[leftLeaf] > data[largest]) {
-            largest = leftLeaf;
+        int value = data[index];
+        while (true) {
+            int leftLeaf = getLeftLeaf(index);
+            if (leftLeaf >= heapSize) {
+                break;
+            }
+            int rightLeaf = getRightLeaf(index);
+            int largest = rightLeaf < heapSize && data[rightLeaf] > data[leftLeaf] ? rightLeaf : leftLeaf;
+            if (data[largest] <= value) {
+                break;
+            }
+            data[index] = data[largest];
+            index = largest;
         }
-        if (rightLeaf < heapSize && data[rightLeaf] > data[largest]) {
-            largest = rightLeaf;
-        }
-        if (largest != index) {
-            ArrayUtils.swap(data, index, largest);
-            HeapUtils.maxHeapify(data, largest, heapSize);
+        data[index] = value;
+    }
+
+    /**
+     * Sorts array in ascending order in place: builds max heap, then moves maximum to the end of shrinking heap. O(n
+     * log n) worst case, no extra memory.
+     *
+     * @param data
+     *            Array to sort.
+     */
+    public static void heapSort(int[] data) {
+        buildMaxHeap(data);
+        for (int end = data.length - 1; end > 0; end--) {
+            ArrayUtils.swap(data, 0, end);
+            maxHeapify(data, 0, end);
         }
     }
 
     public static int getParent(int leafIndex) {
-        return leafIndex / 2;
+        return (leafIndex - 1) / 2;
     }
-    
+
+    /**
+     * Rearranges first size elements into d-ary min heap, O(size).
+     *
+     * @param data
+     *            Heap array.
+     * @param size
+     *            Number of elements.
+     * @param arity
+     *            Number of children of every node, power of two.
+     */
+    public static void buildMinHeap(int[] data, int size, int arity) {
+        int shift = arityShift(arity);
+        for (int i = size <= 1 ? -1 : (size - 2) >> shift; i >= 0; i--) {
+            siftDown(data, i, size, shift);
+        }
+    }
+
+    /**
+     * Moves element at index up until its parent is not bigger.
+     *
+     * @param data
+     *            Heap array.
+     * @param index
+     *            Index of element.
+     * @param arity
+     *            Number of children of every node, power of two.
+     * @return Final index of element.
+     */
+    public static int minSiftUp(int[] data, int index, int arity) {
+        return siftUp(data, index, data[index], arityShift(arity));
+    }
+
+    /**
+     * Moves element at index down until its children are not smaller.
+     *
+     * @param data
+     *            Heap array.
+     * @param index
+     *            Index of element.
+     * @param size
+     *            Number of elements in heap.
+     * @param arity
+     *            Number of children of every node, power of two.
+     * @return Final index of element.
+     */
+    public static int minSiftDown(int[] data, int index, int size, int arity) {
+        return siftDown(data, index, size, arityShift(arity));
+    }
+
+    /**
+     * @param arity
+     *            Number of children of every node, power of two.
+     * @return log2 of arity.
+     */
+    static int arityShift(int arity) {
+        if (arity < 2 || Integer.bitCount(arity) != 1) {
+            throw new IllegalArgumentException("Arity must be power of two, at least 2: " + arity);
+        }
+        return Integer.numberOfTrailingZeros(arity);
+    }
+
+    /**
+     * Min heap sift up of value into hole at index, see {@link #minSiftUp(int[], int, int)}.
+     */
+    static int siftUp(int[] data, int index, int value, int shift) {
+        while (index > 0) {
+            int parent = (index - 1) >> shift;
+            if (data[parent] <= value) {
+                break;
+            }
+            data[index] = data[parent];
+            index = parent;
+        }
+        data[index] = value;
+        return index;
+    }
+
+    /**
+     * Min heap sift down with arity given as shift, see {@link #minSiftDown(int[], int, int, int)}.
+     */
+    static int siftDown(int[] data, int index, int size, int shift) {
+        int value = data[index];
+        while (true) {
+            int firstChild = (index << shift) + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            int lastChild = Math.min(firstChild + (1 << shift), size);
+            int smallest = firstChild;
+            for (int child = firstChild + 1; child < lastChild; child++) {
+                if (data[child] < data[smallest]) {
+                    smallest = child;
+                }
+            }
+            if (data[smallest] >= value) {
+                break;
+            }
+            data[index] = data[smallest];
+            index = smallest;
+        }
+        data[index] = value;
+        return index;
+    }
+
     /**
      * Calculates index of left child node.
-     * 
+     *
      * @param parentIndex
      *            Array index that represents parent node.
      * @return Left child node index in array.
@@ -72,7 +198,7 @@ public class HeapUtils {
 
     /**
      * Calculates index of right child node.
-     * 
+     *
      * @param parentIndex
      *            Array index that represents parent node.
      * @return Right child node index in array.
@@ -0,0 +1,285 @@
+package com.tree2;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Indexed priority queue: elements are int handles from [0, capacity) (vertex ids, task ids) with long priorities.
+ * Position of every handle in heap is kept in array, so priority of queued handle can be changed
+ * ({@link #decreaseKey(int, long)}, {@link #update(int, long)}) and handle can be removed in O(log n) without search.
+ * Uses d-ary layout and hole based sifts as {@link HeapUtils}. Memory is 16 bytes per handle of capacity, no objects
+ * per element.
+ * <br>
+ * Max heap stores bitwise complement of priorities, so both kinds share min heap code.
+ */
+public class IndexedIntHeap {
+
+    private final boolean maxHeap;
+
+    /** log2 of arity. */
+    private final int shift;
+
+    /** Handles in heap order. */
+    private final int[] heap;
+
+    /** Heap index of handle, -1 if handle is not queued. */
+    private final int[] positions;
+
+    /** Encoded priority of handle. */
+    private final long[] keys;
+
+    private int size;
+
+    /**
+     * Constructor of binary min heap.
+     *
+     * @param capacity Handles are from [0, capacity).
+     */
+    public IndexedIntHeap(int capacity) {
+        this(capacity, 2, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity Handles are from [0, capacity).
+     * @param arity Number of children of every node, power of two (4 or 8 keep siblings in one cache line).
+     * @param maxHeap If true {@link #poll()} returns handle with maximum priority, otherwise with minimum.
+     */
+    public IndexedIntHeap(int capacity, int arity, boolean maxHeap) {
+        this.shift = HeapUtils.arityShift(arity);
+        this.maxHeap = maxHeap;
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.keys = new long[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Adds handle.
+     *
+     * @param handle Handle from [0, capacity).
+     * @param priority Priority.
+     * @throws IllegalArgumentException If handle is already queued.
+     */
+    public void add(int handle, long priority) {
+        if (positions[handle] >= 0) {
+            throw new IllegalArgumentException("Handle is already in heap: " + handle);
+        }
+        keys[handle] = encode(priority);
+        siftUp(size++, handle);
+    }
+
+    /**
+     * @param handle Handle from [0, capacity).
+     * @return true if handle is queued.
+     */
+    public boolean contains(int handle) {
+        return positions[handle] >= 0;
+    }
+
+    /**
+     * @param handle Queued handle.
+     * @return Priority of handle.
+     * @throws NoSuchElementException If handle is not queued.
+     */
+    public long priorityOf(int handle) {
+        checkQueued(handle);
+        return encode(keys[handle]);
+    }
+
+    /**
+     * Moves handle towards top: lowers priority of min heap handle, raises priority of max heap handle.
+     *
+     * @param handle Queued handle.
+     * @param priority New priority, not worse than current.
+     * @throws IllegalArgumentException If new priority would move handle down.
+     */
+    public void decreaseKey(int handle, long priority) {
+        checkQueued(handle);
+        long key = encode(priority);
+        if (key > keys[handle]) {
+            throw new IllegalArgumentException("Priority " + priority + " moves handle " + handle + " down");
+        }
+        keys[handle] = key;
+        siftUp(positions[handle], handle);
+    }
+
+    /**
+     * Changes priority of queued handle in any direction, or adds handle which is not queued.
+     *
+     * @param handle Handle from [0, capacity).
+     * @param priority New priority.
+     */
+    public void update(int handle, long priority) {
+        if (positions[handle] < 0) {
+            add(handle, priority);
+            return;
+        }
+        long key = encode(priority);
+        long previous = keys[handle];
+        keys[handle] = key;
+        if (key < previous) {
+            siftUp(positions[handle], handle);
+        } else {
+            siftDown(positions[handle], handle);
+        }
+    }
+
+    /**
+     * @return Handle with minimum (maximum in max heap) priority, without removing it.
+     * @throws NoSuchElementException If heap is empty.
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return heap[0];
+    }
+
+    /**
+     * @return Priority of {@link #peek()} handle.
+     * @throws NoSuchElementException If heap is empty.
+     */
+    public long peekPriority() {
+        return encode(keys[peek()]);
+    }
+
+    /**
+     * Removes handle with minimum (maximum in max heap) priority.
+     *
+     * @return Removed handle.
+     * @throws NoSuchElementException If heap is empty.
+     */
+    public int poll() {
+        int top = peek();
+        removeAt(0);
+        return top;
+    }
+
+    /**
+     * Removes queued handle.
+     *
+     * @param handle Handle from [0, capacity).
+     * @return true if handle was queued.
+     */
+    public boolean remove(int handle) {
+        int index = positions[handle];
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * @return Number of queued handles.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if no handle is queued.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return Handles are from [0, capacity).
+     */
+    public int capacity() {
+        return positions.length;
+    }
+
+    /**
+     * Removes all handles, O(size).
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void removeAt(int index) {
+        int removed = heap[index];
+        positions[removed] = -1;
+        if (--size == index) {
+            return;
+        }
+        // last handle fills the hole and moves whichever way its priority requires
+        int last = heap[size];
+        if (index > 0 && keys[last] < keys[heap[(index - 1) >> shift]]) {
+            siftUp(index, last);
+        } else {
+            siftDown(index, last);
+        }
+    }
+
+    /**
+     * Places handle into hole at index and moves it up.
+     */
+    private void siftUp(int index, int handle) {
+        long key = keys[handle];
+        while (index > 0) {
+            int parent = (index - 1) >> shift;
+            int parentHandle = heap[parent];
+            if (keys[parentHandle] <= key) {
+                break;
+            }
+            heap[index] = parentHandle;
+            positions[parentHandle] = index;
+            index = parent;
+        }
+        heap[index] = handle;
+        positions[handle] = index;
+    }
+
+    /**
+     * Places handle into hole at index and moves it down.
+     */
+    private void siftDown(int index, int handle) {
+        long key = keys[handle];
+        while (true) {
+            int firstChild = (index << shift) + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            int lastChild = Math.min(firstChild + (1 << shift), size);
+            int smallest = firstChild;
+            long smallestKey = keys[heap[firstChild]];
+            for (int child = firstChild + 1; child < lastChild; child++) {
+                long childKey = keys[heap[child]];
+                if (childKey < smallestKey) {
+                    smallest = child;
+                    smallestKey = childKey;
+                }
+            }
+            if (smallestKey >= key) {
+                break;
+            }
+            int smallestHandle = heap[smallest];
+            heap[index] = smallestHandle;
+            positions[smallestHandle] = index;
+            index = smallest;
+        }
+        heap[index] = handle;
+        positions[handle] = index;
+    }
+
+    private void checkQueued(int handle) {
+        if (positions[handle] < 0) {
+            throw new NoSuchElementException("Handle is not in heap: " + handle);
+        }
+    }
+
+    /**
+     * Same function encodes and decodes.
+     */
+    private long encode(long priority) {
+        return maxHeap ? ~priority : priority;
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.tree2;
+
+import java.util.Iterator;
+import java.util.function.IntFunction;
+
+/**
+ * AVL tree with value in every node, map from int keys to objects. Ordering and value lookup are the same descent,
+ * there is no separate hash map for values. {@link #put(int, Object)} and {@link #computeIfAbsent(int, IntFunction)}
+ * find or insert key with one descent. Keys are unique: inherited inserts of bare keys ({@link #insert(int)},
+ * {@link #insertAll(int[])}, {@link #bulkLoad(int[])}) add absent keys with null value and keep values of present
+ * keys, {@link #delete(int)} and {@link #deleteAll(int[])} remove whole entries and join, split and set operations
+ * move entries with their values.
+ *
+ * @param <V> Value type.
+ */
+public class IntAVLMap<V> extends AVLTree {
+
+    /**
+     * Constructor.
+     */
+    public IntAVLMap() {
+        super();
+        uniqueKeys = true;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param orderStatistic If true nodes keep subtree sizes, see {@link #select(int)} and {@link #rank(int)}.
+     */
+    public IntAVLMap(boolean orderStatistic) {
+        super(orderStatistic);
+        uniqueKeys = true;
+    }
+
+    /**
+     * @param key Key to look for.
+     * @return Value of key, or null if key is not in the map.
+     */
+    public V get(int key) {
+        Node node = search(key);
+        return node == null ? null : mapNode(node).mapValue;
+    }
+
+    /**
+     * @param key Key to look for.
+     * @return true if map contains key.
+     */
+    public boolean containsKey(int key) {
+        return search(key) != null;
+    }
+
+    /**
+     * Sets value of key.
+     *
+     * @param key Key.
+     * @param value New value.
+     * @return Previous value, or null if key was not in the map.
+     */
+    public V put(int key, V value) {
+        AVLMapNode<V> node = mapNode(insert(key, true));
+        V previous = node.mapValue;
+        node.mapValue = value;
+        return previous;
+    }
+
+    /**
+     * @param key Key to remove.
+     * @return Removed value, or null if key was not in the map.
+     */
+    public V remove(int key) {
+        Node node = search(key);
+        if (node == null) {
+            return null;
+        }
+        V previous = mapNode(node).mapValue;
+        delete(node);
+        return previous;
+    }
+
+    /**
+     * Same contract as {@link java.util.Map#computeIfAbsent(Object, java.util.function.Function)}.
+     *
+     * @param key Key.
+     * @param mappingFunction Computes value of absent key (or key with null value), null result is not stored.
+     * @return Current (existing or computed) value.
+     */
+    public V computeIfAbsent(int key, IntFunction<? extends V> mappingFunction) {
+        AVLMapNode<V> node = mapNode(insert(key, true));
+        if (node.mapValue != null) {
+            return node.mapValue;
+        }
+        boolean created = lastInsertCreated;
+        V value = null;
+        try {
+            value = mappingFunction.apply(key);
+        } finally {
+            if (value != null) {
+                node.mapValue = value;
+            } else if (created) {
+                // no entry is left for null result (or failed mapping function)
+                delete(node);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Ascending iterator over entries with keys in range [lo, hi]. Map must not be modified while iterator is used.
+     *
+     * @param lo Lower bound (inclusive).
+     * @param hi Upper bound (inclusive).
+     * @return Iterator over entries.
+     */
+    public Iterator<IntMapEntry<V>> entryIterator(int lo, int hi) {
+        return new IntMapEntryIterator<IntMapEntry<V>>(this, lo > hi ? null : ceilingNode(lo, true), hi);
+    }
+
+    /**
+     * @return Ascending iterator over all entries.
+     */
+    public Iterator<IntMapEntry<V>> entryIterator() {
+        return entryIterator(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Nodes hold values, so {@link #deleteAll(int[])} removes keys one by one instead of rebuilding the tree.
+     */
+    @Override
+    protected boolean canRebuildFromKeys() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Node createNode(int value, Node parent, Node left, Node right) {
+        return new AVLMapNode<V>(value, parent, left, right);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected AbstractJoinableBinarySearchTree createTree() {
+        return new IntAVLMap<V>(orderStatistic);
+    }
+
+    @SuppressWarnings("unchecked")
+    private AVLMapNode<V> mapNode(Node node) {
+        return (AVLMapNode<V>) node;
+    }
+
+    /**
+     * AVL node with value.
+     */
+    public static class AVLMapNode<V> extends AVLNode implements IntMapEntry<V> {
+        public V mapValue;
+
+        public AVLMapNode(int value, Node parent, Node left, Node right) {
+            super(value, parent, left, right);
+        }
+
+        @Override
+        public int getKey() {
+            return value;
+        }
+
+        @Override
+        public V getValue() {
+            return mapValue;
+        }
+    }
+
+}
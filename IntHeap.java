@@ -0,0 +1,140 @@
+package com.tree2;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Priority queue of primitive ints (no boxing, one int[] array), d-ary heap built on {@link HeapUtils} sifts. Max
+ * heap stores bitwise complement of values (~x reverses int order without overflow), so both kinds share min heap
+ * code.
+ */
+public class IntHeap {
+
+    private final boolean maxHeap;
+
+    /** log2 of arity. */
+    private final int shift;
+
+    private int[] data;
+
+    private int size;
+
+    /**
+     * Constructor of binary min heap.
+     */
+    public IntHeap() {
+        this(false);
+    }
+
+    /**
+     * Constructor of binary heap.
+     *
+     * @param maxHeap If true {@link #poll()} returns maximum, otherwise minimum.
+     */
+    public IntHeap(boolean maxHeap) {
+        this(2, maxHeap, 16);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param arity Number of children of every node, power of two (4 or 8 keep siblings in one cache line).
+     * @param maxHeap If true {@link #poll()} returns maximum, otherwise minimum.
+     * @param initialCapacity Initial length of array, it grows when needed.
+     */
+    public IntHeap(int arity, boolean maxHeap, int initialCapacity) {
+        this.shift = HeapUtils.arityShift(arity);
+        this.maxHeap = maxHeap;
+        this.data = new int[Math.max(1, initialCapacity)];
+    }
+
+    /**
+     * Builds heap of given values in O(n).
+     *
+     * @param values Values, array is copied.
+     * @param arity Number of children of every node, power of two.
+     * @param maxHeap If true {@link #poll()} returns maximum, otherwise minimum.
+     * @return Heap.
+     */
+    public static IntHeap of(int[] values, int arity, boolean maxHeap) {
+        IntHeap heap = new IntHeap(arity, maxHeap, values.length);
+        for (int i = 0; i < values.length; i++) {
+            heap.data[i] = heap.encode(values[i]);
+        }
+        heap.size = values.length;
+        HeapUtils.buildMinHeap(heap.data, heap.size, arity);
+        return heap;
+    }
+
+    /**
+     * @param value Value to add.
+     */
+    public void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        HeapUtils.siftUp(data, size++, encode(value), shift);
+    }
+
+    /**
+     * @return Minimum (maximum in max heap) without removing it.
+     * @throws NoSuchElementException If heap is empty.
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return encode(data[0]);
+    }
+
+    /**
+     * Removes minimum (maximum in max heap).
+     *
+     * @return Removed value.
+     * @throws NoSuchElementException If heap is empty.
+     */
+    public int poll() {
+        int top = peek();
+        if (--size > 0) {
+            data[0] = data[size];
+            HeapUtils.siftDown(data, 0, size, shift);
+        }
+        return top;
+    }
+
+    /**
+     * @return Number of values.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if heap has no values.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all values (keeps array).
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return true if this is max heap.
+     */
+    public boolean isMaxHeap() {
+        return maxHeap;
+    }
+
+    /**
+     * Same function encodes and decodes.
+     */
+    private int encode(int value) {
+        return maxHeap ? ~value : value;
+    }
+
+}
@@ -0,0 +1,186 @@
+package com.tree2;
+
+import java.util.Iterator;
+import java.util.function.IntToLongFunction;
+
+/**
+ * AVL tree map from int keys to primitive long values (counters, offsets, timestamps), same as {@link IntAVLMap}
+ * but value is stored in node without boxing. Absent keys read as {@link #getDefaultValue()}. Updates find or insert
+ * key with one descent, inserts of bare keys add absent keys with default value (see {@link IntAVLMap}).
+ */
+public class IntLongAVLMap extends AVLTree {
+
+    private final long defaultValue;
+
+    /**
+     * Constructor, absent keys read as 0.
+     */
+    public IntLongAVLMap() {
+        this(0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param defaultValue Value returned for absent keys.
+     */
+    public IntLongAVLMap(long defaultValue) {
+        this.defaultValue = defaultValue;
+        uniqueKeys = true;
+    }
+
+    /**
+     * @param key Key to look for.
+     * @return Value of key, or default value if key is not in the map.
+     */
+    public long get(int key) {
+        Node node = search(key);
+        return node == null ? defaultValue : ((LongValueAVLNode) node).mapValue;
+    }
+
+    /**
+     * @param key Key to look for.
+     * @return true if map contains key.
+     */
+    public boolean containsKey(int key) {
+        return search(key) != null;
+    }
+
+    /**
+     * Sets value of key.
+     *
+     * @param key Key.
+     * @param value New value.
+     * @return Previous value, or default value if key was not in the map.
+     */
+    public long put(int key, long value) {
+        LongValueAVLNode node = (LongValueAVLNode) insert(key, true);
+        long previous = node.mapValue;
+        node.mapValue = value;
+        return previous;
+    }
+
+    /**
+     * Adds delta to value of key, absent key starts from default value.
+     *
+     * @param key Key.
+     * @param delta Value to add.
+     * @return New value.
+     */
+    public long addTo(int key, long delta) {
+        return ((LongValueAVLNode) insert(key, true)).mapValue += delta;
+    }
+
+    /**
+     * @param key Key to remove.
+     * @return Removed value, or default value if key was not in the map.
+     */
+    public long remove(int key) {
+        Node node = search(key);
+        if (node == null) {
+            return defaultValue;
+        }
+        long previous = ((LongValueAVLNode) node).mapValue;
+        delete(node);
+        return previous;
+    }
+
+    /**
+     * @param key Key.
+     * @param mappingFunction Computes value of absent key.
+     * @return Current (existing or computed) value.
+     */
+    public long computeIfAbsent(int key, IntToLongFunction mappingFunction) {
+        LongValueAVLNode node = (LongValueAVLNode) insert(key, true);
+        if (lastInsertCreated) {
+            boolean computed = false;
+            try {
+                node.mapValue = mappingFunction.applyAsLong(key);
+                computed = true;
+            } finally {
+                if (!computed) {
+                    delete(node);
+                }
+            }
+        }
+        return node.mapValue;
+    }
+
+    /**
+     * @return Value returned for absent keys.
+     */
+    public long getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * Ascending iterator over entries (nodes) with keys in range [lo, hi]. Map must not be modified while iterator
+     * is used.
+     *
+     * @param lo Lower bound (inclusive).
+     * @param hi Upper bound (inclusive).
+     * @return Iterator over entries.
+     */
+    public Iterator<LongValueAVLNode> entryIterator(int lo, int hi) {
+        return new IntMapEntryIterator<LongValueAVLNode>(this, lo > hi ? null : ceilingNode(lo, true), hi);
+    }
+
+    /**
+     * @return Ascending iterator over all entries.
+     */
+    public Iterator<LongValueAVLNode> entryIterator() {
+        return entryIterator(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Nodes hold values, so {@link #deleteAll(int[])} removes keys one by one instead of rebuilding the tree.
+     */
+    @Override
+    protected boolean canRebuildFromKeys() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Node createNode(int value, Node parent, Node left, Node right) {
+        LongValueAVLNode node = new LongValueAVLNode(value, parent, left, right);
+        node.mapValue = defaultValue;
+        return node;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected AbstractJoinableBinarySearchTree createTree() {
+        return new IntLongAVLMap(defaultValue);
+    }
+
+    /**
+     * AVL node with long value.
+     */
+    public static class LongValueAVLNode extends AVLNode {
+        public long mapValue;
+
+        public LongValueAVLNode(int value, Node parent, Node left, Node right) {
+            super(value, parent, left, right);
+        }
+
+        /**
+         * @return Key.
+         */
+        public int getKey() {
+            return value;
+        }
+
+        /**
+         * @return Value.
+         */
+        public long getValue() {
+            return mapValue;
+        }
+    }
+
+}
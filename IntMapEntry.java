@@ -0,0 +1,21 @@
+package com.tree2;
+
+/**
+ * Key and value of one map entry ({@link IntAVLMap}, {@link IntRedBlackMap}). Entries are tree nodes, so they are
+ * valid only until the map is modified.
+ *
+ * @param <V> Value type.
+ */
+public interface IntMapEntry<V> {
+
+    /**
+     * @return Key.
+     */
+    int getKey();
+
+    /**
+     * @return Value (may be null).
+     */
+    V getValue();
+
+}
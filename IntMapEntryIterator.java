@@ -0,0 +1,47 @@
+package com.tree2;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Ascending iterator over map nodes with keys up to hi, returns nodes themselves as entries (nothing is allocated
+ * per entry). Shared by map trees which extend different balanced trees.
+ *
+ * @param <E> Entry (node) type.
+ */
+final class IntMapEntryIterator<E> implements Iterator<E> {
+
+    private final AbstractBinarySearchTree tree;
+
+    private final int hi;
+
+    private AbstractBinarySearchTree.Node next;
+
+    IntMapEntryIterator(AbstractBinarySearchTree tree, AbstractBinarySearchTree.Node first, int hi) {
+        this.tree = tree;
+        this.hi = hi;
+        this.next = inBounds(first) ? first : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        AbstractBinarySearchTree.Node node = next;
+        AbstractBinarySearchTree.Node following = tree.getSuccessor(node);
+        next = inBounds(following) ? following : null;
+        return (E) node;
+    }
+
+    private boolean inBounds(AbstractBinarySearchTree.Node node) {
+        return !tree.isNil(node) && tree.compare(node.value, hi) <= 0;
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.tree2;
+
+/**
+ * Order of int values kept in tree nodes, see {@link AbstractBinarySearchTree#keyComparator}. Trees of other key types
+ * ({@link AbstractKeyTree}) keep int handles of keys in nodes and compare keys which the handles point to.
+ */
+public interface KeyComparator {
+
+    /**
+     * @param left Node value.
+     * @param right Node value.
+     * @return Negative, zero or positive as left is less than, equal to or greater than right.
+     */
+    int compare(int left, int right);
+
+}
@@ -0,0 +1,221 @@
+package com.tree2;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+import com.tree2.AbstractBinarySearchTree.Node;
+
+/**
+ * Tree of primitive long keys (timestamps, 64-bit ids) on top of any int tree, e.g.
+ * {@code new LongKeyTree(new AVLTree())} or {@code new LongKeyTree(new RedBlackTree(true))}. Keys are kept in long
+ * array and compared without boxing, see {@link AbstractKeyTree}.
+ */
+public class LongKeyTree extends AbstractKeyTree {
+
+    private long[] keys = new long[16];
+
+    /**
+     * Constructor.
+     *
+     * @param tree Empty tree which will keep handles of keys, rank, select and count in range need subtree sizes.
+     */
+    public LongKeyTree(AbstractBinarySearchTree tree) {
+        super(tree);
+    }
+
+    /**
+     * @param element Element to insert (duplicates are kept as wrapped tree keeps them).
+     */
+    public void insert(long element) {
+        int handle = newHandle();
+        keys[handle] = element;
+        insertHandle(handle, false);
+    }
+
+    /**
+     * @param element Element to insert if it is not in the tree yet.
+     * @return true if element was inserted.
+     */
+    public boolean insertIfAbsent(long element) {
+        int handle = newHandle();
+        keys[handle] = element;
+        return insertHandle(handle, true);
+    }
+
+    /**
+     * @param element Element to remove (one occurrence).
+     * @return true if element was found and removed.
+     */
+    public boolean delete(long element) {
+        keys[PROBE] = element;
+        return deleteProbe();
+    }
+
+    /**
+     * @param element Element to look for.
+     * @return true if tree contains element.
+     */
+    public boolean contains(long element) {
+        keys[PROBE] = element;
+        return containsProbe();
+    }
+
+    /**
+     * @param element Element to look for.
+     * @return Number of occurrences of element.
+     */
+    public int count(long element) {
+        keys[PROBE] = element;
+        return countProbe();
+    }
+
+    /**
+     * @return Minimum element in tree.
+     */
+    public long getMinimum() {
+        return keys[minimumHandle()];
+    }
+
+    /**
+     * @return Maximum element in tree.
+     */
+    public long getMaximum() {
+        return keys[maximumHandle()];
+    }
+
+    /**
+     * @param element Element (does not have to be in the tree).
+     * @return Greatest element less than or equal to element.
+     * @throws java.util.NoSuchElementException if there is no such element.
+     */
+    public long floor(long element) {
+        keys[PROBE] = element;
+        return keys[floorHandle(true)];
+    }
+
+    /**
+     * @param element Element (does not have to be in the tree).
+     * @return Smallest element greater than or equal to element.
+     * @throws java.util.NoSuchElementException if there is no such element.
+     */
+    public long ceiling(long element) {
+        keys[PROBE] = element;
+        return keys[ceilingHandle(true)];
+    }
+
+    /**
+     * @param element Element (does not have to be in the tree).
+     * @return Greatest element strictly less than element.
+     * @throws java.util.NoSuchElementException if there is no such element.
+     */
+    public long lower(long element) {
+        keys[PROBE] = element;
+        return keys[floorHandle(false)];
+    }
+
+    /**
+     * @param element Element (does not have to be in the tree).
+     * @return Smallest element strictly greater than element.
+     * @throws java.util.NoSuchElementException if there is no such element.
+     */
+    public long higher(long element) {
+        keys[PROBE] = element;
+        return keys[ceilingHandle(false)];
+    }
+
+    /**
+     * @param element Element (does not have to be in the tree).
+     * @return Number of elements smaller than element.
+     */
+    public int rank(long element) {
+        keys[PROBE] = element;
+        return rankOfProbe();
+    }
+
+    /**
+     * @param k Index (0 based) of element in sorted order.
+     * @return K-th smallest element.
+     */
+    public long select(int k) {
+        return keys[selectHandle(k)];
+    }
+
+    /**
+     * @param lo Lower bound (inclusive).
+     * @param hi Upper bound (inclusive).
+     * @return Number of elements in range [lo, hi].
+     */
+    public int countInRange(long lo, long hi) {
+        if (lo > hi) {
+            return 0;
+        }
+        keys[PROBE] = hi;
+        int notGreater = countNotGreaterThanProbe();
+        keys[PROBE] = lo;
+        return notGreater - rankOfProbe();
+    }
+
+    /**
+     * @param lo Lower bound (inclusive).
+     * @param hi Upper bound (inclusive).
+     * @return Ascending iterator over elements in range.
+     */
+    public PrimitiveIterator.OfLong rangeIterator(long lo, long hi) {
+        keys[PROBE] = lo;
+        return new LongIterator(lo > hi ? null : ceilingOfProbe(), hi);
+    }
+
+    /**
+     * @param lo Lower bound (inclusive).
+     * @param hi Upper bound (inclusive).
+     * @param action Action for each element in range, ascending order.
+     */
+    public void forEachInRange(long lo, long hi, LongConsumer action) {
+        keys[PROBE] = lo;
+        for (Node node = ceilingOfProbe(); node != null && keys[node.value] <= hi; node = successor(node)) {
+            for (int i = 0, count = node.getCount(); i < count; i++) {
+                action.accept(keys[node.value]);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int compareKeys(int left, int right) {
+        return Long.compare(keys[left], keys[right]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(capacity, keys.length * 2));
+        }
+    }
+
+    private final class LongIterator extends HandleIterator implements PrimitiveIterator.OfLong {
+
+        private final long hi;
+
+        LongIterator(Node first, long hi) {
+            super(first);
+            this.hi = hi;
+        }
+
+        @Override
+        protected boolean inBounds(int handle) {
+            return keys[handle] <= hi;
+        }
+
+        @Override
+        public long nextLong() {
+            return keys[nextHandle()];
+        }
+    }
+
+}
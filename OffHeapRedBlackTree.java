@@ -0,0 +1,456 @@
+package com.tree2;
+
+import java.io.Closeable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Red-black tree which keeps its nodes outside of java heap, in direct byte buffers. Heap usage does not depend on
+ * tree size and GC has nothing to mark or compact, so it is meant for very big trees. Memory is given back by
+ * {@link #close()}, tree can not be used after that.
+ * <br>
+ * Node is 16 bytes record addressed by int index (same idea as {@link ArrayRedBlackTree}): value, left child index,
+ * right child index and parent index with color stored in its highest bit. Records are allocated in chunks of
+ * {@link #CHUNK_NODES} nodes. Index {@link #NIL} is sentinel node of this tree. Insert and delete are ported from
+ * {@link ArrayRedBlackTree}, fixups are shared with it through {@link RedBlackIndexFixup}.
+ */
+public class OffHeapRedBlackTree implements Closeable {
+
+    /** Index of sentinel node. */
+    static final int NIL = 0;
+
+    private static final int BLACK = RedBlackIndexFixup.BLACK;
+
+    /** Node record layout. */
+    private static final int VALUE = 0;
+    private static final int LEFT = 4;
+    private static final int RIGHT = 8;
+    private static final int PARENT = 12;
+    private static final int NODE_SHIFT = 4;
+
+    /** Color is kept in the highest bit of parent field. */
+    private static final int COLOR_BIT = 0x80000000;
+    private static final int INDEX_MASK = 0x7FFFFFFF;
+
+    /** Number of nodes in one chunk (1MB chunks). */
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_NODES = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_NODES - 1;
+
+    /** Chunks with node records, null after tree is closed. */
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+
+    /** Root node index. */
+    int root = NIL;
+
+    /** Tree size. */
+    private int size;
+
+    /** Head of free nodes list (linked through left field). */
+    private int freeNode = NIL;
+
+    /** First node index which was never used. */
+    private int nextNode = NIL;
+
+    /**
+     * Constructor.
+     */
+    public OffHeapRedBlackTree() {
+        int nil = allocateNode(0, NIL);
+        setColor(nil, BLACK);
+    }
+
+    /**
+     * Inserts element, duplicates are allowed.
+     *
+     * @param element Element to insert.
+     */
+    public void insert(int element) {
+        ensureOpen();
+        int insertParentNode = NIL;
+        int node = root;
+        while (node != NIL) {
+            insertParentNode = node;
+            if (element < value(node)) {
+                node = left(node);
+            } else {
+                node = right(node);
+            }
+        }
+        int newNode = allocateNode(element, insertParentNode);
+        if (insertParentNode == NIL) {
+            root = newNode;
+        } else if (element < value(insertParentNode)) {
+            setLeft(insertParentNode, newNode);
+        } else {
+            setRight(insertParentNode, newNode);
+        }
+        size++;
+        fixup.insertFixup(newNode);
+    }
+
+    /**
+     * Removes element if it exists.
+     *
+     * @param element Element to remove.
+     * @return true if element was found and removed.
+     */
+    public boolean delete(int element) {
+        ensureOpen();
+        int deleteNode = searchNode(element);
+        if (deleteNode == NIL) {
+            return false;
+        }
+        int replaceNode; // track node that replaces removedOrMovedNode
+        int removedOrMovedNodeColor = color(deleteNode);
+        if (left(deleteNode) == NIL) {
+            replaceNode = right(deleteNode);
+            transplant(deleteNode, replaceNode);
+        } else if (right(deleteNode) == NIL) {
+            replaceNode = left(deleteNode);
+            transplant(deleteNode, replaceNode);
+        } else {
+            int removedOrMovedNode = minimumNode(right(deleteNode));
+            removedOrMovedNodeColor = color(removedOrMovedNode);
+            replaceNode = right(removedOrMovedNode);
+            if (parent(removedOrMovedNode) == deleteNode) {
+                setParent(replaceNode, removedOrMovedNode);
+            } else {
+                transplant(removedOrMovedNode, replaceNode);
+                setRight(removedOrMovedNode, right(deleteNode));
+                setParent(right(removedOrMovedNode), removedOrMovedNode);
+            }
+            transplant(deleteNode, removedOrMovedNode);
+            setLeft(removedOrMovedNode, left(deleteNode));
+            setParent(left(removedOrMovedNode), removedOrMovedNode);
+            setColor(removedOrMovedNode, color(deleteNode));
+        }
+        releaseNode(deleteNode);
+        size--;
+        if (removedOrMovedNodeColor == BLACK) {
+            fixup.deleteFixup(replaceNode);
+        }
+        return true;
+    }
+
+    /**
+     * @param element Element to look for.
+     * @return true if tree contains element.
+     */
+    public boolean contains(int element) {
+        ensureOpen();
+        return searchNode(element) != NIL;
+    }
+
+    /**
+     * @return Minimum element in tree.
+     */
+    public int getMinimum() {
+        checkNotEmpty();
+        return value(minimumNode(root));
+    }
+
+    /**
+     * @return Maximum element in tree.
+     */
+    public int getMaximum() {
+        checkNotEmpty();
+        int node = root;
+        while (right(node) != NIL) {
+            node = right(node);
+        }
+        return value(node);
+    }
+
+    /**
+     * Get next element who is bigger than provided element.
+     *
+     * @param element Element (must be in the tree) for whom successor is searched.
+     * @return Successor value.
+     */
+    public int getSuccessor(int element) {
+        ensureOpen();
+        int node = searchNode(element);
+        if (node == NIL) {
+            throw new NoSuchElementException("Element " + element + " is not in the tree");
+        }
+        int successor;
+        if (right(node) != NIL) {
+            successor = minimumNode(right(node));
+        } else {
+            successor = parent(node);
+            while (successor != NIL && node == right(successor)) {
+                node = successor;
+                successor = parent(successor);
+            }
+        }
+        if (successor == NIL) {
+            throw new NoSuchElementException("Element " + element + " has no successor");
+        }
+        return value(successor);
+    }
+
+    /**
+     * @return Number of elements in the tree.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return Off-heap memory reserved by this tree in bytes.
+     */
+    public long getReservedBytes() {
+        return chunks == null ? 0 : (long) chunks.length * CHUNK_NODES << NODE_SHIFT;
+    }
+
+    /**
+     * Frees off-heap memory. Tree can not be used after it is closed, calling close again does nothing.
+     */
+    @Override
+    public void close() {
+        if (chunks == null) {
+            return;
+        }
+        ByteBuffer[] closedChunks = chunks;
+        chunks = null;
+        root = NIL;
+        size = 0;
+        for (ByteBuffer chunk : closedChunks) {
+            DirectMemory.free(chunk);
+        }
+    }
+
+    /*-------------------PRIVATE HELPER METHODS-------------------*/
+
+    private int searchNode(int element) {
+        int node = root;
+        while (node != NIL) {
+            int nodeValue = value(node);
+            if (nodeValue == element) {
+                return node;
+            }
+            node = element < nodeValue ? left(node) : right(node);
+        }
+        return NIL;
+    }
+
+    private int minimumNode(int node) {
+        while (left(node) != NIL) {
+            node = left(node);
+        }
+        return node;
+    }
+
+    private void transplant(int nodeToReplace, int newNode) {
+        int nodeParent = parent(nodeToReplace);
+        if (nodeParent == NIL) {
+            root = newNode;
+        } else if (nodeToReplace == left(nodeParent)) {
+            setLeft(nodeParent, newNode);
+        } else {
+            setRight(nodeParent, newNode);
+        }
+        setParent(newNode, nodeParent);
+    }
+
+    private void rotateLeft(int node) {
+        int temp = right(node);
+        setRight(node, left(temp));
+        if (left(temp) != NIL) {
+            setParent(left(temp), node);
+        }
+        transplant(node, temp);
+        setLeft(temp, node);
+        setParent(node, temp);
+    }
+
+    private void rotateRight(int node) {
+        int temp = left(node);
+        setLeft(node, right(temp));
+        if (right(temp) != NIL) {
+            setParent(right(temp), node);
+        }
+        transplant(node, temp);
+        setRight(temp, node);
+        setParent(node, temp);
+    }
+
+    /**
+     * Fixups shared with {@link ArrayRedBlackTree}, color is read from and written to the parent field.
+     */
+    private final RedBlackIndexFixup fixup = new RedBlackIndexFixup() {
+        @Override
+        protected int root() {
+            return root;
+        }
+
+        @Override
+        protected int left(int node) {
+            return OffHeapRedBlackTree.this.left(node);
+        }
+
+        @Override
+        protected int right(int node) {
+            return OffHeapRedBlackTree.this.right(node);
+        }
+
+        @Override
+        protected int parent(int node) {
+            return OffHeapRedBlackTree.this.parent(node);
+        }
+
+        @Override
+        protected int color(int node) {
+            return OffHeapRedBlackTree.this.color(node);
+        }
+
+        @Override
+        protected void setColor(int node, int color) {
+            OffHeapRedBlackTree.this.setColor(node, color);
+        }
+
+        @Override
+        protected void rotateLeft(int node) {
+            OffHeapRedBlackTree.this.rotateLeft(node);
+        }
+
+        @Override
+        protected void rotateRight(int node) {
+            OffHeapRedBlackTree.this.rotateRight(node);
+        }
+    };
+
+    private int allocateNode(int element, int parentNode) {
+        int node;
+        if (freeNode != NIL) {
+            node = freeNode;
+            freeNode = left(node);
+        } else {
+            if ((nextNode & CHUNK_MASK) == 0) {
+                addChunk();
+            }
+            node = nextNode++;
+        }
+        ByteBuffer chunk = chunks[node >>> CHUNK_SHIFT];
+        int offset = (node & CHUNK_MASK) << NODE_SHIFT;
+        chunk.putInt(offset + VALUE, element);
+        chunk.putInt(offset + LEFT, NIL);
+        chunk.putInt(offset + RIGHT, NIL);
+        chunk.putInt(offset + PARENT, parentNode); // red
+        return node;
+    }
+
+    private void releaseNode(int node) {
+        setLeft(node, freeNode);
+        freeNode = node;
+    }
+
+    private void addChunk() {
+        if (nextNode < 0) {
+            throw new IllegalStateException("Tree is full");
+        }
+        chunks = Arrays.copyOf(chunks, chunks.length + 1);
+        chunks[chunks.length - 1] = ByteBuffer.allocateDirect(CHUNK_NODES << NODE_SHIFT).order(ByteOrder.nativeOrder());
+    }
+
+    private void ensureOpen() {
+        if (chunks == null) {
+            throw new IllegalStateException("Tree is closed");
+        }
+    }
+
+    private void checkNotEmpty() {
+        ensureOpen();
+        if (root == NIL) {
+            throw new NoSuchElementException("Tree is empty");
+        }
+    }
+
+    private int getField(int node, int field) {
+        return chunks[node >>> CHUNK_SHIFT].getInt(((node & CHUNK_MASK) << NODE_SHIFT) + field);
+    }
+
+    private void setField(int node, int field, int fieldValue) {
+        chunks[node >>> CHUNK_SHIFT].putInt(((node & CHUNK_MASK) << NODE_SHIFT) + field, fieldValue);
+    }
+
+    int value(int node) {
+        return getField(node, VALUE);
+    }
+
+    int left(int node) {
+        return getField(node, LEFT);
+    }
+
+    int right(int node) {
+        return getField(node, RIGHT);
+    }
+
+    int parent(int node) {
+        return getField(node, PARENT) & INDEX_MASK;
+    }
+
+    int color(int node) {
+        return getField(node, PARENT) >>> 31;
+    }
+
+    private void setLeft(int node, int child) {
+        setField(node, LEFT, child);
+    }
+
+    private void setRight(int node, int child) {
+        setField(node, RIGHT, child);
+    }
+
+    private void setParent(int node, int parentNode) {
+        setField(node, PARENT, (getField(node, PARENT) & COLOR_BIT) | parentNode);
+    }
+
+    private void setColor(int node, int color) {
+        setField(node, PARENT, (getField(node, PARENT) & INDEX_MASK) | (color << 31));
+    }
+
+    /**
+     * Releases direct buffer memory right away instead of waiting for GC. Uses sun.misc.Unsafe.invokeCleaner (java 9+)
+     * when it is available, otherwise memory is freed when buffer is garbage collected.
+     */
+    private static final class DirectMemory {
+
+        private static final Object UNSAFE;
+        private static final Method INVOKE_CLEANER;
+
+        static {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                unsafe = theUnsafe.get(null);
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (Exception e) {
+                // java 8 or restricted environment, leave it to GC
+                unsafe = null;
+                invokeCleaner = null;
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+        }
+
+        static void free(ByteBuffer buffer) {
+            if (INVOKE_CLEANER != null) {
+                try {
+                    INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                } catch (Exception e) {
+                    // buffer is unreachable anyway, GC will free it
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.tree2;
+
+/**
+ * Persistent AVL tree (see {@link AbstractPersistentBinarySearchTree}). Node info holds height, rotations create new
+ * nodes instead of relinking old ones, so at most O(log n) nodes are copied per update.
+ */
+public class PersistentAVLTree extends AbstractPersistentBinarySearchTree {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected PersistentNode insert(PersistentNode node, int element) {
+        if (node == null) {
+            return newNode(element, null, null);
+        }
+        if (element < node.value) {
+            return balance(node.value, insert(node.left, element), node.right);
+        }
+        return balance(node.value, node.left, insert(node.right, element));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected PersistentNode delete(PersistentNode node, int element) {
+        if (element < node.value) {
+            return balance(node.value, delete(node.left, element), node.right);
+        }
+        if (element > node.value) {
+            return balance(node.value, node.left, delete(node.right, element));
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        // successor takes place of deleted node
+        PersistentNode successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.value, node.left, deleteMinimum(node.right));
+    }
+
+    private PersistentNode deleteMinimum(PersistentNode node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.value, deleteMinimum(node.left), node.right);
+    }
+
+    /**
+     * Creates node from value and subtrees whose heights differ by at most two, rotating if needed.
+     */
+    private static PersistentNode balance(int value, PersistentNode left, PersistentNode right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right)) { // single right rotation
+                return newNode(left.value, left.left, newNode(value, left.right, right));
+            }
+            PersistentNode middle = left.right; // left-right double rotation
+            return newNode(middle.value, newNode(left.value, left.left, middle.left),
+                    newNode(value, middle.right, right));
+        }
+        if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left)) { // single left rotation
+                return newNode(right.value, newNode(value, left, right.left), right.right);
+            }
+            PersistentNode middle = right.left; // right-left double rotation
+            return newNode(middle.value, newNode(value, left, middle.left),
+                    newNode(right.value, middle.right, right.right));
+        }
+        return newNode(value, left, right);
+    }
+
+    private static PersistentNode newNode(int value, PersistentNode left, PersistentNode right) {
+        return new PersistentNode(value, left, right, 1 + MathUtils.getMax(height(left), height(right)));
+    }
+
+    private static int height(PersistentNode node) {
+        return node == null ? -1 : node.info;
+    }
+
+}
@@ -0,0 +1,188 @@
+package com.tree2;
+
+/**
+ * Persistent red-black tree (see {@link AbstractPersistentBinarySearchTree}). Node info holds color. Insert is
+ * Okasaki's functional insert, delete is S. Kahrs' functional delete ("Red-black trees with types"), both rebuild
+ * only nodes on the search path.
+ */
+public class PersistentRedBlackTree extends AbstractPersistentBinarySearchTree {
+
+    protected static final int RED = 0;
+
+    protected static final int BLACK = 1;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected PersistentNode insert(PersistentNode root, int element) {
+        PersistentNode node = insertRecursive(root, element);
+        return node.info == BLACK ? node : black(node.left, node.value, node.right);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected PersistentNode delete(PersistentNode root, int element) {
+        PersistentNode node = deleteRecursive(root, element);
+        if (node == null || node.info == BLACK) {
+            return node;
+        }
+        return black(node.left, node.value, node.right);
+    }
+
+    private PersistentNode insertRecursive(PersistentNode node, int element) {
+        if (node == null) {
+            return red(null, element, null);
+        }
+        if (node.info == BLACK) {
+            if (element < node.value) {
+                return balance(insertRecursive(node.left, element), node.value, node.right);
+            }
+            return balance(node.left, node.value, insertRecursive(node.right, element));
+        }
+        if (element < node.value) {
+            return red(insertRecursive(node.left, element), node.value, node.right);
+        }
+        return red(node.left, node.value, insertRecursive(node.right, element));
+    }
+
+    /**
+     * Deletes from subtree. If subtree root is black, result has black height lower by one.
+     */
+    private PersistentNode deleteRecursive(PersistentNode node, int element) {
+        if (element < node.value) {
+            if (isBlack(node.left)) {
+                return balanceLeft(deleteRecursive(node.left, element), node.value, node.right);
+            }
+            return red(deleteRecursive(node.left, element), node.value, node.right);
+        }
+        if (element > node.value) {
+            if (isBlack(node.right)) {
+                return balanceRight(node.left, node.value, deleteRecursive(node.right, element));
+            }
+            return red(node.left, node.value, deleteRecursive(node.right, element));
+        }
+        return append(node.left, node.right);
+    }
+
+    /**
+     * Fixes red-red violation below black node (used by insert and delete).
+     */
+    private static PersistentNode balance(PersistentNode left, int value, PersistentNode right) {
+        if (isRed(left) && isRed(right)) {
+            return red(black(left.left, left.value, left.right), value, black(right.left, right.value, right.right));
+        }
+        if (isRed(left) && isRed(left.left)) {
+            return red(black(left.left.left, left.left.value, left.left.right), left.value,
+                    black(left.right, value, right));
+        }
+        if (isRed(left) && isRed(left.right)) {
+            return red(black(left.left, left.value, left.right.left), left.right.value,
+                    black(left.right.right, value, right));
+        }
+        if (isRed(right) && isRed(right.right)) {
+            return red(black(left, value, right.left), right.value,
+                    black(right.right.left, right.right.value, right.right.right));
+        }
+        if (isRed(right) && isRed(right.left)) {
+            return red(black(left, value, right.left.left), right.left.value,
+                    black(right.left.right, right.value, right.right));
+        }
+        return black(left, value, right);
+    }
+
+    /**
+     * Left subtree has black height one lower than right one.
+     */
+    private static PersistentNode balanceLeft(PersistentNode left, int value, PersistentNode right) {
+        if (isRed(left)) {
+            return red(black(left.left, left.value, left.right), value, right);
+        }
+        if (isBlack(right)) {
+            return balance(left, value, red(right.left, right.value, right.right));
+        }
+        if (isRed(right) && isBlack(right.left)) {
+            return red(black(left, value, right.left.left), right.left.value,
+                    balance(right.left.right, right.value, redden(right.right)));
+        }
+        throw new IllegalStateException("Red-black invariant broken");
+    }
+
+    /**
+     * Right subtree has black height one lower than left one.
+     */
+    private static PersistentNode balanceRight(PersistentNode left, int value, PersistentNode right) {
+        if (isRed(right)) {
+            return red(left, value, black(right.left, right.value, right.right));
+        }
+        if (isBlack(left)) {
+            return balance(red(left.left, left.value, left.right), value, right);
+        }
+        if (isRed(left) && isBlack(left.right)) {
+            return red(balance(redden(left.left), left.value, left.right.left), left.right.value,
+                    black(left.right.right, value, right));
+        }
+        throw new IllegalStateException("Red-black invariant broken");
+    }
+
+    /**
+     * Joins two subtrees of deleted node.
+     */
+    private static PersistentNode append(PersistentNode left, PersistentNode right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (isRed(left) && isRed(right)) {
+            PersistentNode middle = append(left.right, right.left);
+            if (isRed(middle)) {
+                return red(red(left.left, left.value, middle.left), middle.value,
+                        red(middle.right, right.value, right.right));
+            }
+            return red(left.left, left.value, red(middle, right.value, right.right));
+        }
+        if (isBlack(left) && isBlack(right)) {
+            PersistentNode middle = append(left.right, right.left);
+            if (isRed(middle)) {
+                return red(black(left.left, left.value, middle.left), middle.value,
+                        black(middle.right, right.value, right.right));
+            }
+            return balanceLeft(left.left, left.value, black(middle, right.value, right.right));
+        }
+        if (isRed(right)) {
+            return red(append(left, right.left), right.value, right.right);
+        }
+        return red(left.left, left.value, append(left.right, right));
+    }
+
+    private static PersistentNode redden(PersistentNode node) {
+        if (!isBlack(node)) {
+            throw new IllegalStateException("Red-black invariant broken");
+        }
+        return red(node.left, node.value, node.right);
+    }
+
+    private static boolean isRed(PersistentNode node) {
+        return node != null && node.info == RED;
+    }
+
+    /**
+     * @return true for black node (not for empty subtree).
+     */
+    private static boolean isBlack(PersistentNode node) {
+        return node != null && node.info == BLACK;
+    }
+
+    private static PersistentNode red(PersistentNode left, int value, PersistentNode right) {
+        return new PersistentNode(value, left, right, RED);
+    }
+
+    private static PersistentNode black(PersistentNode left, int value, PersistentNode right) {
+        return new PersistentNode(value, left, right, BLACK);
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.tree2;
+
+/**
+ * Red-black insert and delete fixups written once for trees whose nodes are int indexes instead of objects
+ * ({@link ArrayRedBlackTree} keeps them in parallel arrays, {@link OffHeapRedBlackTree} in direct buffers). Trees
+ * provide node storage through the accessors, see {@link RedBlackTree} for description of the cases.
+ * <br>
+ * Sentinel node must be black and its parent must be writable, delete fixup starts from it when deleted node had no
+ * children.
+ */
+abstract class RedBlackIndexFixup {
+
+    static final int RED = 0;
+
+    static final int BLACK = 1;
+
+    /**
+     * @return Root node index.
+     */
+    protected abstract int root();
+
+    protected abstract int left(int node);
+
+    protected abstract int right(int node);
+
+    protected abstract int parent(int node);
+
+    /**
+     * @return {@link #RED} or {@link #BLACK}.
+     */
+    protected abstract int color(int node);
+
+    protected abstract void setColor(int node, int color);
+
+    /**
+     * Rotates node to the left, its right child takes its place.
+     */
+    protected abstract void rotateLeft(int node);
+
+    /**
+     * Rotates node to the right, its left child takes its place.
+     */
+    protected abstract void rotateRight(int node);
+
+    /**
+     * Restores red-black properties after insert of red node.
+     */
+    void insertFixup(int currentNode) {
+        while (color(parent(currentNode)) == RED) {
+            int parentNode = parent(currentNode);
+            int grandParent = parent(parentNode);
+            if (parentNode == left(grandParent)) {
+                int uncle = right(grandParent);
+                if (color(uncle) == RED) { // case 1
+                    setColor(parentNode, BLACK);
+                    setColor(uncle, BLACK);
+                    setColor(grandParent, RED);
+                    currentNode = grandParent;
+                } else {
+                    if (currentNode == right(parentNode)) { // case 2
+                        currentNode = parentNode;
+                        rotateLeft(currentNode);
+                        parentNode = parent(currentNode);
+                    }
+                    setColor(parentNode, BLACK); // case 3
+                    setColor(grandParent, RED);
+                    rotateRight(grandParent);
+                }
+            } else {
+                int uncle = left(grandParent);
+                if (color(uncle) == RED) { // case 1
+                    setColor(parentNode, BLACK);
+                    setColor(uncle, BLACK);
+                    setColor(grandParent, RED);
+                    currentNode = grandParent;
+                } else {
+                    if (currentNode == left(parentNode)) { // case 2
+                        currentNode = parentNode;
+                        rotateRight(currentNode);
+                        parentNode = parent(currentNode);
+                    }
+                    setColor(parentNode, BLACK); // case 3
+                    setColor(grandParent, RED);
+                    rotateLeft(grandParent);
+                }
+            }
+        }
+        setColor(root(), BLACK);
+    }
+
+    /**
+     * Restores red-black properties after black node was removed.
+     *
+     * @param x Node which took place of removed or moved node (may be sentinel with parent set).
+     */
+    void deleteFixup(int x) {
+        while (x != root() && color(x) == BLACK) {
+            int xParent = parent(x);
+            if (x == left(xParent)) {
+                int w = right(xParent);
+                if (color(w) == RED) { // case 1 - sibling is red
+                    setColor(w, BLACK);
+                    setColor(xParent, RED);
+                    rotateLeft(xParent);
+                    w = right(xParent);
+                }
+                if (color(left(w)) == BLACK && color(right(w)) == BLACK) { // case 2
+                    setColor(w, RED);
+                    x = xParent;
+                } else {
+                    if (color(right(w)) == BLACK) { // case 3
+                        setColor(left(w), BLACK);
+                        setColor(w, RED);
+                        rotateRight(w);
+                        w = right(xParent);
+                    }
+                    setColor(w, color(xParent)); // case 4
+                    setColor(xParent, BLACK);
+                    setColor(right(w), BLACK);
+                    rotateLeft(xParent);
+                    x = root();
+                }
+            } else {
+                int w = left(xParent);
+                if (color(w) == RED) { // case 1 - sibling is red
+                    setColor(w, BLACK);
+                    setColor(xParent, RED);
+                    rotateRight(xParent);
+                    w = left(xParent);
+                }
+                if (color(right(w)) == BLACK && color(left(w)) == BLACK) { // case 2
+                    setColor(w, RED);
+                    x = xParent;
+                } else {
+                    if (color(left(w)) == BLACK) { // case 3
+                        setColor(right(w), BLACK);
+                        setColor(w, RED);
+                        rotateLeft(w);
+                        w = left(xParent);
+                    }
+                    setColor(w, color(xParent)); // case 4
+                    setColor(xParent, BLACK);
+                    setColor(left(w), BLACK);
+                    rotateRight(xParent);
+                    x = root();
+                }
+            }
+        }
+        setColor(x, BLACK);
+    }
+
+}
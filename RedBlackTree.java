@@ -1,5 +1,7 @@
 package com.tree2;
 
+import java.util.ArrayDeque;
+
 /**
  * 红黑树实现。<br>
  * 	红黑树是介于二叉搜索树和平衡二叉树之间的一种数据结构<br>
@@ -15,14 +17,57 @@ package com.tree2;
  *	性质4. 从任一节点到其每个叶子的所有路径都包含相同数目的黑色节点。
  * 
  */
-public class RedBlackTree extends AbstractSelfBalancingBinarySearchTree {
+public class RedBlackTree extends AbstractJoinableBinarySearchTree {
 
     protected enum ColorEnum {
         RED,
         BLACK
     };
 
-    protected static final RedBlackNode nilNode = new RedBlackNode(null, null, null, null, ColorEnum.BLACK);
+    /**
+     * Sentinel node used instead of null children. Each tree has its own, because delete writes its parent field, so
+     * shared sentinel would make separate trees used from different threads corrupt each other.
+     */
+    protected final RedBlackNode nilNode = new RedBlackNode(0, null, null, null, ColorEnum.BLACK);
+
+    /**
+     * Constructor.
+     */
+    public RedBlackTree() {
+        super();
+        nil = nilNode;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param orderStatistic If true nodes keep subtree sizes, see {@link #select(int)} and {@link #rank(int)}.
+     */
+    public RedBlackTree(boolean orderStatistic) {
+        this();
+        this.orderStatistic = orderStatistic;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param orderStatistic If true nodes keep subtree sizes, see {@link #select(int)} and {@link #rank(int)}.
+     * @param multiset If true equal keys share one node with occurrence count, see {@link #count(int)}.
+     */
+    public RedBlackTree(boolean orderStatistic, boolean multiset) {
+        this(orderStatistic);
+        this.multiset = multiset;
+    }
+
+    /**
+     * @param sortedKeys Keys in non-decreasing order.
+     * @return Tree built with {@link #bulkLoad(int[])}.
+     */
+    public static RedBlackTree fromSorted(int[] sortedKeys) {
+        RedBlackTree tree = new RedBlackTree();
+        tree.bulkLoad(sortedKeys);
+        return tree;
+    }
     
     public static void main(String[] args) {
 		RedBlackTree rbt = new RedBlackTree();
@@ -65,9 +110,13 @@ public class RedBlackTree extends AbstractSelfBalancingBinarySearchTree {
      * 红黑树插入
      */
     @Override
-    public Node insert(int element) {
+    protected Node insert(int element, Node start, boolean ifAbsent) {
     	//插入还是按照正常的二叉树进行插入。同时将其子节点全部设置为null
-        Node newNode = super.insert(element);
+        Node newNode = super.insert(element, start, ifAbsent);
+        if (!lastInsertCreated) {
+            // existing node was found (or counted in multiset tree), structure did not change
+            return newNode;
+        }
         newNode.left = nilNode;
         newNode.right = nilNode;
         root.parent = nilNode;
@@ -111,6 +160,9 @@ public class RedBlackTree extends AbstractSelfBalancingBinarySearchTree {
             }
             
             size--;
+            if (orderStatistic) {
+                updateSubtreeSizes(replaceNode.parent);
+            }
             if (removedOrMovedNodeColor == ColorEnum.BLACK) {
                 deleteRBFixup((RedBlackNode)replaceNode);
             }
@@ -127,6 +179,179 @@ public class RedBlackTree extends AbstractSelfBalancingBinarySearchTree {
         return new RedBlackNode(value, parent, left, right, ColorEnum.RED);
     }
     
+    /**
+     * Levels above the deepest one are full, so coloring them black gives every path the same number of black nodes.
+     * Deepest level is red (its parents are black), root is always black.
+     */
+    @Override
+    protected void bulkLoadedNode(Node node, int depth, int maxDepth) {
+        super.bulkLoadedNode(node, depth, maxDepth);
+        ((RedBlackNode) node).color = depth == maxDepth && depth > 0 ? ColorEnum.RED : ColorEnum.BLACK;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RedBlackTree split(int key) {
+        return (RedBlackTree) super.split(key);
+    }
+
+    /**
+     * Red-black join: middle node goes down the right (left) spine of the tree with bigger black height to the first
+     * black node with the same black height as the other tree and becomes red, red-red violation is fixed by rotation
+     * on the way back. Black heights are ranks of subtrees, they are not stored in nodes but passed along by join
+     * algorithms. Detached subtrees and joined subtree always have black root, so the rank of joined subtree is known
+     * from its root.
+     */
+    @Override
+    protected Node join(Node left, int leftRank, Node middle, Node right, int rightRank) {
+        RedBlackNode middleNode = (RedBlackNode) middle;
+        Node joined;
+        if (leftRank > rightRank) {
+            joined = joinRight(left, middleNode, right, leftRank, rightRank);
+        } else if (leftRank < rightRank) {
+            joined = joinLeft(left, middleNode, right, leftRank, rightRank);
+        } else {
+            joined = link(middleNode, left, right);
+        }
+        ((RedBlackNode) joined).color = ColorEnum.BLACK;
+        return joined;
+    }
+
+    /**
+     * @return Black height of subtree, its red root is made black (O(log n) walk on the leftmost path).
+     */
+    @Override
+    protected int detachedRank(Node subtree) {
+        if (isRed(subtree)) {
+            ((RedBlackNode) subtree).color = ColorEnum.BLACK;
+        }
+        return blackHeight(subtree);
+    }
+
+    /**
+     * Parent is black, so black child is one level lower, red child is made black and stays at the same level.
+     */
+    @Override
+    protected int detachedChildRank(Node parent, int parentRank, Node child) {
+        if (isRed(child)) {
+            ((RedBlackNode) child).color = ColorEnum.BLACK;
+            return parentRank;
+        }
+        return parentRank - 1;
+    }
+
+    /**
+     * Root of higher tree stays root when no rotation reached it, otherwise the black root is one level above it.
+     */
+    @Override
+    protected int joinedRank(Node joined, Node left, int leftRank, Node right, int rightRank) {
+        if (leftRank > rightRank) {
+            return joined == left ? leftRank : leftRank + 1;
+        }
+        if (leftRank < rightRank) {
+            return joined == right ? rightRank : rightRank + 1;
+        }
+        return leftRank + 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected AbstractJoinableBinarySearchTree createTree() {
+        return new RedBlackTree(orderStatistic, multiset);
+    }
+
+    /**
+     * Moved nodes point to sentinel of their old tree, they are relinked to this tree's sentinel (O(size of subtree)).
+     */
+    @Override
+    protected void adoptNodes(Node subtree, Node foreignNil) {
+        if (foreignNil == nilNode || isNil(subtree) || subtree == foreignNil) {
+            return;
+        }
+        ArrayDeque<Node> stack = new ArrayDeque<Node>();
+        stack.push(subtree);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node.left == foreignNil) {
+                node.left = nilNode;
+            } else {
+                stack.push(node.left);
+            }
+            if (node.right == foreignNil) {
+                node.right = nilNode;
+            } else {
+                stack.push(node.right);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setJoinedRoot(Node subtree, int newSize) {
+        super.setJoinedRoot(subtree, newSize);
+        if (root != null) {
+            ((RedBlackNode) root).color = ColorEnum.BLACK;
+        }
+    }
+
+    /**
+     * @param left Tree with black height leftBlackHeight &gt;= rightBlackHeight.
+     */
+    private Node joinRight(Node left, RedBlackNode middle, Node right, int leftBlackHeight, int rightBlackHeight) {
+        if (isBlack(left) && leftBlackHeight == rightBlackHeight) {
+            middle.color = ColorEnum.RED;
+            return link(middle, left, right);
+        }
+        RedBlackNode node = (RedBlackNode) left;
+        int childBlackHeight = leftBlackHeight - (node.color == ColorEnum.BLACK ? 1 : 0);
+        Node joined = joinRight(node.right, middle, right, childBlackHeight, rightBlackHeight);
+        link(node, node.left, joined);
+        if (node.color == ColorEnum.BLACK && isRed(joined) && isRed(joined.right)) {
+            ((RedBlackNode) joined.right).color = ColorEnum.BLACK;
+            return rotateSubtreeLeft(node);
+        }
+        return node;
+    }
+
+    /**
+     * @param right Tree with black height rightBlackHeight &gt;= leftBlackHeight.
+     */
+    private Node joinLeft(Node left, RedBlackNode middle, Node right, int leftBlackHeight, int rightBlackHeight) {
+        if (isBlack(right) && leftBlackHeight == rightBlackHeight) {
+            middle.color = ColorEnum.RED;
+            return link(middle, left, right);
+        }
+        RedBlackNode node = (RedBlackNode) right;
+        int childBlackHeight = rightBlackHeight - (node.color == ColorEnum.BLACK ? 1 : 0);
+        Node joined = joinLeft(left, middle, node.left, leftBlackHeight, childBlackHeight);
+        link(node, joined, node.right);
+        if (node.color == ColorEnum.BLACK && isRed(joined) && isRed(joined.left)) {
+            ((RedBlackNode) joined.left).color = ColorEnum.BLACK;
+            return rotateSubtreeRight(node);
+        }
+        return node;
+    }
+
+    /**
+     * @return Number of black nodes (sentinel not counted) on the leftmost path of subtree.
+     */
+    private int blackHeight(Node node) {
+        int height = 0;
+        while (!isNil(node)) {
+            if (((RedBlackNode) node).color == ColorEnum.BLACK) {
+                height++;
+            }
+            node = node.left;
+        }
+        return height;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -175,6 +400,13 @@ public class RedBlackTree extends AbstractSelfBalancingBinarySearchTree {
         } else {
             root = temp;
         }
+        if (orderStatistic) {
+            updateSubtreeSize(node);
+            updateSubtreeSize(temp);
+        }
+        if (listener != null) {
+            listener.onRotation();
+        }
         
         return temp;
     }
@@ -205,6 +437,13 @@ public class RedBlackTree extends AbstractSelfBalancingBinarySearchTree {
         } else {
             root = temp;
         }
+        if (orderStatistic) {
+            updateSubtreeSize(node);
+            updateSubtreeSize(temp);
+        }
+        if (listener != null) {
+            listener.onRotation();
+        }
         
         return temp;
     }
@@ -229,8 +468,9 @@ public class RedBlackTree extends AbstractSelfBalancingBinarySearchTree {
      * Restores Red-Black tree properties after delete if needed.
      */
     private void deleteRBFixup(RedBlackNode x) {
+        int steps = 0;
         while (x != root && isBlack(x)) {
-            
+            steps++;
             if (x == x.parent.left) {
                 RedBlackNode w = (RedBlackNode)x.parent.right;
                 if (isRed(w)) { // case 1 - sibling is red
@@ -290,6 +530,11 @@ public class RedBlackTree extends AbstractSelfBalancingBinarySearchTree {
             }
             
         }
+        // x is red (or root), making it black restores the missing black node on its path
+        x.color = ColorEnum.BLACK;
+        if (listener != null) {
+            listener.onRebalance(steps);
+        }
     }
     
     private boolean isBlack(Node node) {
@@ -328,7 +573,9 @@ public class RedBlackTree extends AbstractSelfBalancingBinarySearchTree {
         // current node is always RED, so if its parent is red it breaks
         // Red-Black property, otherwise no fixup needed and loop can terminate
     	//当前节点的父节点为红色
+        int steps = 0;
         while (currentNode.parent != root && ((RedBlackNode) currentNode.parent).color == ColorEnum.RED) {
+            steps++;
         	//当前节点的父节点
             RedBlackNode parent = (RedBlackNode) currentNode.parent;
             //当前节点的祖父节点
@@ -398,6 +645,9 @@ public class RedBlackTree extends AbstractSelfBalancingBinarySearchTree {
         }
         // 根节点是黑色的
         ((RedBlackNode) root).color = ColorEnum.BLACK;
+        if (listener != null) {
+            listener.onRebalance(steps);
+        }
     }
 
     /**
@@ -407,7 +657,7 @@ public class RedBlackTree extends AbstractSelfBalancingBinarySearchTree {
     protected static class RedBlackNode extends Node {
         public ColorEnum color;
 
-        public RedBlackNode(Integer value, Node parent, Node left, Node right, ColorEnum color) {
+        public RedBlackNode(int value, Node parent, Node left, Node right, ColorEnum color) {
             super(value, parent, left, right);
             this.color = color;
         }
@@ -1,14 +1,21 @@
 package com.tree2;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Stack;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 import com.tree2.MathUtils;
 
 /**
  * Scapegoat tree non recursive implementation.
- * Warning: not sure if my implementations is really correct, didn't have time to learn more about scapegoat trees.
+ * <br>
+ * By default unbalanced subtree is rebuilt at once, in place (Day-Stout-Warren: subtree is rotated to a vine and
+ * vine is compressed to complete tree, no allocation). Tree created with rebuild budget rebuilds incrementally
+ * instead: subtree which is not larger than budget is rebuilt at once, bigger one is queued and every following insert
+ * and delete does at most budget rotations of queued rebuilds, so no single operation pays O(n). Incremental rebuild
+ * selects medians by subtree sizes, so such tree always keeps them ({@link #orderStatistic} is on).
  * 
  * @author Ignas Lelys
  * @created Jul 28, 2011
@@ -17,15 +24,47 @@ import com.tree2.MathUtils;
 public class ScapegoatTree extends AbstractSelfBalancingBinarySearchTree {
 
     /** Alpha parameter. */
-    private double alpha = 0.57;
+    private final double alpha;
+
+    /**
+     * Index is height h, value is the smallest size whose alpha-height floor(log_{1/alpha}(size)) is at least h. Node
+     * at depth h (or subtree of height h) is too deep for size below it, heights past the end are too deep for any
+     * int size. Replaces logarithm per insert and per scapegoat candidate.
+     */
+    private final int[] alphaHeightSizes;
     
     private int maxSize = 0;
+
+    /** Rotations of incremental rebuild done per insert or delete, 0 if subtrees are rebuilt at once. */
+    private final int rebuildBudget;
+
+    /** Subtrees waiting for incremental rebalancing, first one is in progress. */
+    private final ArrayDeque<Node> pendingRebuilds = new ArrayDeque<Node>();
+
+    /** Roots of queued subtrees, deleted root is replaced by node which takes its place. */
+    private final Set<Node> queuedSubtrees = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+
+    /**
+     * Nodes which were too deep when inserted during incremental rebuild. Their scapegoats were found in tree which
+     * was not balanced yet, so they are checked again after queued rebuilds are done.
+     */
+    private final ArrayDeque<Node> tooDeepNodes = new ArrayDeque<Node>();
+
+    /** Parent of subtree during in place rebuild. */
+    private final Node pseudoRoot = new Node(0, null, null, null);
+
+    private final NodeVisitor subtreeSizeUpdater = new NodeVisitor() {
+        @Override
+        public void visit(Node node, int depth) {
+            updateSubtreeSize(node);
+        }
+    };
     
     /**
      * Constructor.
      */
     public ScapegoatTree() {
-        super();
+        this(0.57, 0);
     }
 
     /**
@@ -34,50 +73,142 @@ public class ScapegoatTree extends AbstractSelfBalancingBinarySearchTree {
      * @param alpha Alpha parameter.
      */
     public ScapegoatTree(double alpha) {
+        this(alpha, 0);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param orderStatistic If true nodes keep subtree sizes, see {@link #select(int)} and {@link #rank(int)}. Sizes
+     *            also make finding scapegoat O(log n), without them nodes of scapegoat subtree are counted (O(size of
+     *            scapegoat subtree), the same as its rebuild, so amortized cost of insert stays O(log n)).
+     */
+    public ScapegoatTree(boolean orderStatistic) {
+        this(0.57, 0, orderStatistic);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param alpha Alpha parameter.
+     * @param rebuildBudget If positive, subtrees are rebalanced incrementally with at most this many rotations per
+     *            insert or delete. Positive budget turns subtree sizes on ({@link #orderStatistic}, see
+     *            {@link #select(int)}), incremental rebuild needs them.
+     */
+    public ScapegoatTree(double alpha, int rebuildBudget) {
+        this(alpha, rebuildBudget, rebuildBudget > 0);
+    }
+
+    private ScapegoatTree(double alpha, int rebuildBudget, boolean orderStatistic) {
         super();
+        if (!(alpha > 0.5 && alpha < 1)) {
+            throw new IllegalArgumentException("Alpha must be in (0.5, 1): " + alpha);
+        }
+        if (rebuildBudget < 0) {
+            throw new IllegalArgumentException("Rebuild budget must not be negative: " + rebuildBudget);
+        }
         this.alpha = alpha;
+        this.rebuildBudget = rebuildBudget;
+        this.orderStatistic = orderStatistic;
+        this.alphaHeightSizes = computeAlphaHeightSizes(alpha);
+    }
+
+    /**
+     * @param sortedKeys Keys in non-decreasing order.
+     * @return Tree built with {@link #bulkLoad(int[])}.
+     */
+    public static ScapegoatTree fromSorted(int[] sortedKeys) {
+        ScapegoatTree tree = new ScapegoatTree();
+        tree.bulkLoad(sortedKeys);
+        return tree;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public Node insert(int element) {
-        Node inserted = super.insert(element);
-        int height = getNodeHeight(inserted);
-        if (height > getHAlpha()) {
+    public void bulkLoad(int[] sortedKeys) {
+        super.bulkLoad(sortedKeys);
+        pendingRebuilds.clear();
+        queuedSubtrees.clear();
+        tooDeepNodes.clear();
+        maxSize = getSize();
+    }
+
+    /**
+     * Descent always starts from the root (start is ignored), alpha-height test needs depth of the new node.
+     * 
+     * @see AbstractBinarySearchTree#insert(int, Node, boolean)
+     */
+    @Override
+    protected Node insert(int element, Node start, boolean ifAbsent) {
+        Node inserted = super.insert(element, root, ifAbsent);
+        if (lastInsertCreated && exceedsAlphaHeight(lastInsertDepth, getSize())) {
             Node scapegoat = findScapegoatNode(inserted);
-            Node scapegoatParent = scapegoat.parent;
-            boolean scapegoatOnParentsLeft = scapegoatParent != null && scapegoatParent.left == scapegoat;
-            Node rebuiltSubtree = rebuildTree(getSubtreeSize(scapegoat), scapegoat);
-            rebuiltSubtree.parent = scapegoatParent;
-            if (scapegoatParent != null) {
-                if (scapegoatOnParentsLeft) {
-                    scapegoatParent.left = rebuiltSubtree;
-                } else {
-                    scapegoatParent.right = rebuiltSubtree;
+            if (rebuildBudget > 0) {
+                if (subtreeSize(scapegoat) <= rebuildBudget) {
+                    rebuildScapegoat(scapegoat);
+                } else if (pendingRebuilds.peek() != scapegoat) {
+                    startRebuild(scapegoat);
                 }
-            }
-            if (scapegoat == root) {
-                root = rebuiltSubtree;
+                tooDeepNodes.add(inserted);
+            } else {
+                rebuildScapegoat(scapegoat);
             }
             maxSize = getSize();
         }
+        rebuildStep();
         return inserted;
     }
     
     /**
+     * Rebuilds whole tree when it shrank below alpha of its maximum size.
+     * 
      * {@inheritDoc}
      */
     @Override
-    public Node delete(int element) {
-        Node replaceNode = super.delete(element);
+    protected Node delete(Node deleteNode) {
+        boolean queued = queuedSubtrees.remove(deleteNode);
+        Node replaceNode = super.delete(deleteNode);
+        if (queued && replaceNode != null) {
+            // stale entry of deleted root is skipped, its subtree is rebalanced from the node in its place
+            pendingRebuilds.addFirst(replaceNode);
+            queuedSubtrees.add(replaceNode);
+        }
         if (getSize() <= alpha * maxSize) {
-            root = rebuildTree(getSize(), root);
-            maxSize = getSize();
+            if (rebuildBudget > 0) {
+                // queued before pending subtree rebuilds, which continue after it
+                if (root != null && pendingRebuilds.peek() != root) {
+                    startRebuild(root);
+                }
+                maxSize = getSize();
+            } else {
+                root = rebuildTree(root);
+                if (root != null) {
+                    root.parent = null;
+                }
+                maxSize = getSize();
+            }
         }
+        rebuildStep();
         return replaceNode;
     }
+
+    /**
+     * @return true if incremental rebuild is in progress.
+     */
+    public boolean isRebuilding() {
+        return !pendingRebuilds.isEmpty() || !tooDeepNodes.isEmpty();
+    }
+
+    /**
+     * Completes pending incremental rebuild now, afterwards every node is within alpha-height of tree size.
+     */
+    public void finishRebuild() {
+        while (isRebuilding()) {
+            rebuildStep(Integer.MAX_VALUE);
+        }
+    }
     
     /**
      * {@inheritDoc}
@@ -88,9 +219,12 @@ public class ScapegoatTree extends AbstractSelfBalancingBinarySearchTree {
     }
     
     /**
-     * Finds scapegoat node which is used for rebalancing the tree.
+     * Finds scapegoat node which is used for rebalancing the tree. Too deep node always has one, root is returned if
+     * none was found (only if depth and sizes disagree, rebuilding whole tree is always safe). With subtree sizes
+     * O(log n). Without them size of every ancestor is its child's size plus counted sibling subtree, so all counted
+     * nodes are inside scapegoat subtree: O(size of scapegoat subtree), which the rebuild visits anyway.
      * 
-     * @return Scapegoat node.
+     * @return Scapegoat node, never null.
      */
     protected Node findScapegoatNode(Node node) {
         int size = 1;
@@ -98,128 +232,253 @@ public class ScapegoatTree extends AbstractSelfBalancingBinarySearchTree {
         int totalSize = 0;
         while (node.parent != null) {
             height++;
-            totalSize = 1 + size + getSubtreeSize(getSibling(node));
-            if (height > Math.floor(MathUtils.logarithm(1 / alpha, totalSize))) {
+            Node sibling = node.parent.left == node ? node.parent.right : node.parent.left;
+            totalSize = orderStatistic ? subtreeSize(node.parent) : 1 + size + countElements(sibling);
+            if (exceedsAlphaHeight(height, totalSize)) {
                 return node.parent;
             }
             node = node.parent;
             size = totalSize;
         }
-        return null;
+        assert false : "No scapegoat above too deep node";
+        return root;
+    }
+
+    /**
+     * Rebuilds scapegoat subtree at once and puts it in place of scapegoat.
+     */
+    private void rebuildScapegoat(Node scapegoat) {
+        Node scapegoatParent = scapegoat.parent;
+        boolean scapegoatOnParentsLeft = scapegoatParent != null && scapegoatParent.left == scapegoat;
+        Node rebuiltSubtree = rebuildTree(scapegoat);
+        rebuiltSubtree.parent = scapegoatParent;
+        if (scapegoatParent != null) {
+            if (scapegoatOnParentsLeft) {
+                scapegoatParent.left = rebuiltSubtree;
+            } else {
+                scapegoatParent.right = rebuiltSubtree;
+            }
+        }
+        if (scapegoat == root) {
+            root = rebuiltSubtree;
+        }
     }
 
     /**
-     * Rebuilds unbalanced tree.
-     * Found this implementation much clearer and easier to make it work: https://github.com/satchamo/Scapegoat-Tree/blob/master/scapegoat.py
-     * Could't get implementations from pdfs to work.
+     * Rebuilds unbalanced subtree in place with Day-Stout-Warren algorithm: right rotations turn subtree into vine
+     * (sorted list linked by right children), then left rotations of every second vine node compress it into complete
+     * tree. O(size) time, O(1) memory. Rebuild is reported to listener with number of nodes of subtree.
+     * 
+     * @param scapegoat Root of subtree.
      * 
-     * @param size Size of subtree.
-     * @param scapegoat Scapegoat is the root of subtree of {@link size} number of nodes.
+     * @return Balanced subtree (its parent link is set by caller).
+     */
+    protected Node rebuildTree(Node scapegoat) {
+        if (scapegoat == null) {
+            return null;
+        }
+        pseudoRoot.right = scapegoat;
+        scapegoat.parent = pseudoRoot;
+        int nodes = treeToVine();
+        if (listener != null) {
+            listener.onRebuild(nodes);
+        }
+        int leaves = nodes + 1 - Integer.highestOneBit(nodes + 1);
+        compress(leaves);
+        for (int vineSize = nodes - leaves; vineSize > 1; vineSize /= 2) {
+            compress(vineSize / 2);
+        }
+        Node rebuilt = pseudoRoot.right;
+        if (orderStatistic) {
+            traverse(rebuilt, TraversalOrder.POST_ORDER, subtreeSizeUpdater);
+        }
+        pseudoRoot.right = null;
+        return rebuilt;
+    }
+
+    /**
+     * Turns subtree under pseudo root into vine.
      * 
-     * @return Balanced subtree.
-     */
-    protected Node rebuildTree(int size, Node scapegoat) {
-        List<Node> nodes = new ArrayList<Node>();
-        
-        // flatten tree without recursion
-        Node currentNode = scapegoat;
-        boolean done = false;
-        Stack<Node> stack = new Stack<Node>();
-        while (!done) {
-            if (currentNode != null) {
-                stack.push(currentNode);
-                currentNode = currentNode.left;
+     * @return Number of nodes.
+     */
+    private int treeToVine() {
+        int nodes = 0;
+        Node tail = pseudoRoot;
+        Node rest = tail.right;
+        while (rest != null) {
+            if (rest.left == null) {
+                nodes++;
+                tail = rest;
+                rest = rest.right;
             } else {
-                if (!stack.isEmpty()) {
-                    currentNode = stack.pop();
-                    nodes.add(currentNode);
-                    currentNode = currentNode.right;
-                } else {
-                    done = true;
+                // rotate right
+                Node left = rest.left;
+                rest.left = left.right;
+                if (left.right != null) {
+                    left.right.parent = rest;
                 }
+                left.right = rest;
+                rest.parent = left;
+                rest = left;
+                tail.right = left;
+                left.parent = tail;
             }
         }
-        
-        // build tree from flattened list of nodes
-        return buildTree(nodes, 0, size - 1);
+        return nodes;
     }
-    
+
     /**
-     * Build balanced tree from flattened tree.
+     * Left rotation of every second node of first count pairs of vine under pseudo root.
      */
-    private Node buildTree(List<Node> nodes, int start, int end) {
-        int middle = (int)Math.ceil(((double)(start + end)) / 2.0);
-        if (start > end) {
-            return null;
+    private void compress(int count) {
+        Node scanner = pseudoRoot;
+        for (int i = 0; i < count; i++) {
+            Node child = scanner.right;
+            Node next = child.right;
+            scanner.right = next;
+            next.parent = scanner;
+            child.right = next.left;
+            if (next.left != null) {
+                next.left.parent = child;
+            }
+            next.left = child;
+            child.parent = next;
+            scanner = next;
         }
+    }
 
-        // middle becomes root of subtree instead of scapegoat
-        Node node = nodes.get(middle);
-        
-        // recursively get left and right nodes
-        Node leftNode = buildTree(nodes, start, middle - 1);
-        node.left = leftNode;
-        if (leftNode != null) {
-            leftNode.parent = node;
+    /**
+     * Queues subtree for incremental rebalancing. Newest rebuild goes first, older ones continue after it.
+     */
+    private void startRebuild(Node subtree) {
+        pendingRebuilds.addFirst(subtree);
+        queuedSubtrees.add(subtree);
+        if (listener != null) {
+            listener.onRebuild(subtreeSize(subtree));
         }
-        Node rightNode = buildTree(nodes, middle + 1, end);
-        node.right = rightNode;
-        if (rightNode != null) {
-            rightNode.parent = node;
+    }
+
+    private void rebuildStep() {
+        if (isRebuilding()) {
+            rebuildStep(rebuildBudget);
         }
-        return node;
     }
-    
+
     /**
-     * @return Node's sibling.
+     * Incremental rebalancing: median of first queued subtree is rotated up to subtree root, then both its children
+     * are queued. Tree stays valid between steps, subtree whose root was deleted in the meantime is skipped. When queue
+     * is empty, nodes which were inserted too deep are checked again and scapegoats of those still too deep are queued:
+     * scapegoat of lowest too deep ancestor is never balanced, so every such rebuild makes the node shallower.
+     * 
+     * @param budget Maximum number of rotations plus visited queued subtrees and checked nodes.
      */
-    // TODO move to AbstractBinaySearchTree and use in other trees where needed.
-    private Node getSibling(Node node) {
-        if (node.parent != null) {
-            if (node.parent.left == node) {
-                return node.parent.right;
-            } else {
-                return node.parent.left;
+    private void rebuildStep(int budget) {
+        while (budget > 0 && isRebuilding()) {
+            budget--;
+            if (pendingRebuilds.isEmpty()) {
+                Node node = tooDeepNodes.poll();
+                if (isAttached(node) && exceedsAlphaHeight(depth(node), getSize())) {
+                    startRebuild(findScapegoatNode(node));
+                    tooDeepNodes.add(node);
+                }
+                continue;
+            }
+            Node subtree = pendingRebuilds.peek();
+            int subtreeSize = subtreeSize(subtree);
+            if (subtreeSize < 3 || !isAttached(subtree)) {
+                queuedSubtrees.remove(pendingRebuilds.poll());
+                continue;
+            }
+            Node top = subtree.parent;
+            Node median = selectInSubtree(subtree, subtreeSize / 2);
+            while (median.parent != top && budget > 0) {
+                if (median == median.parent.left) {
+                    rotateRight(median.parent);
+                } else {
+                    rotateLeft(median.parent);
+                }
+                budget--;
+            }
+            if (median.parent == top) {
+                queuedSubtrees.remove(pendingRebuilds.poll());
+                if (median.left != null) {
+                    pendingRebuilds.add(median.left);
+                    queuedSubtrees.add(median.left);
+                }
+                if (median.right != null) {
+                    pendingRebuilds.add(median.right);
+                    queuedSubtrees.add(median.right);
+                }
             }
         }
-        return null;
     }
-    
+
+    private static int depth(Node node) {
+        int depth = 0;
+        for (Node ancestor = node.parent; ancestor != null; ancestor = ancestor.parent) {
+            depth++;
+        }
+        return depth;
+    }
+
     /**
-     * Calculate size of subtree.
-     * 
-     * @param node
-     *            Subtree root node.
-     * @return Number of elements in the subtree.
+     * @return true if node is reachable from root.
      */
-    // TODO move to AbstractBinaySearchTree
-    protected int getSubtreeSize(Node node) {
-        if (node == null) {
-            return 0;
+    private boolean isAttached(Node node) {
+        while (node.parent != null) {
+            if (node.parent.left != node && node.parent.right != node) {
+                return false;
+            }
+            node = node.parent;
         }
-        if (node.isLeaf()) {
-            return 1;
-        } else {
-            int sum = 1;
-            sum += getSubtreeSize(node.left);
-            sum += getSubtreeSize(node.right);
-            return sum;
+        return node == root;
+    }
+
+    /**
+     * @return Node with given index (0 based, in ascending order) inside subtree.
+     */
+    private Node selectInSubtree(Node node, int index) {
+        while (true) {
+            int leftSize = subtreeSize(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index < leftSize + node.getCount()) {
+                return node;
+            } else {
+                index -= leftSize + node.getCount();
+                node = node.right;
+            }
         }
     }
     
-    // TODO move to AbstractBinaySearchTree
-    protected int getNodeHeight(Node node) {
-        if (node == null) {
-            return -1;
-        } else if (node.parent == null) {
-            return 0;
-        } else {
-            return getNodeHeight(node.parent) + 1;
-        }
+    /**
+     * @return true if height is greater than alpha-height of size, floor(log_{1/alpha}(size)).
+     */
+    private boolean exceedsAlphaHeight(int height, int size) {
+        return height >= alphaHeightSizes.length || size < alphaHeightSizes[height];
     }
 
-    private int getHAlpha() {
-        return (int)Math.floor(MathUtils.logarithm(1 / alpha, (double)getSize()));
+    private static int[] computeAlphaHeightSizes(double alpha) {
+        double base = 1 / alpha;
+        int[] sizes = new int[16];
+        int height = 0;
+        while (true) {
+            // start from the power and correct it by the same logarithm formula which defines alpha-height
+            long size = Math.max(1, (long) Math.ceil(Math.pow(base, height)));
+            while (size > 1 && Math.floor(MathUtils.logarithm(base, size - 1)) >= height) {
+                size--;
+            }
+            while (Math.floor(MathUtils.logarithm(base, size)) < height) {
+                size++;
+            }
+            if (size > Integer.MAX_VALUE) {
+                return Arrays.copyOf(sizes, height);
+            }
+            if (height == sizes.length) {
+                sizes = Arrays.copyOf(sizes, height * 2);
+            }
+            sizes[height++] = (int) size;
+        }
     }
 
 }
\ No newline at end of file
@@ -1,7 +1,14 @@
 package com.tree2;
 
+import java.util.SplittableRandom;
+
 /**
  * Splay tree implementation.
+ * <br>
+ * By default every successful search splays found node to the root bottom-up. Lookups of read heavy workloads can
+ * be made cheaper with semi-splaying modes (see {@link #SplayTree(boolean, int, double, int)}): splay only every k-th
+ * search, splay with probability p, splay only up to given depth, or splay top-down in the same pass which looks
+ * for the element. Searches which do not splay do not write to the tree. Insert and delete always splay fully.
  * 
  * @author Ignas Lelys
  * @created Jul 19, 2011
@@ -9,24 +16,163 @@ package com.tree2;
  */
 public class SplayTree extends AbstractSelfBalancingBinarySearchTree {
 
+    /** If true search splays top-down. */
+    private final boolean topDown;
+
+    /** Search splays only every splayInterval-th time, 1 means every search. */
+    private final int splayInterval;
+
+    /** Probability that search splays. */
+    private final double splayProbability;
+
+    /** Search splays found node only up to this depth, 0 means to the root. */
+    private final int splayDepth;
+
+    private final SplittableRandom random;
+
+    /** Searches since last interval splay. */
+    private int searches;
+
+    /**
+     * Constructor, every search splays found node to the root.
+     */
+    public SplayTree() {
+        this(false, 1, 1.0, 0);
+    }
+
+    /**
+     * Constructor of semi-splaying tree. Conditions are combined: search splays when it is interval-th search and
+     * random draw passes probability.
+     * 
+     * @param topDown
+     *            If true search splays top-down: tree is split around searched element while descending and
+     *            reassembled with found (or last visited, if element is not in the tree) node as root. Only one pass
+     *            over the path, but unsuccessful search also restructures the tree. Can not be combined with depth.
+     * @param splayInterval
+     *            Search splays only every splayInterval-th time (1 for every search).
+     * @param splayProbability
+     *            Probability in (0, 1] that search splays.
+     * @param splayDepth
+     *            Found node is splayed only until it is at this depth (0 for the root). Nodes which are already
+     *            shallower stay where they are, so hot keys settle near the root without churning it.
+     */
+    public SplayTree(boolean topDown, int splayInterval, double splayProbability, int splayDepth) {
+        this(topDown, splayInterval, splayProbability, splayDepth, new SplittableRandom());
+    }
+
+    /**
+     * Constructor of semi-splaying tree with reproducible random splaying, see
+     * {@link #SplayTree(boolean, int, double, int)}.
+     *
+     * @param seed
+     *            Seed of generator which decides whether search splays, same seed and same operations give the same
+     *            tree.
+     */
+    public SplayTree(boolean topDown, int splayInterval, double splayProbability, int splayDepth, long seed) {
+        this(topDown, splayInterval, splayProbability, splayDepth, new SplittableRandom(seed));
+    }
+
+    /**
+     * Constructor, see {@link #SplayTree(boolean, int, double, int)}.
+     *
+     * @param random
+     *            Generator which decides whether search splays, used only when probability is below 1.
+     */
+    protected SplayTree(boolean topDown, int splayInterval, double splayProbability, int splayDepth,
+            SplittableRandom random) {
+        super();
+        if (splayInterval < 1) {
+            throw new IllegalArgumentException("Splay interval must be positive: " + splayInterval);
+        }
+        if (!(splayProbability > 0 && splayProbability <= 1)) {
+            throw new IllegalArgumentException("Splay probability must be in (0, 1]: " + splayProbability);
+        }
+        if (splayDepth < 0 || (topDown && splayDepth > 0)) {
+            throw new IllegalArgumentException("Invalid splay depth: " + splayDepth);
+        }
+        this.topDown = topDown;
+        this.splayInterval = splayInterval;
+        this.splayProbability = splayProbability;
+        this.splayDepth = splayDepth;
+        this.random = splayProbability < 1 ? random : null;
+    }
+
+    /**
+     * @return Tree which splays top-down on every search.
+     */
+    public static SplayTree topDown() {
+        return new SplayTree(true, 1, 1.0, 0);
+    }
+
+    /**
+     * @param interval Search splays only every interval-th time.
+     * @return Tree which splays on every interval-th search.
+     */
+    public static SplayTree splayEvery(int interval) {
+        return new SplayTree(false, interval, 1.0, 0);
+    }
+
+    /**
+     * @param probability Probability in (0, 1] that search splays.
+     * @return Tree which splays randomly.
+     */
+    public static SplayTree splayWithProbability(double probability) {
+        return new SplayTree(false, 1, probability, 0);
+    }
+
+    /**
+     * @param probability Probability in (0, 1] that search splays.
+     * @param seed Seed of generator which decides whether search splays.
+     * @return Tree which splays randomly, same seed and same operations give the same tree.
+     */
+    public static SplayTree splayWithProbability(double probability, long seed) {
+        return new SplayTree(false, 1, probability, 0, seed);
+    }
+
+    /**
+     * @param depth Found node is splayed until it is at this depth.
+     * @return Tree which splays found nodes only up to given depth.
+     */
+    public static SplayTree splayToDepth(int depth) {
+        return new SplayTree(false, 1, 1.0, depth);
+    }
+
+    /**
+     * @param sortedKeys Keys in non-decreasing order.
+     * @return Tree built with {@link #bulkLoad(int[])}.
+     */
+    public static SplayTree fromSorted(int[] sortedKeys) {
+        SplayTree tree = new SplayTree();
+        tree.bulkLoad(sortedKeys);
+        return tree;
+    }
+
     /**
      * @see org.intelligentjava.algos.trees.AbstractBinarySearchTree#search(int)
      */
     @Override
     public Node search(int element) {
+        if (!shouldSplay()) {
+            return super.search(element);
+        }
+        if (topDown) {
+            return isNil(root) ? null : splayTopDown(element);
+        }
         Node node = super.search(element);
         if (node != null) {
-            splay(node);
+            splay(node, splayDepth);
         }
         return node;
     }
     
     /**
-     * @see org.intelligentjava.algos.trees.AbstractBinarySearchTree#insert(int)
+     * New node, or existing one found by insert if absent, is splayed.
+     *
+     * @see org.intelligentjava.algos.trees.AbstractBinarySearchTree#insert(int, Node, boolean)
      */
     @Override
-    public Node insert(int element) {
-        Node insertNode = super.insert(element);
+    protected Node insert(int element, Node start, boolean ifAbsent) {
+        Node insertNode = super.insert(element, start, ifAbsent);
         splay(insertNode);
         return insertNode;
     }
@@ -38,13 +184,20 @@ public class SplayTree extends AbstractSelfBalancingBinarySearchTree {
     public Node delete(int element) {
         // search first, because need parent to splay, might be improved later if needed
         Node deleteNode = super.search(element); // do not use search with splaying
-        Node successor = null;
-        if (deleteNode != null) {
-            Node parent = deleteNode.parent;
-            successor = super.delete(deleteNode);
-            if (parent != null) {
-                splay(parent);
-            }
+        return deleteNode != null ? deleteOccurrence(deleteNode) : null;
+    }
+
+    /**
+     * Parent of deleted node is splayed.
+     * 
+     * @see org.intelligentjava.algos.trees.AbstractBinarySearchTree#delete(Node)
+     */
+    @Override
+    protected Node delete(Node deleteNode) {
+        Node parent = deleteNode.parent;
+        Node successor = super.delete(deleteNode);
+        if (parent != null) {
+            splay(parent);
         }
         return successor;
     }
@@ -64,44 +217,182 @@ public class SplayTree extends AbstractSelfBalancingBinarySearchTree {
      *            Node to perform splay operation on.
      */
     protected void splay(Node node) {
-        // move node up until its root
-        while (node != root) {
-            // Zig step
+        splay(node, 0);
+    }
+
+    /**
+     * Semi-splay operation. Moves node up with zig-zig and zig-zag steps until it is at target depth (last step is
+     * single rotation if needed).
+     * 
+     * @param node
+     *            Node to perform splay operation on.
+     * @param targetDepth
+     *            Depth where node stops, 0 for the root.
+     */
+    protected void splay(Node node, int targetDepth) {
+        int depth = 0;
+        for (Node ancestor = node.parent; ancestor != null; ancestor = ancestor.parent) {
+            depth++;
+        }
+        int levels = Math.max(0, depth - targetDepth);
+        while (depth > targetDepth) {
             Node parent = node.parent;
-            if (parent.equals(root)) {
-                if (node.equals(parent.left)) {
+            // Zig step
+            if (depth == targetDepth + 1) {
+                if (node == parent.left) {
                     rotateRight(parent);
-                } else if (node.equals(parent.right)) {
+                } else {
                     rotateLeft(parent);
                 }
                 break;
+            }
+            depth -= 2;
+            Node grandParent = parent.parent;
+            boolean nodeLeftChild = node == parent.left;
+            boolean parentLeftChild = parent == grandParent.left;
+            // Zig zig step to the right
+            if (nodeLeftChild && parentLeftChild) {
+                rotateRight(grandParent);
+                rotateRight(parent);
+            }
+            // Zig zig step to the left
+            else if (!nodeLeftChild && !parentLeftChild) {
+                rotateLeft(grandParent);
+                rotateLeft(parent);
+            }
+            // Zig zag steps
+            else if (parentLeftChild) {
+                rotateLeft(parent);
+                rotateRight(grandParent);
             } else {
-                Node grandParent = parent.parent;
-                boolean nodeAndParentLeftChildren = node.equals(parent.left) && parent.equals(grandParent.left);
-                boolean nodeAndParentRightChildren = node.equals(parent.right) && parent.equals(grandParent.right);
-                boolean nodeRightChildParentLeftChild = node.equals(parent.right) && parent.equals(grandParent.left);
-                boolean nodeLeftChildParentRightChild = node.equals(parent.left) && parent.equals(grandParent.right);
-                // Zig zig step to the right
-                if (nodeAndParentLeftChildren) {
-                    rotateRight(grandParent);
-                    rotateRight(parent);
-                }  
-                // Zig zig step to the left
-                else if (nodeAndParentRightChildren) {
-                    rotateLeft(grandParent);
-                    rotateLeft(parent);
+                rotateRight(parent);
+                rotateLeft(grandParent);
+            }
+        }
+        if (listener != null) {
+            listener.onSplay(levels);
+        }
+    }
+
+    /**
+     * Top-down splay (Sleator and Tarjan). Descends from the root, nodes which are passed are hung into left tree
+     * (smaller than element) or right tree (greater than element), zig-zig steps rotate first. Last visited node
+     * becomes root with left and right trees as its children.
+     * 
+     * @param element
+     *            Element to look for.
+     * @return Found node (new root), or null if element is not in the tree.
+     */
+    private Node splayTopDown(int element) {
+        Node node = root;
+        // left tree keeps its maximum and right tree its minimum, new nodes are linked there
+        Node leftTreeRoot = null;
+        Node leftTreeMax = null;
+        Node rightTreeRoot = null;
+        Node rightTreeMin = null;
+        int pathLength = 1;
+        int rotations = 0;
+        int cmp;
+        while ((cmp = compare(element, node.value)) != 0) {
+            if (cmp < 0) {
+                Node child = node.left;
+                if (child == null) {
+                    break;
                 }
-                // Zig zag steps
-                else if (nodeRightChildParentLeftChild) {
-                    rotateLeft(parent);
-                    rotateRight(grandParent);
+                pathLength++;
+                if (child.left != null && compare(element, child.value) < 0) {
+                    // zig zig: rotate right before linking
+                    node.left = child.right;
+                    if (child.right != null) {
+                        child.right.parent = node;
+                    }
+                    child.right = node;
+                    node.parent = child;
+                    node = child;
+                    child = node.left;
+                    pathLength++;
+                    rotations++;
                 }
-                else if (nodeLeftChildParentRightChild) {
-                    rotateRight(parent);
-                    rotateLeft(grandParent);
+                // link right
+                if (rightTreeMin == null) {
+                    rightTreeRoot = node;
+                } else {
+                    rightTreeMin.left = node;
+                    node.parent = rightTreeMin;
+                }
+                rightTreeMin = node;
+                node = child;
+            } else {
+                Node child = node.right;
+                if (child == null) {
+                    break;
+                }
+                pathLength++;
+                if (child.right != null && compare(element, child.value) > 0) {
+                    // zig zig: rotate left before linking
+                    node.right = child.left;
+                    if (child.left != null) {
+                        child.left.parent = node;
+                    }
+                    child.left = node;
+                    node.parent = child;
+                    node = child;
+                    child = node.right;
+                    pathLength++;
+                    rotations++;
+                }
+                // link left
+                if (leftTreeMax == null) {
+                    leftTreeRoot = node;
+                } else {
+                    leftTreeMax.right = node;
+                    node.parent = leftTreeMax;
                 }
+                leftTreeMax = node;
+                node = child;
+            }
+        }
+        // assemble
+        if (leftTreeMax != null) {
+            leftTreeMax.right = node.left;
+            if (node.left != null) {
+                node.left.parent = leftTreeMax;
+            }
+            node.left = leftTreeRoot;
+            leftTreeRoot.parent = node;
+        }
+        if (rightTreeMin != null) {
+            rightTreeMin.left = node.right;
+            if (node.right != null) {
+                node.right.parent = rightTreeMin;
+            }
+            node.right = rightTreeRoot;
+            rightTreeRoot.parent = node;
+        }
+        node.parent = null;
+        root = node;
+        if (listener != null) {
+            listener.onSearch(pathLength);
+            // found node moved from the end of path to the root, the same levels bottom-up splay reports
+            listener.onSplay(pathLength - 1);
+            for (int i = 0; i < rotations; i++) {
+                listener.onRotation();
+            }
+        }
+        return cmp == 0 ? node : null;
+    }
+
+    /**
+     * @return true if current search should splay.
+     */
+    private boolean shouldSplay() {
+        if (splayInterval > 1) {
+            if (++searches < splayInterval) {
+                return false;
             }
+            searches = 0;
         }
+        return random == null || random.nextDouble() < splayProbability;
     }
 
 }
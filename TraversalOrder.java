@@ -0,0 +1,21 @@
+package com.tree2;
+
+/**
+ * Order in which {@link AbstractBinarySearchTree#traverse(TraversalOrder, AbstractBinarySearchTree.NodeVisitor)}
+ * visits nodes.
+ */
+public enum TraversalOrder {
+
+    /** 中序遍历: left subtree, node, right subtree (ascending values). */
+    IN_ORDER,
+
+    /** 前序遍历: node, left subtree, right subtree. */
+    PRE_ORDER,
+
+    /** 后序遍历: left subtree, right subtree, node. */
+    POST_ORDER,
+
+    /** 层序遍历: by depth from root, every level from left to right. */
+    LEVEL_ORDER
+
+}
@@ -1,107 +1,411 @@
 package com.tree2;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Treap is randomized binary search tree. Easiest way to randomize would be to get all elements in array and then after
  * random permutation insert them all. However that would require to know all elements in advance. Treap solves this by
  * introducing additional variable to its node - priority which is generated randomly.
- * 
+ * <br>
+ * Priorities are full 32 bit values, either drawn from {@link SplittableRandom} (reproducible with seed) or computed
+ * by hashing the key ({@link #withHashPriorities(long)}, shape then depends only on the set of keys, not on the order
+ * of inserts). Insert, delete and {@link #deleteRange(int, int)} are built on iterative split and merge of subtrees, no
+ * rotations and no recursion.
+ *
  * @author Ignas Lelys
  * @created Jul 25, 2011
- * 
+ *
  */
-public class Treap extends AbstractSelfBalancingBinarySearchTree {
+public class Treap extends AbstractJoinableBinarySearchTree {
 
-    private Random random = new Random(System.currentTimeMillis());
+    /** Null if priorities are hashed from keys. */
+    private final SplittableRandom random;
+
+    /** Mixed into key hash when priorities are hashed. */
+    private final long hashSeed;
+
+    /**
+     * Constructor, priorities are random.
+     */
+    public Treap() {
+        this(false, new SplittableRandom(), 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param seed Seed of priority generator, same seed and same inserts give the same tree.
+     */
+    public Treap(long seed) {
+        this(false, new SplittableRandom(seed), 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param orderStatistic If true nodes keep subtree sizes, see {@link #select(int)} and {@link #rank(int)}.
+     */
+    public Treap(boolean orderStatistic) {
+        this(orderStatistic, new SplittableRandom(), 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param orderStatistic If true nodes keep subtree sizes, see {@link #select(int)} and {@link #rank(int)}.
+     * @param random Priority generator, null to hash priorities from keys.
+     * @param hashSeed Mixed into key hash when random is null.
+     */
+    protected Treap(boolean orderStatistic, SplittableRandom random, long hashSeed) {
+        this.orderStatistic = orderStatistic;
+        this.random = random;
+        this.hashSeed = hashSeed;
+    }
+
+    /**
+     * Equal keys get equal priorities, so long runs of duplicates are not randomized.
+     *
+     * @param seed Mixed into key hash.
+     * @return Treap whose node priorities are hashes of keys.
+     */
+    public static Treap withHashPriorities(long seed) {
+        return new Treap(false, null, seed);
+    }
 
     /**
-     * Insert same as normal binary search tree first, just TreapNode will have random number - priority. Then performs
-     * rotations up until root if priority of child is larger than priority of parent.
-     * 
-     * @see org.intelligentjava.algos.trees.AbstractBinarySearchTree#insert(int)
+     * @param sortedKeys Keys in non-decreasing order.
+     * @return Tree built with {@link #bulkLoad(int[])}.
+     */
+    public static Treap fromSorted(int[] sortedKeys) {
+        Treap tree = new Treap();
+        tree.bulkLoad(sortedKeys);
+        return tree;
+    }
+
+    /**
+     * Descends as in normal binary search tree while nodes have higher priority than the new node, then splits the
+     * rest of the path by element into children of the new node. Insert if absent looks for equal node on the same
+     * path before anything is changed. Descent from start climbs first while start's parent has lower priority, new
+     * node may have to be placed above start.
+     *
+     * @see org.intelligentjava.algos.trees.AbstractBinarySearchTree#insert(int, Node, boolean)
      */
     @Override
-    public Node insert(int element) {
-        // insert as in normal BST
-        TreapNode insertedNode = (TreapNode) super.insert(element);
-        // then rebalance by randomized priority
-        while (insertedNode != root) {
-            TreapNode parent = (TreapNode) insertedNode.parent;
-            if (parent.priority < insertedNode.priority) {
-                if (insertedNode.equals(parent.left)) {
-                    rotateRight(parent);
-                } else {
-                    rotateLeft(parent);
-                }
-            } else {
-                break;
+    protected Node insert(int element, Node start, boolean ifAbsent) {
+        int priority = nextPriority(element);
+        Node node = start;
+        while (node != null && node.parent != null && ((TreapNode) node.parent).priority < priority) {
+            node = node.parent;
+        }
+        Node parent = node == null ? null : node.parent;
+        while (node != null && ((TreapNode) node).priority >= priority) {
+            int cmp = compare(element, node.value);
+            if (ifAbsent && cmp == 0) {
+                lastInsertCreated = false;
+                return node;
+            }
+            parent = node;
+            node = cmp < 0 ? node.left : node.right;
+        }
+        if (ifAbsent) {
+            // rest of the path, which split would walk
+            Node below = node;
+            int cmp;
+            while (below != null && (cmp = compare(element, below.value)) != 0) {
+                below = cmp < 0 ? below.left : below.right;
+            }
+            if (below != null) {
+                lastInsertCreated = false;
+                return below;
             }
         }
+        Node insertedNode = newNode(element, priority);
+        if (orderStatistic) {
+            for (Node ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+                ancestor.setSubtreeSize(ancestor.getSubtreeSize() + 1);
+            }
+        }
+        Node[] parts = split(node, element, false);
+        link(insertedNode, parts[0], parts[1]);
+        if (parent == null) {
+            root = insertedNode;
+        } else {
+            attach(parent, insertedNode, compare(element, parent.value) >= 0);
+        }
+        size++;
+        lastInsertCreated = true;
         return insertedNode;
     }
 
     /**
-     * {@inheritDoc}
+     * Replaces node with merge of its children.
+     *
+     * @return Merged subtree which took place of deleted node, or null.
      */
     @Override
     protected Node delete(Node deleteNode) {
         if (deleteNode != null) {
-            // rotate node down to leaf
-            Node replaceNode = rotateDown((TreapNode)deleteNode);
-            // then delete it normally
-            super.delete(deleteNode);
+            Node parent = deleteNode.parent;
+            Node replaceNode = merge(deleteNode.left, deleteNode.right);
+            replaceChild(parent, deleteNode, replaceNode);
+            if (orderStatistic) {
+                updateSubtreeSizes(parent);
+            }
+            deleteNode.parent = deleteNode.left = deleteNode.right = null;
+            size--;
             return replaceNode;
         }
         return null;
     }
-    
+
+    /**
+     * Removes all elements in range [lo, hi] with two splits and one merge, O(log n) expected plus counting of
+     * removed elements (O(1) when tree keeps subtree sizes).
+     *
+     * @param lo Lower bound (inclusive).
+     * @param hi Upper bound (inclusive).
+     * @return Number of removed elements.
+     */
+    public int deleteRange(int lo, int hi) {
+        if (compare(lo, hi) > 0 || root == null) {
+            return 0;
+        }
+        Node[] smaller = split(root, lo, false);
+        Node[] greater = split(smaller[1], hi, true);
+        int removed = orderStatistic ? subtreeSize(greater[0]) : countElements(greater[0]);
+        root = merge(smaller[0], greater[1]);
+        if (root != null) {
+            root.parent = null;
+        }
+        size -= removed;
+        return removed;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected Node createNode(int value, Node parent, Node left, Node right) {
-        return new TreapNode(value, parent, left, right, random.nextInt(10000));
-    }
-
-    /**
-     * Rotates a node downwards until it becomes a leaf. It must be deleted later to keep heap property intact.
-     * 
-     * @param node The node which is moved to leaf.
-     * 
-     * @return Node that replaces the one which is moved downwards to leaf.
-     */
-    private Node rotateDown(TreapNode node) {
-        Node replaceNode = null;
-        while (true) {
-            if (node.left != null) {
-                boolean leftNodePriorityLarger = node.right == null || ((TreapNode) node.left).priority >= ((TreapNode) node.right).priority;
-                if (leftNodePriorityLarger) {
-                    Node replace = rotateRight(node);
-                    if (replaceNode == null) {
-                        replaceNode = replace;
-                    }
+        Node node = newNode(value, nextPriority(value));
+        node.parent = parent;
+        node.left = left;
+        node.right = right;
+        return node;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected AbstractJoinableBinarySearchTree createTree() {
+        return new Treap(orderStatistic, random == null ? null : random.split(), hashSeed);
+    }
+
+    /**
+     * Middle node is merged between left and right as single node, it sinks until its priority fits.
+     */
+    @Override
+    protected Node join(Node left, int leftRank, Node middle, Node right, int rightRank) {
+        link(middle, null, null);
+        return merge(merge(left, middle), right);
+    }
+
+    /**
+     * Nodes get the same priorities as inserted ones and are built into Cartesian tree of keys and priorities in one
+     * pass, O(n): stack keeps right spine of the tree built so far, new node takes popped nodes of lower priority as
+     * its left subtree and becomes right child of the top. Shape is the same as if keys were inserted one by one, for
+     * hash priorities the same as after any inserts of the same keys. Popped nodes have their subtrees complete, so
+     * subtree sizes are set when they are popped.
+     */
+    @Override
+    protected Node buildTree(int[] keys, int[] counts) {
+        Node[] spine = new Node[keys.length];
+        int top = 0;
+        for (int key : keys) {
+            Node node = newNode(key, nextPriority(key));
+            Node popped = null;
+            while (top > 0 && ((TreapNode) spine[top - 1]).priority < ((TreapNode) node).priority) {
+                popped = spine[--top];
+                if (orderStatistic) {
+                    updateSubtreeSize(popped);
+                }
+            }
+            attach(node, popped, false);
+            if (top > 0) {
+                attach(spine[top - 1], node, true);
+            }
+            spine[top++] = node;
+        }
+        Node built = spine[0];
+        while (orderStatistic && top > 0) {
+            updateSubtreeSize(spine[--top]);
+        }
+        return built;
+    }
+
+    /**
+     * Splits detached subtree to elements smaller than (or equal to if inclusive) key and others. Walks down once:
+     * nodes which are smaller go to the right spine of left part, others to the left spine of right part. Subtree
+     * sizes are then fixed bottom-up along both spines. Walk is reported to listener as rebalance, it does the work
+     * of rotations of other trees.
+     *
+     * @return Roots of left and right part (with unset parent links).
+     */
+    private Node[] split(Node node, int key, boolean inclusive) {
+        Node leftRoot = null;
+        Node leftTail = null;
+        Node rightRoot = null;
+        Node rightTail = null;
+        int steps = 0;
+        while (node != null) {
+            steps++;
+            int cmp = compare(node.value, key);
+            if (cmp < 0 || (inclusive && cmp == 0)) {
+                if (leftTail == null) {
+                    leftRoot = node;
                 } else {
-                    Node replace = rotateLeft(node);
-                    if (replaceNode == null) {
-                        replaceNode = replace;
-                    }
+                    leftTail.right = node;
+                    node.parent = leftTail;
                 }
-            } else if (node.right != null) {
-                Node replace = rotateLeft(node);
-                if (replaceNode == null) {
-                    replaceNode = replace;
+                leftTail = node;
+                node = node.right;
+            } else {
+                if (rightTail == null) {
+                    rightRoot = node;
+                } else {
+                    rightTail.left = node;
+                    node.parent = rightTail;
                 }
+                rightTail = node;
+                node = node.left;
+            }
+        }
+        if (leftTail != null) {
+            leftTail.right = null;
+            updateSpine(leftTail, leftRoot);
+        }
+        if (rightTail != null) {
+            rightTail.left = null;
+            updateSpine(rightTail, rightRoot);
+        }
+        if (listener != null) {
+            listener.onRebalance(steps);
+        }
+        return new Node[] { leftRoot, rightRoot };
+    }
+
+    /**
+     * Merges detached subtrees, all elements of left must be &lt;= all elements of right. Walks down right spine of
+     * left and left spine of right, node with higher priority is taken first.
+     *
+     * @return Root of merged subtree (with unset parent link).
+     */
+    private Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        Node mergedRoot = null;
+        Node tail = null;
+        boolean tailRight = false;
+        int steps = 0;
+        while (left != null && right != null) {
+            steps++;
+            Node next;
+            boolean fromLeft = ((TreapNode) left).priority >= ((TreapNode) right).priority;
+            if (fromLeft) {
+                next = left;
+                left = left.right;
             } else {
-                break;
+                next = right;
+                right = right.left;
             }
+            if (tail == null) {
+                mergedRoot = next;
+            } else {
+                attach(tail, next, tailRight);
+            }
+            tail = next;
+            // node from left part continues merging at its right child, node from right part at its left child
+            tailRight = fromLeft;
+        }
+        attach(tail, left != null ? left : right, tailRight);
+        updateSpine(tail, mergedRoot);
+        if (listener != null) {
+            listener.onRebalance(steps);
+        }
+        return mergedRoot;
+    }
+
+    private Node newNode(int value, int priority) {
+        return new TreapNode(value, null, null, null, priority);
+    }
+
+    private void attach(Node parent, Node child, boolean asRight) {
+        if (asRight) {
+            parent.right = child;
+        } else {
+            parent.left = child;
+        }
+        if (child != null) {
+            child.parent = parent;
+        }
+    }
+
+    /**
+     * Recomputes subtree sizes from bottom node up to top node.
+     */
+    private void updateSpine(Node bottom, Node top) {
+        if (!orderStatistic) {
+            return;
+        }
+        for (Node node = bottom; node != top; node = node.parent) {
+            updateSubtreeSize(node);
+        }
+        updateSubtreeSize(top);
+    }
+
+    private void replaceChild(Node parent, Node oldChild, Node newChild) {
+        if (parent == null) {
+            root = newChild;
+        } else if (parent.left == oldChild) {
+            parent.left = newChild;
+        } else {
+            parent.right = newChild;
+        }
+        if (newChild != null) {
+            newChild.parent = parent;
+        }
+    }
+
+    /**
+     * Hashed priorities would hash handles of key wrappers, not keys, so only random priorities are allowed with key
+     * comparator.
+     */
+    @Override
+    protected void setKeyComparator(KeyComparator keyComparator) {
+        if (keyComparator != null && random == null) {
+            throw new IllegalArgumentException("Hash priorities need natural key order");
+        }
+        super.setKeyComparator(keyComparator);
+    }
+
+    private int nextPriority(int key) {
+        if (random != null) {
+            return random.nextInt();
         }
-        return replaceNode;
+        // SplitMix64 finalizer
+        long hash = key + hashSeed;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return (int) ((hash ^ (hash >>> 31)) >>> 32);
     }
 
     /**
      * Node for Treap. It has additional priority value which is set randomly. It is used for tree randomization.
-     * 
+     *
      * @author Ignas Lelys
      * @created Jul 25, 2011
      */
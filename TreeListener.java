@@ -0,0 +1,55 @@
+package com.tree2;
+
+/**
+ * Optional observer of tree internals, set with {@link AbstractBinarySearchTree#setListener(TreeListener)}. Trees
+ * without listener only pay one null check per operation. Callbacks run inside the operation on the thread which
+ * does it (parallel set operations call them from several pool threads), so they must be cheap and thread safe
+ * (increment a counter, emit JFR event).
+ * <br>
+ * All methods do nothing by default, so listener implements only what it needs. {@link TreeMetrics} counts all of
+ * them.
+ */
+public interface TreeListener {
+
+    /**
+     * Called after every descent which looks for an element (search, contains, delete, successor).
+     *
+     * @param pathLength Number of nodes visited.
+     */
+    default void onSearch(int pathLength) {
+    }
+
+    /**
+     * Called for every single rotation (double rotation is two calls).
+     */
+    default void onRotation() {
+    }
+
+    /**
+     * Called after rebalancing which follows insert or delete (AVL height update walk, red-black fixup, treap split
+     * or merge, which take place of rotations).
+     *
+     * @param steps Number of nodes (AVL, treap) or fixup loop iterations (red-black) processed.
+     */
+    default void onRebalance(int steps) {
+    }
+
+    /**
+     * Called when scapegoat tree rebuilds subtree.
+     *
+     * @param size Number of nodes in rebuilt subtree.
+     */
+    default void onRebuild(int size) {
+    }
+
+    /**
+     * Called after node was splayed to the root (or to target depth). Unit is the same for bottom-up and top-down
+     * splay, so numbers of both modes can be compared. Rotations are reported separately with {@link #onRotation()}:
+     * bottom-up splay rotates once per level, top-down splay only in zig-zig steps.
+     *
+     * @param depth Number of levels node moved up.
+     */
+    default void onSplay(int depth) {
+    }
+
+}
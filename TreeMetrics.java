@@ -0,0 +1,136 @@
+package com.tree2;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link TreeListener} which counts events in {@link LongAdder}s, so one instance can be shared by trees used from
+ * different threads and read (e.g. by metrics registry gauges) while trees are updated.
+ */
+public class TreeMetrics implements TreeListener {
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchPathLength = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder rebalances = new LongAdder();
+    private final LongAdder rebalanceSteps = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder rebuiltNodes = new LongAdder();
+    private final LongAdder splays = new LongAdder();
+    private final LongAdder splayDepth = new LongAdder();
+
+    @Override
+    public void onSearch(int pathLength) {
+        searches.increment();
+        searchPathLength.add(pathLength);
+    }
+
+    @Override
+    public void onRotation() {
+        rotations.increment();
+    }
+
+    @Override
+    public void onRebalance(int steps) {
+        rebalances.increment();
+        rebalanceSteps.add(steps);
+    }
+
+    @Override
+    public void onRebuild(int size) {
+        rebuilds.increment();
+        rebuiltNodes.add(size);
+    }
+
+    @Override
+    public void onSplay(int depth) {
+        splays.increment();
+        splayDepth.add(depth);
+    }
+
+    /**
+     * @return Number of searches.
+     */
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    /**
+     * @return Total number of nodes visited by searches.
+     */
+    public long getSearchPathLength() {
+        return searchPathLength.sum();
+    }
+
+    /**
+     * @return Number of single rotations.
+     */
+    public long getRotations() {
+        return rotations.sum();
+    }
+
+    /**
+     * @return Number of rebalancing passes.
+     */
+    public long getRebalances() {
+        return rebalances.sum();
+    }
+
+    /**
+     * @return Total steps of rebalancing passes.
+     */
+    public long getRebalanceSteps() {
+        return rebalanceSteps.sum();
+    }
+
+    /**
+     * @return Number of scapegoat rebuilds.
+     */
+    public long getRebuilds() {
+        return rebuilds.sum();
+    }
+
+    /**
+     * @return Total number of nodes in rebuilt subtrees.
+     */
+    public long getRebuiltNodes() {
+        return rebuiltNodes.sum();
+    }
+
+    /**
+     * @return Number of splay operations.
+     */
+    public long getSplays() {
+        return splays.sum();
+    }
+
+    /**
+     * @return Total number of levels splayed nodes moved up.
+     */
+    public long getSplayDepth() {
+        return splayDepth.sum();
+    }
+
+    /**
+     * Sets all counters to zero. Events counted concurrently with reset may be lost.
+     */
+    public void reset() {
+        searches.reset();
+        searchPathLength.reset();
+        rotations.reset();
+        rebalances.reset();
+        rebalanceSteps.reset();
+        rebuilds.reset();
+        rebuiltNodes.reset();
+        splays.reset();
+        splayDepth.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "TreeMetrics [searches=" + getSearches() + ", searchPathLength=" + getSearchPathLength()
+                + ", rotations=" + getRotations() + ", rebalances=" + getRebalances() + ", rebalanceSteps="
+                + getRebalanceSteps() + ", rebuilds=" + getRebuilds() + ", rebuiltNodes=" + getRebuiltNodes()
+                + ", splays=" + getSplays() + ", splayDepth=" + getSplayDepth() + "]";
+    }
+
+}
@@ -0,0 +1,264 @@
+package com.tree2;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Snapshot of tree shape: height, depth histogram, search depths, node kinds and estimated memory. Collected by one
+ * iterative pass over nodes ({@link #collect(AbstractBinarySearchTree)}, O(n) time, O(height) extra memory, no
+ * recursion so degenerated trees do not overflow stack). Tree must not be modified during collection.
+ * <br>
+ * Memory is estimated for 64-bit JVM with compressed oops: 12 bytes object header, 4 bytes per reference, field sizes
+ * by type, rounded up to 8 bytes.
+ */
+public final class TreeStats {
+
+    private static final int OBJECT_HEADER_BYTES = 12;
+
+    private static final int REFERENCE_BYTES = 4;
+
+    private static final int OBJECT_ALIGNMENT = 8;
+
+    private final int size;
+
+    private final int nodeCount;
+
+    private final int[] depthHistogram;
+
+    private final long totalDepth;
+
+    private final int leaves;
+
+    private final int singleChildNodes;
+
+    private final Map<String, Integer> nodesByClass;
+
+    private final long estimatedBytes;
+
+    private final long rotations;
+
+    private TreeStats(int size, int nodeCount, int[] depthHistogram, long totalDepth, int leaves, int singleChildNodes,
+            Map<String, Integer> nodesByClass, long estimatedBytes, long rotations) {
+        this.size = size;
+        this.nodeCount = nodeCount;
+        this.depthHistogram = depthHistogram;
+        this.totalDepth = totalDepth;
+        this.leaves = leaves;
+        this.singleChildNodes = singleChildNodes;
+        this.nodesByClass = nodesByClass;
+        this.estimatedBytes = estimatedBytes;
+        this.rotations = rotations;
+    }
+
+    /**
+     * Walks the whole tree once.
+     *
+     * @param tree Tree to measure.
+     * @return Statistics of current shape.
+     */
+    public static TreeStats collect(AbstractBinarySearchTree tree) {
+        int[] histogram = new int[16];
+        int height = -1;
+        long totalDepth = 0;
+        int nodeCount = 0;
+        int leaves = 0;
+        int singleChildNodes = 0;
+        Map<Class<?>, Integer> classCounts = new LinkedHashMap<Class<?>, Integer>();
+        // pre-order walk with explicit stack of nodes and their depths
+        AbstractBinarySearchTree.Node[] stack = new AbstractBinarySearchTree.Node[16];
+        int[] depths = new int[16];
+        int top = 0;
+        if (!tree.isNil(tree.root)) {
+            stack[top] = tree.root;
+            depths[top++] = 0;
+        }
+        while (top > 0) {
+            AbstractBinarySearchTree.Node node = stack[--top];
+            int depth = depths[top];
+            if (depth >= histogram.length) {
+                histogram = Arrays.copyOf(histogram, histogram.length * 2);
+            }
+            histogram[depth]++;
+            height = MathUtils.getMax(height, depth);
+            totalDepth += depth;
+            nodeCount++;
+            Integer classCount = classCounts.get(node.getClass());
+            classCounts.put(node.getClass(), classCount == null ? 1 : classCount + 1);
+            boolean hasLeft = !tree.isNil(node.left);
+            boolean hasRight = !tree.isNil(node.right);
+            if (!hasLeft && !hasRight) {
+                leaves++;
+            } else if (!hasLeft || !hasRight) {
+                singleChildNodes++;
+            }
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                depths = Arrays.copyOf(depths, depths.length * 2);
+            }
+            if (hasRight) {
+                stack[top] = node.right;
+                depths[top++] = depth + 1;
+            }
+            if (hasLeft) {
+                stack[top] = node.left;
+                depths[top++] = depth + 1;
+            }
+        }
+        Map<String, Integer> nodesByClass = new LinkedHashMap<String, Integer>();
+        long estimatedBytes = 0;
+        for (Map.Entry<Class<?>, Integer> entry : classCounts.entrySet()) {
+            nodesByClass.put(entry.getKey().getSimpleName(), entry.getValue());
+            estimatedBytes += (long) estimateInstanceBytes(entry.getKey()) * entry.getValue();
+        }
+        TreeListener listener = tree.getListener();
+        long rotations = listener instanceof TreeMetrics ? ((TreeMetrics) listener).getRotations() : -1;
+        return new TreeStats(tree.getSize(), nodeCount, Arrays.copyOf(histogram, height + 1), totalDepth, leaves,
+                singleChildNodes, Collections.unmodifiableMap(nodesByClass), estimatedBytes, rotations);
+    }
+
+    /**
+     * @return Number of elements (occurrences in multiset tree).
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return Number of nodes.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return Height (depth of the deepest node, root has depth 0), -1 for empty tree.
+     */
+    public int getHeight() {
+        return depthHistogram.length - 1;
+    }
+
+    /**
+     * @return Height of perfectly balanced tree with the same number of nodes, -1 for empty tree.
+     */
+    public int getMinimalHeight() {
+        return 31 - Integer.numberOfLeadingZeros(nodeCount);
+    }
+
+    /**
+     * @return Height divided by minimal height (1 is perfect, AVL stays under 1.44, red-black under 2).
+     */
+    public double getHeightRatio() {
+        return nodeCount <= 1 ? 1 : (double) getHeight() / getMinimalHeight();
+    }
+
+    /**
+     * @return Average number of nodes visited by successful search (depth + 1 averaged over nodes).
+     */
+    public double getAverageSearchDepth() {
+        return nodeCount == 0 ? 0 : (double) totalDepth / nodeCount + 1;
+    }
+
+    /**
+     * @return Number of nodes visited by the longest successful search (height + 1).
+     */
+    public int getMaxSearchDepth() {
+        return depthHistogram.length;
+    }
+
+    /**
+     * @return Number of nodes on every depth (index is depth).
+     */
+    public int[] getDepthHistogram() {
+        return depthHistogram.clone();
+    }
+
+    /**
+     * @return Number of nodes without children.
+     */
+    public int getLeaves() {
+        return leaves;
+    }
+
+    /**
+     * @return Number of nodes with exactly one child.
+     */
+    public int getSingleChildNodes() {
+        return singleChildNodes;
+    }
+
+    /**
+     * @return Number of nodes with two children.
+     */
+    public int getFullNodes() {
+        return nodeCount - leaves - singleChildNodes;
+    }
+
+    /**
+     * @return Node count by node class simple name.
+     */
+    public Map<String, Integer> getNodesByClass() {
+        return nodesByClass;
+    }
+
+    /**
+     * @return Estimated heap bytes used by nodes.
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * @return Rotations counted by tree's {@link TreeMetrics} listener since its reset, -1 if tree has no such
+     *         listener.
+     */
+    public long getRotations() {
+        return rotations;
+    }
+
+    /**
+     * Shallow size of instance of given class, see class comment for assumptions.
+     *
+     * @param type Class.
+     * @return Estimated bytes.
+     */
+    public static int estimateInstanceBytes(Class<?> type) {
+        int bytes = OBJECT_HEADER_BYTES;
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    bytes += fieldBytes(field.getType());
+                }
+            }
+        }
+        return (bytes + OBJECT_ALIGNMENT - 1) / OBJECT_ALIGNMENT * OBJECT_ALIGNMENT;
+    }
+
+    private static int fieldBytes(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE_BYTES;
+    }
+
+    @Override
+    public String toString() {
+        return "TreeStats [size=" + size + ", nodes=" + nodeCount + ", height=" + getHeight() + ", minimalHeight="
+                + getMinimalHeight() + ", averageSearchDepth=" + String.format("%.2f", getAverageSearchDepth())
+                + ", leaves=" + leaves + ", singleChildNodes=" + singleChildNodes + ", nodesByClass=" + nodesByClass
+                + ", estimatedBytes=" + estimatedBytes + ", rotations=" + rotations + "]";
+    }
+
+}
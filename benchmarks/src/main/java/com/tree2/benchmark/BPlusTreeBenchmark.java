@@ -0,0 +1,99 @@
+package com.tree2.benchmark;
+
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.tree2.BPlusTree;
+
+/**
+ * {@link BPlusTree} counterpart of {@link TreeBenchmark} (same keys and operations) for comparing fan-outs with each
+ * other and with binary trees.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class BPlusTreeBenchmark {
+
+    /** Length of precomputed key stream, must be power of 2. */
+    private static final int ACCESS_KEYS = 1 << 20;
+
+    @State(Scope.Thread)
+    public static class BPlusTreeState {
+
+        @Param({ "16", "32", "64", "128" })
+        public int maxKeys;
+
+        @Param({ "1000", "100000", "1000000", "10000000" })
+        public int size;
+
+        @Param({ "UNIFORM", "SEQUENTIAL", "ZIPFIAN", "CLUSTERED" })
+        public KeyDistribution distribution;
+
+        BPlusTree tree;
+
+        int[] keys;
+
+        private int index;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Random random = new Random(42);
+            tree = new BPlusTree(maxKeys);
+            for (int key : distribution.loadOrder(size, random)) {
+                tree.insert(key);
+            }
+            keys = distribution.accessOrder(size, ACCESS_KEYS, random);
+        }
+
+        int nextKey() {
+            return keys[index = (index + 1) & (ACCESS_KEYS - 1)];
+        }
+    }
+
+    @Benchmark
+    public boolean search(BPlusTreeState state) {
+        return state.tree.contains(state.nextKey());
+    }
+
+    /**
+     * Same range as {@link TreeBenchmark#rangeScan(TreeState)}.
+     */
+    @Benchmark
+    public int rangeScan(BPlusTreeState state) {
+        int lo = state.nextKey();
+        int sum = 0;
+        PrimitiveIterator.OfInt iterator = state.tree.rangeIterator(lo, lo + 200);
+        while (iterator.hasNext()) {
+            sum += iterator.nextInt();
+        }
+        return sum;
+    }
+
+    /**
+     * Inserts absent key (odd keys are never in the tree) and deletes it again.
+     */
+    @Benchmark
+    public void insertAndDelete(BPlusTreeState state, Blackhole blackhole) {
+        int key = state.nextKey() + 1;
+        blackhole.consume(state.tree.insert(key));
+        blackhole.consume(state.tree.delete(key));
+    }
+
+}
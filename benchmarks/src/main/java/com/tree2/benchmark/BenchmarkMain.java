@@ -0,0 +1,33 @@
+package com.tree2.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs benchmarks with GC profiler enabled (allocation rate per operation). Accepts the same command line arguments as
+ * JMH, e.g.:
+ * 
+ * <pre>
+ * mvn install                                    (in project root)
+ * mvn package                                    (in benchmarks)
+ * java -cp target/benchmarks.jar com.tree2.benchmark.BenchmarkMain TreeBenchmark.search -p size=1000000
+ * </pre>
+ * 
+ * Plain {@code java -jar target/benchmarks.jar} works too, just add {@code -prof gc} yourself.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,214 @@
+package com.tree2.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tree2.AVLTree;
+import com.tree2.AbstractPersistentBinarySearchTree;
+import com.tree2.ConcurrentAVLTree;
+import com.tree2.ConcurrentBinarySearchTree;
+import com.tree2.PersistentAVLTree;
+import com.tree2.PersistentRedBlackTree;
+import com.tree2.RedBlackTree;
+
+/**
+ * Compares thread safe trees under mixed read/write load shared by all benchmark threads. Scale it with JMH
+ * {@code -t} option, e.g. {@code -t 1,8,64}.
+ * <br>
+ * Tree holds half of the keys from {@code [0, 2 * size)}, updates insert or delete random key from the same range so
+ * the size stays roughly the same.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@Threads(Threads.MAX)
+public class ConcurrentTreeBenchmark {
+
+    /**
+     * Common view of compared implementations.
+     */
+    interface IntSet {
+        void insert(int element);
+
+        void delete(int element);
+
+        boolean contains(int element);
+    }
+
+    public enum Implementation {
+
+        /** {@link AVLTree} wrapped with one monitor. */
+        SYNCHRONIZED_AVL {
+            @Override
+            IntSet create() {
+                final AVLTree tree = new AVLTree();
+                return new IntSet() {
+                    @Override
+                    public synchronized void insert(int element) {
+                        tree.insertIfAbsent(element);
+                    }
+
+                    @Override
+                    public synchronized void delete(int element) {
+                        tree.delete(element);
+                    }
+
+                    @Override
+                    public synchronized boolean contains(int element) {
+                        return tree.contains(element);
+                    }
+                };
+            }
+        },
+        /** {@link AVLTree} wrapped with {@link ConcurrentBinarySearchTree}. */
+        STAMPED_AVL {
+            @Override
+            IntSet create() {
+                return stamped(new ConcurrentBinarySearchTree(new AVLTree()));
+            }
+        },
+        /** {@link RedBlackTree} wrapped with {@link ConcurrentBinarySearchTree}. */
+        STAMPED_RED_BLACK {
+            @Override
+            IntSet create() {
+                return stamped(new ConcurrentBinarySearchTree(new RedBlackTree()));
+            }
+        },
+        /** Fine grained {@link ConcurrentAVLTree}. */
+        CONCURRENT_AVL {
+            @Override
+            IntSet create() {
+                final ConcurrentAVLTree tree = new ConcurrentAVLTree();
+                return new IntSet() {
+                    @Override
+                    public void insert(int element) {
+                        tree.insert(element);
+                    }
+
+                    @Override
+                    public void delete(int element) {
+                        tree.delete(element);
+                    }
+
+                    @Override
+                    public boolean contains(int element) {
+                        return tree.contains(element);
+                    }
+                };
+            }
+        },
+        /** Path copying {@link PersistentAVLTree}, lock free reads of the current version. */
+        PERSISTENT_AVL {
+            @Override
+            IntSet create() {
+                return persistent(new PersistentAVLTree());
+            }
+        },
+        /** Path copying {@link PersistentRedBlackTree}, lock free reads of the current version. */
+        PERSISTENT_RED_BLACK {
+            @Override
+            IntSet create() {
+                return persistent(new PersistentRedBlackTree());
+            }
+        };
+
+        abstract IntSet create();
+
+        private static IntSet persistent(final AbstractPersistentBinarySearchTree tree) {
+            return new IntSet() {
+                @Override
+                public void insert(int element) {
+                    tree.insert(element);
+                }
+
+                @Override
+                public void delete(int element) {
+                    tree.delete(element);
+                }
+
+                @Override
+                public boolean contains(int element) {
+                    return tree.contains(element);
+                }
+            };
+        }
+
+        private static IntSet stamped(final ConcurrentBinarySearchTree tree) {
+            return new IntSet() {
+                @Override
+                public void insert(int element) {
+                    // wrapped trees keep duplicates, keep the set semantics of the other implementations
+                    tree.insertIfAbsent(element);
+                }
+
+                @Override
+                public void delete(int element) {
+                    tree.delete(element);
+                }
+
+                @Override
+                public boolean contains(int element) {
+                    return tree.contains(element);
+                }
+            };
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedTree {
+
+        @Param({ "SYNCHRONIZED_AVL", "STAMPED_AVL", "STAMPED_RED_BLACK", "CONCURRENT_AVL", "PERSISTENT_AVL",
+                "PERSISTENT_RED_BLACK" })
+        public Implementation implementation;
+
+        @Param({ "100000", "1000000" })
+        public int size;
+
+        @Param({ "50", "90", "95", "99" })
+        public int readPercent;
+
+        IntSet tree;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            tree = implementation.create();
+            Random random = new Random(42);
+            for (int i = 0; i < size; i++) {
+                tree.insert(random.nextInt(2 * size));
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean mixed(SharedTree state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = random.nextInt(2 * state.size);
+        if (random.nextInt(100) < state.readPercent) {
+            return state.tree.contains(key);
+        }
+        if (random.nextBoolean()) {
+            state.tree.insert(key);
+        } else {
+            state.tree.delete(key);
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.tree2.benchmark;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tree2.IndexedIntHeap;
+import com.tree2.IntHeap;
+
+/**
+ * Steady state priority queue of size elements: every operation polls top and adds new key (hold model), which is
+ * access pattern of schedulers. Compares boxed {@link PriorityQueue} with {@link IntHeap} and {@link IndexedIntHeap}
+ * of different arities.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class HeapBenchmark {
+
+    /** Length of precomputed increment stream, must be power of 2. */
+    private static final int INCREMENTS = 1 << 20;
+
+    @State(Scope.Thread)
+    public static class HeapState {
+
+        @Param({ "2", "4", "8" })
+        public int arity;
+
+        @Param({ "1000", "100000", "1000000" })
+        public int size;
+
+        PriorityQueue<Integer> priorityQueue;
+
+        IntHeap intHeap;
+
+        IndexedIntHeap indexedHeap;
+
+        int[] increments;
+
+        private int index;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Random random = new Random(42);
+            priorityQueue = new PriorityQueue<Integer>(size);
+            intHeap = new IntHeap(arity, false, size);
+            indexedHeap = new IndexedIntHeap(size, arity, false);
+            for (int i = 0; i < size; i++) {
+                int key = random.nextInt(size);
+                priorityQueue.add(key);
+                intHeap.add(key);
+                indexedHeap.add(i, key);
+            }
+            increments = new int[INCREMENTS];
+            for (int i = 0; i < INCREMENTS; i++) {
+                increments[i] = random.nextInt(size);
+            }
+        }
+
+        int nextIncrement() {
+            return increments[index = (index + 1) & (INCREMENTS - 1)];
+        }
+    }
+
+    @Benchmark
+    public int priorityQueueHold(HeapState state) {
+        int top = state.priorityQueue.poll();
+        state.priorityQueue.add(top + state.nextIncrement());
+        return top;
+    }
+
+    @Benchmark
+    public int intHeapHold(HeapState state) {
+        int top = state.intHeap.poll();
+        state.intHeap.add(top + state.nextIncrement());
+        return top;
+    }
+
+    /**
+     * Top handle gets later priority in place, as rescheduled task in Dijkstra style scheduler.
+     */
+    @Benchmark
+    public int indexedHeapUpdate(HeapState state) {
+        int handle = state.indexedHeap.peek();
+        state.indexedHeap.update(handle, state.indexedHeap.peekPriority() + state.nextIncrement());
+        return handle;
+    }
+
+}
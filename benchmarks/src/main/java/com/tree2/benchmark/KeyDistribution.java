@@ -0,0 +1,192 @@
+package com.tree2.benchmark;
+
+import java.util.Random;
+
+/**
+ * Key distributions used by the benchmarks. Each distribution decides two things: in which order the initial keys are
+ * inserted into the tree and which keys are picked by the measured operations.
+ * <br>
+ * Tree always holds keys {@code 0, 2, 4, ..., 2 * (size - 1)}, so odd keys are guaranteed to be absent (used for
+ * insert benchmarks).
+ */
+public enum KeyDistribution {
+
+    /** Keys inserted in random order, operations pick keys uniformly. */
+    UNIFORM {
+        @Override
+        int[] loadOrder(int size, Random random) {
+            int[] keys = evenKeys(size);
+            shuffle(keys, random);
+            return keys;
+        }
+
+        @Override
+        int[] accessOrder(int size, int count, Random random) {
+            int[] keys = new int[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = 2 * random.nextInt(size);
+            }
+            return keys;
+        }
+    },
+
+    /** Keys inserted in ascending order, operations walk the key space in ascending order. */
+    SEQUENTIAL {
+        @Override
+        int[] loadOrder(int size, Random random) {
+            return evenKeys(size);
+        }
+
+        @Override
+        int[] accessOrder(int size, int count, Random random) {
+            int[] keys = new int[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = 2 * (i % size);
+            }
+            return keys;
+        }
+    },
+
+    /** Keys inserted in random order, operations pick keys by Zipf distribution (few keys are very hot). */
+    ZIPFIAN {
+        @Override
+        int[] loadOrder(int size, Random random) {
+            return UNIFORM.loadOrder(size, random);
+        }
+
+        @Override
+        int[] accessOrder(int size, int count, Random random) {
+            // hot keys are scattered over the key space, not only the smallest ones
+            int[] ranks = evenKeys(size);
+            shuffle(ranks, random);
+            ZipfGenerator zipf = new ZipfGenerator(size, ZIPF_THETA);
+            int[] keys = new int[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = ranks[zipf.next(random)];
+            }
+            return keys;
+        }
+    },
+
+    /**
+     * Keys are grouped into runs of {@link #CLUSTER_SIZE} neighbouring keys. Runs are inserted in random order (keys
+     * inside a run in ascending order) and operations pick a random run and then scan it.
+     */
+    CLUSTERED {
+        @Override
+        int[] loadOrder(int size, Random random) {
+            int clusters = (size + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+            int[] clusterOrder = new int[clusters];
+            for (int i = 0; i < clusters; i++) {
+                clusterOrder[i] = i;
+            }
+            shuffle(clusterOrder, random);
+            int[] keys = new int[size];
+            int index = 0;
+            for (int cluster : clusterOrder) {
+                int start = cluster * CLUSTER_SIZE;
+                int end = Math.min(start + CLUSTER_SIZE, size);
+                for (int i = start; i < end; i++) {
+                    keys[index++] = 2 * i;
+                }
+            }
+            return keys;
+        }
+
+        @Override
+        int[] accessOrder(int size, int count, Random random) {
+            int[] keys = new int[count];
+            int i = 0;
+            while (i < count) {
+                int start = random.nextInt(size);
+                for (int j = 0; j < CLUSTER_SIZE && i < count; j++, i++) {
+                    keys[i] = 2 * ((start + j) % size);
+                }
+            }
+            return keys;
+        }
+    };
+
+    /** Number of neighbouring keys in one cluster. */
+    static final int CLUSTER_SIZE = 64;
+
+    /** Skew of Zipf distribution (same default as YCSB). */
+    static final double ZIPF_THETA = 0.99;
+
+    /**
+     * @param size Number of keys in the tree.
+     * @param random Random generator.
+     * @return Order in which keys are inserted when tree is prepared.
+     */
+    abstract int[] loadOrder(int size, Random random);
+
+    /**
+     * @param size Number of keys in the tree.
+     * @param count Number of keys to generate.
+     * @param random Random generator.
+     * @return Keys (all of them present in the tree) used by measured operations.
+     */
+    abstract int[] accessOrder(int size, int count, Random random);
+
+    private static int[] evenKeys(int size) {
+        int[] keys = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = 2 * i;
+        }
+        return keys;
+    }
+
+    private static void shuffle(int[] data, Random random) {
+        for (int i = data.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = data[i];
+            data[i] = data[j];
+            data[j] = tmp;
+        }
+    }
+
+    /**
+     * Zipf generator from "Quickly Generating Billion-Record Synthetic Databases" (Gray et al.), same as used by YCSB.
+     */
+    static final class ZipfGenerator {
+        private final int items;
+        private final double theta;
+        private final double alpha;
+        private final double zetaN;
+        private final double eta;
+
+        ZipfGenerator(int items, double theta) {
+            this.items = items;
+            this.theta = theta;
+            this.alpha = 1.0 / (1.0 - theta);
+            this.zetaN = zeta(items, theta);
+            double zeta2 = zeta(2, theta);
+            this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2 / zetaN);
+        }
+
+        /**
+         * @return Rank in range [0, items), 0 is the most popular.
+         */
+        int next(Random random) {
+            double u = random.nextDouble();
+            double uz = u * zetaN;
+            if (uz < 1.0) {
+                return 0;
+            }
+            if (uz < 1.0 + Math.pow(0.5, theta)) {
+                return Math.min(1, items - 1);
+            }
+            int rank = (int) (items * Math.pow(eta * u - eta + 1, alpha));
+            return Math.min(rank, items - 1);
+        }
+
+        private static double zeta(int n, double theta) {
+            double sum = 0;
+            for (int i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+    }
+
+}
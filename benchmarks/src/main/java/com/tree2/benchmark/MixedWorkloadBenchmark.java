@@ -0,0 +1,61 @@
+package com.tree2.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Read/write mix benchmark. Each operation is a search with probability {@link MixState#readPercent} percent,
+ * otherwise it is an update (delete of present key followed by insert of the same key).
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class MixedWorkloadBenchmark {
+
+    @State(Scope.Thread)
+    public static class MixState {
+
+        @Param({ "50", "90", "95", "99", "100" })
+        public int readPercent;
+
+        /** Precomputed read/write decisions, same length as key stream. */
+        boolean[] reads;
+
+        @Setup
+        public void setUp(TreeState state) {
+            Random random = new Random(7);
+            reads = new boolean[state.keys.length];
+            for (int i = 0; i < reads.length; i++) {
+                reads[i] = random.nextInt(100) < readPercent;
+            }
+        }
+    }
+
+    @Benchmark
+    public void mixed(TreeState state, MixState mix, Blackhole blackhole) {
+        int i = state.nextIndex();
+        int key = state.keys[i];
+        if (mix.reads[i]) {
+            blackhole.consume(state.instance.search(key));
+        } else {
+            blackhole.consume(state.instance.delete(key));
+            blackhole.consume(state.instance.insert(key));
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.tree2.benchmark;
+
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.tree2.AbstractBinarySearchTree;
+
+/**
+ * Single operation benchmarks for every tree. Reports throughput and latency percentiles (sample mode), run it with
+ * {@link BenchmarkMain} (or {@code -prof gc}) to get allocation rate too.
+ * <br>
+ * Updates are done in pairs (insert + delete of the same key) so the tree keeps its size during the whole run.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class TreeBenchmark {
+
+    @Benchmark
+    public AbstractBinarySearchTree.Node search(TreeState state) {
+        return state.instance.search(state.keys[state.nextIndex()]);
+    }
+
+    /**
+     * Same lookup in the tree exported by {@link AbstractBinarySearchTree#exportStatic()}.
+     */
+    @Benchmark
+    public boolean staticSearch(TreeState state) {
+        return state.exported.contains(state.keys[state.nextIndex()]);
+    }
+
+    @Benchmark
+    public int successor(TreeState state) {
+        return state.instance.getSuccessor(state.successorKeys[state.nextIndex()]);
+    }
+
+    /**
+     * Ordered scan over range of 200 keys (about 100 present, odd keys are never in the tree).
+     */
+    @Benchmark
+    public int rangeScan(TreeState state) {
+        int lo = state.keys[state.nextIndex()];
+        int sum = 0;
+        PrimitiveIterator.OfInt iterator = state.instance.rangeIterator(lo, lo + 200);
+        while (iterator.hasNext()) {
+            sum += iterator.nextInt();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int minimum(TreeState state) {
+        return state.instance.getMinimum();
+    }
+
+    @Benchmark
+    public int maximum(TreeState state) {
+        return state.instance.getMaximum();
+    }
+
+    /**
+     * Inserts absent key (odd keys are never in the tree) and deletes it again.
+     */
+    @Benchmark
+    public void insertAndDelete(TreeState state, Blackhole blackhole) {
+        int key = state.keys[state.nextIndex()] + 1;
+        blackhole.consume(state.instance.insert(key));
+        blackhole.consume(state.instance.delete(key));
+    }
+
+    /**
+     * Deletes present key and inserts it back.
+     */
+    @Benchmark
+    public void deleteAndInsert(TreeState state, Blackhole blackhole) {
+        int key = state.keys[state.nextIndex()];
+        blackhole.consume(state.instance.delete(key));
+        blackhole.consume(state.instance.insert(key));
+    }
+
+}
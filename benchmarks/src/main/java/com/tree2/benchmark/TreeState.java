@@ -0,0 +1,82 @@
+package com.tree2.benchmark;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.tree2.AbstractBinarySearchTree;
+import com.tree2.EytzingerIndex;
+
+/**
+ * Prepared tree shared by the benchmarks: tree of {@link #size} keys loaded in the order given by
+ * {@link #distribution} plus precomputed stream of keys for the measured operations (so random generator is not
+ * measured).
+ */
+@State(Scope.Thread)
+public class TreeState {
+
+    /** Length of precomputed key stream, must be power of 2. */
+    private static final int ACCESS_KEYS = 1 << 20;
+
+    /** Biggest tree that is loaded in ascending order into plain BST (it degenerates to list, load is O(n^2)). */
+    private static final int MAX_DEGENERATE_SIZE = 100_000;
+
+    /** Seed, so that every tree type gets the same keys. */
+    private static final long SEED = 42;
+
+    @Param({ "BST", "AVL", "RED_BLACK", "SPLAY", "TREAP", "SCAPEGOAT" })
+    public TreeType tree;
+
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    public int size;
+
+    @Param({ "UNIFORM", "SEQUENTIAL", "ZIPFIAN", "CLUSTERED" })
+    public KeyDistribution distribution;
+
+    AbstractBinarySearchTree instance;
+
+    /** {@link #instance} exported right after load. */
+    EytzingerIndex exported;
+
+    /** Keys present in the tree. */
+    int[] keys;
+
+    /** Keys present in the tree except the maximum one (it has no successor). */
+    int[] successorKeys;
+
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (tree == TreeType.BST && distribution == KeyDistribution.SEQUENTIAL && size > MAX_DEGENERATE_SIZE) {
+            throw new IllegalStateException("BST with sequential keys degenerates to a list, size " + size
+                    + " would take hours to load; limit it with -p size=...");
+        }
+        Random random = new Random(SEED);
+        instance = tree.create();
+        for (int key : distribution.loadOrder(size, random)) {
+            instance.insert(key);
+        }
+        exported = instance.exportStatic();
+        keys = distribution.accessOrder(size, ACCESS_KEYS, random);
+        int maxKey = 2 * (size - 1);
+        successorKeys = keys.clone();
+        for (int i = 0; i < successorKeys.length; i++) {
+            if (successorKeys[i] == maxKey) {
+                successorKeys[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * @return Position of next key in {@link #keys} / {@link #successorKeys}.
+     */
+    int nextIndex() {
+        return index = (index + 1) & (ACCESS_KEYS - 1);
+    }
+
+}
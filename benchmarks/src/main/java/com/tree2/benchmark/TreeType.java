@@ -0,0 +1,72 @@
+package com.tree2.benchmark;
+
+import com.tree2.AVLTree;
+import com.tree2.AbstractBinarySearchTree;
+import com.tree2.BinarySearchTree;
+import com.tree2.RedBlackTree;
+import com.tree2.ScapegoatTree;
+import com.tree2.SplayTree;
+import com.tree2.Treap;
+
+/**
+ * Trees covered by the benchmarks. Used as JMH parameter so every benchmark runs against every tree.
+ */
+public enum TreeType {
+
+    BST {
+        @Override
+        public AbstractBinarySearchTree create() {
+            return new BinarySearchTree();
+        }
+    },
+    AVL {
+        @Override
+        public AbstractBinarySearchTree create() {
+            return new AVLTree();
+        }
+    },
+    RED_BLACK {
+        @Override
+        public AbstractBinarySearchTree create() {
+            return new RedBlackTree();
+        }
+    },
+    SPLAY {
+        @Override
+        public AbstractBinarySearchTree create() {
+            return new SplayTree();
+        }
+    },
+    /** Not in default parameter lists, select with -p tree=SPLAY_TOP_DOWN. */
+    SPLAY_TOP_DOWN {
+        @Override
+        public AbstractBinarySearchTree create() {
+            return SplayTree.topDown();
+        }
+    },
+    /** Search splays with probability 1/8, not in default parameter lists. */
+    SPLAY_SAMPLED {
+        @Override
+        public AbstractBinarySearchTree create() {
+            return SplayTree.splayWithProbability(0.125);
+        }
+    },
+    TREAP {
+        @Override
+        public AbstractBinarySearchTree create() {
+            return new Treap();
+        }
+    },
+    SCAPEGOAT {
+        @Override
+        public AbstractBinarySearchTree create() {
+            return new ScapegoatTree();
+        }
+    };
+
+    /**
+     * @return New empty tree of this type.
+     */
+    public abstract AbstractBinarySearchTree create();
+
+}
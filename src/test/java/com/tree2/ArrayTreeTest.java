@@ -0,0 +1,218 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Random operations on array AVL and red-black trees compared with {@link TreeSet}, links, heights and colors stored
+ * in the arrays are checked after every batch of operations.
+ */
+class ArrayTreeTest {
+
+    private static final int OPERATIONS = 20000;
+    private static final int KEY_RANGE = 2000;
+    private static final int CHECK_INTERVAL = 500;
+
+    @Test
+    void arrayAvlTreeMatchesTreeSet() {
+        // capacity 1 makes the first inserts grow the arrays
+        checkSet(new ArrayAVLTree(1), 1);
+        checkSet(new ArrayAVLTree(), 2);
+    }
+
+    @Test
+    void arrayRedBlackTreeMatchesTreeSet() {
+        checkSet(new ArrayRedBlackTree(1), 3);
+        checkSet(new ArrayRedBlackTree(), 4);
+    }
+
+    @Test
+    void bulkLoadedTreesMatchInputAndKeepWorking() {
+        Random random = new Random(5);
+        for (int n : new int[] { 0, 1, 2, 3, 7, 100, 1000 }) {
+            TreeSet<Integer> model = new TreeSet<Integer>();
+            while (model.size() < n) {
+                model.add(random.nextInt());
+            }
+            int[] keys = new int[n];
+            int i = 0;
+            for (int key : model) {
+                keys[i++] = key;
+            }
+            for (AbstractArraySelfBalancingBinarySearchTree tree : new AbstractArraySelfBalancingBinarySearchTree[] {
+                    ArrayAVLTree.fromSorted(keys), ArrayRedBlackTree.fromSorted(keys) }) {
+                checkStructure(tree, model);
+                // arrays are exactly full after bulk load, next insert grows them
+                TreeSet<Integer> grown = new TreeSet<Integer>(model);
+                for (int j = 0; j < 50; j++) {
+                    int key = random.nextInt();
+                    if (grown.add(key)) {
+                        tree.insert(key);
+                    }
+                }
+                checkStructure(tree, grown);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ArrayAVLTree().bulkLoad(new int[] { 2, 1 }));
+    }
+
+    @Test
+    void deletedSlotsAreReused() {
+        for (AbstractArraySelfBalancingBinarySearchTree tree : new AbstractArraySelfBalancingBinarySearchTree[] {
+                new ArrayAVLTree(1), new ArrayRedBlackTree(1) }) {
+            for (int i = 0; i < 1000; i++) {
+                tree.insert(i);
+            }
+            int capacity = tree.getCapacity();
+            for (int round = 0; round < 5; round++) {
+                for (int i = round; i < 1000; i += 2) {
+                    assertTrue(tree.delete(i));
+                }
+                for (int i = round; i < 1000; i += 2) {
+                    tree.insert(i);
+                }
+                assertEquals(capacity, tree.getCapacity(), "arrays grew although free slots were available");
+            }
+            TreeSet<Integer> expected = new TreeSet<Integer>();
+            for (int i = 0; i < 1000; i++) {
+                expected.add(i);
+            }
+            checkStructure(tree, expected);
+        }
+    }
+
+    @Test
+    void emptyTreeHasNoElements() {
+        ArrayRedBlackTree tree = new ArrayRedBlackTree(0);
+        assertFalse(tree.contains(1));
+        assertFalse(tree.delete(1));
+        assertThrows(NoSuchElementException.class, () -> tree.getMinimum());
+        assertThrows(NoSuchElementException.class, () -> tree.getMaximum());
+        assertThrows(NoSuchElementException.class, () -> tree.getSuccessor(1));
+        tree.insert(1);
+        assertThrows(NoSuchElementException.class, () -> tree.getSuccessor(1));
+        assertThrows(IllegalArgumentException.class, () -> new ArrayAVLTree(-1));
+    }
+
+    private static void checkSet(AbstractArraySelfBalancingBinarySearchTree tree, long seed) {
+        Random random = new Random(seed);
+        TreeSet<Integer> model = new TreeSet<Integer>();
+        for (int i = 1; i <= OPERATIONS; i++) {
+            int key = random.nextInt(KEY_RANGE);
+            // bias to inserts first, then to deletes so tree grows and shrinks
+            boolean insert = random.nextInt(OPERATIONS) >= i / 2;
+            if (insert) {
+                if (model.add(key)) {
+                    tree.insert(key);
+                }
+            } else {
+                assertEquals(model.remove(key), tree.delete(key));
+            }
+            assertEquals(model.contains(key), tree.contains(key));
+            if (i % CHECK_INTERVAL == 0) {
+                checkStructure(tree, model);
+                checkNavigation(tree, model);
+            }
+        }
+    }
+
+    private static void checkNavigation(AbstractArraySelfBalancingBinarySearchTree tree, TreeSet<Integer> model) {
+        if (model.isEmpty()) {
+            assertThrows(NoSuchElementException.class, () -> tree.getMinimum());
+            return;
+        }
+        assertEquals((int) model.first(), tree.getMinimum());
+        assertEquals((int) model.last(), tree.getMaximum());
+        for (int key : model) {
+            Integer higher = model.higher(key);
+            if (higher == null) {
+                assertThrows(NoSuchElementException.class, () -> tree.getSuccessor(key));
+            } else {
+                assertEquals((int) higher, tree.getSuccessor(key));
+            }
+        }
+    }
+
+    /**
+     * Checks content, links and balancing info stored in the arrays.
+     */
+    private static void checkStructure(AbstractArraySelfBalancingBinarySearchTree tree, TreeSet<Integer> expected) {
+        assertEquals(expected.size(), tree.getSize(), "size");
+        assertTrue(tree.getCapacity() >= tree.getSize(), "capacity");
+        List<Integer> elements = new ArrayList<Integer>();
+        if (tree.root != AbstractArraySelfBalancingBinarySearchTree.NIL) {
+            assertEquals(AbstractArraySelfBalancingBinarySearchTree.NIL, tree.parent[tree.root], "root has parent");
+            checkLinks(tree, tree.root, elements);
+        }
+        assertEquals(new ArrayList<Integer>(expected), elements);
+        if (tree instanceof ArrayAVLTree) {
+            assertEquals(-1, tree.info[AbstractArraySelfBalancingBinarySearchTree.NIL], "sentinel height");
+            assertAvl(tree, tree.root);
+        } else {
+            assertEquals(ArrayRedBlackTree.BLACK, tree.info[AbstractArraySelfBalancingBinarySearchTree.NIL],
+                    "sentinel color");
+            assertEquals(ArrayRedBlackTree.BLACK, tree.info[tree.root], "red root");
+            blackHeight(tree, tree.root);
+        }
+    }
+
+    private static void checkLinks(AbstractArraySelfBalancingBinarySearchTree tree, int node, List<Integer> elements) {
+        int left = tree.left[node];
+        int right = tree.right[node];
+        if (left != AbstractArraySelfBalancingBinarySearchTree.NIL) {
+            assertEquals(node, tree.parent[left], "parent of left child");
+            assertTrue(tree.value[left] <= tree.value[node], "left child is greater");
+            checkLinks(tree, left, elements);
+        }
+        elements.add(tree.value[node]);
+        if (right != AbstractArraySelfBalancingBinarySearchTree.NIL) {
+            assertEquals(node, tree.parent[right], "parent of right child");
+            assertTrue(tree.value[right] >= tree.value[node], "right child is smaller");
+            checkLinks(tree, right, elements);
+        }
+    }
+
+    /**
+     * @return Height of subtree.
+     */
+    private static int assertAvl(AbstractArraySelfBalancingBinarySearchTree tree, int node) {
+        if (node == AbstractArraySelfBalancingBinarySearchTree.NIL) {
+            return -1;
+        }
+        int left = assertAvl(tree, tree.left[node]);
+        int right = assertAvl(tree, tree.right[node]);
+        assertTrue(Math.abs(left - right) <= 1, "AVL balance");
+        int height = Math.max(left, right) + 1;
+        assertEquals(height, tree.info[node], "stored height");
+        return height;
+    }
+
+    /**
+     * @return Number of black nodes on each path from node down to nil, node included.
+     */
+    private static int blackHeight(AbstractArraySelfBalancingBinarySearchTree tree, int node) {
+        if (node == AbstractArraySelfBalancingBinarySearchTree.NIL) {
+            return 0;
+        }
+        int color = tree.info[node];
+        assertTrue(color == ArrayRedBlackTree.RED || color == ArrayRedBlackTree.BLACK, "color");
+        if (color == ArrayRedBlackTree.RED) {
+            assertEquals(ArrayRedBlackTree.BLACK, tree.info[tree.left[node]], "red node with red child");
+            assertEquals(ArrayRedBlackTree.BLACK, tree.info[tree.right[node]], "red node with red child");
+        }
+        int left = blackHeight(tree, tree.left[node]);
+        assertEquals(left, blackHeight(tree, tree.right[node]), "black height");
+        return left + (color == ArrayRedBlackTree.BLACK ? 1 : 0);
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Random operations on {@link BPlusTree} with small fan-outs compared with {@link TreeSet}, so nodes split, borrow
+ * and merge many times. Height is checked against the bounds given by minimum and maximum node fill.
+ */
+class BPlusTreeTest {
+
+    private static final int OPERATIONS = 20000;
+    private static final int KEY_RANGE = 3000;
+    private static final int CHECK_INTERVAL = 500;
+
+    @Test
+    void smallFanOutsMatchTreeSet() {
+        for (int maxKeys = 3; maxKeys <= 8; maxKeys++) {
+            checkSet(new BPlusTree(maxKeys), maxKeys);
+        }
+    }
+
+    @Test
+    void treeGrowsAndShrinks() {
+        for (int maxKeys = 3; maxKeys <= 8; maxKeys++) {
+            BPlusTree tree = new BPlusTree(maxKeys);
+            TreeSet<Integer> model = new TreeSet<Integer>();
+            for (int i = 0; i <= maxKeys; i++) {
+                assertEquals(1, tree.getHeight(), "root leaf split too early");
+                assertTrue(tree.insert(i));
+                model.add(i);
+            }
+            assertEquals(2, tree.getHeight(), "full root leaf was not split");
+            for (int i = maxKeys + 1; i < 5000; i++) {
+                tree.insert(i);
+                model.add(i);
+            }
+            assertFalse(tree.insert(0));
+            int fullHeight = tree.getHeight();
+            checkTree(tree, model);
+            // delete from both ends and the middle so underflow is fixed by borrowing from both sides and merging
+            for (int i = 0; i < 4900; i++) {
+                Integer middle = model.ceiling(2500);
+                int key = i % 3 == 0 ? model.first() : i % 3 == 1 || middle == null ? model.last() : middle;
+                assertTrue(tree.delete(key));
+                model.remove(key);
+                if (i % CHECK_INTERVAL == 0) {
+                    checkTree(tree, model);
+                }
+            }
+            checkTree(tree, model);
+            assertTrue(tree.getHeight() < fullHeight, "merges did not lower the tree");
+            while (!model.isEmpty()) {
+                assertTrue(tree.delete(model.pollFirst()));
+            }
+            assertEquals(1, tree.getHeight());
+            assertFalse(tree.delete(1));
+            assertThrows(NoSuchElementException.class, () -> tree.getMinimum());
+            assertThrows(NoSuchElementException.class, () -> tree.getMaximum());
+            assertFalse(tree.rangeIterator(Integer.MIN_VALUE, Integer.MAX_VALUE).hasNext());
+        }
+    }
+
+    @Test
+    void rangesAtBounds() {
+        for (int maxKeys = 3; maxKeys <= 8; maxKeys++) {
+            BPlusTree tree = new BPlusTree(maxKeys);
+            TreeSet<Integer> model = new TreeSet<Integer>();
+            // keys are multiples of 3, so key - 1 and key + 1 are never in the tree
+            for (int i = -90; i <= 90; i += 3) {
+                tree.insert(i);
+                model.add(i);
+            }
+            tree.insert(Integer.MIN_VALUE);
+            tree.insert(Integer.MAX_VALUE);
+            model.add(Integer.MIN_VALUE);
+            model.add(Integer.MAX_VALUE);
+            List<Integer> bounds = new ArrayList<Integer>();
+            for (int key : model) {
+                bounds.add(key);
+                if (key != Integer.MIN_VALUE) {
+                    bounds.add(key - 1);
+                }
+                if (key != Integer.MAX_VALUE) {
+                    bounds.add(key + 1);
+                }
+            }
+            for (int lo : bounds) {
+                for (int hi : bounds) {
+                    checkRange(tree, model, lo, hi);
+                }
+            }
+            PrimitiveIterator.OfInt iterator = tree.rangeIterator(90, 90);
+            assertEquals(90, iterator.nextInt());
+            assertFalse(iterator.hasNext());
+            assertThrows(NoSuchElementException.class, () -> iterator.nextInt());
+        }
+    }
+
+    @Test
+    void illegalFanOutIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BPlusTree(2));
+        assertEquals(BPlusTree.DEFAULT_MAX_KEYS, new BPlusTree().getMaxKeys());
+    }
+
+    private static void checkSet(BPlusTree tree, long seed) {
+        Random random = new Random(seed);
+        TreeSet<Integer> model = new TreeSet<Integer>();
+        for (int i = 1; i <= OPERATIONS; i++) {
+            int key = random.nextInt(KEY_RANGE);
+            // bias to inserts first, then to deletes so tree grows and shrinks
+            if (random.nextInt(OPERATIONS) >= i / 2) {
+                assertEquals(model.add(key), tree.insert(key));
+            } else {
+                assertEquals(model.remove(key), tree.delete(key));
+            }
+            assertEquals(model.contains(key), tree.contains(key));
+            if (i % CHECK_INTERVAL == 0) {
+                checkTree(tree, model);
+                int lo = random.nextInt(KEY_RANGE + 20) - 10;
+                checkRange(tree, model, lo, lo + random.nextInt(200));
+            }
+        }
+    }
+
+    private static void checkTree(BPlusTree tree, TreeSet<Integer> model) {
+        assertEquals(model.size(), tree.getSize(), "size");
+        checkRange(tree, model, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        if (model.isEmpty()) {
+            return;
+        }
+        assertEquals((int) model.first(), tree.getMinimum());
+        assertEquals((int) model.last(), tree.getMaximum());
+        for (int key : model) {
+            Integer higher = model.higher(key);
+            if (higher == null) {
+                assertThrows(NoSuchElementException.class, () -> tree.getSuccessor(key));
+            } else {
+                assertEquals((int) higher, tree.getSuccessor(key));
+            }
+        }
+        // every node except root keeps at least maxKeys / 2 keys, root keeps at least one
+        int maxKeys = tree.getMaxKeys();
+        int minKeys = maxKeys / 2;
+        int height = tree.getHeight();
+        double n = model.size();
+        if (height > 1) {
+            assertTrue(n >= 2 * Math.pow(minKeys + 1, height - 2) * minKeys, "nodes are not half full");
+        }
+        assertTrue(n <= Math.pow(maxKeys + 1, height - 1) * maxKeys, "nodes hold more than max keys");
+    }
+
+    private static void checkRange(BPlusTree tree, TreeSet<Integer> model, int lo, int hi) {
+        List<Integer> expected = lo > hi ? new ArrayList<Integer>()
+                : new ArrayList<Integer>(model.subSet(lo, true, hi, true));
+        List<Integer> iterated = new ArrayList<Integer>();
+        PrimitiveIterator.OfInt iterator = tree.rangeIterator(lo, hi);
+        while (iterator.hasNext()) {
+            iterated.add(iterator.nextInt());
+        }
+        assertEquals(expected, iterated, "rangeIterator [" + lo + ", " + hi + "]");
+        List<Integer> visited = new ArrayList<Integer>();
+        tree.forEachInRange(lo, hi, visited::add);
+        assertEquals(expected, visited, "forEachInRange [" + lo + ", " + hi + "]");
+    }
+
+}
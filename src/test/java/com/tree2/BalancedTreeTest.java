@@ -0,0 +1,181 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Random operations on AVL and red-black trees compared with {@link TreeSet} (and {@link TreeMap} of counts when
+ * duplicates are kept), structure is checked after every batch of operations.
+ */
+class BalancedTreeTest {
+
+    private static final int OPERATIONS = 20000;
+    private static final int KEY_RANGE = 2000;
+    private static final int CHECK_INTERVAL = 500;
+
+    @Test
+    void avlTreeMatchesTreeSet() {
+        checkSet(new AVLTree(), 1);
+        checkSet(new AVLTree(true), 2);
+    }
+
+    @Test
+    void redBlackTreeMatchesTreeSet() {
+        checkSet(new RedBlackTree(), 3);
+        checkSet(new RedBlackTree(true), 4);
+    }
+
+    @Test
+    void avlTreeKeepsDuplicates() {
+        checkDuplicates(new AVLTree(true), 5);
+        checkDuplicates(new AVLTree(true, true), 6);
+    }
+
+    @Test
+    void redBlackTreeKeepsDuplicates() {
+        checkDuplicates(new RedBlackTree(true), 7);
+        checkDuplicates(new RedBlackTree(true, true), 8);
+    }
+
+    @Test
+    void bulkLoadedTreesMatchInput() {
+        Random random = new Random(9);
+        for (int n : new int[] { 0, 1, 2, 3, 7, 100, 1000 }) {
+            TreeSet<Integer> model = new TreeSet<Integer>();
+            while (model.size() < n) {
+                model.add(random.nextInt());
+            }
+            int[] keys = new int[n];
+            int i = 0;
+            for (int key : model) {
+                keys[i++] = key;
+            }
+            AVLTree avl = AVLTree.fromSorted(keys);
+            TreeAssertions.assertContent(avl, model);
+            TreeAssertions.assertAvl(avl, avl.root);
+            RedBlackTree redBlack = RedBlackTree.fromSorted(keys);
+            TreeAssertions.assertContent(redBlack, model);
+            TreeAssertions.assertRedBlack(redBlack);
+        }
+    }
+
+    private static void checkSet(AbstractBinarySearchTree tree, long seed) {
+        Random random = new Random(seed);
+        TreeSet<Integer> model = new TreeSet<Integer>();
+        for (int i = 1; i <= OPERATIONS; i++) {
+            int key = random.nextInt(KEY_RANGE);
+            // bias to inserts first, then to deletes so tree grows and shrinks
+            boolean insert = random.nextInt(OPERATIONS) >= i / 2;
+            if (insert) {
+                if (model.add(key)) {
+                    assertEquals(key, tree.insert(key).value);
+                }
+            } else {
+                boolean present = model.remove(key);
+                assertEquals(present, tree.contains(key));
+                if (present) {
+                    tree.delete(key);
+                }
+            }
+            if (i % CHECK_INTERVAL == 0) {
+                checkStructure(tree, model);
+                checkNavigation(tree, model, random);
+            }
+        }
+    }
+
+    private static void checkDuplicates(AbstractBinarySearchTree tree, long seed) {
+        Random random = new Random(seed);
+        TreeMap<Integer, Integer> counts = new TreeMap<Integer, Integer>();
+        for (int i = 1; i <= OPERATIONS; i++) {
+            int key = random.nextInt(KEY_RANGE / 10);
+            Integer count = counts.get(key);
+            if (random.nextInt(3) > 0) {
+                tree.insert(key);
+                counts.put(key, count == null ? 1 : count + 1);
+            } else if (count != null) {
+                tree.delete(key);
+                if (count == 1) {
+                    counts.remove(key);
+                } else {
+                    counts.put(key, count - 1);
+                }
+            } else {
+                assertNull(tree.search(key));
+            }
+            Integer expectedCount = counts.get(key);
+            assertEquals(expectedCount == null ? 0 : (int) expectedCount, tree.count(key));
+            if (i % CHECK_INTERVAL == 0) {
+                List<Integer> expected = new ArrayList<Integer>();
+                for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+                    for (int c = 0; c < entry.getValue(); c++) {
+                        expected.add(entry.getKey());
+                    }
+                }
+                checkStructure(tree, expected);
+                for (int k = 0; k < expected.size(); k += 97) {
+                    assertEquals((int) expected.get(k), tree.select(k));
+                }
+            }
+        }
+    }
+
+    private static void checkStructure(AbstractBinarySearchTree tree, Collection<Integer> expected) {
+        TreeAssertions.assertContent(tree, expected);
+        if (tree instanceof AVLTree) {
+            TreeAssertions.assertAvl((AVLTree) tree, tree.root);
+        } else if (tree instanceof RedBlackTree) {
+            TreeAssertions.assertRedBlack((RedBlackTree) tree);
+        }
+    }
+
+    private static void checkNavigation(AbstractBinarySearchTree tree, TreeSet<Integer> model, Random random) {
+        for (int j = 0; j < 100; j++) {
+            int key = random.nextInt(KEY_RANGE + 20) - 10;
+            assertEquals(model.floor(key), navigate(tree, key, 0));
+            assertEquals(model.ceiling(key), navigate(tree, key, 1));
+            assertEquals(model.lower(key), navigate(tree, key, 2));
+            assertEquals(model.higher(key), navigate(tree, key, 3));
+            int hi = key + random.nextInt(50);
+            assertEquals(new ArrayList<Integer>(model.subSet(key, true, hi, true)),
+                    TreeAssertions.toList(tree.rangeIterator(key, hi)));
+            if (tree.orderStatistic) {
+                assertEquals(model.headSet(key).size(), tree.rank(key));
+                assertEquals(model.subSet(key, true, hi, true).size(), tree.countInRange(key, hi));
+            }
+        }
+        if (!model.isEmpty()) {
+            assertEquals((int) model.first(), tree.getMinimum());
+            assertEquals((int) model.last(), tree.getMaximum());
+        }
+    }
+
+    private static Integer navigate(AbstractBinarySearchTree tree, int key, int operation) {
+        try {
+            switch (operation) {
+            case 0:
+                return tree.floor(key);
+            case 1:
+                return tree.ceiling(key);
+            case 2:
+                return tree.lower(key);
+            default:
+                return tree.higher(key);
+            }
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+}
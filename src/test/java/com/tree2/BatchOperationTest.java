@@ -0,0 +1,147 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.tree2.AbstractBinarySearchTree.Node;
+
+/**
+ * {@link AbstractBinarySearchTree#insertAll(int[])} and {@link AbstractBinarySearchTree#deleteAll(int[])} of every
+ * tree type compared with {@link TreeMap} of counts. Small batches are merged node by node, large ones rebuild the
+ * tree.
+ */
+class BatchOperationTest {
+
+    private static final int ROUNDS = 300;
+    private static final int KEY_RANGE = 3000;
+
+    @Test
+    void avlTree() {
+        check(new AVLTree(), 1);
+        check(new AVLTree(true), 2);
+        check(new AVLTree(true, true), 3);
+    }
+
+    @Test
+    void redBlackTree() {
+        check(new RedBlackTree(), 4);
+        check(new RedBlackTree(true), 5);
+        check(new RedBlackTree(true, true), 6);
+    }
+
+    @Test
+    void treap() {
+        check(new Treap(), 7);
+        check(new Treap(true), 8);
+        check(Treap.withHashPriorities(9), 9);
+    }
+
+    @Test
+    void splayAndScapegoatTrees() {
+        check(new SplayTree(), 10);
+        check(new SplayTree(true, 1, 1.0, 0), 11);
+        check(new ScapegoatTree(), 12);
+        check(new ScapegoatTree(true), 13);
+    }
+
+    @Test
+    void bulkLoadedHashTreapHasShapeOfInsertedOne() {
+        Random random = new Random(14);
+        int[] keys = new int[5000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt(KEY_RANGE);
+        }
+        Treap inserted = Treap.withHashPriorities(15);
+        for (int key : keys) {
+            inserted.insert(key);
+        }
+        int[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        Treap loaded = Treap.withHashPriorities(15);
+        loaded.bulkLoad(sorted);
+        assertSameShape(inserted.root, loaded.root);
+        TreeAssertions.assertTreap(loaded, loaded.root);
+
+        Treap sized = new Treap(true);
+        sized.bulkLoad(sorted);
+        TreeAssertions.assertTreap(sized, sized.root);
+        for (int k = 0; k < sorted.length; k += 97) {
+            assertEquals(sorted[k], sized.select(k));
+        }
+    }
+
+    private static void assertSameShape(Node expected, Node actual) {
+        if (expected == null || actual == null) {
+            assertEquals(expected == null, actual == null, "shape");
+            return;
+        }
+        assertEquals(expected.value, actual.value);
+        assertSameShape(expected.left, actual.left);
+        assertSameShape(expected.right, actual.right);
+    }
+
+    private static void check(AbstractBinarySearchTree tree, long seed) {
+        Random random = new Random(seed);
+        TreeMap<Integer, Integer> counts = new TreeMap<Integer, Integer>();
+        for (int round = 0; round < ROUNDS; round++) {
+            // mostly batches small enough to be merged, sometimes large ones which rebuild the tree
+            int length = random.nextInt(20) == 0 ? random.nextInt(KEY_RANGE) : random.nextInt(40);
+            int[] batch = new int[length];
+            for (int i = 0; i < length; i++) {
+                batch[i] = random.nextInt(KEY_RANGE);
+            }
+            if (random.nextInt(5) < 3) {
+                int duplicates = 0;
+                for (int element : batch) {
+                    Integer count = counts.get(element);
+                    if (count != null) {
+                        duplicates++;
+                    }
+                    counts.put(element, count == null ? 1 : count + 1);
+                }
+                BatchResult result = tree.insertAll(batch);
+                assertEquals(length, result.getInserted());
+                assertEquals(duplicates, result.getDuplicates());
+            } else {
+                int deleted = 0;
+                for (int element : batch) {
+                    Integer count = counts.get(element);
+                    if (count != null) {
+                        deleted++;
+                        if (count == 1) {
+                            counts.remove(element);
+                        } else {
+                            counts.put(element, count - 1);
+                        }
+                    }
+                }
+                BatchResult result = tree.deleteAll(batch);
+                assertEquals(deleted, result.getDeleted());
+                assertEquals(length - deleted, result.getMissing());
+            }
+            List<Integer> expected = new ArrayList<Integer>();
+            for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+                for (int c = 0; c < entry.getValue(); c++) {
+                    expected.add(entry.getKey());
+                }
+            }
+            TreeAssertions.assertContent(tree, expected);
+            if (tree instanceof AVLTree) {
+                TreeAssertions.assertAvl((AVLTree) tree, tree.root);
+            } else if (tree instanceof RedBlackTree) {
+                TreeAssertions.assertRedBlack((RedBlackTree) tree);
+            } else if (tree instanceof Treap) {
+                TreeAssertions.assertTreap((Treap) tree, tree.root);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link ConcurrentAVLTree} compared with {@link TreeSet}, single threaded and with threads updating disjoint keys.
+ */
+class ConcurrentAVLTreeTest {
+
+    @Test
+    void singleThreadMatchesTreeSet() {
+        Random random = new Random(1);
+        ConcurrentAVLTree tree = new ConcurrentAVLTree();
+        TreeSet<Integer> model = new TreeSet<Integer>();
+        for (int i = 0; i < 50000; i++) {
+            int key = random.nextInt(3000);
+            switch (random.nextInt(3)) {
+            case 0:
+                assertEquals(model.add(key), tree.insert(key));
+                break;
+            case 1:
+                assertEquals(model.remove(key), tree.delete(key));
+                break;
+            default:
+                assertEquals(model.contains(key), tree.contains(key));
+                Integer higher = model.higher(key);
+                if (model.contains(key)) {
+                    assertEquals(higher, successor(tree, key));
+                }
+            }
+            assertEquals(model.size(), tree.getSize());
+            if (!model.isEmpty()) {
+                assertEquals((int) model.first(), tree.getMinimum());
+                assertEquals((int) model.last(), tree.getMaximum());
+            }
+        }
+    }
+
+    /**
+     * Every thread owns keys congruent to its index, so result of each thread is deterministic while rotations and
+     * routing nodes are shared by all of them.
+     */
+    @Test
+    void concurrentUpdatesOfDisjointKeys() throws Exception {
+        final int threads = 4;
+        final int range = 4096;
+        final ConcurrentAVLTree tree = new ConcurrentAVLTree();
+        final List<TreeSet<Integer>> models = new ArrayList<TreeSet<Integer>>();
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            final int index = t;
+            final TreeSet<Integer> model = new TreeSet<Integer>();
+            models.add(model);
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random(index);
+                    try {
+                        start.await();
+                        for (int i = 0; i < 100000; i++) {
+                            int key = random.nextInt(range / threads) * threads + index;
+                            if (random.nextBoolean()) {
+                                assertEquals(model.add(key), tree.insert(key));
+                            } else {
+                                assertEquals(model.remove(key), tree.delete(key));
+                            }
+                            assertEquals(model.contains(key), tree.contains(key));
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertTrue(failures.isEmpty(), failures.toString());
+        TreeSet<Integer> expected = new TreeSet<Integer>();
+        for (TreeSet<Integer> model : models) {
+            expected.addAll(model);
+        }
+        assertEquals(expected.size(), tree.getSize());
+        for (int key = 0; key < range; key++) {
+            assertEquals(expected.contains(key), tree.contains(key));
+        }
+        List<Integer> ascending = new ArrayList<Integer>();
+        if (!expected.isEmpty()) {
+            for (Integer key = tree.getMinimum(); key != null; key = successor(tree, key)) {
+                ascending.add(key);
+            }
+        }
+        assertEquals(new ArrayList<Integer>(expected), ascending);
+        assertFalse(tree.contains(range));
+    }
+
+    private static Integer successor(ConcurrentAVLTree tree, int key) {
+        try {
+            return tree.getSuccessor(key);
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+}
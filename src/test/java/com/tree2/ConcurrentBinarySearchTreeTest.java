@@ -0,0 +1,198 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link ConcurrentBinarySearchTree}: lookups in tree order, atomic insert if absent and optimistic reads which fall
+ * back to read lock while writers change the tree.
+ */
+class ConcurrentBinarySearchTreeTest {
+
+    private static final int THREADS = 4;
+
+    @Test
+    void lookupsFollowKeyComparator() {
+        BinarySearchTree descending = new BinarySearchTree();
+        descending.setKeyComparator((left, right) -> Integer.compare(right, left));
+        ConcurrentBinarySearchTree tree = new ConcurrentBinarySearchTree(descending);
+        TreeSet<Integer> model = new TreeSet<Integer>(Collections.reverseOrder());
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            int key = random.nextInt(500) * 2;
+            assertEquals(model.add(key), tree.insertIfAbsent(key));
+        }
+        List<Integer> keys = new ArrayList<Integer>(model);
+        assertEquals(keys.size(), tree.getSize());
+        assertEquals((int) keys.get(0), tree.getMinimum());
+        assertEquals((int) keys.get(keys.size() - 1), tree.getMaximum());
+        for (int i = 0; i < keys.size(); i++) {
+            int key = keys.get(i);
+            assertTrue(tree.contains(key), "contains " + key);
+            assertFalse(tree.contains(key + 1));
+            if (i + 1 < keys.size()) {
+                // successor in descending order is the next smaller key
+                assertEquals((int) keys.get(i + 1), tree.getSuccessor(key));
+            }
+        }
+    }
+
+    /**
+     * All threads insert the same keys, every key must be reported as inserted by exactly one of them.
+     */
+    @Test
+    void insertIfAbsentIsAtomic() throws Exception {
+        final int keys = 20000;
+        final ConcurrentBinarySearchTree tree = new ConcurrentBinarySearchTree(new AVLTree());
+        final AtomicInteger[] inserted = new AtomicInteger[keys];
+        for (int key = 0; key < keys; key++) {
+            inserted[key] = new AtomicInteger();
+        }
+        runThreads(new Worker() {
+            @Override
+            public void run(int index) {
+                // half of the threads go backwards, so they race on every key
+                for (int i = 0; i < keys; i++) {
+                    int key = index % 2 == 0 ? i : keys - 1 - i;
+                    if (tree.insertIfAbsent(key)) {
+                        inserted[key].incrementAndGet();
+                    }
+                }
+            }
+        });
+        assertEquals(keys, tree.getSize());
+        for (int key = 0; key < keys; key++) {
+            assertEquals(1, inserted[key].get(), "key " + key + " inserted");
+        }
+    }
+
+    /**
+     * Reader started while writer holds the lock in the middle of insert can not read optimistically, it waits for
+     * read lock and then sees the finished insert.
+     */
+    @Test
+    void readDuringUpdateWaitsForWriter() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        BinarySearchTree blocking = new BinarySearchTree() {
+            @Override
+            protected Node createNode(int value, Node parent, Node left, Node right) {
+                if (value == 5) {
+                    writing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.createNode(value, parent, left, right);
+            }
+        };
+        final ConcurrentBinarySearchTree tree = new ConcurrentBinarySearchTree(blocking);
+        tree.insert(3);
+        tree.insert(7);
+        Thread writer = new Thread(() -> tree.insert(5));
+        writer.start();
+        writing.await();
+        final boolean[] found = new boolean[1];
+        Thread reader = new Thread(() -> found[0] = tree.contains(5));
+        reader.start();
+        while (reader.getState() != Thread.State.WAITING) {
+            assertTrue(reader.isAlive(), "reader did not wait for writer");
+            Thread.sleep(1);
+        }
+        release.countDown();
+        writer.join();
+        reader.join();
+        assertTrue(found[0]);
+        assertEquals(3, tree.getSize());
+    }
+
+    /**
+     * Writers keep inserting and deleting odd keys, so optimistic reads keep failing validation (or see broken
+     * links) and fall back to read lock. Even keys are never changed, answers about them must always be exact.
+     */
+    @Test
+    void optimisticReadsUnderConcurrentWriters() throws Exception {
+        final int range = 2048;
+        final ConcurrentBinarySearchTree tree = new ConcurrentBinarySearchTree(new RedBlackTree());
+        for (int key = 0; key <= range; key += 2) {
+            tree.insert(key);
+        }
+        final CountDownLatch readersDone = new CountDownLatch(THREADS / 2);
+        runThreads(new Worker() {
+            @Override
+            public void run(int index) throws Exception {
+                Random random = new Random(index);
+                if (index % 2 == 0) {
+                    while (readersDone.getCount() > 0) {
+                        int key = random.nextInt(range / 2) * 2 + 1;
+                        if (random.nextBoolean()) {
+                            tree.insertIfAbsent(key);
+                        } else {
+                            tree.delete(key);
+                        }
+                    }
+                    return;
+                }
+                try {
+                    for (int i = 0; i < 200000; i++) {
+                        int key = random.nextInt(range / 2) * 2;
+                        assertTrue(tree.contains(key), "stable key " + key);
+                        assertFalse(tree.contains(-1 - key), "missing key " + (-1 - key));
+                        int successor = tree.getSuccessor(key);
+                        assertTrue(successor == key + 1 || successor == key + 2, "successor " + successor);
+                        assertEquals(0, tree.getMinimum());
+                        assertEquals(range, tree.getMaximum());
+                    }
+                } finally {
+                    readersDone.countDown();
+                }
+            }
+        });
+        int size = tree.getSize();
+        assertTrue(size >= range / 2 + 1 && size <= range + 1, "size " + size);
+    }
+
+    private interface Worker {
+        void run(int index) throws Exception;
+    }
+
+    private static void runThreads(final Worker worker) throws Exception {
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < THREADS; t++) {
+            final int index = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    worker.run(index);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.isEmpty(), failures.toString());
+    }
+
+}
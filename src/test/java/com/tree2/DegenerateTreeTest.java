@@ -0,0 +1,181 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.tree2.AbstractBinarySearchTree.Node;
+
+/**
+ * Traversals and printing of {@link BinarySearchTree} degenerated to a path of {@value #N} nodes by sorted inserts.
+ * Walks follow parent pointers, so they must not overflow stack however deep the tree is. Visit orders are compared
+ * with sequences known from the shape of the path.
+ */
+class DegenerateTreeTest {
+
+    private static final int N = 100000;
+
+    @Test
+    void ascendingPath() {
+        int[] ascending = range(0, N);
+        BinarySearchTree tree = path(ascending);
+        // every node is right child of the previous one
+        checkOrder(tree, TraversalOrder.IN_ORDER, ascending, ascending);
+        checkOrder(tree, TraversalOrder.PRE_ORDER, ascending, ascending);
+        checkOrder(tree, TraversalOrder.POST_ORDER, reverse(ascending), reverse(ascending));
+        checkOrder(tree, TraversalOrder.LEVEL_ORDER, ascending, ascending);
+        checkPrintedTraversals(tree, ascending, ascending, reverse(ascending));
+    }
+
+    @Test
+    void descendingPath() {
+        int[] descending = reverse(range(0, N));
+        BinarySearchTree tree = path(descending);
+        // every node is left child of the previous one, depth of key k is N - 1 - k
+        checkOrder(tree, TraversalOrder.IN_ORDER, reverse(descending), reverse(range(0, N)));
+        checkOrder(tree, TraversalOrder.PRE_ORDER, descending, range(0, N));
+        checkOrder(tree, TraversalOrder.POST_ORDER, reverse(descending), reverse(range(0, N)));
+        checkOrder(tree, TraversalOrder.LEVEL_ORDER, descending, range(0, N));
+        checkPrintedTraversals(tree, reverse(descending), descending, reverse(descending));
+    }
+
+    @Test
+    void zigZagPath() {
+        // 0, N - 1, 1, N - 2, ...: path turns at every node, in order is still 0..N - 1
+        int[] keys = new int[N];
+        int[] depths = new int[N];
+        for (int k = 0; k < N; k++) {
+            keys[k] = k % 2 == 0 ? k / 2 : N - 1 - k / 2;
+            depths[keys[k]] = k;
+        }
+        BinarySearchTree tree = path(keys);
+        checkOrder(tree, TraversalOrder.IN_ORDER, range(0, N), depths);
+        checkOrder(tree, TraversalOrder.PRE_ORDER, keys, range(0, N));
+        checkOrder(tree, TraversalOrder.POST_ORDER, reverse(keys), reverse(range(0, N)));
+        checkOrder(tree, TraversalOrder.LEVEL_ORDER, keys, range(0, N));
+        checkPrintedTraversals(tree, range(0, N), keys, reverse(keys));
+    }
+
+    /**
+     * Whole path can not be printed, indent of every line is proportional to its depth. Subtrees at the bottom of the
+     * path are printed instead, their roots are 100k levels deep.
+     */
+    @Test
+    void printSubtreeAtBottomOfPath() {
+        BinarySearchTree tree = path(range(0, N));
+        int size = 100;
+        List<String> expected = new ArrayList<String>();
+        // right subtree is printed above node, so lines go from the deepest node up
+        for (int depth = size - 1; depth > 0; depth--) {
+            char[] indent = new char[(depth - 1) * 8];
+            Arrays.fill(indent, ' ');
+            expected.add(new String(indent) + " /----- " + (N - size + depth));
+        }
+        expected.add(String.valueOf(N - size));
+        assertEquals(expected, printedLines(tree, tree.search(N - size)));
+
+        int[] keys = new int[N];
+        for (int k = 0; k < N; k++) {
+            keys[k] = k % 2 == 0 ? k / 2 : N - 1 - k / 2;
+        }
+        tree = path(keys);
+        // 49998 -> right 50001 -> left 49999 -> right 50000, vertical lines mark turns of the path
+        assertEquals(Arrays.asList(
+                " /----- 50001",
+                " |       |       /----- 50000",
+                " |       \\----- 49999",
+                "49998"), printedLines(tree, tree.search(keys[N - 4])));
+        assertEquals(Arrays.asList("50000"), printedLines(tree, tree.search(keys[N - 1])));
+    }
+
+    /**
+     * Inserts keys in given order, each one starts its descent at the previous node, below which it belongs, so path
+     * of N nodes is built in O(N) (insert from the root would take O(N^2)).
+     */
+    private static BinarySearchTree path(int[] keys) {
+        BinarySearchTree tree = new BinarySearchTree();
+        Node last = tree.insert(keys[0]);
+        for (int i = 1; i < keys.length; i++) {
+            last = tree.insert(keys[i], last, false);
+        }
+        assertEquals(N, tree.getSize());
+        return tree;
+    }
+
+    private static void checkOrder(AbstractBinarySearchTree tree, TraversalOrder order, int[] values, int[] depths) {
+        final int[] visitedValues = new int[N];
+        final int[] visitedDepths = new int[N];
+        final int[] visited = new int[1];
+        tree.traverse(order, (node, depth) -> {
+            visitedValues[visited[0]] = node.value;
+            visitedDepths[visited[0]++] = depth;
+        });
+        assertEquals(N, visited[0], order.name());
+        assertArrayEquals(values, visitedValues, order.name());
+        assertArrayEquals(depths, visitedDepths, order.name());
+        List<Integer> elements = new ArrayList<Integer>();
+        tree.forEach(order, elements::add);
+        assertEquals(N, elements.size());
+        for (int i = 0; i < N; i++) {
+            assertEquals(values[i], (int) elements.get(i), order.name());
+        }
+    }
+
+    private static void checkPrintedTraversals(AbstractBinarySearchTree tree, int[] inOrder, int[] preOrder,
+            int[] postOrder) {
+        assertEquals(joined(inOrder), printed(tree::printTreeInOrder));
+        assertEquals(joined(preOrder), printed(tree::printTreePreOrder));
+        assertEquals(joined(postOrder), printed(tree::printTreePostOrder));
+    }
+
+    private static List<String> printedLines(AbstractBinarySearchTree tree, Node subtree) {
+        return Arrays.asList(printed(() -> tree.printSubtree(subtree)).split("\\R"));
+    }
+
+    /**
+     * @return Everything action printed to {@link System#out}.
+     */
+    private static String printed(Runnable action) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true));
+        try {
+            action.run();
+        } finally {
+            System.setOut(out);
+        }
+        return bytes.toString();
+    }
+
+    private static String joined(int[] values) {
+        StringBuilder builder = new StringBuilder();
+        for (int value : values) {
+            builder.append(value).append(' ');
+        }
+        return builder.toString();
+    }
+
+    private static int[] range(int from, int to) {
+        int[] values = new int[to - from];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = from + i;
+        }
+        return values;
+    }
+
+    private static int[] reverse(int[] values) {
+        int[] reversed = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            reversed[i] = values[values.length - 1 - i];
+        }
+        return reversed;
+    }
+
+}
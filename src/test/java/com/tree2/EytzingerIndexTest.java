@@ -0,0 +1,127 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link EytzingerIndex} lookups compared with binary search over the sorted keys, for every size up to a few full
+ * levels (so last level is empty, partly filled and full) and with duplicates.
+ */
+class EytzingerIndexTest {
+
+    @Test
+    void lookupsMatchSortedArray() {
+        Random random = new Random(1);
+        for (int n = 0; n <= 130; n++) {
+            // even keys only, so odd probes next to them are missing
+            int[] keys = new int[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = 2 * i;
+            }
+            checkIndex(EytzingerIndex.fromSorted(keys), keys);
+            int[] duplicates = new int[n];
+            for (int i = 0; i < n; i++) {
+                duplicates[i] = random.nextInt(n / 4 + 1) * 2;
+            }
+            Arrays.sort(duplicates);
+            checkIndex(EytzingerIndex.fromSorted(duplicates), duplicates);
+        }
+    }
+
+    @Test
+    void bfsLayout() {
+        assertArrayEquals(new int[] { 0, 4, 2, 6, 1, 3, 5, 7 },
+                EytzingerIndex.fromSorted(new int[] { 1, 2, 3, 4, 5, 6, 7 }).toArray());
+        // last level holds 1 and 3 only
+        assertArrayEquals(new int[] { 0, 4, 2, 5, 1, 3 },
+                EytzingerIndex.fromSorted(new int[] { 1, 2, 3, 4, 5 }).toArray());
+    }
+
+    @Test
+    void exportedTreeMatchesSortedKeys() {
+        Random random = new Random(2);
+        AVLTree tree = new AVLTree();
+        for (int i = 0; i < 1000; i++) {
+            tree.insert(random.nextInt());
+        }
+        int[] keys = TreeAssertions.toList(tree.rangeIterator(Integer.MIN_VALUE, Integer.MAX_VALUE)).stream()
+                .mapToInt(Integer::intValue).toArray();
+        EytzingerIndex index = tree.exportStatic();
+        assertArrayEquals(EytzingerIndex.fromSorted(keys).toArray(), index.toArray());
+        checkIndex(index, keys);
+    }
+
+    @Test
+    void emptyAndExtremeKeys() {
+        EytzingerIndex empty = EytzingerIndex.fromSorted(new int[0]);
+        assertFalse(empty.contains(0));
+        assertEquals(0, empty.rank(0));
+        assertThrows(NoSuchElementException.class, () -> empty.floor(0));
+        assertThrows(NoSuchElementException.class, () -> empty.ceiling(0));
+        int[] keys = { Integer.MIN_VALUE, -1, 0, Integer.MAX_VALUE };
+        EytzingerIndex index = EytzingerIndex.fromSorted(keys);
+        assertEquals(Integer.MIN_VALUE, index.floor(Integer.MIN_VALUE));
+        assertEquals(Integer.MIN_VALUE, index.ceiling(Integer.MIN_VALUE));
+        assertEquals(Integer.MAX_VALUE, index.floor(Integer.MAX_VALUE));
+        assertEquals(Integer.MAX_VALUE, index.ceiling(1));
+        assertEquals(3, index.rank(Integer.MAX_VALUE));
+        assertEquals(0, index.rank(Integer.MIN_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> EytzingerIndex.fromSorted(new int[] { 2, 1 }));
+    }
+
+    private static void checkIndex(EytzingerIndex index, int[] sorted) {
+        assertEquals(sorted.length, index.getSize());
+        List<Integer> probes = new ArrayList<Integer>();
+        probes.add(Integer.MIN_VALUE);
+        probes.add(Integer.MAX_VALUE);
+        for (int key : sorted) {
+            probes.add(key - 1);
+            probes.add(key);
+            probes.add(key + 1);
+        }
+        for (int probe : probes) {
+            int rank = lowerBound(sorted, probe);
+            int upper = probe == Integer.MAX_VALUE ? sorted.length : lowerBound(sorted, probe + 1);
+            assertEquals(rank < sorted.length && sorted[rank] == probe, index.contains(probe), "contains " + probe);
+            assertEquals(rank, index.rank(probe), "rank " + probe);
+            if (rank == sorted.length) {
+                assertThrows(NoSuchElementException.class, () -> index.ceiling(probe), "ceiling " + probe);
+            } else {
+                assertEquals(sorted[rank], index.ceiling(probe), "ceiling " + probe);
+            }
+            if (upper == 0) {
+                assertThrows(NoSuchElementException.class, () -> index.floor(probe), "floor " + probe);
+            } else {
+                assertEquals(sorted[upper - 1], index.floor(probe), "floor " + probe);
+            }
+        }
+    }
+
+    /**
+     * @return Number of keys less than key.
+     */
+    private static int lowerBound(int[] sorted, int key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+}
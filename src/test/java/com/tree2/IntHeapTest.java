@@ -0,0 +1,110 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link IntHeap} compared with {@link PriorityQueue}, {@link IndexedIntHeap} with map of priorities.
+ */
+class IntHeapTest {
+
+    private static final int[] ARITIES = { 2, 4, 8 };
+
+    @Test
+    void intHeapMatchesPriorityQueue() {
+        Random random = new Random(1);
+        for (int arity : ARITIES) {
+            for (boolean maxHeap : new boolean[] { false, true }) {
+                int[] initial = new int[random.nextInt(100)];
+                PriorityQueue<Integer> model = maxHeap ? new PriorityQueue<Integer>(11, Collections.reverseOrder())
+                        : new PriorityQueue<Integer>();
+                for (int i = 0; i < initial.length; i++) {
+                    initial[i] = random.nextInt();
+                    model.add(initial[i]);
+                }
+                IntHeap heap = IntHeap.of(initial, arity, maxHeap);
+                for (int i = 0; i < 20000; i++) {
+                    if (random.nextInt(5) < 3) {
+                        // extreme values check encoding of max heap
+                        int value = random.nextInt(10) == 0 ? (random.nextBoolean() ? Integer.MIN_VALUE
+                                : Integer.MAX_VALUE) : random.nextInt(1000) - 500;
+                        heap.add(value);
+                        model.add(value);
+                    } else if (!model.isEmpty()) {
+                        assertEquals((int) model.peek(), heap.peek());
+                        assertEquals((int) model.poll(), heap.poll());
+                    }
+                    assertEquals(model.size(), heap.size());
+                }
+                while (!model.isEmpty()) {
+                    assertEquals((int) model.poll(), heap.poll());
+                }
+                assertTrue(heap.isEmpty());
+                assertThrows(NoSuchElementException.class, () -> heap.poll());
+            }
+        }
+    }
+
+    @Test
+    void indexedHeapMatchesPriorities() {
+        Random random = new Random(2);
+        int capacity = 500;
+        for (int arity : ARITIES) {
+            for (boolean maxHeap : new boolean[] { false, true }) {
+                IndexedIntHeap heap = new IndexedIntHeap(capacity, arity, maxHeap);
+                Map<Integer, Long> priorities = new HashMap<Integer, Long>();
+                for (int i = 0; i < 30000; i++) {
+                    int handle = random.nextInt(capacity);
+                    long priority = random.nextInt(10) == 0 ? (random.nextBoolean() ? Long.MIN_VALUE : Long.MAX_VALUE)
+                            : random.nextInt(1000);
+                    switch (random.nextInt(5)) {
+                    case 0:
+                        if (!priorities.containsKey(handle)) {
+                            heap.add(handle, priority);
+                            priorities.put(handle, priority);
+                        }
+                        break;
+                    case 1:
+                        heap.update(handle, priority);
+                        priorities.put(handle, priority);
+                        break;
+                    case 2:
+                        Long current = priorities.get(handle);
+                        if (current != null && (maxHeap ? priority >= current : priority <= current)) {
+                            heap.decreaseKey(handle, priority);
+                            priorities.put(handle, priority);
+                        }
+                        break;
+                    case 3:
+                        assertEquals(priorities.remove(handle) != null, heap.remove(handle));
+                        break;
+                    default:
+                        if (!priorities.isEmpty()) {
+                            long top = maxHeap ? Collections.max(priorities.values())
+                                    : Collections.min(priorities.values());
+                            assertEquals(top, heap.peekPriority());
+                            int polled = heap.poll();
+                            assertEquals(top, (long) priorities.remove(polled));
+                        }
+                    }
+                    assertEquals(priorities.size(), heap.size());
+                    assertEquals(priorities.containsKey(handle), heap.contains(handle));
+                    if (priorities.containsKey(handle)) {
+                        assertEquals((long) priorities.get(handle), heap.priorityOf(handle));
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Int keyed maps compared with {@link TreeMap}, bare-key inserts add keys with default value.
+ */
+class IntMapTest {
+
+    private static final int OPERATIONS = 20000;
+    private static final int KEY_RANGE = 1000;
+
+    @Test
+    void intAvlMapMatchesTreeMap() {
+        check(new IntAVLMap<String>(), new IntAVLMap<String>(true), 1);
+    }
+
+    @Test
+    void intRedBlackMapMatchesTreeMap() {
+        check(new IntRedBlackMap<String>(), new IntRedBlackMap<String>(true), 2);
+    }
+
+    @Test
+    void intLongAvlMapMatchesTreeMap() {
+        Random random = new Random(3);
+        IntLongAVLMap map = new IntLongAVLMap(-1);
+        TreeMap<Integer, Long> model = new TreeMap<Integer, Long>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int key = random.nextInt(KEY_RANGE);
+            long value = random.nextInt(100);
+            Long previous = model.get(key);
+            long expected = previous == null ? -1 : previous;
+            switch (random.nextInt(5)) {
+            case 0:
+                assertEquals(expected, map.put(key, value));
+                model.put(key, value);
+                break;
+            case 1:
+                assertEquals(expected, map.remove(key));
+                model.remove(key);
+                break;
+            case 2:
+                assertEquals(expected + value, map.addTo(key, value));
+                model.put(key, expected + value);
+                break;
+            case 3:
+                assertEquals(previous == null ? value : previous, map.computeIfAbsent(key, k -> value));
+                if (previous == null) {
+                    model.put(key, value);
+                }
+                break;
+            default:
+                if (previous == null) {
+                    assertThrows(IllegalStateException.class, () -> map.computeIfAbsent(key, k -> {
+                        throw new IllegalStateException();
+                    }));
+                }
+            }
+            assertEquals(model.size(), map.getSize());
+            assertEquals(model.containsKey(key), map.containsKey(key));
+            assertEquals(model.containsKey(key) ? model.get(key) : -1, map.get(key));
+        }
+        List<Integer> keys = new ArrayList<Integer>();
+        List<Long> values = new ArrayList<Long>();
+        for (Iterator<IntLongAVLMap.LongValueAVLNode> it = map.entryIterator(); it.hasNext();) {
+            IntLongAVLMap.LongValueAVLNode entry = it.next();
+            keys.add(entry.getKey());
+            values.add(entry.getValue());
+        }
+        assertEquals(new ArrayList<Integer>(model.keySet()), keys);
+        assertEquals(new ArrayList<Long>(model.values()), values);
+        checkBareKeys(map, model.firstKey(), key -> map.containsKey(key) ? map.get(key) : null, -1L);
+    }
+
+    private static void check(AbstractBinarySearchTree plain, AbstractBinarySearchTree orderStatistic, long seed) {
+        checkMap(plain, seed);
+        checkMap(orderStatistic, seed + 10);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void checkMap(AbstractBinarySearchTree tree, long seed) {
+        Random random = new Random(seed);
+        TreeMap<Integer, String> model = new TreeMap<Integer, String>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int key = random.nextInt(KEY_RANGE);
+            String value = Integer.toString(random.nextInt(100));
+            switch (random.nextInt(4)) {
+            case 0:
+                assertEquals(model.put(key, value), put(tree, key, value));
+                break;
+            case 1:
+                assertEquals(model.remove(key), remove(tree, key));
+                break;
+            case 2:
+                String expected = model.containsKey(key) ? model.get(key) : value;
+                assertEquals(expected, computeIfAbsent(tree, key, value));
+                model.put(key, expected);
+                break;
+            default:
+                // null result leaves map unchanged
+                assertEquals(model.get(key), computeIfAbsent(tree, key, null));
+            }
+            assertEquals(model.size(), tree.getSize());
+            assertEquals(model.get(key), get(tree, key));
+        }
+        // deleteAll removes whole entries and keeps values of the remaining keys
+        int[] removed = new int[KEY_RANGE / 2];
+        for (int i = 0; i < removed.length; i++) {
+            removed[i] = random.nextInt(KEY_RANGE);
+            model.remove(removed[i]);
+        }
+        tree.deleteAll(removed);
+        assertEquals(model.size(), tree.getSize());
+        List<Integer> keys = new ArrayList<Integer>();
+        List<String> values = new ArrayList<String>();
+        Iterator<? extends IntMapEntry<String>> it = tree instanceof IntAVLMap ? ((IntAVLMap<String>) tree)
+                .entryIterator() : ((IntRedBlackMap<String>) tree).entryIterator();
+        while (it.hasNext()) {
+            IntMapEntry<String> entry = it.next();
+            keys.add(entry.getKey());
+            values.add(entry.getValue());
+        }
+        assertEquals(new ArrayList<Integer>(model.keySet()), keys);
+        assertEquals(new ArrayList<String>(model.values()), values);
+        for (Map.Entry<Integer, String> entry : model.entrySet()) {
+            assertEquals(entry.getValue(), get(tree, entry.getKey()));
+        }
+        checkBareKeys(tree, model.firstKey(), key -> get(tree, key), null);
+    }
+
+    /**
+     * Bare keys are added with default value (null for object values), keys already in the map keep their values and
+     * are never added twice.
+     *
+     * @param present Key with value.
+     * @param value Value of key, null if key is not in the map.
+     */
+    private static void checkBareKeys(AbstractBinarySearchTree map, int present, IntFunction<Object> value,
+            Object defaultValue) {
+        int absent = KEY_RANGE;
+        Object presentValue = value.apply(present);
+        int size = map.getSize();
+        assertEquals(absent, map.insert(absent).value);
+        assertEquals(defaultValue, value.apply(absent));
+        assertEquals(size + 1, map.getSize());
+        assertEquals(present, map.insert(present).value);
+        assertEquals(present, map.insertIfAbsent(present).value);
+        assertEquals(presentValue, value.apply(present));
+        assertEquals(size + 1, map.getSize());
+        BatchResult result = map.insertAll(new int[] { present, absent + 2, absent, absent + 2 });
+        assertEquals(3, result.getDuplicates());
+        assertEquals(size + 2, map.getSize());
+        assertEquals(defaultValue, value.apply(absent + 2));
+        assertEquals(presentValue, value.apply(present));
+        map.bulkLoad(new int[] { 1, 2, 2, 3, 3, 3 });
+        assertEquals(3, map.getSize());
+        assertEquals(Arrays.asList(1, 2, 3),
+                TreeAssertions.toList(map.rangeIterator(Integer.MIN_VALUE, Integer.MAX_VALUE)));
+        for (int key = 1; key <= 3; key++) {
+            assertEquals(defaultValue, value.apply(key));
+        }
+        assertEquals(null, value.apply(absent));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String put(AbstractBinarySearchTree tree, int key, String value) {
+        return tree instanceof IntAVLMap ? ((IntAVLMap<String>) tree).put(key, value)
+                : ((IntRedBlackMap<String>) tree).put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String get(AbstractBinarySearchTree tree, int key) {
+        return tree instanceof IntAVLMap ? ((IntAVLMap<String>) tree).get(key)
+                : ((IntRedBlackMap<String>) tree).get(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String remove(AbstractBinarySearchTree tree, int key) {
+        return tree instanceof IntAVLMap ? ((IntAVLMap<String>) tree).remove(key)
+                : ((IntRedBlackMap<String>) tree).remove(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String computeIfAbsent(AbstractBinarySearchTree tree, int key, final String value) {
+        return tree instanceof IntAVLMap ? ((IntAVLMap<String>) tree).computeIfAbsent(key, k -> value)
+                : ((IntRedBlackMap<String>) tree).computeIfAbsent(key, k -> value);
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Split, join, union, intersection and difference of AVL, red-black trees and treaps compared with {@link TreeSet}.
+ */
+class JoinableTreeTest {
+
+    private static final int ROUNDS = 200;
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void avlTree() {
+        checkTreeType(new Factory() {
+            @Override
+            public AbstractJoinableBinarySearchTree create(boolean orderStatistic) {
+                return new AVLTree(orderStatistic);
+            }
+        }, 1);
+    }
+
+    @Test
+    void redBlackTree() {
+        checkTreeType(new Factory() {
+            @Override
+            public AbstractJoinableBinarySearchTree create(boolean orderStatistic) {
+                return new RedBlackTree(orderStatistic);
+            }
+        }, 2);
+    }
+
+    @Test
+    void treap() {
+        checkTreeType(new Factory() {
+            @Override
+            public AbstractJoinableBinarySearchTree create(boolean orderStatistic) {
+                return new Treap(orderStatistic);
+            }
+        }, 3);
+    }
+
+    @Test
+    void redBlackPiecesKeepBlackHeight() {
+        // pieces of earlier splits are split and joined again, so ranks passed through join must stay exact
+        Random random = new Random(4);
+        RedBlackTree tree = new RedBlackTree();
+        TreeSet<Integer> expected = new TreeSet<Integer>();
+        for (int i = 0; i < 5000; i++) {
+            tree.insert(i);
+            expected.add(i);
+        }
+        for (int round = 0; round < 300; round++) {
+            int lo = random.nextInt(5000);
+            int hi = lo + random.nextInt(500);
+            AbstractJoinableBinarySearchTree middle = tree.split(lo);
+            AbstractJoinableBinarySearchTree right = middle.split(hi);
+            check(tree, new TreeSet<Integer>(expected.headSet(lo)));
+            check(middle, new TreeSet<Integer>(expected.subSet(lo, hi)));
+            check(right, new TreeSet<Integer>(expected.tailSet(hi)));
+            tree.join(middle);
+            tree.join(right);
+            check(tree, expected);
+        }
+    }
+
+    @Test
+    void joinRejectsOverlappingTrees() {
+        AVLTree left = new AVLTree();
+        AVLTree right = new AVLTree();
+        left.insert(5);
+        right.insert(4);
+        assertThrows(IllegalArgumentException.class, () -> left.join(right));
+        assertThrows(IllegalArgumentException.class, () -> left.union(left));
+        assertThrows(IllegalArgumentException.class, () -> left.union(new RedBlackTree()));
+    }
+
+    private static void checkTreeType(Factory factory, long seed) {
+        Random random = new Random(seed);
+        for (int round = 0; round < ROUNDS; round++) {
+            boolean orderStatistic = random.nextBoolean();
+            // sizes of very different magnitude exercise joins of trees of different heights
+            int range = 1 + random.nextInt(round % 10 == 0 ? 20000 : 500);
+            TreeSet<Integer> a = randomSet(random, random.nextInt(range), range);
+            TreeSet<Integer> b = randomSet(random, random.nextInt(range), range);
+
+            AbstractJoinableBinarySearchTree tree = fill(factory.create(orderStatistic), a);
+            int key = random.nextInt(range + 2) - 1;
+            AbstractJoinableBinarySearchTree right = tree.split(key);
+            check(tree, new TreeSet<Integer>(a.headSet(key)));
+            check(right, new TreeSet<Integer>(a.tailSet(key)));
+            tree.join(right);
+            check(tree, a);
+            check(right, new TreeSet<Integer>());
+
+            AbstractJoinableBinarySearchTree union = fill(factory.create(orderStatistic), a);
+            union.union(fill(factory.create(orderStatistic), b), pool);
+            TreeSet<Integer> expected = new TreeSet<Integer>(a);
+            expected.addAll(b);
+            check(union, expected);
+
+            AbstractJoinableBinarySearchTree intersection = fill(factory.create(orderStatistic), a);
+            intersection.intersection(fill(factory.create(orderStatistic), b), pool);
+            expected = new TreeSet<Integer>(a);
+            expected.retainAll(b);
+            check(intersection, expected);
+
+            AbstractJoinableBinarySearchTree difference = fill(factory.create(orderStatistic), a);
+            difference.difference(fill(factory.create(orderStatistic), b), pool);
+            expected = new TreeSet<Integer>(a);
+            expected.removeAll(b);
+            check(difference, expected);
+        }
+    }
+
+    private static TreeSet<Integer> randomSet(Random random, int size, int range) {
+        TreeSet<Integer> set = new TreeSet<Integer>();
+        for (int i = 0; i < size; i++) {
+            set.add(random.nextInt(range));
+        }
+        return set;
+    }
+
+    private static AbstractJoinableBinarySearchTree fill(AbstractJoinableBinarySearchTree tree, TreeSet<Integer> keys) {
+        for (int key : keys) {
+            tree.insert(key);
+        }
+        return tree;
+    }
+
+    private static void check(AbstractJoinableBinarySearchTree tree, TreeSet<Integer> expected) {
+        TreeAssertions.assertContent(tree, expected);
+        if (tree instanceof AVLTree) {
+            TreeAssertions.assertAvl((AVLTree) tree, tree.root);
+        } else if (tree instanceof RedBlackTree) {
+            TreeAssertions.assertRedBlack((RedBlackTree) tree);
+        } else {
+            TreeAssertions.assertTreap((Treap) tree, tree.root);
+        }
+        if (tree.orderStatistic && !expected.isEmpty()) {
+            assertEquals((int) expected.last(), tree.select(expected.size() - 1));
+        }
+    }
+
+    private interface Factory {
+        AbstractJoinableBinarySearchTree create(boolean orderStatistic);
+    }
+
+}
@@ -0,0 +1,235 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Long, double and comparator key trees on top of every tree type compared with {@link TreeMap} of counts.
+ */
+class KeyTreeTest {
+
+    private static final int OPERATIONS = 20000;
+
+    @Test
+    void longKeysOnEveryTreeType() {
+        long seed = 1;
+        for (AbstractBinarySearchTree tree : trees()) {
+            checkLongs(new LongKeyTree(tree), tree, seed++);
+        }
+    }
+
+    @Test
+    void doubleKeysKeepDoubleCompareOrder() {
+        DoubleKeyTree tree = new DoubleKeyTree(new RedBlackTree(true));
+        double[] values = { Double.NaN, 1.5, -0.0, 0.0, Double.NEGATIVE_INFINITY, -1.5, Double.POSITIVE_INFINITY };
+        for (double value : values) {
+            tree.insert(value);
+        }
+        double[] expected = { Double.NEGATIVE_INFINITY, -1.5, -0.0, 0.0, 1.5, Double.POSITIVE_INFINITY, Double.NaN };
+        List<Double> ascending = new ArrayList<Double>();
+        for (PrimitiveIterator.OfDouble it = tree.rangeIterator(Double.NEGATIVE_INFINITY, Double.NaN); it.hasNext();) {
+            ascending.add(it.nextDouble());
+        }
+        assertEquals(expected.length, ascending.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(ascending.get(i)));
+            assertEquals(Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(tree.select(i)));
+        }
+        assertEquals(2, tree.countInRange(-0.0, 0.0));
+        assertEquals(Double.doubleToLongBits(0.0), Double.doubleToLongBits(tree.higher(-0.0)));
+        assertEquals(true, tree.delete(Double.NaN));
+        assertEquals(Double.POSITIVE_INFINITY, tree.getMaximum());
+    }
+
+    @Test
+    void comparatorKeysOnEveryTreeType() {
+        long seed = 100;
+        for (AbstractBinarySearchTree tree : trees()) {
+            Random random = new Random(seed++);
+            // reversed order of strings checks that comparator and not natural order is used
+            ComparatorKeyTree<String> keys = new ComparatorKeyTree<String>(tree, Comparator.reverseOrder());
+            TreeMap<String, Integer> counts = new TreeMap<String, Integer>(Comparator.reverseOrder());
+            for (int i = 0; i < OPERATIONS; i++) {
+                String key = Integer.toString(random.nextInt(500));
+                Integer count = counts.get(key);
+                if (random.nextInt(3) > 0) {
+                    keys.insert(key);
+                    counts.put(key, count == null ? 1 : count + 1);
+                } else {
+                    assertEquals(count != null, keys.delete(key));
+                    if (count != null) {
+                        decrement(counts, key, count);
+                    }
+                }
+                assertEquals(counts.containsKey(key), keys.contains(key));
+            }
+            List<String> expected = expand(counts);
+            List<String> actual = new ArrayList<String>();
+            for (String key : keys) {
+                actual.add(key);
+            }
+            assertEquals(expected, actual);
+            if (!counts.isEmpty()) {
+                assertEquals(counts.firstKey(), keys.getMinimum());
+                assertEquals(counts.lastKey(), keys.getMaximum());
+                List<String> range = new ArrayList<String>();
+                for (Iterator<String> it = keys.rangeIterator("40", "20"); it.hasNext();) {
+                    range.add(it.next());
+                }
+                assertEquals(expand(counts.subMap("40", true, "20", true)), range);
+            }
+        }
+    }
+
+    @Test
+    void wrappedTreeRejectsIntOrderOperations() {
+        AVLTree tree = new AVLTree();
+        new LongKeyTree(tree);
+        assertThrows(UnsupportedOperationException.class, () -> tree.insertAll(new int[] { 1 }));
+        assertThrows(UnsupportedOperationException.class, () -> tree.bulkLoad(new int[] { 1 }));
+        assertThrows(UnsupportedOperationException.class, () -> tree.split(1));
+        assertThrows(IllegalArgumentException.class, () -> new LongKeyTree(Treap.withHashPriorities(1)));
+        AVLTree nonEmpty = new AVLTree();
+        nonEmpty.insert(1);
+        assertThrows(IllegalArgumentException.class, () -> new LongKeyTree(nonEmpty));
+    }
+
+    private static List<AbstractBinarySearchTree> trees() {
+        List<AbstractBinarySearchTree> trees = new ArrayList<AbstractBinarySearchTree>();
+        trees.add(new AVLTree(true));
+        trees.add(new AVLTree(true, true));
+        trees.add(new RedBlackTree(true));
+        trees.add(new RedBlackTree(true, true));
+        trees.add(new Treap(true));
+        trees.add(new SplayTree());
+        trees.add(new SplayTree(true, 1, 1.0, 0));
+        trees.add(new ScapegoatTree(true));
+        return trees;
+    }
+
+    private static void checkLongs(LongKeyTree keys, AbstractBinarySearchTree tree, long seed) {
+        Random random = new Random(seed);
+        TreeMap<Long, Integer> counts = new TreeMap<Long, Integer>();
+        int size = 0;
+        for (int i = 1; i <= OPERATIONS; i++) {
+            // keys beyond int range, spread so that their low 32 bits collide
+            long key = (random.nextInt(1000) - 500) * (1L << 33) + random.nextInt(3);
+            Integer count = counts.get(key);
+            switch (random.nextInt(4)) {
+            case 0:
+                keys.insert(key);
+                counts.put(key, count == null ? 1 : count + 1);
+                size++;
+                break;
+            case 1:
+                assertEquals(count == null, keys.insertIfAbsent(key));
+                if (count == null) {
+                    counts.put(key, 1);
+                    size++;
+                }
+                break;
+            default:
+                assertEquals(count != null, keys.delete(key));
+                if (count != null) {
+                    decrement(counts, key, count);
+                    size--;
+                }
+            }
+            assertEquals(size, keys.getSize());
+            Integer expectedCount = counts.get(key);
+            assertEquals(expectedCount == null ? 0 : (int) expectedCount, keys.count(key));
+            if (i % 1000 == 0) {
+                checkLongNavigation(keys, counts, random, tree.orderStatistic);
+            }
+        }
+        // node values are handles, so only balance is checked on the wrapped tree
+        if (tree instanceof AVLTree) {
+            TreeAssertions.assertAvl((AVLTree) tree, tree.root);
+        } else if (tree instanceof RedBlackTree) {
+            TreeAssertions.assertRedBlack((RedBlackTree) tree);
+        } else if (tree instanceof Treap) {
+            TreeAssertions.assertTreap((Treap) tree, tree.root);
+        }
+    }
+
+    private static void checkLongNavigation(LongKeyTree keys, TreeMap<Long, Integer> counts, Random random,
+            boolean orderStatistic) {
+        List<Long> expected = expand(counts);
+        List<Long> actual = new ArrayList<Long>();
+        for (PrimitiveIterator.OfLong it = keys.rangeIterator(Long.MIN_VALUE, Long.MAX_VALUE); it.hasNext();) {
+            actual.add(it.nextLong());
+        }
+        assertEquals(expected, actual);
+        for (int j = 0; j < 50; j++) {
+            long probe = (random.nextInt(1100) - 550) * (1L << 33) + random.nextInt(3);
+            assertEquals(counts.floorKey(probe), navigate(keys, probe, 0));
+            assertEquals(counts.ceilingKey(probe), navigate(keys, probe, 1));
+            assertEquals(counts.lowerKey(probe), navigate(keys, probe, 2));
+            assertEquals(counts.higherKey(probe), navigate(keys, probe, 3));
+            long hi = probe + random.nextInt(50) * (1L << 33);
+            List<Long> inRange = expand(counts.subMap(probe, true, hi, true));
+            final List<Long> visited = new ArrayList<Long>();
+            keys.forEachInRange(probe, hi, value -> visited.add(value));
+            assertEquals(inRange, visited);
+            if (orderStatistic) {
+                assertEquals(inRange.size(), keys.countInRange(probe, hi));
+                assertEquals(expand(counts.headMap(probe)).size(), keys.rank(probe));
+            }
+        }
+        for (int k = 0; orderStatistic && k < expected.size(); k += 37) {
+            assertEquals((long) expected.get(k), keys.select(k));
+        }
+        if (!counts.isEmpty()) {
+            assertEquals((long) counts.firstKey(), keys.getMinimum());
+            assertEquals((long) counts.lastKey(), keys.getMaximum());
+        }
+    }
+
+    private static Long navigate(LongKeyTree keys, long probe, int operation) {
+        try {
+            switch (operation) {
+            case 0:
+                return keys.floor(probe);
+            case 1:
+                return keys.ceiling(probe);
+            case 2:
+                return keys.lower(probe);
+            default:
+                return keys.higher(probe);
+            }
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    private static <K> void decrement(TreeMap<K, Integer> counts, K key, int count) {
+        if (count == 1) {
+            counts.remove(key);
+        } else {
+            counts.put(key, count - 1);
+        }
+    }
+
+    private static <K> List<K> expand(Map<K, Integer> counts) {
+        List<K> list = new ArrayList<K>();
+        for (Map.Entry<K, Integer> entry : counts.entrySet()) {
+            for (int c = 0; c < entry.getValue(); c++) {
+                list.add(entry.getKey());
+            }
+        }
+        return list;
+    }
+
+}
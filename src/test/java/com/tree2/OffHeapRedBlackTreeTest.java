@@ -0,0 +1,177 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Random operations on {@link OffHeapRedBlackTree} compared with {@link TreeSet}. Tree grows past first 1MB chunk,
+ * links and colors (kept in the highest bit of parent field) are checked after every batch of operations.
+ */
+class OffHeapRedBlackTreeTest {
+
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final int CHUNK_NODES = 1 << 16;
+    private static final int CHECK_INTERVAL = 20000;
+
+    @Test
+    void treeMatchesTreeSetAcrossChunks() {
+        Random random = new Random(1);
+        TreeSet<Integer> model = new TreeSet<Integer>();
+        try (OffHeapRedBlackTree tree = new OffHeapRedBlackTree()) {
+            assertEquals(CHUNK_BYTES, tree.getReservedBytes());
+            // grow into second chunk (index 0 is sentinel)
+            int operations = 0;
+            while (model.size() < CHUNK_NODES + CHUNK_NODES / 2) {
+                operate(tree, model, random.nextInt(), true);
+                if (++operations % CHECK_INTERVAL == 0) {
+                    checkStructure(tree, model);
+                }
+            }
+            assertEquals(2L * CHUNK_BYTES, tree.getReservedBytes());
+            checkStructure(tree, model);
+            checkNavigation(tree, model, random);
+            // mixed phase over keys which are mostly in the tree, freed nodes of both chunks are reused
+            List<Integer> keys = new ArrayList<Integer>(model);
+            for (int i = 1; i <= 200000; i++) {
+                int key = random.nextInt(4) == 0 ? random.nextInt() : keys.get(random.nextInt(keys.size()));
+                operate(tree, model, key, random.nextBoolean());
+                if (i % CHECK_INTERVAL == 0) {
+                    checkStructure(tree, model);
+                }
+            }
+            assertEquals(2L * CHUNK_BYTES, tree.getReservedBytes(), "freed nodes were not reused");
+            checkNavigation(tree, model, random);
+            while (!model.isEmpty()) {
+                assertTrue(tree.delete(model.pollFirst()));
+            }
+            checkStructure(tree, model);
+            assertThrows(NoSuchElementException.class, () -> tree.getMinimum());
+        }
+    }
+
+    @Test
+    void colorAndParentShareField() {
+        try (OffHeapRedBlackTree tree = new OffHeapRedBlackTree()) {
+            assertEquals(RedBlackIndexFixup.BLACK, tree.color(OffHeapRedBlackTree.NIL));
+            for (int i = 0; i < CHUNK_NODES + 10; i++) {
+                tree.insert(i);
+            }
+            // sequential inserts leave red nodes with parents in the second chunk
+            int redNodes = 0;
+            for (int node = CHUNK_NODES; node <= CHUNK_NODES + 10; node++) {
+                int parent = tree.parent(node);
+                assertTrue(parent > 0 && parent <= CHUNK_NODES + 10, "parent index " + parent);
+                assertTrue(tree.left(parent) == node || tree.right(parent) == node, "parent link");
+                if (tree.color(node) == RedBlackIndexFixup.RED) {
+                    redNodes++;
+                }
+            }
+            assertTrue(redNodes > 0);
+            checkStructure(tree, range(CHUNK_NODES + 10));
+        }
+    }
+
+    @Test
+    void closedTreeCanNotBeUsed() {
+        OffHeapRedBlackTree tree = new OffHeapRedBlackTree();
+        for (int i = 0; i < CHUNK_NODES + 1; i++) {
+            tree.insert(i);
+        }
+        tree.close();
+        assertEquals(0, tree.getReservedBytes());
+        assertEquals(0, tree.getSize());
+        assertThrows(IllegalStateException.class, () -> tree.insert(1));
+        assertThrows(IllegalStateException.class, () -> tree.delete(1));
+        assertThrows(IllegalStateException.class, () -> tree.contains(1));
+        assertThrows(IllegalStateException.class, () -> tree.getMinimum());
+        assertThrows(IllegalStateException.class, () -> tree.getMaximum());
+        assertThrows(IllegalStateException.class, () -> tree.getSuccessor(1));
+        tree.close();
+        assertEquals(0, tree.getReservedBytes());
+    }
+
+    private static void operate(OffHeapRedBlackTree tree, TreeSet<Integer> model, int key, boolean insert) {
+        if (insert) {
+            if (model.add(key)) {
+                tree.insert(key);
+            }
+        } else {
+            assertEquals(model.remove(key), tree.delete(key));
+        }
+        assertEquals(model.contains(key), tree.contains(key));
+    }
+
+    private static void checkNavigation(OffHeapRedBlackTree tree, TreeSet<Integer> model, Random random) {
+        assertEquals((int) model.first(), tree.getMinimum());
+        assertEquals((int) model.last(), tree.getMaximum());
+        assertThrows(NoSuchElementException.class, () -> tree.getSuccessor(model.last()));
+        for (int i = 0; i < 1000; i++) {
+            int key = model.ceiling(random.nextInt(model.last()));
+            if (key != model.last()) {
+                assertEquals((int) model.higher(key), tree.getSuccessor(key));
+            }
+        }
+    }
+
+    private static TreeSet<Integer> range(int n) {
+        TreeSet<Integer> set = new TreeSet<Integer>();
+        for (int i = 0; i < n; i++) {
+            set.add(i);
+        }
+        return set;
+    }
+
+    /**
+     * Checks content, parent links and red-black properties.
+     */
+    private static void checkStructure(OffHeapRedBlackTree tree, TreeSet<Integer> expected) {
+        assertEquals(expected.size(), tree.getSize(), "size");
+        assertEquals(RedBlackIndexFixup.BLACK, tree.color(OffHeapRedBlackTree.NIL), "sentinel color");
+        assertEquals(RedBlackIndexFixup.BLACK, tree.color(tree.root), "red root");
+        List<Integer> elements = new ArrayList<Integer>(expected.size());
+        if (tree.root != OffHeapRedBlackTree.NIL) {
+            assertEquals(OffHeapRedBlackTree.NIL, tree.parent(tree.root), "root has parent");
+            blackHeight(tree, tree.root, elements);
+        }
+        assertEquals(new ArrayList<Integer>(expected), elements);
+    }
+
+    /**
+     * @return Number of black nodes on each path from node down to nil, node included.
+     */
+    private static int blackHeight(OffHeapRedBlackTree tree, int node, List<Integer> elements) {
+        if (node == OffHeapRedBlackTree.NIL) {
+            return 0;
+        }
+        int left = tree.left(node);
+        int right = tree.right(node);
+        int color = tree.color(node);
+        if (color == RedBlackIndexFixup.RED) {
+            assertEquals(RedBlackIndexFixup.BLACK, tree.color(left), "red node with red child");
+            assertEquals(RedBlackIndexFixup.BLACK, tree.color(right), "red node with red child");
+        }
+        if (left != OffHeapRedBlackTree.NIL) {
+            assertEquals(node, tree.parent(left), "parent of left child");
+            assertTrue(tree.value(left) <= tree.value(node), "left child is greater");
+        }
+        int leftHeight = blackHeight(tree, left, elements);
+        elements.add(tree.value(node));
+        if (right != OffHeapRedBlackTree.NIL) {
+            assertEquals(node, tree.parent(right), "parent of right child");
+            assertTrue(tree.value(right) >= tree.value(node), "right child is smaller");
+        }
+        assertEquals(leftHeight, blackHeight(tree, right, elements), "black height");
+        return leftHeight + (color == RedBlackIndexFixup.BLACK ? 1 : 0);
+    }
+
+}
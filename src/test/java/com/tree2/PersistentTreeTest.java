@@ -0,0 +1,114 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import com.tree2.AbstractPersistentBinarySearchTree.PersistentNode;
+import com.tree2.AbstractPersistentBinarySearchTree.Snapshot;
+
+/**
+ * Persistent trees compared with {@link TreeSet}, old snapshots must keep their content after later updates.
+ */
+class PersistentTreeTest {
+
+    @Test
+    void persistentAvlTree() {
+        check(new PersistentAVLTree(), 1);
+    }
+
+    @Test
+    void persistentRedBlackTree() {
+        check(new PersistentRedBlackTree(), 2);
+    }
+
+    private static void check(AbstractPersistentBinarySearchTree tree, long seed) {
+        Random random = new Random(seed);
+        TreeSet<Integer> model = new TreeSet<Integer>();
+        List<Snapshot> snapshots = new ArrayList<Snapshot>();
+        List<TreeSet<Integer>> models = new ArrayList<TreeSet<Integer>>();
+        for (int i = 1; i <= 30000; i++) {
+            int key = random.nextInt(2000);
+            if (random.nextInt(30000) >= i / 2) {
+                assertEquals(model.add(key), tree.insert(key));
+            } else {
+                assertEquals(model.remove(key), tree.delete(key));
+            }
+            assertEquals(model.contains(key), tree.contains(key));
+            if (i % 1000 == 0) {
+                snapshots.add(tree.snapshot());
+                models.add(new TreeSet<Integer>(model));
+                checkSnapshot(tree, tree.snapshot(), model, random);
+            }
+        }
+        for (int i = 0; i < snapshots.size(); i++) {
+            checkSnapshot(tree, snapshots.get(i), models.get(i), random);
+        }
+    }
+
+    private static void checkSnapshot(AbstractPersistentBinarySearchTree tree, Snapshot snapshot,
+            TreeSet<Integer> model, Random random) {
+        assertEquals(model.size(), snapshot.getSize());
+        assertEquals(new ArrayList<Integer>(model),
+                TreeAssertions.toList(snapshot.rangeIterator(Integer.MIN_VALUE, Integer.MAX_VALUE)));
+        for (int j = 0; j < 100; j++) {
+            int lo = random.nextInt(2100) - 50;
+            int hi = lo + random.nextInt(100);
+            assertEquals(model.contains(lo), snapshot.contains(lo));
+            assertEquals(new ArrayList<Integer>(model.subSet(lo, true, hi, true)),
+                    TreeAssertions.toList(snapshot.rangeIterator(lo, hi)));
+        }
+        if (!model.isEmpty()) {
+            assertEquals((int) model.first(), snapshot.getMinimum());
+            assertEquals((int) model.last(), snapshot.getMaximum());
+        }
+        if (tree instanceof PersistentAVLTree) {
+            checkAvl(snapshot.getRoot());
+        } else {
+            PersistentNode root = snapshot.getRoot();
+            assertTrue(root == null || root.info == PersistentRedBlackTree.BLACK, "red root");
+            checkRedBlack(root);
+        }
+    }
+
+    /**
+     * @return Height of subtree.
+     */
+    private static int checkAvl(PersistentNode node) {
+        if (node == null) {
+            return -1;
+        }
+        int left = checkAvl(node.left);
+        int right = checkAvl(node.right);
+        assertTrue(Math.abs(left - right) <= 1, "AVL balance");
+        assertEquals(Math.max(left, right) + 1, node.info, "stored height");
+        return node.info;
+    }
+
+    /**
+     * @return Black height of subtree.
+     */
+    private static int checkRedBlack(PersistentNode node) {
+        if (node == null) {
+            return 0;
+        }
+        if (node.info == PersistentRedBlackTree.RED) {
+            assertFalse(isRed(node.left) || isRed(node.right), "red node with red child");
+        }
+        int left = checkRedBlack(node.left);
+        assertEquals(left, checkRedBlack(node.right), "black height");
+        return left + (node.info == PersistentRedBlackTree.BLACK ? 1 : 0);
+    }
+
+    private static boolean isRed(PersistentNode node) {
+        return node != null && node.info == PersistentRedBlackTree.RED;
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import com.tree2.AbstractBinarySearchTree.Node;
+
+/**
+ * Rebuilds of {@link ScapegoatTree}: in place Day-Stout-Warren rebuild and incremental rebuild with operations
+ * interleaved while it is pending. Contents are compared with {@link TreeSet} and height with alpha-height of size.
+ */
+class ScapegoatTreeTest {
+
+    private static final double ALPHA = 0.57;
+    private static final int OPERATIONS = 20000;
+    private static final int KEY_RANGE = 4000;
+    private static final int CHECK_INTERVAL = 500;
+
+    @Test
+    void inPlaceRebuildKeepsOrderAndAlphaHeight() {
+        checkRebuilds(new ScapegoatTree(), 1);
+        checkRebuilds(new ScapegoatTree(true), 2);
+    }
+
+    @Test
+    void wholeTreeRebuildIsComplete() {
+        ScapegoatTree tree = new ScapegoatTree();
+        TreeMetrics metrics = new TreeMetrics();
+        tree.setListener(metrics);
+        TreeSet<Integer> model = new TreeSet<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            tree.insert(i);
+            model.add(i);
+        }
+        int wholeTreeRebuilds = 0;
+        for (int i = 0; i < 1000; i++) {
+            long rebuiltNodes = metrics.getRebuiltNodes();
+            tree.delete(i);
+            model.remove(i);
+            if (metrics.getRebuiltNodes() - rebuiltNodes == tree.getSize() && !model.isEmpty()) {
+                // Day-Stout-Warren gives complete tree, only the last level may be partly filled
+                assertEquals(31 - Integer.numberOfLeadingZeros(tree.getSize()), height(tree.root));
+                TreeAssertions.assertContent(tree, model);
+                wholeTreeRebuilds++;
+            }
+        }
+        assertTrue(wholeTreeRebuilds > 0, "shrinking tree was never rebuilt");
+    }
+
+    @Test
+    void incrementalRebuildWithInterleavedOperations() {
+        for (int budget : new int[] { 1, 4, 16 }) {
+            ScapegoatTree tree = new ScapegoatTree(ALPHA, budget);
+            Random random = new Random(budget);
+            TreeSet<Integer> model = new TreeSet<Integer>();
+            int pendingOperations = 0;
+            for (int i = 1; i <= OPERATIONS; i++) {
+                // ascending runs make deep paths and big scapegoats, random keys and deletes land inside them
+                int key = i % 4 == 0 ? random.nextInt(KEY_RANGE) : i;
+                boolean pending = tree.isRebuilding();
+                if (random.nextInt(3) > 0 || model.isEmpty()) {
+                    if (model.add(key)) {
+                        tree.insert(key);
+                    }
+                } else {
+                    Integer ceiling = model.ceiling(random.nextInt(i));
+                    int deleted = ceiling != null ? ceiling : model.first();
+                    model.remove(deleted);
+                    tree.delete(deleted);
+                }
+                if (pending) {
+                    pendingOperations++;
+                    // tree stays a valid search tree with correct sizes between rebuild steps
+                    if (pendingOperations % 10 == 0) {
+                        TreeAssertions.assertContent(tree, model);
+                    }
+                }
+                if (i % CHECK_INTERVAL == 0) {
+                    tree.finishRebuild();
+                    assertFalse(tree.isRebuilding());
+                    checkTree(tree, model);
+                }
+            }
+            assertTrue(pendingOperations > OPERATIONS / 10, "rebuilds overlapped " + pendingOperations + " operations");
+        }
+    }
+
+    private static void checkRebuilds(ScapegoatTree tree, long seed) {
+        TreeSet<Integer> model = new TreeSet<Integer>();
+        // sorted inserts force a rebuild every few inserts
+        for (int i = 0; i < KEY_RANGE; i++) {
+            tree.insert(i);
+            model.add(i);
+        }
+        checkTree(tree, model);
+        Random random = new Random(seed);
+        for (int i = 1; i <= OPERATIONS; i++) {
+            int key = random.nextInt(KEY_RANGE * 2);
+            if (random.nextBoolean()) {
+                if (model.add(key)) {
+                    tree.insert(key);
+                }
+            } else if (model.remove(key)) {
+                tree.delete(key);
+            }
+            if (i % CHECK_INTERVAL == 0) {
+                checkTree(tree, model);
+            }
+        }
+    }
+
+    /**
+     * Checks content and that height is at most one above alpha-height floor(log_{1/alpha}(size)): inserts keep every
+     * node within alpha-height of current size, deletes may shrink size by factor alpha before whole tree is rebuilt.
+     */
+    private static void checkTree(ScapegoatTree tree, TreeSet<Integer> model) {
+        TreeAssertions.assertContent(tree, model);
+        if (model.isEmpty()) {
+            return;
+        }
+        int alphaHeight = (int) Math.floor(Math.log(model.size()) / Math.log(1 / ALPHA));
+        int height = height(tree.root);
+        assertTrue(height <= alphaHeight + 1, "height " + height + " above alpha-height " + alphaHeight);
+    }
+
+    /**
+     * @return Height in edges, -1 for empty subtree.
+     */
+    private static int height(Node node) {
+        if (node == null) {
+            return -1;
+        }
+        return Math.max(height(node.left), height(node.right)) + 1;
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import com.tree2.AbstractBinarySearchTree.Node;
+
+/**
+ * Splaying modes of {@link SplayTree}: structure after top-down splay, misses which must not restructure the tree,
+ * depth reached by semi-splay and reproducible random splaying.
+ */
+class SplayTreeTest {
+
+    private static final int OPERATIONS = 20000;
+    private static final int KEY_RANGE = 2000;
+    private static final int CHECK_INTERVAL = 500;
+
+    @Test
+    void topDownSplayKeepsBinarySearchTree() {
+        SplayTree tree = SplayTree.topDown();
+        Random random = new Random(1);
+        TreeSet<Integer> model = new TreeSet<Integer>();
+        for (int i = 1; i <= OPERATIONS; i++) {
+            int key = random.nextInt(KEY_RANGE);
+            switch (random.nextInt(3)) {
+            case 0:
+                if (model.add(key)) {
+                    tree.insert(key);
+                }
+                break;
+            case 1:
+                if (model.remove(key)) {
+                    tree.delete(key);
+                }
+                break;
+            default:
+                Node found = tree.search(key);
+                if (model.contains(key)) {
+                    assertSame(tree.root, found, "found node is not the root");
+                    assertEquals(key, found.value);
+                } else {
+                    assertNull(found);
+                    if (!model.isEmpty()) {
+                        // last visited node is a neighbour of missing key
+                        Integer lower = model.lower(key);
+                        Integer higher = model.higher(key);
+                        int rootValue = tree.root.value;
+                        assertTrue((lower != null && rootValue == lower) || (higher != null && rootValue == higher),
+                                "root " + rootValue + " is not a neighbour of " + key);
+                    }
+                }
+                // top-down splay relinks many nodes in one pass, check after every search
+                TreeAssertions.assertContent(tree, model);
+            }
+            if (i % CHECK_INTERVAL == 0) {
+                TreeAssertions.assertContent(tree, model);
+            }
+        }
+    }
+
+    @Test
+    void missDoesNotRestructureTree() {
+        for (SplayTree tree : new SplayTree[] { new SplayTree(), SplayTree.splayToDepth(2), SplayTree.splayEvery(1),
+                SplayTree.splayWithProbability(1.0) }) {
+            Random random = new Random(2);
+            for (int i = 0; i < 1000; i++) {
+                tree.insert(random.nextInt(KEY_RANGE) * 2);
+            }
+            for (int i = 0; i < 1000; i++) {
+                String before = shape(tree.root);
+                Node rootBefore = tree.root;
+                // odd keys are never in the tree
+                assertNull(tree.search(random.nextInt(KEY_RANGE) * 2 + 1));
+                assertSame(rootBefore, tree.root);
+                assertEquals(before, shape(tree.root));
+            }
+        }
+    }
+
+    @Test
+    void splayToDepthLeavesNodeAtDepth() {
+        for (int targetDepth = 0; targetDepth <= 4; targetDepth++) {
+            SplayTree tree = SplayTree.splayToDepth(targetDepth);
+            Random random = new Random(3 + targetDepth);
+            TreeSet<Integer> model = new TreeSet<Integer>();
+            for (int i = 0; i < 2000; i++) {
+                int key = random.nextInt(KEY_RANGE);
+                if (model.add(key)) {
+                    tree.insert(key);
+                }
+            }
+            List<Integer> keys = new ArrayList<Integer>(model);
+            for (int i = 0; i < 2000; i++) {
+                int key = keys.get(random.nextInt(keys.size()));
+                int depthBefore = depth(find(tree, key));
+                Node found = tree.search(key);
+                assertEquals(key, found.value);
+                assertEquals(Math.min(depthBefore, targetDepth), depth(found), "depth after splay");
+                if (i % CHECK_INTERVAL == 0) {
+                    TreeAssertions.assertContent(tree, model);
+                }
+            }
+            TreeAssertions.assertContent(tree, model);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new SplayTree(true, 1, 1.0, 2));
+    }
+
+    @Test
+    void seededRandomSplayingIsReproducible() {
+        String[] shapes = new String[3];
+        for (int run = 0; run < shapes.length; run++) {
+            // third run uses another seed
+            SplayTree tree = run < 2 ? SplayTree.splayWithProbability(0.5, 7)
+                    : new SplayTree(false, 1, 0.5, 0, 8);
+            Random random = new Random(4);
+            for (int i = 0; i < 1000; i++) {
+                tree.insert(random.nextInt(KEY_RANGE));
+            }
+            for (int i = 0; i < 5000; i++) {
+                tree.search(random.nextInt(KEY_RANGE));
+            }
+            shapes[run] = shape(tree.root);
+        }
+        assertEquals(shapes[0], shapes[1]);
+        assertNotEquals(shapes[0], shapes[2]);
+    }
+
+    /**
+     * Walks down from the root without splaying.
+     */
+    private static Node find(SplayTree tree, int key) {
+        Node node = tree.root;
+        while (node.value != key) {
+            node = key < node.value ? node.left : node.right;
+        }
+        return node;
+    }
+
+    private static int depth(Node node) {
+        int depth = 0;
+        for (Node ancestor = node.parent; ancestor != null; ancestor = ancestor.parent) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * @return Preorder of values with subtree brackets, equal strings mean equal trees.
+     */
+    private static String shape(Node node) {
+        if (node == null) {
+            return "-";
+        }
+        return "(" + node.value + " " + shape(node.left) + " " + shape(node.right) + ")";
+    }
+
+}
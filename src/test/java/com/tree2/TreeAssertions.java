@@ -0,0 +1,128 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import com.tree2.AbstractBinarySearchTree.Node;
+
+/**
+ * Structural checks of trees used by model based tests.
+ */
+final class TreeAssertions {
+
+    private TreeAssertions() {
+    }
+
+    /**
+     * Checks that tree holds exactly expected elements (ascending), its links and size fields are consistent.
+     */
+    static void assertContent(AbstractBinarySearchTree tree, Collection<Integer> expected) {
+        assertEquals(expected.size(), tree.getSize(), "size");
+        List<Integer> elements = toList(tree.rangeIterator(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(new ArrayList<Integer>(expected), elements);
+        if (tree.isNil(tree.root)) {
+            assertTrue(expected.isEmpty());
+            return;
+        }
+        assertTrue(tree.isNil(tree.root.parent), "root has parent");
+        assertEquals(expected.size(), checkLinks(tree, tree.root));
+    }
+
+    /**
+     * @return Number of elements in subtree.
+     */
+    private static int checkLinks(AbstractBinarySearchTree tree, Node node) {
+        int elements = node.getCount();
+        if (!tree.isNil(node.left)) {
+            assertSame(node, node.left.parent, "parent of left child");
+            assertTrue(node.left.value <= node.value, "left child is greater");
+            elements += checkLinks(tree, node.left);
+        }
+        if (!tree.isNil(node.right)) {
+            assertSame(node, node.right.parent, "parent of right child");
+            assertTrue(node.right.value >= node.value, "right child is smaller");
+            elements += checkLinks(tree, node.right);
+        }
+        if (tree.orderStatistic) {
+            assertEquals(elements, node.getSubtreeSize(), "subtree size");
+        }
+        return elements;
+    }
+
+    /**
+     * Checks stored heights and balance factors.
+     *
+     * @return Height of subtree.
+     */
+    static int assertAvl(AVLTree tree, Node node) {
+        if (tree.isNil(node)) {
+            return -1;
+        }
+        int left = assertAvl(tree, node.left);
+        int right = assertAvl(tree, node.right);
+        assertTrue(Math.abs(left - right) <= 1, "AVL balance");
+        int height = Math.max(left, right) + 1;
+        assertEquals(height, ((AVLTree.AVLNode) node).height, "stored height");
+        return height;
+    }
+
+    /**
+     * Checks that root is black, red nodes have black children and all paths have the same number of black nodes.
+     */
+    static void assertRedBlack(RedBlackTree tree) {
+        if (!tree.isNil(tree.root)) {
+            assertFalse(isRed(tree.root), "red root");
+            blackHeight(tree, tree.root);
+        }
+    }
+
+    /**
+     * @return Number of black nodes on each path from node down to nil, node included.
+     */
+    static int blackHeight(RedBlackTree tree, Node node) {
+        if (tree.isNil(node)) {
+            return 0;
+        }
+        if (isRed(node)) {
+            assertFalse(isRed(node.left) || isRed(node.right), "red node with red child");
+        }
+        int left = blackHeight(tree, node.left);
+        assertEquals(left, blackHeight(tree, node.right), "black height");
+        return left + (isRed(node) ? 0 : 1);
+    }
+
+    private static boolean isRed(Node node) {
+        return ((RedBlackTree.RedBlackNode) node).color == RedBlackTree.ColorEnum.RED;
+    }
+
+    /**
+     * Checks heap order of treap priorities.
+     */
+    static void assertTreap(Treap tree, Node node) {
+        if (tree.isNil(node)) {
+            return;
+        }
+        for (Node child : new Node[] { node.left, node.right }) {
+            if (!tree.isNil(child)) {
+                assertTrue(((Treap.TreapNode) node).priority >= ((Treap.TreapNode) child).priority, "treap priority");
+                assertTreap(tree, child);
+            }
+        }
+    }
+
+    static List<Integer> toList(PrimitiveIterator.OfInt iterator) {
+        List<Integer> list = new ArrayList<Integer>();
+        while (iterator.hasNext()) {
+            list.add(iterator.nextInt());
+        }
+        return list;
+    }
+
+}
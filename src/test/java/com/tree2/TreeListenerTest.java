@@ -0,0 +1,150 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Every tree type reports its work to {@link TreeListener}: counters of {@link TreeMetrics} move with operations
+ * which must rotate, rebalance, rebuild, splay or search.
+ */
+class TreeListenerTest {
+
+    private static final int N = 1000;
+
+    @Test
+    void avlTreeReportsRotationsAndRebalancing() {
+        AVLTree tree = new AVLTree();
+        TreeMetrics metrics = measure(tree);
+        insertSorted(tree);
+        // sorted inserts rotate after every few inserts, every insert walks up updating heights
+        assertTrue(metrics.getRotations() >= N / 2, metrics.toString());
+        assertEquals(N, metrics.getRebalances());
+        assertTrue(metrics.getRebalanceSteps() >= N);
+        checkSearches(tree, metrics);
+        metrics.reset();
+        for (int i = 0; i < N; i++) {
+            tree.delete(i);
+        }
+        assertTrue(metrics.getRotations() > 0);
+        assertTrue(metrics.getRebalances() > 0);
+        assertNothingElse(metrics);
+    }
+
+    @Test
+    void redBlackTreeReportsRotationsAndFixups() {
+        RedBlackTree tree = new RedBlackTree();
+        TreeMetrics metrics = measure(tree);
+        insertSorted(tree);
+        assertTrue(metrics.getRotations() >= N / 2, metrics.toString());
+        assertTrue(metrics.getRebalances() > 0);
+        checkSearches(tree, metrics);
+        metrics.reset();
+        for (int i = 0; i < N; i++) {
+            tree.delete(i);
+        }
+        assertTrue(metrics.getRotations() > 0);
+        assertTrue(metrics.getRebalances() > 0);
+        assertNothingElse(metrics);
+    }
+
+    @Test
+    void treapReportsSplitsAndMerges() {
+        Treap tree = new Treap(1);
+        TreeMetrics metrics = measure(tree);
+        insertSorted(tree);
+        // treap does not rotate, every insert splits path below the new node
+        assertEquals(0, metrics.getRotations());
+        assertEquals(N, metrics.getRebalances());
+        assertTrue(metrics.getRebalanceSteps() > 0, metrics.toString());
+        checkSearches(tree, metrics);
+        metrics.reset();
+        for (int i = 0; i < N; i += 2) {
+            tree.delete(i);
+        }
+        // deleted node with two children is replaced by merge of them
+        assertTrue(metrics.getRebalances() > 0 && metrics.getRebalances() <= N / 2, metrics.toString());
+        metrics.reset();
+        Treap other = new Treap(2);
+        for (int i = N; i < 2 * N; i++) {
+            other.insert(i);
+        }
+        tree.join(other);
+        tree.split(N / 2);
+        assertTrue(metrics.getRebalanceSteps() > 0, metrics.toString());
+        assertEquals(0, metrics.getRotations());
+        assertNothingElse(metrics);
+    }
+
+    @Test
+    void scapegoatTreeReportsRebuilds() {
+        for (ScapegoatTree tree : new ScapegoatTree[] { new ScapegoatTree(), new ScapegoatTree(0.57, 4) }) {
+            TreeMetrics metrics = measure(tree);
+            insertSorted(tree);
+            assertTrue(metrics.getRebuilds() > 0, metrics.toString());
+            assertTrue(metrics.getRebuiltNodes() >= metrics.getRebuilds() * 2);
+            checkSearches(tree, metrics);
+            assertEquals(0, metrics.getSplays());
+        }
+    }
+
+    @Test
+    void splayTreeReportsSplays() {
+        for (SplayTree tree : new SplayTree[] { new SplayTree(), SplayTree.topDown(), SplayTree.splayToDepth(3) }) {
+            TreeMetrics metrics = measure(tree);
+            insertSorted(tree);
+            metrics.reset();
+            // sorted inserts leave a path, search for its far end moves node up by many levels
+            tree.search(0);
+            assertEquals(1, metrics.getSearches());
+            assertEquals(1, metrics.getSplays());
+            assertTrue(metrics.getSplayDepth() >= N / 2, metrics.toString());
+            assertTrue(metrics.getRotations() > 0);
+            assertEquals(0, metrics.getRebuilds());
+        }
+    }
+
+    @Test
+    void plainTreeReportsOnlySearches() {
+        BinarySearchTree tree = new BinarySearchTree();
+        TreeMetrics metrics = measure(tree);
+        insertSorted(tree);
+        checkSearches(tree, metrics);
+        assertEquals(0, metrics.getRotations());
+        assertNothingElse(metrics);
+        tree.setListener(null);
+        tree.search(1);
+        assertEquals(N, metrics.getSearches());
+    }
+
+    private static TreeMetrics measure(AbstractBinarySearchTree tree) {
+        TreeMetrics metrics = new TreeMetrics();
+        tree.setListener(metrics);
+        return metrics;
+    }
+
+    private static void insertSorted(AbstractBinarySearchTree tree) {
+        for (int i = 0; i < N; i++) {
+            tree.insert(i);
+        }
+    }
+
+    /**
+     * Every search reports one descent, path length of successful search is at least one node.
+     */
+    private static void checkSearches(AbstractBinarySearchTree tree, TreeMetrics metrics) {
+        metrics.reset();
+        for (int i = 0; i < N; i++) {
+            tree.search(i);
+        }
+        assertEquals(N, metrics.getSearches());
+        assertTrue(metrics.getSearchPathLength() >= N);
+    }
+
+    private static void assertNothingElse(TreeMetrics metrics) {
+        assertEquals(0, metrics.getRebuilds());
+        assertEquals(0, metrics.getSplays());
+    }
+
+}
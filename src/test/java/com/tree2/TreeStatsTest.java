@@ -0,0 +1,122 @@
+package com.tree2;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link TreeStats} of small trees whose shape is known from insertion order.
+ */
+class TreeStatsTest {
+
+    @Test
+    void perfectTree() {
+        TreeStats stats = TreeStats.collect(tree(4, 2, 6, 1, 3, 5, 7));
+        assertEquals(7, stats.getSize());
+        assertEquals(7, stats.getNodeCount());
+        assertEquals(2, stats.getHeight());
+        assertEquals(2, stats.getMinimalHeight());
+        assertEquals(1.0, stats.getHeightRatio());
+        assertArrayEquals(new int[] { 1, 2, 4 }, stats.getDepthHistogram());
+        assertEquals(4, stats.getLeaves());
+        assertEquals(0, stats.getSingleChildNodes());
+        assertEquals(3, stats.getFullNodes());
+        assertEquals((1 + 2 * 2 + 4 * 3) / 7.0, stats.getAverageSearchDepth(), 1e-9);
+        assertEquals(3, stats.getMaxSearchDepth());
+        assertEquals(Collections.singletonMap("Node", 7), stats.getNodesByClass());
+        assertEquals(7L * TreeStats.estimateInstanceBytes(AbstractBinarySearchTree.Node.class),
+                stats.getEstimatedBytes());
+    }
+
+    @Test
+    void unbalancedTrees() {
+        // 5 -> (3 -> 1), 8
+        TreeStats stats = TreeStats.collect(tree(5, 3, 8, 1));
+        assertEquals(2, stats.getHeight());
+        assertArrayEquals(new int[] { 1, 2, 1 }, stats.getDepthHistogram());
+        assertEquals(2, stats.getLeaves());
+        assertEquals(1, stats.getSingleChildNodes());
+        assertEquals(1, stats.getFullNodes());
+        // sorted inserts make a path
+        stats = TreeStats.collect(tree(1, 2, 3, 4, 5));
+        assertEquals(4, stats.getHeight());
+        assertEquals(2, stats.getMinimalHeight());
+        assertEquals(2.0, stats.getHeightRatio());
+        assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, stats.getDepthHistogram());
+        assertEquals(1, stats.getLeaves());
+        assertEquals(4, stats.getSingleChildNodes());
+        assertEquals(0, stats.getFullNodes());
+    }
+
+    @Test
+    void emptyAndSingleNodeTrees() {
+        TreeStats stats = TreeStats.collect(new BinarySearchTree());
+        assertEquals(0, stats.getNodeCount());
+        assertEquals(-1, stats.getHeight());
+        assertEquals(-1, stats.getMinimalHeight());
+        assertArrayEquals(new int[0], stats.getDepthHistogram());
+        assertEquals(0, stats.getLeaves());
+        assertEquals(Collections.emptyMap(), stats.getNodesByClass());
+        assertEquals(0, stats.getEstimatedBytes());
+        stats = TreeStats.collect(tree(1));
+        assertEquals(0, stats.getHeight());
+        assertArrayEquals(new int[] { 1 }, stats.getDepthHistogram());
+        assertEquals(1, stats.getLeaves());
+    }
+
+    @Test
+    void nodeClassesAndMultisetSize() {
+        AVLTree avl = new AVLTree();
+        for (int i = 1; i <= 7; i++) {
+            avl.insert(i);
+        }
+        TreeStats stats = TreeStats.collect(avl);
+        // sorted inserts are rebalanced into perfect tree
+        assertArrayEquals(new int[] { 1, 2, 4 }, stats.getDepthHistogram());
+        assertEquals(Collections.singletonMap("AVLNode", 7), stats.getNodesByClass());
+        assertEquals(7L * TreeStats.estimateInstanceBytes(AVLTree.AVLNode.class), stats.getEstimatedBytes());
+        AVLTree multiset = new AVLTree(true, true);
+        for (int i = 0; i < 5; i++) {
+            multiset.insert(1);
+            multiset.insert(2);
+        }
+        stats = TreeStats.collect(multiset);
+        assertEquals(10, stats.getSize());
+        assertEquals(2, stats.getNodeCount());
+    }
+
+    @Test
+    void rotationsComeFromMetricsListener() {
+        AVLTree avl = new AVLTree();
+        for (int i = 1; i <= 7; i++) {
+            avl.insert(i);
+        }
+        assertEquals(-1, TreeStats.collect(avl).getRotations());
+        avl.setListener(new TreeListener() {
+        });
+        assertEquals(-1, TreeStats.collect(avl).getRotations());
+        TreeMetrics metrics = new TreeMetrics();
+        AVLTree measured = new AVLTree();
+        measured.setListener(metrics);
+        // 3, 5, 6 (at the root) and 7 each need one single rotation
+        for (int i = 1; i <= 7; i++) {
+            measured.insert(i);
+        }
+        assertEquals(4, metrics.getRotations());
+        assertEquals(4, TreeStats.collect(measured).getRotations());
+        metrics.reset();
+        assertEquals(0, TreeStats.collect(measured).getRotations());
+    }
+
+    private static BinarySearchTree tree(int... keys) {
+        BinarySearchTree tree = new BinarySearchTree();
+        for (int key : keys) {
+            tree.insert(key);
+        }
+        return tree;
+    }
+
+}